@@ -28,12 +28,17 @@ import java.io.IOException;
 import java.net.CookieStore;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.spdy.api.Session;
+import org.eclipse.jetty.spdy.client.SPDYClient;
+import org.eclipse.jetty.spdy.client.SPDYClientConnectionFactory;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
@@ -45,6 +50,7 @@ import org.restlet.engine.adapter.ClientCall;
 import org.restlet.engine.ssl.DefaultSslContextFactory;
 import org.restlet.engine.util.ReferenceUtils;
 import org.restlet.ext.jetty.internal.JettyClientCall;
+import org.restlet.ext.jetty.internal.JettySpdyClientCall;
 import org.restlet.ext.jetty.internal.RestletSslContextFactory;
 
 /**
@@ -136,6 +142,16 @@ import org.restlet.ext.jetty.internal.RestletSslContextFactory;
  * <td>The size in bytes of the buffer used to read responses</td>
  * </tr>
  * <tr>
+ * <td>spdyVersion</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>The SPDY version used to send requests, 2 or 3, with all the calls to a
+ * destination multiplexed as streams of a single session. When 0, requests are
+ * sent over HTTP/1.1. SPDY is spoken directly on new connections, so the server
+ * must expect it with prior knowledge over clear-text, or negotiate it with NPN
+ * over SSL, which requires the NPN boot JAR</td>
+ * </tr>
+ * <tr>
  * <td>stopTimeout</td>
  * <td>long</td>
  * <td>60000</td>
@@ -184,6 +200,28 @@ public class HttpClientHelper extends
      */
     private volatile HttpClient httpClient;
 
+    /**
+     * The SPDY sessions, one per destination.
+     */
+    private final ConcurrentMap<String, Session> spdySessions;
+
+    /**
+     * The SPDY client speaking directly on clear-text connections, when
+     * enabled.
+     */
+    private volatile SPDYClient spdyClient;
+
+    /**
+     * The SPDY client factory, when enabled.
+     */
+    private volatile SPDYClient.Factory spdyClientFactory;
+
+    /**
+     * The SPDY client negotiating SPDY with NPN over SSL connections, when
+     * enabled.
+     */
+    private volatile SPDYClient spdySslClient;
+
     /**
      * Constructor.
      * 
@@ -192,6 +230,7 @@ public class HttpClientHelper extends
      */
     public HttpClientHelper(Client client) {
         super(client);
+        this.spdySessions = new ConcurrentHashMap<String, Session>();
         getProtocols().add(Protocol.HTTP);
         getProtocols().add(Protocol.HTTPS);
     }
@@ -207,9 +246,15 @@ public class HttpClientHelper extends
         ClientCall result = null;
 
         try {
-            result = new JettyClientCall(this, request.getMethod().toString(),
-                    ReferenceUtils.update(request.getResourceRef(), request)
-                            .toString());
+            String method = request.getMethod().toString();
+            String requestUri = ReferenceUtils.update(
+                    request.getResourceRef(), request).toString();
+
+            if (this.spdyClient != null) {
+                result = new JettySpdyClientCall(this, method, requestUri);
+            } else {
+                result = new JettyClientCall(this, method, requestUri);
+            }
         } catch (IOException e) {
             getLogger().log(Level.WARNING,
                     "Unable to create the Jetty HTTP/HTTPS client call", e);
@@ -224,17 +269,7 @@ public class HttpClientHelper extends
      * @return A new HTTP client.
      */
     private HttpClient createHttpClient() {
-        SslContextFactory sslContextFactory = null;
-
-        try {
-            sslContextFactory = new RestletSslContextFactory(
-                    org.restlet.engine.ssl.SslUtils.getSslContextFactory(this));
-        } catch (Exception e) {
-            getLogger().log(Level.WARNING,
-                    "Unable to create the SSL context factory.", e);
-        }
-
-        HttpClient httpClient = new HttpClient(sslContextFactory);
+        HttpClient httpClient = new HttpClient(createSslContextFactory());
         httpClient.setAddressResolutionTimeout(getAddressResolutionTimeout());
         httpClient.setBindAddress(getBindAddress());
         httpClient.setConnectTimeout(getConnectTimeout());
@@ -270,6 +305,39 @@ public class HttpClientHelper extends
         return httpClient;
     }
 
+    /**
+     * Creates a Jetty SPDY client factory, sharing the executor and scheduler
+     * of the HTTP client.
+     * 
+     * @return A new SPDY client factory.
+     */
+    private SPDYClient.Factory createSpdyClientFactory() {
+        SPDYClient.Factory result = new SPDYClient.Factory(getHttpClient()
+                .getExecutor(), getHttpClient().getScheduler(),
+                createSslContextFactory(), getIdleTimeout());
+        result.setConnectTimeout(getConnectTimeout());
+        return result;
+    }
+
+    /**
+     * Creates a Jetty SSL context factory.
+     * 
+     * @return A new SSL context factory or null.
+     */
+    private SslContextFactory createSslContextFactory() {
+        SslContextFactory result = null;
+
+        try {
+            result = new RestletSslContextFactory(
+                    org.restlet.engine.ssl.SslUtils.getSslContextFactory(this));
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING,
+                    "Unable to create the SSL context factory.", e);
+        }
+
+        return result;
+    }
+
     /**
      * The timeout in milliseconds for the DNS resolution of host addresses.
      * Defaults to 15000.
@@ -426,6 +494,58 @@ public class HttpClientHelper extends
         return null;
     }
 
+    /**
+     * Returns the SPDY session to the given destination, connecting a new one
+     * if none is open yet. All the calls to this destination are multiplexed
+     * as streams of this session.
+     * 
+     * @param confidential
+     *            Indicates if the destination is reached over SSL.
+     * @param host
+     *            The destination host.
+     * @param port
+     *            The destination port.
+     * @return The SPDY session to the given destination.
+     * @throws Exception
+     *             If the connection failed.
+     */
+    public Session getSpdySession(boolean confidential, String host, int port)
+            throws Exception {
+        String key = (confidential ? "https://" : "http://") + host + ":"
+                + port;
+        Session result = this.spdySessions.get(key);
+
+        if ((result == null)
+                || !this.spdyClientFactory.getSessions().contains(result)) {
+            synchronized (this.spdySessions) {
+                result = this.spdySessions.get(key);
+
+                if ((result == null)
+                        || !this.spdyClientFactory.getSessions().contains(
+                                result)) {
+                    SPDYClient spdyClient = confidential ? this.spdySslClient
+                            : this.spdyClient;
+                    result = spdyClient.connect(new InetSocketAddress(host,
+                            port), null);
+                    this.spdySessions.put(key, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The SPDY version used to send requests, 2 or 3. When 0, requests are
+     * sent over HTTP/1.1. Defaults to 0.
+     * 
+     * @return The SPDY version used to send requests.
+     */
+    public int getSpdyVersion() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "spdyVersion", "0"));
+    }
+
     /**
      * Stop timeout in milliseconds. Defaults to 60000.
      * <p>
@@ -525,11 +645,36 @@ public class HttpClientHelper extends
         if (httpClient != null) {
             getLogger().info("Starting a Jetty HTTP/HTTPS client");
             httpClient.start();
+
+            int spdyVersion = getSpdyVersion();
+
+            if (spdyVersion != 0) {
+                this.spdyClientFactory = createSpdyClientFactory();
+                this.spdyClientFactory.start();
+                this.spdySslClient = this.spdyClientFactory
+                        .newSPDYClient((short) spdyVersion);
+                this.spdySslClient.setBindAddress(getBindAddress());
+                this.spdySslClient.setIdleTimeout(getIdleTimeout());
+                this.spdyClient = this.spdyClientFactory
+                        .newSPDYClient((short) spdyVersion);
+                this.spdyClient
+                        .setClientConnectionFactory(new SPDYClientConnectionFactory());
+                this.spdyClient.setBindAddress(getBindAddress());
+                this.spdyClient.setIdleTimeout(getIdleTimeout());
+            }
         }
     }
 
     @Override
     public void stop() throws Exception {
+        if (this.spdyClientFactory != null) {
+            this.spdyClientFactory.stop();
+            this.spdyClientFactory = null;
+            this.spdyClient = null;
+            this.spdySslClient = null;
+            this.spdySessions.clear();
+        }
+
         final HttpClient httpClient = getHttpClient();
         if (httpClient != null) {
             getLogger().info("Stopping a Jetty HTTP/HTTPS client");
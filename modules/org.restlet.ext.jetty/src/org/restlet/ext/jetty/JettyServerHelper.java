@@ -223,6 +223,16 @@ import org.restlet.ext.jetty.internal.JettyServerCall;
  * <td>SPDY push strategy; can be null or "referrer" (shortcut for
  * "org.eclipse.jetty.spdy.server.http.ReferrerPushStrategy") or a class name.</td>
  * </tr>
+ * <tr>
+ * <td>spdy.clearText</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if SPDY is spoken directly on new connections, with prior
+ * knowledge instead of NPN negotiation. Only used if "spdy.version" isn't 0.
+ * This is the SPDY equivalent of HTTP/2 over clear-text (h2c) and doesn't
+ * require any boot classpath change, but HTTP/1.1 clients can't connect
+ * anymore.</td>
+ * </tr>
  * </table>
  * 
  * @see <a href="http://www.eclipse.org/jetty/">Jetty home page</a>
@@ -364,6 +374,14 @@ public abstract class JettyServerHelper extends
             HTTPSPDYServerConnectionFactory spdy2 = new HTTPSPDYServerConnectionFactory(
                     2, configuration, pushStrategy);
 
+            // Prior knowledge, the first factory being the default one
+            if (isSpdyClearText()) {
+                if (spdyVersion == 3)
+                    return new ConnectionFactory[] { spdy3, spdy2 };
+                else
+                    return new ConnectionFactory[] { spdy2 };
+            }
+
             // NPN connection factory
             NPNServerConnectionFactory npn;
 
@@ -807,6 +825,17 @@ public abstract class JettyServerHelper extends
         return this.wrappedServer;
     }
 
+    /**
+     * Indicates if SPDY is spoken directly on new connections, with prior
+     * knowledge instead of NPN negotiation. Defaults to false.
+     * 
+     * @return True if SPDY is spoken directly on new connections.
+     */
+    public boolean isSpdyClearText() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "spdy.clearText", "false"));
+    }
+
     /**
      * Sets the wrapped Jetty server.
      * 
@@ -27,6 +27,7 @@ package org.restlet.ext.jetty.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.security.cert.Certificate;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -36,11 +37,14 @@ import java.util.logging.Level;
 
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
 import org.restlet.Response;
 import org.restlet.Server;
 import org.restlet.data.Header;
 import org.restlet.data.Status;
 import org.restlet.engine.adapter.ServerCall;
+import org.restlet.engine.io.FileSegment;
+import org.restlet.representation.Representation;
 import org.restlet.util.Series;
 
 /**
@@ -295,4 +299,39 @@ public class JettyServerCall extends ServerCall {
             }
         }
     }
+
+    /**
+     * Writes the response body. File content is memory mapped and directly
+     * sent by Jetty, avoiding copies through user space. Other entities are
+     * written on the response stream.
+     * 
+     * @param entity
+     *            The representation to write as entity of the body.
+     * @param responseEntityStream
+     *            The response entity stream or null if a channel is used.
+     * @throws IOException
+     */
+    @Override
+    protected void writeResponseBody(Representation entity,
+            OutputStream responseEntityStream) throws IOException {
+        FileSegment fileSegment = FileSegment.get(entity);
+
+        if ((fileSegment != null)
+                && (responseEntityStream instanceof HttpOutput)
+                && (fileSegment.getCount() <= Integer.MAX_VALUE)) {
+            FileChannel fileChannel = fileSegment.openChannel();
+
+            try {
+                ((HttpOutput) responseEntityStream).sendContent(fileChannel
+                        .map(FileChannel.MapMode.READ_ONLY,
+                                fileSegment.getPosition(),
+                                fileSegment.getCount()));
+            } finally {
+                fileChannel.close();
+            }
+        } else {
+            super.writeResponseBody(entity, responseEntityStream);
+        }
+    }
+
 }
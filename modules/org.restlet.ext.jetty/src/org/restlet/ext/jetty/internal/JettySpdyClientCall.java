@@ -0,0 +1,306 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.jetty.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+
+import org.eclipse.jetty.spdy.api.BytesDataInfo;
+import org.eclipse.jetty.spdy.api.Session;
+import org.eclipse.jetty.spdy.api.Stream;
+import org.eclipse.jetty.spdy.api.SynInfo;
+import org.eclipse.jetty.spdy.http.HTTPSPDYHeader;
+import org.eclipse.jetty.util.Fields;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Uniform;
+import org.restlet.data.Header;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.adapter.ClientCall;
+import org.restlet.engine.connector.ConnectorHelper;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.ext.jetty.HttpClientHelper;
+import org.restlet.representation.Representation;
+import org.restlet.service.ConnectorService;
+import org.restlet.util.Series;
+
+/**
+ * HTTP client connector call sent as a SPDY stream multiplexed on a session
+ * shared by all the calls to the same destination.
+ * 
+ * @author Jerome Louvel
+ */
+public class JettySpdyClientCall extends ClientCall {
+
+    /** The associated HTTP client. */
+    private final HttpClientHelper clientHelper;
+
+    /** The request URI. */
+    private final URI requestUri;
+
+    /** The listener of the SPDY stream. */
+    private final SpdyResponseListener responseListener;
+
+    /** The reply status line. */
+    private volatile String statusLine;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent HTTP client helper.
+     * @param method
+     *            The method name.
+     * @param requestUri
+     *            The request URI.
+     * @throws IOException
+     */
+    public JettySpdyClientCall(HttpClientHelper helper, String method,
+            String requestUri) throws IOException {
+        super(helper, method, requestUri);
+        this.clientHelper = helper;
+
+        if (requestUri.startsWith("http")) {
+            this.requestUri = URI.create(requestUri);
+            this.responseListener = new SpdyResponseListener(
+                    helper.getIdleTimeout());
+            setConfidential(this.requestUri.getScheme().equalsIgnoreCase(
+                    Protocol.HTTPS.getSchemeName()));
+        } else {
+            throw new IllegalArgumentException(
+                    "Only HTTP or HTTPS resource URIs are allowed here");
+        }
+    }
+
+    /**
+     * Returns the port of the request URI, or the default port of its scheme.
+     * 
+     * @return The port of the request URI.
+     */
+    private int getPort() {
+        int result = this.requestUri.getPort();
+
+        if (result == -1) {
+            result = isConfidential() ? Protocol.HTTPS.getDefaultPort()
+                    : Protocol.HTTP.getDefaultPort();
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getReasonPhrase() {
+        String statusLine = this.statusLine;
+        int index = (statusLine == null) ? -1 : statusLine.indexOf(' ');
+        return (index == -1) ? null : statusLine.substring(index + 1);
+    }
+
+    public WritableByteChannel getRequestEntityChannel() {
+        return null;
+    }
+
+    public OutputStream getRequestEntityStream() {
+        return null;
+    }
+
+    public OutputStream getRequestHeadStream() {
+        return null;
+    }
+
+    public ReadableByteChannel getResponseEntityChannel(long size) {
+        return null;
+    }
+
+    public InputStream getResponseEntityStream(long size) {
+        return this.responseListener.getInputStream();
+    }
+
+    @Override
+    public String getServerAddress() {
+        return this.requestUri.getHost();
+    }
+
+    @Override
+    public int getStatusCode() {
+        String statusLine = this.statusLine;
+        if (statusLine == null) {
+            return Status.CONNECTOR_ERROR_COMMUNICATION.getCode();
+        }
+
+        int index = statusLine.indexOf(' ');
+        return Integer.parseInt((index == -1) ? statusLine : statusLine
+                .substring(0, index));
+    }
+
+    /**
+     * Sends the request line and headers as a SYN_STREAM frame, followed by
+     * the entity as DATA frames, then waits for the SYN_REPLY frame.
+     * 
+     * @param request
+     *            The high-level request.
+     * @return The result status.
+     */
+    @Override
+    public Status sendRequest(Request request) {
+        Status result = null;
+        Representation entity = request.isEntityAvailable() ? request
+                .getEntity() : null;
+        boolean hasEntity = (entity != null);
+
+        // Get the connector service to callback
+        ConnectorService connectorService = ConnectorHelper
+                .getConnectorService();
+
+        if (connectorService != null) {
+            connectorService.beforeSend(entity);
+        }
+
+        try {
+            Session session = this.clientHelper.getSpdySession(
+                    isConfidential(), this.requestUri.getHost(), getPort());
+            short version = session.getVersion();
+
+            // Request line, mapped to SPDY pseudo headers
+            Fields fields = new Fields();
+            String path = this.requestUri.getRawPath();
+
+            if ((path == null) || path.isEmpty()) {
+                path = "/";
+            }
+
+            if (this.requestUri.getRawQuery() != null) {
+                path += "?" + this.requestUri.getRawQuery();
+            }
+
+            fields.put(HTTPSPDYHeader.METHOD.name(version), getMethod());
+            fields.put(HTTPSPDYHeader.URI.name(version), path);
+            fields.put(HTTPSPDYHeader.VERSION.name(version), "HTTP/1.1");
+            fields.put(HTTPSPDYHeader.SCHEME.name(version),
+                    this.requestUri.getScheme());
+            fields.put(HTTPSPDYHeader.HOST.name(version),
+                    this.requestUri.getHost() + ":" + getPort());
+
+            // Request headers, without the connection specific ones
+            for (Header header : getRequestHeaders()) {
+                String name = header.getName();
+
+                if (!HeaderConstants.HEADER_CONNECTION.equalsIgnoreCase(name)
+                        && !"Keep-Alive".equalsIgnoreCase(name)
+                        && !HeaderConstants.HEADER_HOST.equalsIgnoreCase(name)
+                        && !HeaderConstants.HEADER_TRANSFER_ENCODING
+                                .equalsIgnoreCase(name)) {
+                    fields.add(name.toLowerCase(Locale.ENGLISH),
+                            header.getValue());
+                }
+            }
+
+            Stream stream = session.syn(new SynInfo(fields, !hasEntity),
+                    this.responseListener);
+
+            // Request entity
+            if (hasEntity) {
+                InputStream entityStream = entity.getStream();
+                byte[] buffer = new byte[this.clientHelper
+                        .getRequestBufferSize()];
+
+                try {
+                    for (int read = entityStream.read(buffer); read != -1; read = entityStream
+                            .read(buffer)) {
+                        stream.data(new BytesDataInfo(Arrays.copyOf(buffer,
+                                read), false));
+                    }
+                } finally {
+                    entityStream.close();
+                }
+
+                stream.data(new BytesDataInfo(new byte[0], true));
+            }
+
+            Fields replyHeaders = this.responseListener
+                    .awaitReply(this.clientHelper.getIdleTimeout());
+
+            if (replyHeaders == null) {
+                result = new Status(Status.CONNECTOR_ERROR_COMMUNICATION,
+                        "The SPDY request timed out");
+            } else {
+                Series<Header> responseHeaders = super.getResponseHeaders();
+                String statusName = HTTPSPDYHeader.STATUS.name(version);
+
+                for (Fields.Field field : replyHeaders) {
+                    if (statusName.equals(field.getName())) {
+                        this.statusLine = field.getValue();
+                    } else if (!field.getName().startsWith(":")) {
+                        for (String value : field.getValues()) {
+                            responseHeaders.add(field.getName(), value);
+                        }
+                    }
+                }
+
+                result = new Status(getStatusCode(), getReasonPhrase());
+            }
+        } catch (IOException e) {
+            this.clientHelper.getLogger().log(Level.WARNING,
+                    "An error occurred while sending the SPDY request.", e);
+            result = new Status(Status.CONNECTOR_ERROR_COMMUNICATION, e);
+        } catch (Exception e) {
+            this.clientHelper.getLogger().log(Level.WARNING,
+                    "An error occurred while processing the SPDY request.", e);
+            result = new Status(Status.CONNECTOR_ERROR_COMMUNICATION, e);
+        } finally {
+            if (entity != null) {
+                entity.release();
+            }
+
+            // Call-back after writing
+            if (connectorService != null) {
+                connectorService.afterSend(entity);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void sendRequest(Request request, Response response, Uniform callback)
+            throws Exception {
+        sendRequest(request);
+
+        final Uniform getOnSent = request.getOnSent();
+        if (getOnSent != null)
+            getOnSent.handle(request, response);
+
+        if (callback != null)
+            // Transmit to the callback, if any
+            callback.handle(request, response);
+    }
+}
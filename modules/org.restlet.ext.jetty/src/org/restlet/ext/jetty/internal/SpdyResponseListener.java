@@ -0,0 +1,266 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.jetty.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.spdy.api.DataInfo;
+import org.eclipse.jetty.spdy.api.ReplyInfo;
+import org.eclipse.jetty.spdy.api.Stream;
+import org.eclipse.jetty.spdy.api.StreamFrameListener;
+import org.eclipse.jetty.util.Fields;
+
+/**
+ * SPDY stream listener collecting the reply headers and exposing the data
+ * frames received as a blocking input stream. The data frames are only
+ * consumed as the input stream reads them, so that the flow control window of
+ * the stream limits the amount of data received and not yet read.
+ * 
+ * @author Jerome Louvel
+ */
+public class SpdyResponseListener extends StreamFrameListener.Adapter {
+
+    /**
+     * Data frame received and not yet entirely read.
+     */
+    private static class Content {
+        /** The copied bytes of the frame. */
+        private final byte[] bytes;
+
+        /** The frame to consume as the bytes are read. */
+        private final DataInfo dataInfo;
+
+        /** The index of the next byte to read. */
+        private int index;
+
+        /**
+         * Constructor.
+         * 
+         * @param bytes
+         *            The copied bytes of the frame.
+         * @param dataInfo
+         *            The frame to consume as the bytes are read.
+         */
+        private Content(byte[] bytes, DataInfo dataInfo) {
+            this.bytes = bytes;
+            this.dataInfo = dataInfo;
+            this.index = 0;
+        }
+
+        /**
+         * Consumes the bytes not read yet, updating the flow control window.
+         */
+        private void consume() {
+            if ((this.dataInfo != null) && (this.index < this.bytes.length)) {
+                this.dataInfo.consume(this.bytes.length - this.index);
+                this.index = this.bytes.length;
+            }
+        }
+    }
+
+    /** Marker queued after the last data frame. */
+    private static final Content END = new Content(new byte[0], null);
+
+    /** Indicates if the input stream was closed. */
+    private volatile boolean closed;
+
+    /** The data frames received and not yet read. */
+    private final BlockingQueue<Content> contents;
+
+    /** The failure reported on the stream, if any. */
+    private volatile Throwable failure;
+
+    /** The input stream reading the data frames. */
+    private final InputStream inputStream;
+
+    /** The maximum time to wait for the next data frame in milliseconds. */
+    private final long readTimeout;
+
+    /** Released when the reply or a failure is received. */
+    private final CountDownLatch replyLatch;
+
+    /** The reply headers. */
+    private volatile Fields replyHeaders;
+
+    /**
+     * Constructor.
+     * 
+     * @param readTimeout
+     *            The maximum time to wait for the next data frame in
+     *            milliseconds.
+     */
+    public SpdyResponseListener(long readTimeout) {
+        this.closed = false;
+        this.readTimeout = readTimeout;
+        this.contents = new LinkedBlockingQueue<Content>();
+        this.replyLatch = new CountDownLatch(1);
+        this.inputStream = new InputStream() {
+            private Content current;
+
+            @Override
+            public void close() throws IOException {
+                closed = true;
+
+                if (current != null) {
+                    current.consume();
+                }
+
+                consumeQueued();
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int result = read(b, 0, 1);
+                return (result == -1) ? -1 : (b[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                } else if (closed) {
+                    throw new IOException("The SPDY stream was closed");
+                }
+
+                while ((current == null)
+                        || (current.index == current.bytes.length)) {
+                    if (current == END) {
+                        return -1;
+                    }
+
+                    try {
+                        current = contents.poll(
+                                readTimeout,
+                                TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException(
+                                "Interrupted while reading a SPDY stream");
+                    }
+
+                    if (current == null) {
+                        throw new IOException(
+                                "Timeout while reading a SPDY stream");
+                    } else if ((current == END) && (failure != null)) {
+                        throw new IOException(failure);
+                    }
+                }
+
+                int result = Math.min(len, current.bytes.length
+                        - current.index);
+                System.arraycopy(current.bytes, current.index, b, off, result);
+                current.index += result;
+                current.dataInfo.consume(result);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Waits for the reply headers.
+     * 
+     * @param timeout
+     *            The maximum time to wait in milliseconds.
+     * @return The reply headers or null if the wait timed out.
+     * @throws IOException
+     *             If the stream failed.
+     * @throws InterruptedException
+     */
+    public Fields awaitReply(long timeout) throws IOException,
+            InterruptedException {
+        this.replyLatch.await(timeout, TimeUnit.MILLISECONDS);
+
+        if (this.failure != null) {
+            throw new IOException(this.failure);
+        }
+
+        return this.replyHeaders;
+    }
+
+    /**
+     * Consumes the queued data frames, once the input stream was closed, so
+     * that the server can send the rest of the stream.
+     */
+    private void consumeQueued() {
+        for (Content content = this.contents.poll(); content != null; content = this.contents
+                .poll()) {
+            content.consume();
+        }
+    }
+
+    /**
+     * Returns the input stream reading the data frames.
+     * 
+     * @return The input stream reading the data frames.
+     */
+    public InputStream getInputStream() {
+        return this.inputStream;
+    }
+
+    /**
+     * Queues a copy of the data frame, which is only consumed as it is read.
+     */
+    @Override
+    public void onData(Stream stream, DataInfo dataInfo) {
+        if (this.closed) {
+            dataInfo.consume(dataInfo.available());
+        } else if (dataInfo.available() > 0) {
+            this.contents.add(new Content(dataInfo.asBytes(false), dataInfo));
+
+            if (this.closed) {
+                // Closed concurrently
+                consumeQueued();
+            }
+        }
+
+        if (dataInfo.isClose()) {
+            this.contents.add(END);
+        }
+    }
+
+    @Override
+    public void onFailure(Stream stream, Throwable x) {
+        this.failure = x;
+        this.contents.add(END);
+        this.replyLatch.countDown();
+    }
+
+    @Override
+    public void onReply(Stream stream, ReplyInfo replyInfo) {
+        this.replyHeaders = replyInfo.getHeaders();
+
+        if (replyInfo.isClose()) {
+            this.contents.add(END);
+        }
+
+        this.replyLatch.countDown();
+    }
+}
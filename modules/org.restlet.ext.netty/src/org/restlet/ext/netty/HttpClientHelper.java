@@ -0,0 +1,332 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.net.ssl.SSLContext;
+
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.engine.adapter.ClientCall;
+import org.restlet.engine.ssl.SslContextFactory;
+import org.restlet.engine.ssl.SslUtils;
+import org.restlet.engine.util.ReferenceUtils;
+import org.restlet.ext.netty.internal.ChannelPool;
+import org.restlet.ext.netty.internal.HttpClientInitializer;
+import org.restlet.ext.netty.internal.NettyClientCall;
+
+/**
+ * Netty HTTP client connector. Connections are kept alive and pooled per
+ * target host and port. Request and response entities are streamed, the
+ * response content being buffered up to a limit before the reading of the
+ * connection is suspended. Here is the list of parameters that are supported.
+ * They should be set in the Client's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>maxConnectionsPerHost</td>
+ * <td>int</td>
+ * <td>10</td>
+ * <td>Maximum number of connections opened to the same host and port. Calls
+ * exceeding this limit wait for a connection to be released.</td>
+ * </tr>
+ * <tr>
+ * <td>maxBufferedContents</td>
+ * <td>int</td>
+ * <td>16</td>
+ * <td>Maximum number of response content chunks buffered for a call before
+ * the reading of the connection is suspended, until the caller has consumed
+ * them.</td>
+ * </tr>
+ * <tr>
+ * <td>readTimeout</td>
+ * <td>int</td>
+ * <td>60000</td>
+ * <td>Maximum time in milliseconds to wait for the response status and
+ * headers. A timeout of zero is interpreted as an infinite timeout.</td>
+ * </tr>
+ * <tr>
+ * <td>socketConnectTimeoutMs</td>
+ * <td>int</td>
+ * <td>15000</td>
+ * <td>Maximum time in milliseconds to wait for a pooled connection or for a
+ * new connection to be established, or 0 for unlimited wait.</td>
+ * </tr>
+ * <tr>
+ * <td>tcpNoDelay</td>
+ * <td>boolean</td>
+ * <td>true</td>
+ * <td>Indicates if Nagle's algorithm should be disabled.</td>
+ * </tr>
+ * <tr>
+ * <td>workerThreads</td>
+ * <td>int</td>
+ * <td>0 (uses Netty's default)</td>
+ * <td>Number of event loop threads handling the connections.</td>
+ * </tr>
+ * <tr>
+ * <td>sslContextFactory</td>
+ * <td>String</td>
+ * <td>org.restlet.engine.ssl.DefaultSslContextFactory</td>
+ * <td>Let you specify a {@link SslContextFactory} qualified class name as a
+ * parameter, or an instance as an attribute for a more complete and flexible
+ * SSL context setting.</td>
+ * </tr>
+ * </table>
+ * For the default SSL parameters see the Javadocs of the
+ * {@link org.restlet.engine.ssl.DefaultSslContextFactory} class.
+ * 
+ * @see <a href="http://netty.io/">Netty home page</a>
+ * @author Jerome Louvel
+ */
+public class HttpClientHelper extends
+        org.restlet.engine.adapter.HttpClientHelper {
+
+    /** The bootstrap used to open new channels. */
+    private volatile Bootstrap bootstrap;
+
+    /** The channel pools, per target scheme, host and port. */
+    private final ConcurrentMap<String, ChannelPool> channelPools;
+
+    /** The SSL context, lazily created. */
+    private volatile SSLContext sslContext;
+
+    /** The event loop group handling the connections. */
+    private volatile NioEventLoopGroup workerGroup;
+
+    /**
+     * Constructor.
+     * 
+     * @param client
+     *            The client to help.
+     */
+    public HttpClientHelper(Client client) {
+        super(client);
+        this.channelPools = new ConcurrentHashMap<String, ChannelPool>();
+        getProtocols().add(Protocol.HTTP);
+        getProtocols().add(Protocol.HTTPS);
+    }
+
+    /**
+     * Creates a low-level HTTP client call from a high-level uniform call.
+     * 
+     * @param request
+     *            The high-level request.
+     * @return A low-level HTTP client call.
+     */
+    @Override
+    public ClientCall create(Request request) {
+        return new NettyClientCall(this, request.getMethod().toString(),
+                ReferenceUtils.update(request.getResourceRef(), request)
+                        .toString());
+    }
+
+    /**
+     * Returns the pool of channels connected to the host and port of a target
+     * resource, creating it if needed.
+     * 
+     * @param resourceRef
+     *            The target resource reference.
+     * @return The pool of channels.
+     * @throws IOException
+     */
+    public ChannelPool getChannelPool(Reference resourceRef) throws IOException {
+        Bootstrap base = this.bootstrap;
+
+        if (base == null) {
+            throw new IOException("The Netty HTTP client isn't started");
+        }
+
+        boolean secure = Protocol.HTTPS.equals(resourceRef.getSchemeProtocol());
+        String host = resourceRef.getHostDomain();
+        int port = resourceRef.getHostPort();
+
+        if (port == -1) {
+            port = secure ? Protocol.HTTPS.getDefaultPort() : Protocol.HTTP
+                    .getDefaultPort();
+        }
+
+        String key = (secure ? "https://" : "http://") + host + ":" + port;
+        ChannelPool result = this.channelPools.get(key);
+
+        if (result == null) {
+            Bootstrap bootstrap = base.clone().handler(
+                    new HttpClientInitializer(secure ? getSslContext() : null,
+                            host, port));
+            result = new ChannelPool(bootstrap, host, port,
+                    getMaxConnectionsPerHost());
+            ChannelPool current = this.channelPools.putIfAbsent(key, result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of response content chunks buffered for a
+     * call before the reading of the connection is suspended.
+     * 
+     * @return The maximum number of response content chunks buffered.
+     */
+    public int getMaxBufferedContents() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxBufferedContents", "16"));
+    }
+
+    /**
+     * Returns the maximum number of connections opened to the same host and
+     * port.
+     * 
+     * @return The maximum number of connections per host.
+     */
+    public int getMaxConnectionsPerHost() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxConnectionsPerHost", "10"));
+    }
+
+    /**
+     * Returns the maximum time in milliseconds to wait for the response status
+     * and headers.
+     * 
+     * @return The read timeout.
+     */
+    public int getReadTimeout() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "readTimeout", "60000"));
+    }
+
+    /**
+     * Returns the connection timeout. Defaults to 15000.
+     * 
+     * @return The connection timeout.
+     */
+    @Override
+    public int getSocketConnectTimeoutMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "socketConnectTimeoutMs", "15000"));
+    }
+
+    /**
+     * Returns the SSL context, creating it if needed.
+     * 
+     * @return The SSL context.
+     * @throws IOException
+     */
+    private SSLContext getSslContext() throws IOException {
+        if (this.sslContext == null) {
+            synchronized (this) {
+                if (this.sslContext == null) {
+                    try {
+                        SslContextFactory factory = SslUtils
+                                .getSslContextFactory(this);
+                        this.sslContext = (factory == null) ? SSLContext
+                                .getDefault() : factory.createSslContext();
+                    } catch (Exception e) {
+                        throw new IOException(
+                                "Unable to create the SSL context", e);
+                    }
+                }
+            }
+        }
+
+        return this.sslContext;
+    }
+
+    /**
+     * Returns the number of event loop threads handling the connections.
+     * 
+     * @return The number of event loop threads.
+     */
+    public int getWorkerThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "workerThreads", "0"));
+    }
+
+    /**
+     * Indicates if Nagle's algorithm should be disabled.
+     * 
+     * @return True if Nagle's algorithm should be disabled.
+     */
+    public boolean isTcpNoDelay() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "tcpNoDelay", "true"));
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        super.start();
+        getLogger().info("Starting the Netty HTTP/HTTPS client");
+        this.workerGroup = new NioEventLoopGroup(getWorkerThreads());
+        Bootstrap result = new Bootstrap().group(this.workerGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, isTcpNoDelay());
+
+        if (getSocketConnectTimeoutMs() > 0) {
+            result.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                    getSocketConnectTimeoutMs());
+        }
+
+        this.bootstrap = result;
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        getLogger().info("Stopping the Netty HTTP/HTTPS client");
+        this.bootstrap = null;
+
+        for (ChannelPool channelPool : this.channelPools.values()) {
+            channelPool.close();
+        }
+
+        this.channelPools.clear();
+
+        if (this.workerGroup != null) {
+            this.workerGroup.shutdownGracefully();
+            this.workerGroup = null;
+        }
+
+        this.sslContext = null;
+        super.stop();
+    }
+
+}
@@ -25,6 +25,14 @@
 package org.restlet.ext.netty;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -35,9 +43,76 @@ import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 
 import org.restlet.Server;
+import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.engine.util.VirtualThreadExecutorService;
 import org.restlet.ext.netty.internal.HttpServerInitializer;
 
 /**
+ * Abstract Netty server connector. The Netty event loops only decode requests
+ * and encode responses, the Restlet calls are handled by a separate worker
+ * executor so that blocking application code never stalls the event loops.
+ * Here is the list of parameters that are supported. They should be set in
+ * the Server's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>minThreads</td>
+ * <td>int</td>
+ * <td>1</td>
+ * <td>Minimum number of worker threads waiting to service calls, even if they
+ * are idle. Technically speaking, this is a core number of threads that are
+ * pre-started.</td>
+ * </tr>
+ * <tr>
+ * <td>maxThreads</td>
+ * <td>int</td>
+ * <td>10</td>
+ * <td>Maximum number of worker threads that can service calls. If this number
+ * is reached then additional calls are queued if the "maxQueued" value hasn't
+ * been reached.</td>
+ * </tr>
+ * <tr>
+ * <td>maxQueued</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>Maximum number of calls that can be queued if there aren't any worker
+ * thread available to service them. If the value is '0', then no queue is used
+ * and calls are rejected if no worker thread is immediately available. If the
+ * value is '-1', then an unbounded queue is used and calls are never rejected.
+ * Rejected calls are answered with a 503 (Service Unavailable) status.<br>
+ * <br>
+ * Note: the pool only grows past "minThreads" when its queue is full, so with
+ * an unbounded queue no more than "minThreads" calls are handled at the same
+ * time.</td>
+ * </tr>
+ * <tr>
+ * <td>maxThreadIdleTimeMs</td>
+ * <td>int</td>
+ * <td>300 000</td>
+ * <td>Time for an idle thread to wait for an operation before being collected.</td>
+ * </tr>
+ * <tr>
+ * <td>virtualThreads</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if each call should be handled by a new virtual thread instead
+ * of a pooled thread, when supported by the JVM. In this case, the thread pool
+ * parameters above are ignored.</td>
+ * </tr>
+ * <tr>
+ * <td>maxBufferedContents</td>
+ * <td>int</td>
+ * <td>16</td>
+ * <td>Maximum number of request content chunks buffered for a call before the
+ * reading of the connection is suspended, until the worker thread has consumed
+ * them.</td>
+ * </tr>
+ * </table>
  * 
  * @author Jerome Louvel
  */
@@ -58,36 +133,181 @@ public abstract class NettyServerHelper extends
 
     private Channel channel;
 
+    /** The executor handling the calls. */
+    private volatile Executor executor;
+
+    /**
+     * Creates the executor handling the calls. By default, it returns an
+     * executor starting a virtual thread per call if
+     * {@link #isVirtualThreads()} returns true and the JVM supports them,
+     * otherwise the result of {@link #createThreadPool()}.
+     * 
+     * @return The executor handling the calls.
+     */
+    protected Executor createExecutor() {
+        Executor result = null;
+
+        if (isVirtualThreads()) {
+            result = VirtualThreadExecutorService
+                    .createVirtualThreadExecutor("Restlet-netty-");
+
+            if (result == null) {
+                getLogger().warning(
+                        "Virtual threads aren't supported by this JVM, "
+                                + "using a thread pool instead");
+            }
+        }
+
+        return (result == null) ? createThreadPool() : result;
+    }
+
+    /**
+     * Creates the thread pool handling the calls. Calls that can't be
+     * accepted are rejected with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     * 
+     * @return The thread pool handling the calls.
+     */
+    protected ThreadPoolExecutor createThreadPool() {
+        BlockingQueue<Runnable> queue = null;
+
+        if (getMaxQueued() == 0) {
+            queue = new SynchronousQueue<Runnable>();
+        } else if (getMaxQueued() < 0) {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else {
+            queue = new ArrayBlockingQueue<Runnable>(getMaxQueued());
+        }
+
+        ThreadPoolExecutor result = new ThreadPoolExecutor(getMinThreads(),
+                Math.max(getMinThreads(), getMaxThreads()),
+                getMaxThreadIdleTimeMs(), TimeUnit.MILLISECONDS, queue,
+                new LoggingThreadFactory(getLogger(), true));
+
+        // Ensure that core threads act like a minimum number of threads
+        result.prestartAllCoreThreads();
+        return result;
+    }
+
+    protected NioEventLoopGroup getBossGroup() {
+        return bossGroup;
+    }
+
     protected Channel getChannel() {
         return channel;
     }
 
-    protected void setChannel(Channel channel) {
-        this.channel = channel;
+    /**
+     * Returns the executor handling the calls.
+     * 
+     * @return The executor handling the calls.
+     */
+    public Executor getExecutor() {
+        return executor;
     }
 
-    protected void setServerBootstrap(ServerBootstrap serverBootstrap) {
-        this.serverBootstrap = serverBootstrap;
+    /**
+     * Returns the maximum number of request content chunks buffered for a
+     * call before the reading of the connection is suspended.
+     * 
+     * @return The maximum number of request content chunks buffered for a
+     *         call.
+     */
+    public int getMaxBufferedContents() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxBufferedContents", "16"));
+    }
+
+    /**
+     * Returns the maximum number of calls that can be queued if there aren't
+     * any worker thread available to service them. If the value is '0', then no
+     * queue is used and calls are rejected if no worker thread is immediately
+     * available. If the value is '-1', then an unbounded queue is used and
+     * calls are never rejected.
+     * 
+     * @return The maximum number of calls that can be queued.
+     */
+    public int getMaxQueued() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxQueued", "0"));
+    }
+
+    /**
+     * Returns the time for an idle thread to wait for an operation before being
+     * collected.
+     * 
+     * @return The time for an idle thread to wait for an operation before being
+     *         collected.
+     */
+    public int getMaxThreadIdleTimeMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxThreadIdleTimeMs", "300000"));
+    }
+
+    /**
+     * Returns the maximum threads that will service requests.
+     * 
+     * @return The maximum threads that will service requests.
+     */
+    public int getMaxThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxThreads", "10"));
+    }
+
+    /**
+     * Returns the minimum threads waiting to service requests. Technically
+     * speaking, this is a core number of threads that are pre-started.
+     * 
+     * @return The minimum threads waiting to service requests.
+     */
+    public int getMinThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "minThreads", "1"));
     }
 
     protected ServerBootstrap getServerBootstrap() {
         return serverBootstrap;
     }
 
-    private NioEventLoopGroup bossGroup;
+    protected NioEventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
 
-    protected NioEventLoopGroup getBossGroup() {
-        return bossGroup;
+    /**
+     * Indicates if each call should be handled by a new virtual thread instead
+     * of a pooled thread, when supported by the JVM.
+     * 
+     * @return True if each call should be handled by a new virtual thread.
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "virtualThreads", "false"));
     }
 
     protected void setBossGroup(NioEventLoopGroup bossGroup) {
         this.bossGroup = bossGroup;
     }
 
-    protected NioEventLoopGroup getWorkerGroup() {
-        return workerGroup;
+    protected void setChannel(Channel channel) {
+        this.channel = channel;
     }
 
+    /**
+     * Sets the executor handling the calls.
+     * 
+     * @param executor
+     *            The executor handling the calls.
+     */
+    protected void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    protected void setServerBootstrap(ServerBootstrap serverBootstrap) {
+        this.serverBootstrap = serverBootstrap;
+    }
+
+    private NioEventLoopGroup bossGroup;
+
     protected void setWorkerGroup(NioEventLoopGroup workerGroup) {
         this.workerGroup = workerGroup;
     }
@@ -97,6 +317,7 @@ public abstract class NettyServerHelper extends
     @Override
     public void start() throws Exception {
         super.start();
+        setExecutor(createExecutor());
         setBossGroup(new NioEventLoopGroup(1));
         setWorkerGroup(new NioEventLoopGroup());
         setServerBootstrap(new ServerBootstrap());
@@ -121,6 +342,12 @@ public abstract class NettyServerHelper extends
         getChannel().close().sync();
         getBossGroup().shutdownGracefully();
         getWorkerGroup().shutdownGracefully();
+
+        if (getExecutor() instanceof ExecutorService) {
+            ((ExecutorService) getExecutor()).shutdown();
+        }
+
+        setExecutor(null);
         super.stop();
     }
 
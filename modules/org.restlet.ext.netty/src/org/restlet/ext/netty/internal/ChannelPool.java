@@ -0,0 +1,230 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty.internal;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of keep-alive channels connected to the same host and port. The number
+ * of channels leased at the same time is limited, callers waiting for a
+ * channel when the limit is reached. Idle channels are reused in LIFO order so
+ * that the most recently used connections stay warm, and are removed from the
+ * pool as soon as the server closes them. As new channels are only opened when
+ * no idle channel is available, the total number of open channels never
+ * exceeds the maximum number of leased channels.
+ * 
+ * @author Jerome Louvel
+ */
+public class ChannelPool {
+
+    /** The bootstrap used to open new channels. */
+    private final Bootstrap bootstrap;
+
+    /** Indicates if the pool was closed. */
+    private volatile boolean closed;
+
+    /** The target host name. */
+    private final String host;
+
+    /** The idle channels. */
+    private final Deque<Channel> idleChannels;
+
+    /** The permits to lease channels. */
+    private final Semaphore leases;
+
+    /** The target port. */
+    private final int port;
+
+    /**
+     * Constructor.
+     * 
+     * @param bootstrap
+     *            The bootstrap used to open new channels, with its handler
+     *            set.
+     * @param host
+     *            The target host name.
+     * @param port
+     *            The target port.
+     * @param maxChannels
+     *            The maximum number of channels leased at the same time.
+     */
+    public ChannelPool(Bootstrap bootstrap, String host, int port,
+            int maxChannels) {
+        this.bootstrap = bootstrap;
+        this.closed = false;
+        this.host = host;
+        this.idleChannels = new ConcurrentLinkedDeque<Channel>();
+        this.leases = new Semaphore(Math.max(1, maxChannels), true);
+        this.port = port;
+    }
+
+    /**
+     * Leases a channel, reusing an idle one or opening a new one. Waits if the
+     * maximum number of leased channels is reached.
+     * 
+     * @param timeoutMs
+     *            The maximum time to wait for a channel to be available and
+     *            connected, or 0 for an unlimited wait.
+     * @return The leased channel.
+     * @throws IOException
+     */
+    public Channel acquire(long timeoutMs) throws IOException {
+        Channel result = null;
+
+        try {
+            if (timeoutMs <= 0) {
+                this.leases.acquire();
+            } else if (!this.leases.tryAcquire(timeoutMs,
+                    TimeUnit.MILLISECONDS)) {
+                throw new ConnectException("No connection to " + this.host
+                        + ":" + this.port + " available after " + timeoutMs
+                        + " ms");
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException(
+                    "Interrupted while waiting for a connection");
+        }
+
+        try {
+            if (this.closed) {
+                throw new ConnectException("The connection pool was closed");
+            }
+
+            Channel channel;
+
+            while ((result == null)
+                    && ((channel = this.idleChannels.pollLast()) != null)) {
+                if (channel.isActive()) {
+                    result = channel;
+                }
+            }
+
+            if (result == null) {
+                result = connect(timeoutMs);
+            }
+        } finally {
+            if (result == null) {
+                this.leases.release();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes the pool and its idle channels. Leased channels are closed when
+     * released.
+     */
+    public void close() {
+        this.closed = true;
+        Channel channel;
+
+        while ((channel = this.idleChannels.poll()) != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens a new channel.
+     * 
+     * @param timeoutMs
+     *            The maximum time to wait for the connection, or 0 for an
+     *            unlimited wait.
+     * @return The new channel.
+     * @throws IOException
+     */
+    private Channel connect(long timeoutMs) throws IOException {
+        ChannelFuture future = this.bootstrap.connect(this.host, this.port);
+
+        if (timeoutMs <= 0) {
+            future.awaitUninterruptibly();
+        } else if (!future.awaitUninterruptibly(timeoutMs)) {
+            future.cancel(false);
+            future.channel().close();
+            throw new ConnectException("Unable to connect to " + this.host
+                    + ":" + this.port + " within " + timeoutMs + " ms");
+        }
+
+        if (!future.isSuccess()) {
+            ConnectException ce = new ConnectException("Unable to connect to "
+                    + this.host + ":" + this.port);
+            ce.initCause(future.cause());
+            throw ce;
+        }
+
+        final Channel result = future.channel();
+
+        // Forget idle channels closed by the server
+        result.closeFuture().addListener(new ChannelFutureListener() {
+            public void operationComplete(ChannelFuture future) {
+                idleChannels.remove(result);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Returns the number of idle channels.
+     * 
+     * @return The number of idle channels.
+     */
+    public int getIdleCount() {
+        return this.idleChannels.size();
+    }
+
+    /**
+     * Releases a leased channel. It is kept for reuse if it is still active
+     * and reusable, otherwise it is closed.
+     * 
+     * @param channel
+     *            The leased channel.
+     * @param reusable
+     *            True if the channel can be reused by another call.
+     */
+    public void release(Channel channel, boolean reusable) {
+        try {
+            if (reusable && !this.closed && channel.isActive()) {
+                this.idleChannels.offerLast(channel);
+            } else {
+                channel.close();
+            }
+        } finally {
+            this.leases.release();
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty.internal;
+
+import java.io.IOException;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * Handler of the HTTP responses received by a Netty client channel. The
+ * messages are passed to the call currently leasing the channel, without ever
+ * blocking the event loop.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpClientHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+    /** The call leasing the channel. */
+    private volatile NettyClientCall call;
+
+    /** Indicates if the contents of an interim response must be ignored. */
+    private boolean interimResponse;
+
+    /**
+     * Constructor.
+     */
+    public HttpClientHandler() {
+        this.call = null;
+        this.interimResponse = false;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        NettyClientCall current = this.call;
+
+        if (current != null) {
+            this.call = null;
+            current.onError(new IOException(
+                    "The connection was closed by the server"));
+        }
+
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        NettyClientCall current = this.call;
+
+        if (msg instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) msg;
+            this.interimResponse = (response.status().code() < 200);
+
+            if ((current != null) && !this.interimResponse) {
+                current.onResponse(response);
+            }
+        }
+
+        if (msg instanceof HttpContent) {
+            boolean last = (msg instanceof LastHttpContent);
+
+            if (this.interimResponse) {
+                this.interimResponse = !last;
+            } else if (current != null) {
+                if (last) {
+                    // Release the channel before the caller sees the end
+                    this.call = null;
+                    current.onComplete();
+                }
+
+                current.onContent(((HttpContent) msg).content(), last);
+            }
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        NettyClientCall current = this.call;
+
+        if (current != null) {
+            this.call = null;
+            current.onError(cause);
+        }
+
+        ctx.close();
+    }
+
+    /**
+     * Returns the call leasing the channel.
+     * 
+     * @return The call leasing the channel.
+     */
+    public NettyClientCall getCall() {
+        return call;
+    }
+
+    /**
+     * Sets the call leasing the channel.
+     * 
+     * @param call
+     *            The call leasing the channel.
+     */
+    public void setCall(NettyClientCall call) {
+        this.call = call;
+    }
+
+}
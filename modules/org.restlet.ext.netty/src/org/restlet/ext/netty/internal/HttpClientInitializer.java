@@ -0,0 +1,82 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty.internal;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslHandler;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * Initializes the pipeline of the channels opened by the HTTP client.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpClientInitializer extends ChannelInitializer<SocketChannel> {
+
+    /** The target host name, used for the SSL session. */
+    private final String host;
+
+    /** The target port, used for the SSL session. */
+    private final int port;
+
+    /** The SSL context or null for clear connections. */
+    private final SSLContext sslContext;
+
+    /**
+     * Constructor.
+     * 
+     * @param sslContext
+     *            The SSL context or null for clear connections.
+     * @param host
+     *            The target host name.
+     * @param port
+     *            The target port.
+     */
+    public HttpClientInitializer(SSLContext sslContext, String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.sslContext = sslContext;
+    }
+
+    @Override
+    public void initChannel(SocketChannel ch) {
+        ChannelPipeline p = ch.pipeline();
+
+        if (sslContext != null) {
+            SSLEngine sslEngine = sslContext.createSSLEngine(host, port);
+            sslEngine.setUseClientMode(true);
+            p.addLast(new SslHandler(sslEngine));
+        }
+
+        p.addLast(new HttpClientCodec());
+        p.addLast(new HttpClientHandler());
+    }
+
+}
@@ -25,113 +25,301 @@
 package org.restlet.ext.netty.internal;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.restlet.engine.io.IoUtils;
 
 /**
+ * Input stream reading the request content received by the Netty event loop.
+ * The contents are queued by the event loop and consumed by the worker thread
+ * handling the call. When the number of queued contents reaches a maximum, the
+ * automatic reading of the channel is suspended until half of them have been
+ * consumed, so that the event loop is never blocked and a slow consumer
+ * applies backpressure to the client.
  * 
  * @author Jerome Louvel
  */
 public class HttpContentInputStream extends InputStream {
 
-    private final CyclicBarrier barrier;
+    /** Marker queued after the last content. */
+    private static final ByteBuf END = Unpooled.buffer(0);
 
-    private volatile ByteBuf content;
+    /** Indicates if the stream was closed. */
+    private volatile boolean closed;
 
-    private volatile boolean lastContent;
+    /** The queued contents. */
+    private final BlockingQueue<ByteBuf> contents;
 
+    /** Indicates if the stream was detached from its channel. */
+    private volatile boolean detached;
+
+    /** The content being read. */
+    private volatile ByteBuf current;
+
+    /** Indicates if the last content was read. */
+    private volatile boolean ended;
+
+    /** The error that prematurely ended the content. */
+    private volatile Throwable error;
+
+    /** Indicates if the last content was received. */
+    private volatile boolean lastReceived;
+
+    /** The maximum number of queued contents before suspending reads. */
+    private final int maxContents;
+
+    /** The Netty context. */
     private final ChannelHandlerContext nettyContext;
 
-    public HttpContentInputStream(ChannelHandlerContext nettyContext) {
+    /** Indicates if the reading of the channel was suspended by this stream. */
+    private volatile boolean suspended;
+
+    /**
+     * Constructor.
+     * 
+     * @param nettyContext
+     *            The Netty context.
+     * @param maxContents
+     *            The maximum number of queued contents before suspending
+     *            reads.
+     */
+    public HttpContentInputStream(ChannelHandlerContext nettyContext,
+            int maxContents) {
+        this.closed = false;
+        this.contents = new LinkedBlockingQueue<ByteBuf>();
+        this.current = null;
+        this.detached = false;
+        this.ended = false;
+        this.error = null;
+        this.lastReceived = false;
+        this.maxContents = Math.max(1, maxContents);
         this.nettyContext = nettyContext;
-        this.lastContent = false;
-        this.content = null;
-        this.barrier = new CyclicBarrier(2);
+        this.suspended = false;
     }
 
     @Override
     public int available() throws IOException {
+        ByteBuf content = this.current;
         return (content == null) ? 0 : content.readableBytes();
     }
 
-    protected void getMoreContent() {
-        try {
-            // Ask to read more content
-            nettyContext.channel().config().setAutoRead(true);
-
-            // Block until new content is available
-            barrier.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (BrokenBarrierException e) {
-            e.printStackTrace();
-        } catch (TimeoutException e) {
-            e.printStackTrace();
+    /**
+     * Closes the stream. The contents received later are discarded. The queued
+     * contents are released by the event loop, while the content being read is
+     * only released by the reader thread, either when it calls this method or
+     * on its next read, so that a close from the event loop never releases a
+     * buffer still being read.
+     */
+    @Override
+    public void close() {
+        boolean first = !this.closed;
+        this.closed = true;
+
+        if (!this.nettyContext.executor().inEventLoop()) {
+            // Called by the reader thread
+            releaseCurrent();
+        }
+
+        if (first) {
+            // Release on the event loop to avoid racing with onContent()
+            this.nettyContext.executor().execute(new Runnable() {
+                public void run() {
+                    releaseQueued();
+                    resume();
+                }
+            });
         }
     }
 
-    protected boolean isLastContent() {
-        return lastContent;
+    /**
+     * Detaches the stream from its channel, before the channel is returned to
+     * its pool. The stream doesn't suspend or resume the reading of the channel
+     * anymore, so that it can't interfere with a later call reusing the
+     * channel. Must be called by the event loop.
+     */
+    public void detach() {
+        this.detached = true;
+        this.suspended = false;
     }
 
-    public void onContent(ByteBuf content, boolean lastContent)
-            throws IOException {
-        try {
-            // Set the new content
-            this.content = content;
-            this.lastContent = lastContent;
-
-            // Unblock waiting consumer thread
-            barrier.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (BrokenBarrierException e) {
-            e.printStackTrace();
-        } catch (TimeoutException e) {
-            e.printStackTrace();
+    /**
+     * Returns the content being read, waiting for the next one if needed.
+     * 
+     * @return The content being read or null if the end was reached.
+     * @throws IOException
+     */
+    private ByteBuf getContent() throws IOException {
+        if (this.closed) {
+            releaseCurrent();
+            throw new IOException("The request entity stream was closed");
         }
-    }
 
-    @Override
-    public int read() throws IOException {
-        int available = available();
+        ByteBuf result = this.current;
 
-        if (available == 0) {
-            if (isLastContent()) {
-                return -1;
+        while (!this.ended && ((result == null) || !result.isReadable())) {
+            if (result != null) {
+                result.release();
+                this.current = null;
+            }
+
+            try {
+                result = this.contents.poll(IoUtils.TIMEOUT_MS,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(
+                        "Interrupted while waiting for request content");
+            }
+
+            if (result == null) {
+                throw new IOException(
+                        "Timeout while waiting for request content");
+            } else if (result == END) {
+                this.ended = true;
+                result = null;
+
+                if (this.error != null) {
+                    throw new IOException(
+                            "The content was not entirely received",
+                            this.error);
+                }
             } else {
-                getMoreContent();
-                available = available();
+                this.current = result;
+            }
+
+            if (this.suspended && (this.contents.size() <= maxContents / 2)) {
+                this.nettyContext.executor().execute(new Runnable() {
+                    public void run() {
+                        resume();
+                    }
+                });
+            }
+        }
+
+        if (this.ended && (this.error != null)) {
+            throw new IOException("The content was not entirely received",
+                    this.error);
+        }
+
+        return this.ended ? null : result;
+    }
+
+    /**
+     * Indicates if the last content was received.
+     * 
+     * @return True if the last content was received.
+     */
+    protected boolean isLastReceived() {
+        return lastReceived;
+    }
+
+    /**
+     * Ends the content prematurely because of an error, which is reported to
+     * the reader once the queued contents are consumed. Must be called by the
+     * event loop.
+     * 
+     * @param cause
+     *            The error.
+     */
+    public void onError(Throwable cause) {
+        if (!this.closed && !this.lastReceived) {
+            this.error = cause;
+            this.lastReceived = true;
+            this.suspended = false;
+            this.contents.offer(END);
+        }
+    }
+
+    /**
+     * Queues a new content. Must be called by the event loop.
+     * 
+     * @param content
+     *            The content received.
+     * @param lastContent
+     *            True if this is the last content of the request.
+     */
+    public void onContent(ByteBuf content, boolean lastContent) {
+        if (!this.closed && !this.lastReceived) {
+            if (content.isReadable()) {
+                this.contents.offer(content.retain());
+            }
+
+            if (lastContent) {
+                this.lastReceived = true;
+                this.suspended = false;
+                this.contents.offer(END);
+            } else if (!this.suspended && !this.detached
+                    && (this.contents.size() >= this.maxContents)) {
+                this.suspended = true;
+                this.nettyContext.channel().config().setAutoRead(false);
             }
         }
+    }
 
-        return content.readByte() & 0xff;
+    @Override
+    public int read() throws IOException {
+        ByteBuf content = getContent();
+        return (content == null) ? -1 : (content.readByte() & 0xff);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        int available = available();
+        if (len == 0) {
+            return 0;
+        }
 
-        if (available == 0) {
-            if (isLastContent()) {
-                return -1;
-            } else {
-                getMoreContent();
-                available = available();
-            }
+        ByteBuf content = getContent();
+
+        if (content == null) {
+            return -1;
         }
 
-        len = Math.min(available, len);
+        len = Math.min(content.readableBytes(), len);
         content.readBytes(b, off, len);
         return len;
     }
 
+    /**
+     * Releases the content being read. Must be called by the reader thread.
+     */
+    private void releaseCurrent() {
+        ByteBuf content = this.current;
+        this.current = null;
+
+        if (content != null) {
+            content.release();
+        }
+    }
+
+    /**
+     * Releases the queued contents. Must be called by the event loop.
+     */
+    private void releaseQueued() {
+        ByteBuf content;
+
+        while ((content = this.contents.poll()) != null) {
+            if (content != END) {
+                content.release();
+            }
+        }
+    }
+
+    /**
+     * Resumes the reading of the channel if it was suspended by this stream.
+     * Must be called by the event loop.
+     */
+    private void resume() {
+        if (this.suspended && !this.detached) {
+            this.suspended = false;
+            this.nettyContext.channel().config().setAutoRead(true);
+        }
+    }
+
 }
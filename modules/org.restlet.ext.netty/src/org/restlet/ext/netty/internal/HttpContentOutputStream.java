@@ -0,0 +1,187 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty.internal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.restlet.engine.io.IoUtils;
+
+/**
+ * Output stream writing the response content as Netty HTTP contents. The
+ * written bytes are buffered and handed over to the event loop, which writes
+ * them asynchronously. When the channel isn't writable anymore because the
+ * client is slower than the producer, the writing thread waits for the pending
+ * writes to complete.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpContentOutputStream extends OutputStream {
+
+    /** The buffer being filled. */
+    private volatile ByteBuf buffer;
+
+    /** Indicates if the stream was closed. */
+    private volatile boolean closed;
+
+    /** Indicates if the last HTTP content should be written on close. */
+    private final boolean lastContent;
+
+    /** The future of the last write. */
+    private volatile ChannelFuture lastWrite;
+
+    /** The Netty context. */
+    private final ChannelHandlerContext nettyContext;
+
+    /**
+     * Constructor.
+     * 
+     * @param nettyContext
+     *            The Netty context.
+     * @param lastContent
+     *            Indicates if the last HTTP content should be written on
+     *            close.
+     */
+    public HttpContentOutputStream(ChannelHandlerContext nettyContext,
+            boolean lastContent) {
+        this.buffer = null;
+        this.closed = false;
+        this.lastContent = lastContent;
+        this.lastWrite = null;
+        this.nettyContext = nettyContext;
+    }
+
+    /**
+     * Checks that the last write didn't fail.
+     * 
+     * @throws IOException
+     */
+    private void checkLastWrite() throws IOException {
+        ChannelFuture future = this.lastWrite;
+
+        if ((future != null) && future.isDone() && !future.isSuccess()) {
+            throw new IOException("Unable to write the response content",
+                    future.cause());
+        }
+    }
+
+    /**
+     * Flushes the buffer and closes the stream. The last HTTP content is
+     * written if requested at construction time.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            try {
+                flush();
+
+                if (this.lastContent) {
+                    this.lastWrite = this.nettyContext
+                            .writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+                }
+            } finally {
+                this.closed = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes, if any, to the channel. Waits for the pending
+     * writes to complete if the channel isn't writable.
+     */
+    @Override
+    public void flush() throws IOException {
+        ByteBuf content = this.buffer;
+
+        if ((content != null) && content.isReadable()) {
+            this.buffer = null;
+            this.lastWrite = this.nettyContext
+                    .writeAndFlush(new DefaultHttpContent(content));
+        }
+
+        ChannelFuture future = this.lastWrite;
+
+        if ((future != null) && !this.nettyContext.channel().isWritable()) {
+            if (!future.awaitUninterruptibly(IoUtils.TIMEOUT_MS)) {
+                throw new IOException(
+                        "Timeout while writing the response content");
+            }
+        }
+
+        checkLastWrite();
+    }
+
+    /**
+     * Returns the buffer to fill, allocating it if needed.
+     * 
+     * @return The buffer to fill.
+     * @throws IOException
+     */
+    private ByteBuf getBuffer() throws IOException {
+        if (this.closed) {
+            throw new IOException("The response entity stream was closed");
+        }
+
+        if (this.buffer == null) {
+            checkLastWrite();
+            this.buffer = this.nettyContext.alloc().buffer(
+                    IoUtils.BUFFER_SIZE, IoUtils.BUFFER_SIZE);
+        }
+
+        return this.buffer;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ByteBuf content = getBuffer();
+            int count = Math.min(len, content.maxWritableBytes());
+            content.writeBytes(b, off, count);
+            off += count;
+            len -= count;
+
+            if (content.maxWritableBytes() == 0) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ByteBuf content = getBuffer();
+        content.writeByte(b);
+
+        if (content.maxWritableBytes() == 0) {
+            flush();
+        }
+    }
+
+}
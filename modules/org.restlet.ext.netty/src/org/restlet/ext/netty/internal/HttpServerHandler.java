@@ -24,92 +24,101 @@
 
 package org.restlet.ext.netty.internal;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderUtil;
-import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
 
 import org.restlet.ext.netty.NettyServerHelper;
 
 /**
+ * Handler of the HTTP requests received by a Netty channel. It never blocks
+ * the event loop: each Restlet call is dispatched to the worker executor of
+ * the server helper, the request contents are passed to the call via a queue
+ * and the response is written asynchronously by the worker thread.<br>
+ * <br>
+ * Only one call is handled at a time per connection. Once a request has been
+ * fully received and while its call is still being handled, the reading of the
+ * channel is suspended and any pipelined message already decoded is kept until
+ * the call completes, so that responses are written in the order of requests.
  * 
  * @author Jerome Louvel
  */
 public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
 
-    private static void appendDecoderResult(HttpObject httpObject) {
-        DecoderResult result = httpObject.decoderResult();
-
-        if (result.isSuccess()) {
-            return;
-        }
-
-        // TODO: ???
+    /**
+     * Sends a full response without entity and closes the connection.
+     * 
+     * @param ctx
+     *            The Netty context.
+     * @param status
+     *            The response status.
+     */
+    private static void sendError(ChannelHandlerContext ctx,
+            HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
+                status);
+        HttpHeaderUtil.setContentLength(response, 0);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
     }
 
     private static void send100Continue(ChannelHandlerContext ctx) {
         FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
                 CONTINUE);
-        ctx.write(response);
+        ctx.writeAndFlush(response);
     }
 
-    private volatile NettyServerCall call;
+    /** The call being handled, accessed by the event loop only. */
+    private NettyServerCall call;
+
+    /** The messages received while the current call is being handled. */
+    private final Queue<Object> pendingMessages;
+
+    /** Indicates if the request of the current call was fully received. */
+    private boolean requestComplete;
 
     private final NettyServerHelper serverHelper;
 
     public HttpServerHandler(NettyServerHelper serverHelper) {
         this.serverHelper = serverHelper;
+        this.pendingMessages = new ArrayDeque<Object>();
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
-        System.out.println("Message received: " + msg);
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releasePendingMessages();
 
-        try {
-            if (msg instanceof HttpRequest) {
-                HttpRequest request = (HttpRequest) msg;
-
-                if (HttpHeaderUtil.is100ContinueExpected(request)) {
-                    send100Continue(ctx);
-                }
-
-                call = new NettyServerCall(getServerHelper().getHelped(), ctx,
-                        request);
-                serverHelper.handle(call);
-                appendDecoderResult(request);
-            } else if (msg instanceof HttpContent) {
-                HttpContent httpContent = (HttpContent) msg;
-                ctx.channel().config().setAutoRead(false);
-
-                if (call != null) {
-                    call.onContent(httpContent);
-                } else {
-                    throw new IOException(
-                            "Unexpected error, content arrived before call created");
-                }
+        if (this.call != null) {
+            this.call.getNettyEntityStream().close();
+        }
 
-                if (msg instanceof LastHttpContent) {
-                    LastHttpContent trailer = (LastHttpContent) msg;
+        super.channelInactive(ctx);
+    }
 
-                    if (!trailer.trailingHeaders().isEmpty()) {
-                        // TODO
-                    }
-                }
-            }
-        } catch (Throwable e) {
-            // TODO
-            e.printStackTrace();
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+        if ((this.call != null) && this.requestComplete) {
+            // Wait for the current call to complete
+            this.pendingMessages.offer(ReferenceCountUtil.retain(msg));
+        } else {
+            handleMessage(ctx, msg);
         }
     }
 
@@ -120,7 +129,8 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-        cause.printStackTrace();
+        getServerHelper().getLogger().log(Level.FINE,
+                "Error while handling a Netty channel", cause);
         ctx.close();
     }
 
@@ -128,4 +138,130 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
         return serverHelper;
     }
 
+    /**
+     * Handles a message read from the channel. Must be called by the event
+     * loop.
+     * 
+     * @param ctx
+     *            The Netty context.
+     * @param msg
+     *            The message to handle.
+     */
+    private void handleMessage(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+
+            if (!request.decoderResult().isSuccess()) {
+                sendError(ctx, BAD_REQUEST);
+                return;
+            }
+
+            if (HttpHeaderUtil.is100ContinueExpected(request)) {
+                send100Continue(ctx);
+            }
+
+            final NettyServerCall newCall = new NettyServerCall(
+                    getServerHelper().getHelped(), ctx, request,
+                    new HttpContentInputStream(ctx, getServerHelper()
+                            .getMaxBufferedContents()));
+            this.call = newCall;
+            this.requestComplete = false;
+
+            try {
+                getServerHelper().getExecutor().execute(new Runnable() {
+                    public void run() {
+                        try {
+                            getServerHelper().handle(newCall);
+                        } finally {
+                            // The handling thread is done reading the request
+                            newCall.getNettyEntityStream().close();
+
+                            if (!newCall.isCompleted()) {
+                                // The call failed before being committed
+                                newCall.abort();
+                                newCall.complete();
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                getServerHelper().getLogger().warning(
+                        "Unable to handle the request, no worker available");
+                this.call = null;
+                sendError(ctx, SERVICE_UNAVAILABLE);
+                return;
+            }
+        }
+
+        if (msg instanceof HttpContent) {
+            boolean last = (msg instanceof LastHttpContent);
+
+            if (this.call != null) {
+                this.call.getNettyEntityStream().onContent(
+                        ((HttpContent) msg).content(), last);
+
+                if (last) {
+                    this.requestComplete = true;
+                    ctx.channel().config().setAutoRead(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the event loop when a call has completed. Resumes the reading
+     * of the channel and handles the pending messages.
+     * 
+     * @param ctx
+     *            The Netty context.
+     * @param completedCall
+     *            The completed call.
+     */
+    private void onCallCompleted(ChannelHandlerContext ctx,
+            NettyServerCall completedCall) {
+        completedCall.getNettyEntityStream().close();
+
+        if (completedCall == this.call) {
+            this.call = null;
+            this.requestComplete = false;
+
+            Object msg;
+
+            while ((this.call == null || !this.requestComplete)
+                    && ((msg = this.pendingMessages.poll()) != null)) {
+                try {
+                    handleMessage(ctx, msg);
+                } finally {
+                    ReferenceCountUtil.release(msg);
+                }
+            }
+
+            if (ctx.channel().isActive()
+                    && ((this.call == null) || !this.requestComplete)) {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }
+    }
+
+    /**
+     * Releases the pending messages.
+     */
+    private void releasePendingMessages() {
+        Object msg;
+
+        while ((msg = this.pendingMessages.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt)
+            throws Exception {
+        if (evt instanceof NettyServerCall) {
+            onCallCompleted(ctx, (NettyServerCall) evt);
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
 }
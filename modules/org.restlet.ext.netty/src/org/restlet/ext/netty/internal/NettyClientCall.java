@@ -0,0 +1,468 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.netty.internal;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderUtil;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Uniform;
+import org.restlet.data.Header;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.engine.adapter.ClientCall;
+import org.restlet.engine.connector.ConnectorHelper;
+import org.restlet.ext.netty.HttpClientHelper;
+import org.restlet.representation.Representation;
+import org.restlet.service.ConnectorService;
+import org.restlet.util.Series;
+
+/**
+ * HTTP client call based on a pooled Netty channel. The request entity is
+ * streamed by the calling thread while the response is received by the event
+ * loop and streamed to the caller through a bounded queue. The channel is
+ * returned to its pool once the response has been entirely received.
+ * 
+ * @author Jerome Louvel
+ */
+public class NettyClientCall extends ClientCall {
+
+    /** The leased channel. */
+    private volatile Channel channel;
+
+    /** The pool of the leased channel. */
+    private volatile ChannelPool channelPool;
+
+    /** The parent client helper. */
+    private final HttpClientHelper clientHelper;
+
+    /** The error that interrupted the call. */
+    private volatile Throwable error;
+
+    /** The context of the client handler. */
+    private volatile ChannelHandlerContext nettyContext;
+
+    /** The Netty response. */
+    private volatile HttpResponse nettyResponse;
+
+    /** Indicates if the channel was released. */
+    private final AtomicBoolean released;
+
+    /** Indicates if the request was entirely written. */
+    private volatile boolean requestComplete;
+
+    /** The request entity stream. */
+    private volatile HttpContentOutputStream requestEntityStream;
+
+    /** The target resource reference. */
+    private final Reference resourceRef;
+
+    /** The result of the request sending. */
+    private volatile Status sendingStatus;
+
+    /** Counted down when the response head or an error is received. */
+    private final CountDownLatch responseLatch;
+
+    /** The response entity stream. */
+    private volatile HttpContentInputStream responseEntityStream;
+
+    /** Indicates if the response headers were added. */
+    private volatile boolean responseHeadersAdded;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent HTTP client helper.
+     * @param method
+     *            The method name.
+     * @param requestUri
+     *            The request URI.
+     */
+    public NettyClientCall(HttpClientHelper helper, String method,
+            String requestUri) {
+        super(helper, method, requestUri);
+        this.clientHelper = helper;
+        this.released = new AtomicBoolean(false);
+        this.resourceRef = new Reference(requestUri);
+        this.responseLatch = new CountDownLatch(1);
+
+        if ((this.resourceRef.getHostDomain() == null)
+                || !requestUri.startsWith("http")) {
+            throw new IllegalArgumentException(
+                    "Only HTTP or HTTPS resource URIs are allowed here");
+        }
+
+        setConfidential(Protocol.HTTPS.equals(this.resourceRef
+                .getSchemeProtocol()));
+    }
+
+    /**
+     * Waits for the response head.
+     * 
+     * @throws IOException
+     */
+    private void awaitResponse() throws IOException {
+        long timeout = this.clientHelper.getReadTimeout();
+
+        try {
+            if (timeout <= 0) {
+                this.responseLatch.await();
+            } else if (!this.responseLatch.await(timeout,
+                    TimeUnit.MILLISECONDS)) {
+                throw new IOException("No response received after "
+                        + timeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException(
+                    "Interrupted while waiting for the response");
+        }
+
+        if (this.error != null) {
+            throw new IOException("Unable to receive the response", this.error);
+        }
+    }
+
+    /**
+     * Returns the context of the client handler.
+     * 
+     * @return The context of the client handler.
+     */
+    protected ChannelHandlerContext getNettyContext() {
+        return nettyContext;
+    }
+
+    /**
+     * Returns the Netty response.
+     * 
+     * @return The Netty response.
+     */
+    protected HttpResponse getNettyResponse() {
+        return nettyResponse;
+    }
+
+    @Override
+    public String getReasonPhrase() {
+        HttpResponse response = getNettyResponse();
+
+        if (response != null) {
+            return response.status().reasonPhrase();
+        }
+
+        return (this.sendingStatus == null) ? null : this.sendingStatus
+                .getReasonPhrase();
+    }
+
+    @Override
+    public WritableByteChannel getRequestEntityChannel() {
+        return null;
+    }
+
+    @Override
+    public OutputStream getRequestEntityStream() {
+        if (this.requestEntityStream == null) {
+            this.requestEntityStream = new HttpContentOutputStream(
+                    getNettyContext(), true);
+        }
+
+        return this.requestEntityStream;
+    }
+
+    @Override
+    public OutputStream getRequestHeadStream() {
+        return null;
+    }
+
+    /**
+     * Returns the path and query of the target resource.
+     * 
+     * @return The path and query of the target resource.
+     */
+    private String getRequestTarget() {
+        String path = this.resourceRef.getPath();
+        StringBuilder sb = new StringBuilder();
+        sb.append(((path == null) || path.isEmpty()) ? "/" : path);
+
+        if (this.resourceRef.getQuery() != null) {
+            sb.append('?').append(this.resourceRef.getQuery());
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public ReadableByteChannel getResponseEntityChannel(long size) {
+        return null;
+    }
+
+    @Override
+    public InputStream getResponseEntityStream(long size) {
+        return this.responseEntityStream;
+    }
+
+    @Override
+    public Series<Header> getResponseHeaders() {
+        Series<Header> result = super.getResponseHeaders();
+
+        if (!this.responseHeadersAdded && (getNettyResponse() != null)) {
+            for (Map.Entry<String, String> header : getNettyResponse()
+                    .headers()) {
+                result.add(header.getKey(), header.getValue());
+            }
+
+            this.responseHeadersAdded = true;
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getServerAddress() {
+        Channel ch = this.channel;
+
+        if ((ch != null) && (ch.remoteAddress() instanceof InetSocketAddress)) {
+            return ((InetSocketAddress) ch.remoteAddress()).getAddress()
+                    .getHostAddress();
+        }
+
+        return this.resourceRef.getHostDomain();
+    }
+
+    @Override
+    public int getStatusCode() {
+        HttpResponse response = getNettyResponse();
+
+        if (response != null) {
+            return response.status().code();
+        }
+
+        return (this.sendingStatus == null) ? 0 : this.sendingStatus
+                .getCode();
+    }
+
+    /**
+     * Called by the event loop when the response is entirely received.
+     * Returns the channel to its pool if the connection can be kept alive.
+     */
+    void onComplete() {
+        if (this.responseEntityStream != null) {
+            this.responseEntityStream.detach();
+        }
+
+        this.channel.config().setAutoRead(true);
+        release(this.requestComplete
+                && HttpHeaderUtil.isKeepAlive(getNettyResponse()));
+    }
+
+    /**
+     * Called by the event loop when a response content is received.
+     * 
+     * @param content
+     *            The content.
+     * @param last
+     *            True if this is the last content.
+     */
+    void onContent(ByteBuf content, boolean last) {
+        if (this.responseEntityStream != null) {
+            this.responseEntityStream.onContent(content, last);
+        }
+    }
+
+    /**
+     * Called by the event loop when the call failed.
+     * 
+     * @param cause
+     *            The error.
+     */
+    void onError(Throwable cause) {
+        this.error = cause;
+
+        if (this.responseEntityStream != null) {
+            this.responseEntityStream.onError(cause);
+            this.responseEntityStream.detach();
+        }
+
+        this.responseLatch.countDown();
+        release(false);
+    }
+
+    /**
+     * Called by the event loop when the response head is received.
+     * 
+     * @param response
+     *            The response head.
+     */
+    void onResponse(HttpResponse response) {
+        this.nettyResponse = response;
+        this.responseEntityStream = new HttpContentInputStream(
+                getNettyContext(), this.clientHelper.getMaxBufferedContents());
+        this.responseLatch.countDown();
+    }
+
+    /**
+     * Releases the leased channel once.
+     * 
+     * @param reusable
+     *            True if the channel can be reused by another call.
+     */
+    private void release(boolean reusable) {
+        if ((this.channel != null) && this.released.compareAndSet(false, true)) {
+            this.channelPool.release(this.channel, reusable);
+        }
+    }
+
+    @Override
+    public Status sendRequest(Request request) {
+        Status result = null;
+        boolean sent = false;
+        Representation entity = request.isEntityAvailable() ? request
+                .getEntity() : null;
+
+        // Get the connector service to callback
+        ConnectorService connectorService = ConnectorHelper
+                .getConnectorService();
+
+        if (connectorService != null) {
+            connectorService.beforeSend(entity);
+        }
+
+        try {
+            // Lease a channel from the pool of the target host
+            this.channelPool = this.clientHelper
+                    .getChannelPool(this.resourceRef);
+            this.channel = this.channelPool.acquire(this.clientHelper
+                    .getSocketConnectTimeoutMs());
+            this.nettyContext = this.channel.pipeline().context(
+                    HttpClientHandler.class);
+            ((HttpClientHandler) this.nettyContext.handler()).setCall(this);
+
+            // Write the request head
+            HttpRequest nettyRequest = new DefaultHttpRequest(HTTP_1_1,
+                    HttpMethod.valueOf(getMethod()), getRequestTarget());
+            HttpHeaders headers = nettyRequest.headers();
+
+            for (Header header : getRequestHeaders()) {
+                headers.add(header.getName(), header.getValue());
+            }
+
+            if ((entity != null) && shouldRequestBeChunked(request)) {
+                HttpHeaderUtil.setTransferEncodingChunked(nettyRequest, true);
+            }
+
+            getNettyContext().write(nettyRequest);
+
+            // Stream the request entity
+            if (entity != null) {
+                OutputStream requestStream = getRequestEntityStream();
+                entity.write(requestStream);
+                requestStream.flush();
+                this.requestComplete = true;
+                requestStream.close();
+            } else {
+                this.requestComplete = true;
+                getNettyContext().writeAndFlush(
+                        LastHttpContent.EMPTY_LAST_CONTENT);
+            }
+
+            awaitResponse();
+            result = new Status(getStatusCode(), getReasonPhrase());
+            sent = true;
+        } catch (ConnectException ce) {
+            getHelper().getLogger().log(Level.FINE,
+                    "Unable to connect to the remote HTTP server.", ce);
+            result = new Status(Status.CONNECTOR_ERROR_CONNECTION, ce);
+        } catch (IOException ioe) {
+            getHelper()
+                    .getLogger()
+                    .log(Level.FINE,
+                            "An error occurred during the communication with the remote HTTP server.",
+                            ioe);
+            result = new Status(Status.CONNECTOR_ERROR_COMMUNICATION, ioe);
+        } finally {
+            if (!sent) {
+                // Never return a channel in an unknown state to its pool
+                if (this.nettyContext != null) {
+                    ((HttpClientHandler) this.nettyContext.handler())
+                            .setCall(null);
+                }
+
+                release(false);
+            }
+
+            if (entity != null) {
+                entity.release();
+            }
+
+            // Call-back after writing
+            if (connectorService != null) {
+                connectorService.afterSend(entity);
+            }
+        }
+
+        this.sendingStatus = result;
+        return result;
+    }
+
+    @Override
+    public void sendRequest(Request request, Response response, Uniform callback)
+            throws Exception {
+        sendRequest(request);
+
+        if (request.getOnSent() != null) {
+            request.getOnSent().handle(request, response);
+        }
+
+        if (callback != null) {
+            // Transmit to the callback, if any
+            callback.handle(request, response);
+        }
+    }
+
+}
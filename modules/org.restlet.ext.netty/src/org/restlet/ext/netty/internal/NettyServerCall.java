@@ -25,21 +25,21 @@
 package org.restlet.ext.netty.internal;
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.DefaultHttpResponse;
-import io.netty.handler.codec.http.HttpChunkedInput;
-import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderUtil;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
-import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -54,18 +54,31 @@ import org.restlet.Response;
 import org.restlet.Server;
 import org.restlet.data.Header;
 import org.restlet.engine.adapter.ServerCall;
+import org.restlet.engine.io.FileSegment;
+import org.restlet.engine.io.IoUtils;
 import org.restlet.representation.Representation;
 import org.restlet.util.Series;
 
 /**
+ * Netty server call. It is handled by a worker thread of the server helper.
+ * The request content is read from the queue filled by the event loop and the
+ * response is written asynchronously through the Netty context. When the call
+ * is complete, it is fired as a user event through the channel pipeline so
+ * that the {@link HttpServerHandler} can handle the next request.
  * 
  * @author Jerome Louvel
  */
 public class NettyServerCall extends ServerCall {
 
+    /** Indicates if the call was completed. */
+    private volatile boolean completed;
+
+    /** Indicates if the connection should be kept alive after the response. */
+    private volatile boolean keepAlive;
+
     private final ChannelHandlerContext nettyContext;
 
-    private volatile HttpContentInputStream nettyEntityStream;
+    private final HttpContentInputStream nettyEntityStream;
 
     private final HttpRequest nettyRequest;
 
@@ -74,29 +87,50 @@ public class NettyServerCall extends ServerCall {
     /** Indicates if the request headers were parsed and added. */
     private volatile boolean requestHeadersAdded;
 
+    /** The response entity stream. */
+    private volatile HttpContentOutputStream responseEntityStream;
+
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            The parent server.
+     * @param nettyContext
+     *            The Netty context.
+     * @param httpRequest
+     *            The Netty request.
+     * @param nettyEntityStream
+     *            The request entity stream fed by the event loop.
+     */
     public NettyServerCall(Server server, ChannelHandlerContext nettyContext,
-            HttpRequest httpRequest) {
+            HttpRequest httpRequest, HttpContentInputStream nettyEntityStream) {
         super(server);
+        this.completed = false;
+        this.keepAlive = false;
         this.nettyContext = nettyContext;
+        this.nettyEntityStream = nettyEntityStream;
         this.nettyRequest = httpRequest;
         this.nettyResponse = null;
         this.requestHeadersAdded = false;
+        this.responseEntityStream = null;
     }
 
     @Override
     public boolean abort() {
-        try {
-            getNettyContext().close().sync();
-            return true;
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            return false;
-        }
+        getNettyContext().close();
+        return true;
     }
 
     @Override
     public void complete() {
         getNettyContext().flush();
+
+        if (!this.completed) {
+            this.completed = true;
+
+            // Let the handler process the next request on the event loop
+            getNettyContext().pipeline().fireUserEventTriggered(this);
+        }
     }
 
     @Override
@@ -128,11 +162,6 @@ public class NettyServerCall extends ServerCall {
     }
 
     protected HttpContentInputStream getNettyEntityStream() {
-        if (this.nettyEntityStream == null) {
-            this.nettyEntityStream = new HttpContentInputStream(
-                    getNettyContext());
-        }
-
         return this.nettyEntityStream;
     }
 
@@ -179,7 +208,12 @@ public class NettyServerCall extends ServerCall {
 
     @Override
     public OutputStream getResponseEntityStream() {
-        return null;
+        if (this.responseEntityStream == null) {
+            this.responseEntityStream = new HttpContentOutputStream(
+                    getNettyContext(), false);
+        }
+
+        return this.responseEntityStream;
     }
 
     @Override
@@ -202,13 +236,13 @@ public class NettyServerCall extends ServerCall {
         return result;
     }
 
-    public void onContent(HttpContent httpContent) throws IOException {
-        ByteBuf content = httpContent.content();
-
-        if (content.isReadable()) {
-            getNettyEntityStream().onContent(content,
-                    httpContent instanceof LastHttpContent);
-        }
+    /**
+     * Indicates if the call was completed.
+     * 
+     * @return True if the call was completed.
+     */
+    public boolean isCompleted() {
+        return this.completed;
     }
 
     protected void setNettyResponse(HttpResponse nettyResponse) {
@@ -219,11 +253,26 @@ public class NettyServerCall extends ServerCall {
     protected void writeResponseBody(Representation responseEntity)
             throws IOException {
         try {
-            // Send the entity to the client
-            InputStream is = responseEntity.getStream();
-            getNettyContext()
-                    .write(new HttpChunkedInput(new ChunkedStream(is)));
-            getNettyContext().writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            FileSegment fileSegment = FileSegment.get(responseEntity);
+            boolean secure = (getNettyContext().pipeline()
+                    .get(SslHandler.class) != null);
+
+            if (fileSegment == null) {
+                // Write the entity from this thread, the event loop sends it
+                super.writeResponseBody(responseEntity);
+            } else if (!secure) {
+                // Let the operating system send the file content
+                getNettyContext().write(
+                        new DefaultFileRegion(fileSegment.openChannel(),
+                                fileSegment.getPosition(), fileSegment
+                                        .getCount()));
+            } else {
+                // The file content must be encrypted
+                getNettyContext().write(
+                        new ChunkedNioFile(fileSegment.openChannel(),
+                                fileSegment.getPosition(), fileSegment
+                                        .getCount(), IoUtils.BUFFER_SIZE));
+            }
         } catch (IOException ioe) {
             // The stream was probably already closed by the
             // connector. Probably OK, low message priority.
@@ -245,21 +294,35 @@ public class NettyServerCall extends ServerCall {
         }
 
         // Decide whether to close the connection or not.
-        if (isKeepAlive()) {
+        this.keepAlive = isKeepAlive();
+
+        if (shouldResponseBeChunked(restletResponse)) {
+            if (HTTP_1_1.equals(getNettyRequest().protocolVersion())) {
+                HttpHeaderUtil.setTransferEncodingChunked(getNettyResponse(),
+                        true);
+            } else {
+                // The end of the content is signaled by closing the connection
+                this.keepAlive = false;
+            }
+        }
+
+        if (this.keepAlive) {
             headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-            getNettyContext().write(getNettyResponse());
         } else {
-            getNettyContext().writeAndFlush(getNettyResponse()).addListener(
-                    ChannelFutureListener.CLOSE);
+            headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
         }
+
+        getNettyContext().write(getNettyResponse());
     }
 
     @Override
     protected void writeResponseTail(Response response) {
-        if (!isKeepAlive()) {
+        ChannelFuture future = getNettyContext().writeAndFlush(
+                LastHttpContent.EMPTY_LAST_CONTENT);
+
+        if (!this.keepAlive) {
             // Close the connection once the content is fully written.
-            getNettyContext().writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(
-                    ChannelFutureListener.CLOSE);
+            future.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
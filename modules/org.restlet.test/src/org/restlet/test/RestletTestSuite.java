@@ -56,7 +56,9 @@ import org.restlet.test.ext.html.HtmlTestSuite;
 import org.restlet.test.ext.jackson.JacksonTestCase;
 import org.restlet.test.ext.jaxb.JaxbBasicConverterTestCase;
 import org.restlet.test.ext.jaxb.JaxbIntegrationConverterTestCase;
+import org.restlet.test.ext.jetty.JettySpdyTestCase;
 import org.restlet.test.ext.json.JsonTestSuite;
+import org.restlet.test.ext.netty.NettyServerHelperTestCase;
 import org.restlet.test.ext.odata.ODataTestSuite;
 import org.restlet.test.ext.spring.SpringTestSuite;
 import org.restlet.test.ext.velocity.VelocityTestCase;
@@ -64,6 +66,7 @@ import org.restlet.test.ext.wadl.WadlTestSuite;
 import org.restlet.test.ext.xml.XmlTestSuite;
 import org.restlet.test.regression.RegressionTestSuite;
 import org.restlet.test.representation.AppendableRepresentationTestCase;
+import org.restlet.test.representation.ByteRangesRepresentationTestCase;
 import org.restlet.test.representation.DigesterRepresentationTestCase;
 import org.restlet.test.representation.RangeRepresentationTestCase;
 import org.restlet.test.routing.FilterTestCase;
@@ -111,8 +114,10 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(JacksonTestCase.class);
         addTestSuite(JaxbBasicConverterTestCase.class);
         addTestSuite(JaxbIntegrationConverterTestCase.class);
+        addTestSuite(JettySpdyTestCase.class);
         addTestSuite(LanguageTestCase.class);
         addTestSuite(MediaTypeTestCase.class);
+        addTestSuite(NettyServerHelperTestCase.class);
         addTestSuite(ProductTokenTestCase.class);
         addTestSuite(ReferenceTestCase.class);
         addTestSuite(RestartTestCase.class);
@@ -154,6 +159,7 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(HttpDigestTestCase.class);
         addTestSuite(RangeTestCase.class);
         addTestSuite(RangeRepresentationTestCase.class);
+        addTestSuite(ByteRangesRepresentationTestCase.class);
         addTestSuite(RedirectTestCase.class);
         addTestSuite(SecurityTestCase.class);
         addTestSuite(TemplateFilterTestCase.class);
@@ -25,14 +25,25 @@
 package org.restlet.test.connector;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.Language;
 import org.restlet.data.LocalReference;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
 import org.restlet.data.Status;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.local.FileMetadata;
+import org.restlet.engine.local.FileMetadataCache;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.ClientResource;
 import org.restlet.resource.ResourceException;
+import org.restlet.service.MetadataService;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -42,6 +53,16 @@ import org.restlet.test.RestletTestCase;
  */
 public class FileClientTestCase extends RestletTestCase {
 
+    private static void write(File file, String text) throws IOException {
+        FileWriter writer = new FileWriter(file);
+
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+
     public void testFileClient() throws IOException {
         String text = "Test content\r\nLine 2\r\nLine2";
         LocalReference fr = LocalReference
@@ -70,4 +91,66 @@ public class FileClientTestCase extends RestletTestCase {
         }
         assertEquals(Status.SUCCESS_NO_CONTENT, resource.getStatus());
     }
+
+    public void testMetadataCache() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "fileMetadataCacheTestCase");
+        IoUtils.delete(dir, true);
+        dir.mkdirs();
+        File a = new File(dir, "a.txt");
+        File b = new File(dir, "b.html");
+        File c = new File(dir, "c.txt");
+        write(a, "abc");
+        write(b, "<html/>");
+
+        // Polled directories
+        FileMetadataCache cache = new FileMetadataCache(10, 60000);
+        cache.setWatched(false);
+        FileMetadata metadata = cache.getMetadata(a);
+        assertEquals(3, metadata.getLength());
+        assertTrue(metadata.isNormal());
+        assertEquals("a", metadata.getBaseName(new MetadataService()));
+        assertEquals(2, cache.getChildren(dir).size());
+        assertNull(cache.getChildren(a));
+        assertEquals(1, cache.size());
+
+        write(c, "c");
+        assertNull(cache.getMetadata(c));
+        cache.invalidate(c);
+        assertNotNull(cache.getMetadata(c));
+        cache.setPollingInterval(0);
+        IoUtils.delete(c);
+        assertNull(cache.getMetadata(c));
+        cache.close();
+
+        // Watched directories
+        cache = new FileMetadataCache(10, 60000);
+        assertEquals(2, cache.getChildren(dir).size());
+
+        if (cache.isWatched()) {
+            write(c, "c");
+
+            for (int i = 0; (i < 100) && (cache.getMetadata(c) == null); i++) {
+                Thread.sleep(50);
+            }
+
+            assertNotNull(cache.getMetadata(c));
+            IoUtils.delete(c);
+        }
+
+        cache.close();
+
+        // Through the connector
+        Client client = new Client(new Context(), Protocol.FILE);
+        client.getContext().getParameters().add("metadataCached", "true");
+        client.start();
+        Response response = client.handle(new Request(Method.GET,
+                LocalReference.createFileReference(a)));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("abc", response.getEntity().getText());
+        assertNotNull(response.getEntity().getTag());
+        assertTrue(response.getEntity().getTag().isWeak());
+        client.stop();
+        IoUtils.delete(dir, true);
+    }
 }
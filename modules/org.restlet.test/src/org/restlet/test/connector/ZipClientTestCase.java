@@ -25,12 +25,24 @@
 package org.restlet.test.connector;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.LocalReference;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.local.ZipArchive;
+import org.restlet.engine.local.ZipArchiveCache;
+import org.restlet.engine.local.ZipClientHelper;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.ClientResource;
@@ -48,6 +60,25 @@ public class ZipClientTestCase extends RestletTestCase {
 
     private File zipFile;
 
+    private static void writeZip(File file, String... entryNames)
+            throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+
+        try {
+            for (String entryName : entryNames) {
+                out.putNextEntry(new ZipEntry(entryName));
+
+                if (!entryName.endsWith("/")) {
+                    out.write(entryName.getBytes("UTF-8"));
+                }
+
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
@@ -63,6 +94,71 @@ public class ZipClientTestCase extends RestletTestCase {
         // BioUtils.delete(testDir, true);
     }
 
+    public void testArchiveCache() throws Exception {
+        writeZip(zipFile, "a.txt", "dir/", "dir/b.txt", "dir/sub/c.txt");
+        ZipArchiveCache cache = new ZipArchiveCache(1);
+
+        ZipArchive archive = cache.acquire(zipFile);
+        assertSame(archive, cache.acquire(zipFile));
+        assertEquals(3, archive.getReferences());
+        assertEquals("dir/", archive.getEntry("dir").getName());
+        assertEquals(2, archive.getEntries("dir/").size());
+        assertEquals(4, archive.getEntries("").size());
+        archive.release();
+        archive.release();
+        assertEquals(1, archive.getReferences());
+
+        // Modifying the archive opens it again
+        writeZip(zipFile, "a.txt");
+        zipFile.setLastModified(zipFile.lastModified() + 2000);
+        ZipArchive modified = cache.acquire(zipFile);
+        assertNotSame(archive, modified);
+        assertEquals(0, archive.getReferences());
+        assertNull(modified.getEntry("dir/"));
+
+        // Evicted archives stay open until released
+        File otherFile = new File(testDir, "other.zip");
+        writeZip(otherFile, "b.txt");
+        cache.acquire(otherFile).release();
+        assertEquals(1, cache.size());
+        assertEquals(1, modified.getReferences());
+        modified.release();
+        assertEquals(0, modified.getReferences());
+
+        cache.invalidate(otherFile);
+        assertEquals(0, cache.size());
+
+        // Directory listing served from the index
+        writeZip(zipFile, "a.txt", "dir/", "dir/b.txt", "dir/sub/c.txt");
+        zipFile.setLastModified(zipFile.lastModified() + 4000);
+        ClientResource r = new ClientResource("zip:"
+                + LocalReference.createFileReference(zipFile) + "!/dir/");
+        String listing = r.get().getText();
+        assertTrue(listing.contains("dir/b.txt"));
+        assertTrue(listing.contains("dir/sub/c.txt"));
+        assertFalse(listing.contains("a.txt"));
+
+        // Each connector has its own cache, released when it is stopped
+        ZipClientHelper helper = new ZipClientHelper(new Client(
+                new Context(), Protocol.ZIP));
+        helper.start();
+        Request request = new Request(Method.GET, "zip:"
+                + LocalReference.createFileReference(zipFile) + "!/dir/");
+        Response response = new Response(request);
+        helper.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(1, helper.getArchiveCache().size());
+        assertEquals(0, new ZipClientHelper(new Client(new Context(),
+                Protocol.ZIP)).getArchiveCache().size());
+
+        archive = helper.getArchiveCache().acquire(zipFile);
+        archive.release();
+        assertEquals(1, archive.getReferences());
+        helper.stop();
+        assertEquals(0, helper.getArchiveCache().size());
+        assertEquals(0, archive.getReferences());
+    }
+
     public void testFileClient() throws IOException, InterruptedException {
         String text = "Test content\r\nLine 2\r\nLine2";
         String text2 = "Test content\nLine 2";
@@ -25,9 +25,12 @@
 package org.restlet.test.data;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
+import org.restlet.data.Parameter;
 import org.restlet.engine.util.FormReader;
 import org.restlet.test.RestletTestCase;
 
@@ -73,4 +76,58 @@ public class FormTestCase extends RestletTestCase {
         assertNull(form.getFirstValue("unknownParam"));
     }
 
+    public void testIndexedLookups() {
+        Form form = new Form();
+        form.setIndexed(true);
+        form.add("a", "1");
+        form.add("B", "2");
+        form.add("b", "3");
+        form.add("a", "4");
+
+        assertEquals("1", form.getFirstValue("a"));
+        assertEquals("2", form.getFirstValue("b", true));
+        assertEquals("3", form.getFirstValue("b"));
+        assertNull(form.getFirstValue("c"));
+        assertEquals("1,4", form.getValues("a"));
+        assertEquals(2, form.subList("B", true).size());
+        assertEquals(1, form.subList("B").size());
+
+        // Updates after the index was built
+        form.add("c", "5");
+        assertEquals("5", form.getFirstValue("c"));
+        form.add(0, new Parameter("c", "0"));
+        assertEquals("0", form.getFirstValue("c"));
+        form.removeFirst("a");
+        assertEquals("4", form.getFirstValue("a"));
+        form.set("b", "6", true);
+        assertEquals(1, form.subList("b", true).size());
+        assertEquals("6", form.getFirstValue("B"));
+        form.remove(0);
+        assertEquals("5", form.getFirstValue("c"));
+        form.clear();
+        assertNull(form.getFirstValue("a"));
+
+        // Modifications bypassing the series
+        form.add("d", "7");
+        form.add("d", "8");
+        Iterator<Parameter> iterator = form.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals("8", form.getFirstValue("d"));
+    }
+
+    public void testIndexedLookupsLocale() {
+        Locale defaultLocale = Locale.getDefault();
+
+        try {
+            // The Turkish locale lowers "I" into a dotless "i"
+            Locale.setDefault(new Locale("tr", "TR"));
+            Form form = new Form();
+            form.setIndexed(true);
+            form.add("TITLE", "1");
+            assertEquals("1", form.getFirstValue("title", true));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
 }
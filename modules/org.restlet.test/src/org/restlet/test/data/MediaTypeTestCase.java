@@ -24,7 +24,12 @@
 
 package org.restlet.test.data;
 
+import java.util.Locale;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Encoding;
 import org.restlet.data.Form;
+import org.restlet.data.Language;
 import org.restlet.data.MediaType;
 import org.restlet.data.Parameter;
 import org.restlet.test.RestletTestCase;
@@ -304,6 +309,63 @@ public class MediaTypeTestCase extends RestletTestCase {
         assertMediaType(" application /*", "application", "*", false);
     }
 
+    /**
+     * Makes sure that parsing well-known and repeated metadata names returns
+     * shared instances.
+     */
+    public void testInterning() {
+        assertSame(MediaType.APPLICATION_JSON,
+                MediaType.valueOf("application/json"));
+        MediaType parameterized = MediaType
+                .valueOf("application/json; charset=UTF-8");
+        assertSame(parameterized,
+                MediaType.valueOf("application/json; charset=UTF-8"));
+        assertEquals("UTF-8", parameterized.getParameters().getFirstValue(
+                "charset"));
+
+        assertSame(Encoding.GZIP, Encoding.valueOf("GZIP"));
+        assertSame(Encoding.IDENTITY, Encoding.valueOf("identity"));
+        assertSame(CharacterSet.UTF_8, CharacterSet.valueOf("utf-8"));
+        assertSame(CharacterSet.ISO_8859_1, CharacterSet.valueOf("latin1"));
+        assertSame(Language.ENGLISH_US, Language.valueOf("EN-us"));
+        assertEquals("x-custom", Encoding.valueOf("x-custom").getName());
+        assertSame(CharacterSet.MACINTOSH, CharacterSet.valueOf("MacRoman"));
+        assertSame(CharacterSet.MACINTOSH, CharacterSet.valueOf("macintosh"));
+
+        // Shared instances can't be modified
+        try {
+            parameterized.getParameters().set("charset", "ISO-8859-1", true);
+            fail("The parameters of a shared media type should be unmodifiable");
+        } catch (UnsupportedOperationException uoe) {
+            // As expected
+        }
+
+        assertEquals("UTF-8",
+                MediaType.valueOf("application/json; charset=UTF-8")
+                        .getParameters().getFirstValue("charset"));
+    }
+
+    /**
+     * Makes sure that the well-known metadata are found whatever the default
+     * locale.
+     */
+    public void testInterningLocale() {
+        Locale defaultLocale = Locale.getDefault();
+
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertSame(Encoding.IDENTITY, Encoding.valueOf("IDENTITY"));
+            assertSame(CharacterSet.ISO_8859_1,
+                    CharacterSet.valueOf("iso-8859-1"));
+            assertEquals(CharacterSet.valueOf("x-mine"),
+                    CharacterSet.valueOf("X-MINE"));
+            assertEquals(CharacterSet.valueOf("x-mine").hashCode(),
+                    CharacterSet.valueOf("X-MINE").hashCode());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
     /**
      * Test references that are unequal.
      */
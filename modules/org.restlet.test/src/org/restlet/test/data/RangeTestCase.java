@@ -265,6 +265,28 @@ public class RangeTestCase extends RestletTestCase {
         assertEquals(2, response.getEntity().getRange().getIndex());
         assertEquals(8, response.getEntity().getRange().getSize());
 
+        // Multiple ranges
+        request.setRanges(Arrays.asList(new Range(6, 2), new Range(0, 2)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(response.getEntity()
+                .getMediaType(), true));
+        String boundary = response.getEntity().getMediaType().getParameters()
+                .getFirstValue("boundary");
+        String text = response.getEntity().getText();
+        assertTrue(text.startsWith("--" + boundary + "\r\n"));
+        assertTrue(text.contains("Content-Range: bytes 0-1/10\r\n\r\n12\r\n"));
+        assertTrue(text.contains("Content-Range: bytes 6-7/10\r\n\r\n78\r\n"));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+
+        // Overlapping ranges are coalesced
+        request.setRanges(Arrays.asList(new Range(2, 3), new Range(0, 3)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("12345", response.getEntity().getText());
+        assertEquals(0, response.getEntity().getRange().getIndex());
+        assertEquals(5, response.getEntity().getRange().getSize());
+
         client.stop();
     }
 
@@ -443,12 +465,13 @@ public class RangeTestCase extends RestletTestCase {
         assertTrue(response.getStatus().isSuccess());
         response.getEntity().exhaust();
 
-        // Multiple ranges are not supported yet.
-        // request = new Request(Method.GET, "http://localhost:" + TEST_PORT
-        // + "/test?range=500-1000&range=500-");
-        // request.setRanges(Arrays.asList(new Range(500, 500), new Range(500,
-        // Range.SIZE_MAX)));
-        // assertTrue(client.handle(request).getStatus().isSuccess());
+        request = new Request(Method.GET, "http://localhost:" + TEST_PORT
+                + "/test?range=500-1000&range=500-");
+        request.setRanges(Arrays.asList(new Range(500, 500), new Range(500,
+                Range.SIZE_MAX)));
+        response = client.handle(request);
+        assertTrue(response.getStatus().isSuccess());
+        response.getEntity().exhaust();
 
         // client.stop();
 
@@ -67,6 +67,52 @@ public class ReferenceTestCase extends RestletTestCase {
         return ref;
     }
 
+    /**
+     * Makes sure that the components cached by a reference follow its changes
+     * and the changes of its base reference.
+     */
+    public void testCachedParts() {
+        Reference baseRef = new Reference("http://localhost/app/");
+        Reference ref = new Reference(baseRef,
+                "http://localhost/app/users/j%20d?q=1");
+        assertEquals("/app/users/j%20d", ref.getPath());
+        assertEquals("users/j%20d", ref.getRemainingPart(false, false));
+        assertEquals("users/j%20d?q=1", ref.getRemainingPart());
+        assertEquals("users/j d", ref.getRemainingPart(true, false));
+        assertEquals("j d", ref.getSegments(true).get(2));
+
+        // Lists returned are still independent copies
+        ref.getSegments(true).clear();
+        assertEquals(3, ref.getSegments(true).size());
+
+        // Changing the base reference
+        ref.setBaseRef("http://localhost/app/users/");
+        assertEquals("j%20d", ref.getRemainingPart(false, false));
+        ref.getBaseRef().setPath("/app/");
+        assertEquals("users/j%20d", ref.getRemainingPart(false, false));
+
+        // Changing the reference itself
+        ref.setPath("/app/groups/admin");
+        assertEquals("/app/groups/admin", ref.getPath());
+        assertEquals("groups/admin", ref.getRemainingPart(false, false));
+        assertEquals("admin", ref.getSegments(true).get(2));
+        assertEquals("groups/admin", ref.getRelativeRef().toString(false,
+                false));
+        assertEquals("groups/admin", ref.getRelativeRef().toString(false,
+                false));
+
+        // Target references are independent copies
+        Reference relativeRef = new Reference(baseRef, "users/../groups/x");
+        Reference targetRef = relativeRef.getTargetRef();
+        assertEquals("http://localhost/app/groups/x", targetRef.toString());
+        targetRef.setPath("/other");
+        assertEquals("http://localhost/app/groups/x", relativeRef
+                .getTargetRef().toString());
+        baseRef.setPath("/app2/");
+        assertEquals("http://localhost/app2/groups/x", relativeRef
+                .getTargetRef().toString());
+    }
+
     /**
      * Test addition methods.
      */
@@ -27,12 +27,18 @@ package org.restlet.test.engine;
 import java.util.List;
 
 import org.junit.Assert;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
+import org.restlet.engine.resource.AnnotationDispatchTable;
 import org.restlet.engine.resource.AnnotationInfo;
 import org.restlet.engine.resource.AnnotationUtils;
 import org.restlet.engine.resource.MethodAnnotationInfo;
 import org.restlet.resource.Get;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Put;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -56,6 +62,72 @@ public class AnnotationUtilsTestCase extends RestletTestCase {
 
     }
 
+    public static interface IDispatch {
+
+        @Get
+        String getText();
+
+        @Put
+        void putText(String text);
+
+        @Put
+        void putOther(String text);
+
+    }
+
+    public void testGetDispatchTable() throws Exception {
+        AnnotationDispatchTable table = AnnotationUtils.getInstance()
+                .getDispatchTable(IDispatch.class);
+        assertSame(table,
+                AnnotationUtils.getInstance().getDispatchTable(IDispatch.class));
+        assertEquals(1, table.getMethodAnnotations(Method.GET).size());
+        assertEquals(2, table.getMethodAnnotations(Method.PUT).size());
+        assertTrue(table.getMethodAnnotations(Method.DELETE).isEmpty());
+
+        MetadataService metadataService = new MetadataService();
+        ConverterService converterService = new ConverterService();
+        Form query = new Form();
+
+        for (int i = 0; i < 2; i++) {
+            MethodAnnotationInfo get = table.getMethodAnnotation(Method.GET,
+                    query, null, metadataService, converterService);
+            assertEquals("getText", get.getJavaMethod().getName());
+
+            MethodAnnotationInfo put = table.getMethodAnnotation(Method.PUT,
+                    query, new StringRepresentation("a",
+                            MediaType.TEXT_PLAIN), metadataService,
+                    converterService);
+            assertSame(table.getMethodAnnotations(Method.PUT).get(0), put);
+
+            assertNull(table.getMethodAnnotation(Method.DELETE, query, null,
+                    metadataService, converterService));
+        }
+
+        assertEquals(2, table.getSelectionCount());
+
+        // Selections are keyed on the entity metadata, not on the services
+        MetadataService otherMetadataService = new MetadataService();
+        assertSame(table.getMethodAnnotations(Method.PUT).get(0),
+                table.getMethodAnnotation(Method.PUT, query,
+                        new StringRepresentation("a", MediaType.TEXT_PLAIN),
+                        otherMetadataService, converterService));
+        assertEquals(2, table.getSelectionCount());
+
+        // The oldest selections are evicted
+        for (int i = 0; i < AnnotationDispatchTable.MAX_SELECTIONS; i++) {
+            table.getMethodAnnotation(Method.PUT, query,
+                    new StringRepresentation("a", MediaType
+                            .valueOf("text/x-test-" + i)), metadataService,
+                    converterService);
+        }
+
+        assertEquals(AnnotationDispatchTable.MAX_SELECTIONS,
+                table.getSelectionCount());
+        AnnotationUtils.getInstance().clearCache();
+        assertNotSame(table,
+                AnnotationUtils.getInstance().getDispatchTable(IDispatch.class));
+    }
+
     public void testGetAnnotationsWithGenericParameterType() {
         List<AnnotationInfo> infos = AnnotationUtils.getInstance()
                 .getAnnotations(IChild.class);
@@ -24,7 +24,11 @@
 
 package org.restlet.test.engine;
 
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
 
 import org.restlet.engine.util.DateUtils;
 import org.restlet.test.RestletTestCase;
@@ -54,6 +58,49 @@ public class DateTestCase extends RestletTestCase {
 
     private String DATE_RFC822_1 = "Fri, 12 Apr 85 23:20:50 GMT";
 
+    /**
+     * Tests the HTTP date formats against the standard date formats.
+     */
+    public void testHttpDates() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat(
+                DateUtils.FORMAT_RFC_1123.get(0), Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Random random = new Random(0);
+
+        for (int i = 0; i < 1000; i++) {
+            Date date = new Date((random.nextLong() >>> 1) % 253402300799000L);
+            String formatted = DateUtils.format(date);
+            assertEquals(format.format(date), formatted);
+            assertEquals(date.getTime() / 1000,
+                    DateUtils.parse(formatted).getTime() / 1000);
+        }
+
+        // All formats accepted by HTTP recipients
+        Date date = DateUtils.parse(DATE_RFC1123_1);
+        assertEquals(date, DateUtils.parse(DATE_RFC1036_1));
+        assertEquals(date, DateUtils.parse(DATE_ASC_1));
+        assertEquals(date, DateUtils.parse("Friday, 12-Apr-1985 23:20:50 GMT",
+                DateUtils.FORMAT_RFC_1036));
+        assertEquals(DateUtils.parse("Sun, 06 Nov 1994 08:49:37 GMT"),
+                DateUtils.parse("Sun Nov  6 08:49:37 1994",
+                        DateUtils.FORMAT_ASC_TIME));
+
+        // Recently parsed dates are new modifiable instances
+        Date parsed = DateUtils.parse(DATE_RFC1123_1);
+        assertNotSame(date, parsed);
+        assertEquals(date, parsed.clone());
+        parsed.setTime(0);
+        assertEquals(date, DateUtils.parse(DATE_RFC1123_1));
+
+        Date unmodifiable = DateUtils.unmodifiable(date);
+        assertSame(unmodifiable, DateUtils.unmodifiable(unmodifiable));
+
+        // Other time zones are still supported
+        assertEquals(date,
+                DateUtils.parse("Fri, 12 Apr 1985 16:20:50 PDT"));
+        assertNull(DateUtils.parse("Fri, 12 Apr 1985 23:"));
+    }
+
     /**
      * Tests for dates in the RFC 822 format.
      */
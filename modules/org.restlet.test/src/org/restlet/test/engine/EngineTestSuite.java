@@ -29,7 +29,10 @@ import junit.framework.TestSuite;
 
 import org.restlet.test.engine.connector.ConnectorsTestSuite;
 import org.restlet.test.engine.io.BioUtilsTestCase;
+import org.restlet.test.engine.io.BufferPoolTestCase;
+import org.restlet.test.engine.io.FileSegmentTestCase;
 import org.restlet.test.engine.io.ReaderInputStreamTestCase;
+import org.restlet.test.engine.io.ZlibPoolTestCase;
 import org.restlet.test.engine.util.Base64TestCase;
 
 /**
@@ -55,15 +58,19 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(AnnotationUtilsTestCase.class);
         addTestSuite(Base64TestCase.class);
         addTestSuite(BioUtilsTestCase.class);
+        addTestSuite(BufferPoolTestCase.class);
+        addTestSuite(FileSegmentTestCase.class);
         addTestSuite(CookiesTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
         addTestSuite(HeaderTestCase.class);
         addTestSuite(HttpCallTestCase.class);
+        addTestSuite(HttpRequestTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
         addTestSuite(UnclosableOutputStreamTestCase.class);
         addTestSuite(PreferencesTestCase.class);
         addTestSuite(ReaderInputStreamTestCase.class);
+        addTestSuite(ZlibPoolTestCase.class);
 
         // Tests based on HTTP client connectors are not supported by the GAE
         // edition.
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Header;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.data.Protocol;
+import org.restlet.engine.adapter.HttpRequest;
+import org.restlet.engine.adapter.ServerCall;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderTable;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.Series;
+
+/**
+ * Unit tests for the server HTTP request wrapper.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpRequestTestCase extends RestletTestCase {
+
+    /**
+     * Minimal server call, only providing the request line and headers.
+     */
+    private static class TestServerCall extends ServerCall {
+
+        public TestServerCall(String method, String requestUri) {
+            super("localhost", 8182);
+            setMethod(method);
+            setRequestUri(requestUri);
+            setProtocol(Protocol.HTTP);
+            getRequestHeaders().add(HeaderConstants.HEADER_HOST,
+                    "localhost:8182");
+        }
+
+        @Override
+        public boolean abort() {
+            return false;
+        }
+
+        @Override
+        public InputStream getRequestEntityStream(long size) {
+            return null;
+        }
+
+        @Override
+        public InputStream getRequestHeadStream() {
+            return null;
+        }
+
+        @Override
+        public OutputStream getResponseEntityStream() {
+            return null;
+        }
+    }
+
+    private HttpRequest createRequest(Context context, String... headers) {
+        TestServerCall call = new TestServerCall("GET", "/path");
+
+        for (int i = 0; i < headers.length; i += 2) {
+            call.getRequestHeaders().add(headers[i], headers[i + 1]);
+        }
+
+        return new HttpRequest(context, call);
+    }
+
+    private HttpRequest createRequest(String... headers) {
+        return createRequest(new Context(), headers);
+    }
+
+    public void testClientInfo() {
+        Request request = createRequest(HeaderConstants.HEADER_USER_AGENT,
+                "Restlet-Framework/2.3", HeaderConstants.HEADER_ACCEPT,
+                "text/html, application/xml;q=0.9",
+                HeaderConstants.HEADER_ACCEPT_LANGUAGE, "fr, en;q=0.5",
+                HeaderConstants.HEADER_FROM, "someone@restlet.org");
+        ClientInfo clientInfo = request.getClientInfo();
+        assertEquals("Restlet-Framework/2.3", clientInfo.getAgent());
+        assertEquals("someone@restlet.org", clientInfo.getFrom());
+
+        assertEquals(2, clientInfo.getAcceptedMediaTypes().size());
+        assertEquals(MediaType.TEXT_HTML, clientInfo.getAcceptedMediaTypes()
+                .get(0).getMetadata());
+        assertEquals(0.9F, clientInfo.getAcceptedMediaTypes().get(1)
+                .getQuality());
+
+        assertEquals(2, clientInfo.getAcceptedLanguages().size());
+        assertEquals(Language.valueOf("fr"), clientInfo.getAcceptedLanguages()
+                .get(0).getMetadata());
+
+        // Missing headers fallback to the defaults
+        assertEquals(1, clientInfo.getAcceptedCharacterSets().size());
+        assertEquals(1, clientInfo.getAcceptedEncodings().size());
+        assertTrue(clientInfo.getAcceptedPatches().isEmpty());
+        assertTrue(clientInfo.getExpectations().isEmpty());
+    }
+
+    public void testClientInfoConcurrent() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            final ClientInfo clientInfo = createRequest(
+                    HeaderConstants.HEADER_ACCEPT,
+                    "text/html, application/xml;q=0.9, */*;q=0.1")
+                    .getClientInfo();
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger partial = new AtomicInteger();
+            Thread[] threads = new Thread[4];
+
+            for (int j = 0; j < threads.length; j++) {
+                threads[j] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+
+                        // The preferences are only visible once complete
+                        if (clientInfo.getAcceptedMediaTypes().size() != 3) {
+                            partial.incrementAndGet();
+                        }
+                    }
+                };
+                threads[j].start();
+            }
+
+            start.countDown();
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(0, partial.get());
+        }
+    }
+
+    public void testClientInfoOverridden() {
+        Request request = createRequest(HeaderConstants.HEADER_ACCEPT,
+                "text/html");
+        ClientInfo clientInfo = request.getClientInfo();
+        clientInfo.getAcceptedMediaTypes().clear();
+        clientInfo.getAcceptedMediaTypes().add(
+                new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        assertEquals(1, clientInfo.getAcceptedMediaTypes().size());
+        assertEquals(MediaType.APPLICATION_JSON, clientInfo
+                .getAcceptedMediaTypes().get(0).getMetadata());
+
+        // Setting a property before its first access skips the header
+        clientInfo = createRequest(HeaderConstants.HEADER_USER_AGENT, "A")
+                .getClientInfo();
+        clientInfo.setAgent("B");
+        assertEquals("B", clientInfo.getAgent());
+
+        // Setting a new client info replaces the parsed one
+        request = createRequest(HeaderConstants.HEADER_USER_AGENT, "A");
+        request.setClientInfo(new ClientInfo(MediaType.TEXT_PLAIN));
+        assertNull(request.getClientInfo().getAgent());
+    }
+
+    public void testConditions() {
+        Request request = createRequest(HeaderConstants.HEADER_IF_NONE_MATCH,
+                "\"abc\"", "if-modified-since",
+                "Sun, 06 Nov 1994 08:49:37 GMT");
+        assertEquals(1, request.getConditions().getNoneMatch().size());
+        assertEquals("abc", request.getConditions().getNoneMatch().get(0)
+                .getName());
+        assertEquals(784111777000L, request.getConditions()
+                .getModifiedSince().getTime());
+
+        // The last date header prevails
+        request = createRequest("If-Modified-Since",
+                "Sat, 05 Nov 1994 08:49:37 GMT", "If-Modified-Since",
+                "Sun, 06 Nov 1994 08:49:37 GMT");
+        assertEquals(784111777000L, request.getConditions()
+                .getModifiedSince().getTime());
+    }
+
+    public void testForwardedAddresses() {
+        Request request = createRequest(
+                HeaderConstants.HEADER_X_FORWARDED_FOR, "1.2.3.4, 5.6.7.8");
+        assertTrue(request.getClientInfo().getForwardedAddresses().isEmpty());
+        assertEquals(request.getClientInfo().getAddress(), request
+                .getClientInfo().getUpstreamAddress());
+
+        Context context = new Context();
+        context.getParameters().add("useForwardedForHeader", "true");
+        request = createRequest(context,
+                HeaderConstants.HEADER_X_FORWARDED_FOR, "1.2.3.4, 5.6.7.8");
+        assertEquals("1.2.3.4", request.getClientInfo().getUpstreamAddress());
+        assertEquals(2, request.getClientInfo().getForwardedAddresses()
+                .size());
+    }
+
+    public void testHeaderTable() {
+        Series<Header> headers = new Series<Header>(Header.class);
+        headers.add("Accept", "text/html");
+        headers.add("X-Custom", "a");
+        headers.add("x-custom", "b");
+        HeaderTable table = new HeaderTable(headers);
+
+        assertTrue(table.contains("ACCEPT"));
+        assertFalse(table.contains("Accept-Language"));
+        assertEquals("text/html", table.getFirstValue("accept"));
+        assertNull(table.getFirstValue("Accept-Language"));
+        assertEquals("a", table.getFirstValue("X-CUSTOM"));
+        assertEquals("a,b", table.getValues("X-Custom"));
+        assertNull(table.getValues("Accept-Language"));
+        assertEquals(2, table.getValuesArray("x-custom").length);
+        assertEquals(0, table.getValuesArray("Accept-Language").length);
+        assertEquals(2, table.getHeaders("X-Custom").size());
+        assertTrue(table.getHeaders("Accept-Language").isEmpty());
+        assertEquals("b", table.getLastValue("X-Custom"));
+        assertNull(table.getLastValue("Accept-Language"));
+    }
+}
@@ -49,13 +49,13 @@ public abstract class BaseConnectorsTestCase extends RestletTestCase {
 
     private final boolean enabledClientJetty = false;
 
-    private final boolean enabledClientNetty = false;
+    private final boolean enabledClientNetty = true;
 
     private final boolean enabledServerInternal = true;
 
     private final boolean enabledServerJetty = true;
 
-    private final boolean enabledServerNetty = false;
+    private final boolean enabledServerNetty = true;
 
     protected abstract void call(String uri) throws Exception;
 
@@ -125,12 +125,12 @@ public abstract class BaseConnectorsTestCase extends RestletTestCase {
         }
     }
 
-//    public void testInternalAndNetty() throws Exception {
-//        if (this.enabledServerInternal && this.enabledClientNetty) {
-//            runTest(new org.restlet.engine.connector.HttpServerHelper(null),
-//                    new org.restlet.ext.netty.HttpClientHelper(null));
-//        }
-//    }
+    public void testInternalAndNetty() throws Exception {
+        if (this.enabledServerInternal && this.enabledClientNetty) {
+            runTest(new org.restlet.engine.connector.HttpServerHelper(null),
+                    new org.restlet.ext.netty.HttpClientHelper(null));
+        }
+    }
 
     public void testJettyAndInternal() throws Exception {
         if (this.enabledServerJetty && this.enabledClientInternal) {
@@ -146,12 +146,12 @@ public abstract class BaseConnectorsTestCase extends RestletTestCase {
         }
     }
 
-//    public void testJettyAndNetty() throws Exception {
-//        if (this.enabledServerJetty && this.enabledClientNetty) {
-//            runTest(new org.restlet.ext.jetty.HttpServerHelper(null),
-//                    new org.restlet.ext.netty.HttpClientHelper(null));
-//        }
-//    }
+    public void testJettyAndNetty() throws Exception {
+        if (this.enabledServerJetty && this.enabledClientNetty) {
+            runTest(new org.restlet.ext.jetty.HttpServerHelper(null),
+                    new org.restlet.ext.netty.HttpClientHelper(null));
+        }
+    }
 
     public void testNettyAndInternal() throws Exception {
         if (this.enabledServerNetty && this.enabledClientInternal) {
@@ -167,10 +167,10 @@ public abstract class BaseConnectorsTestCase extends RestletTestCase {
         }
     }
 
-//    public void testNettyAndNetty() throws Exception {
-//        if (this.enabledServerNetty && this.enabledClientNetty) {
-//            runTest(new org.restlet.ext.netty.HttpServerHelper(null),
-//                    new org.restlet.ext.netty.HttpClientHelper(null));
-//        }
-//    }
+    public void testNettyAndNetty() throws Exception {
+        if (this.enabledServerNetty && this.enabledClientNetty) {
+            runTest(new org.restlet.ext.netty.HttpServerHelper(null),
+                    new org.restlet.ext.netty.HttpClientHelper(null));
+        }
+    }
 }
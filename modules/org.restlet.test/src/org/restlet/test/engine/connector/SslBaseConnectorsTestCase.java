@@ -62,7 +62,7 @@ public abstract class SslBaseConnectorsTestCase extends RestletTestCase {
 
     private final boolean enabledClientJetty = false;
 
-    private final boolean enabledClientNetty = false;
+    private final boolean enabledClientNetty = true;
 
     private final boolean enabledServerInternal = true;
 
@@ -186,12 +186,12 @@ public abstract class SslBaseConnectorsTestCase extends RestletTestCase {
         }
     }
 
-    // public void testSslInternalAndNetty() throws Exception {
-    // if (this.enabledServerInternal && this.enabledClientNio) {
-    // runTest(new org.restlet.engine.connector.HttpsServerHelper(null),
-    // new org.restlet.ext.netty.HttpClientHelper(null));
-    // }
-    // }
+    public void testSslInternalAndNetty() throws Exception {
+        if (this.enabledServerInternal && this.enabledClientNetty) {
+            runTest(new org.restlet.engine.connector.HttpsServerHelper(null),
+                    new org.restlet.ext.netty.HttpClientHelper(null));
+        }
+    }
 
     public void testSslJettyAndInternal() throws Exception {
         if (this.enabledServerJetty && this.enabledClientInternal) {
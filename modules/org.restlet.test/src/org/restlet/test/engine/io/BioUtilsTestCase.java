@@ -25,15 +25,26 @@
 package org.restlet.test.engine.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
+import org.restlet.engine.io.DeferredInputStream;
 import org.restlet.engine.io.IoUtils;
 import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.WriterRepresentation;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -43,6 +54,79 @@ import org.restlet.test.RestletTestCase;
  */
 public class BioUtilsTestCase extends RestletTestCase {
 
+    public void testCopyFileChannelClosed() throws IOException {
+        File file = File.createTempFile("BioUtilsTestCase", ".txt");
+
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(new byte[] { 1, 2, 3 });
+            fos.close();
+
+            FileChannel fileChannel = new FileInputStream(file).getChannel();
+            WritableByteChannel failingChannel = Channels
+                    .newChannel(new OutputStream() {
+                        @Override
+                        public void write(int b) throws IOException {
+                            throw new IOException("Connection reset");
+                        }
+                    });
+
+            try {
+                IoUtils.copy(fileChannel, failingChannel);
+                fail("The write failure should be propagated");
+            } catch (IOException e) {
+                // As expected
+            }
+
+            assertFalse(fileChannel.isOpen());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testDeferred() throws IOException {
+        final byte[] content = new byte[] { 1, 2, 3, -1, -2, -3, 4, 5, 6 };
+        final Thread[] writingThread = new Thread[1];
+
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM, content.length) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                writingThread[0] = Thread.currentThread();
+                outputStream.write(content);
+            }
+        };
+
+        InputStream is = or.getStream();
+        assertTrue(is instanceof DeferredInputStream);
+        assertNull(writingThread[0]);
+
+        byte[] read = new byte[content.length + 1];
+        assertEquals(content.length, is.read(read));
+        assertEquals(-1, is.read(read));
+        assertSame(Thread.currentThread(), writingThread[0]);
+
+        for (int i = 0; i < content.length; i++) {
+            assertEquals(content[i], read[i]);
+        }
+
+        ReadableByteChannel channel = or.getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(content.length);
+        while (channel.read(buffer) > 0) {
+        }
+        assertEquals(content.length, buffer.position());
+
+        WriterRepresentation wr = new WriterRepresentation(
+                MediaType.TEXT_PLAIN) {
+            @Override
+            public void write(Writer writer) throws IOException {
+                writer.write("deferred");
+            }
+        };
+        wr.setSize(8);
+        assertEquals("deferred", IoUtils.toString(wr.getReader()));
+    }
+
     public void testGetStream() throws IOException {
         StringWriter writer = new StringWriter();
         OutputStream out = IoUtils.getStream(writer, CharacterSet.UTF_8);
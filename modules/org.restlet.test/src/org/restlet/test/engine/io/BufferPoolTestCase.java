@@ -0,0 +1,95 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.restlet.engine.io.BufferPool;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the BufferPool class.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPoolTestCase extends RestletTestCase {
+
+    public void testCheckout() {
+        BufferPool pool = new BufferPool(1024, true, 2);
+        byte[] bytes = pool.checkoutBytes();
+        assertEquals(1024, bytes.length);
+        assertEquals(0, pool.getHits());
+        assertEquals(1, pool.getMisses());
+
+        pool.checkin(bytes);
+        assertSame(bytes, pool.checkoutBytes());
+        assertEquals(1, pool.getHits());
+
+        // Foreign arrays are ignored
+        pool.checkin(new byte[512]);
+        assertEquals(1024, pool.checkoutBytes().length);
+        assertEquals(2, pool.getMisses());
+
+        ByteBuffer byteBuffer = pool.checkoutByteBuffer();
+        assertTrue(byteBuffer.isDirect());
+        assertEquals(1024, byteBuffer.capacity());
+        byteBuffer.put((byte) 1);
+        pool.checkin(byteBuffer);
+
+        byteBuffer = pool.checkoutByteBuffer();
+        assertEquals(0, byteBuffer.position());
+        assertEquals(1024, byteBuffer.remaining());
+        assertEquals(2, pool.getHits());
+        assertEquals(3, pool.getMisses());
+    }
+
+    public void testCopy() throws IOException {
+        byte[] content = new byte[3 * IoUtils.BUFFER_SIZE + 17];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IoUtils.copy(new ByteArrayInputStream(content), out);
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+
+        out = new ByteArrayOutputStream();
+        IoUtils.copy(Channels.newChannel(new ByteArrayInputStream(content)),
+                Channels.newChannel(out));
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+
+        assertEquals(content.length,
+                IoUtils.exhaust(new ByteArrayInputStream(content)));
+    }
+
+}
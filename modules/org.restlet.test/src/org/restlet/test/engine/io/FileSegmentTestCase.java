@@ -0,0 +1,183 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Range;
+import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.engine.io.FileSegment;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.ReadableRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the FileSegment class.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileSegmentTestCase extends RestletTestCase {
+
+    private File file;
+
+    private static String read(ReadableByteChannel channel)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            out.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+
+        channel.close();
+        return out.toString();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.file = File.createTempFile("FileSegmentTestCase", ".txt");
+        FileOutputStream os = new FileOutputStream(this.file);
+        os.write("0123456789".getBytes());
+        os.close();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.file.delete();
+        this.file = null;
+        super.tearDown();
+    }
+
+    public void testGet() {
+        FileRepresentation fr = new FileRepresentation(this.file,
+                MediaType.TEXT_PLAIN);
+        FileSegment segment = FileSegment.get(fr);
+        assertEquals(0, segment.getPosition());
+        assertEquals(10, segment.getCount());
+
+        segment = FileSegment.get(new RangeRepresentation(fr, new Range(2, 3)));
+        assertEquals(2, segment.getPosition());
+        assertEquals(3, segment.getCount());
+
+        segment = FileSegment.get(new RangeRepresentation(fr, new Range(
+                Range.INDEX_LAST, 4)));
+        assertEquals(6, segment.getPosition());
+        assertEquals(4, segment.getCount());
+
+        segment = FileSegment.get(new RangeRepresentation(fr, new Range(8,
+                Range.SIZE_MAX)));
+        assertEquals(8, segment.getPosition());
+        assertEquals(2, segment.getCount());
+
+        assertNull(FileSegment.get(new StringRepresentation("test")));
+        assertNull(FileSegment.get(new FileRepresentation(new File(this.file
+                .getParentFile(), "missing.txt"), MediaType.TEXT_PLAIN)));
+    }
+
+    public void testTransferTo() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FileSegment(this.file, 3, 4).transferTo(Channels.newChannel(out));
+        assertEquals("3456", out.toString());
+    }
+
+    public void testMap() throws IOException {
+        ByteBuffer mapping = new FileSegment(this.file, 2, 5).map();
+        assertTrue(mapping.isReadOnly());
+        byte[] bytes = new byte[mapping.remaining()];
+        mapping.get(bytes);
+        assertEquals("23456", new String(bytes));
+    }
+
+    public void testOpenChannel() throws IOException {
+        FileSegment segment = new FileSegment(this.file, 1, 8);
+        assertEquals("12345678", read(segment.openChannel(0)));
+        assertEquals("12345678", read(segment.openChannel(3)));
+        assertEquals("12345678", read(segment.openChannel(100)));
+        assertEquals("", read(new FileSegment(this.file, 4, 0).openChannel(3)));
+    }
+
+    public void testOpenChannelUnmap() throws IOException {
+        File maps = new File("/proc/self/maps");
+
+        if (!maps.canRead()) {
+            // The mappings of the process can't be observed
+            return;
+        }
+
+        ReadableByteChannel channel = new FileSegment(this.file, 1, 8)
+                .openChannel(4);
+        channel.read(ByteBuffer.allocate(2));
+        assertTrue(IoUtils.toString(new FileInputStream(maps)).contains(
+                this.file.getPath()));
+
+        // The current window is released without waiting for the collector
+        channel.close();
+        assertFalse(IoUtils.toString(new FileInputStream(maps)).contains(
+                this.file.getPath()));
+    }
+
+    public void testRangeRepresentation() throws IOException {
+        FileRepresentation fr = new FileRepresentation(this.file,
+                MediaType.TEXT_PLAIN);
+        assertEquals("234", new RangeRepresentation(fr, new Range(2, 3))
+                .getText());
+        assertEquals("6789", new RangeRepresentation(fr, new Range(
+                Range.INDEX_LAST, 4)).getText());
+
+        fr.setMappingSize(2);
+        assertEquals("3456789", new RangeRepresentation(fr, new Range(3,
+                Range.SIZE_MAX)).getText());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RangeRepresentation(fr, new Range(5, 2)).write(Channels
+                .newChannel(out));
+        assertEquals("56", out.toString());
+
+        // Seekable channel
+        ReadableRepresentation rr = new ReadableRepresentation(
+                new FileInputStream(this.file).getChannel(),
+                MediaType.TEXT_PLAIN, 10);
+        assertEquals("789", IoUtils.toString(new RangeRepresentation(rr,
+                new Range(Range.INDEX_LAST, 3)).getStream()));
+        rr = new ReadableRepresentation(
+                new FileInputStream(this.file).getChannel(),
+                MediaType.TEXT_PLAIN, 10);
+        assertEquals("45", IoUtils.toString(new RangeRepresentation(rr,
+                new Range(4, 2)).getStream()));
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.io.ZlibPool;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the ZlibPool class and the pooled encoding.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZlibPoolTestCase extends RestletTestCase {
+
+    private static String getContent() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + (i % 23) + (i / 5000)));
+        }
+
+        return sb.toString();
+    }
+
+    public void testCheckout() {
+        ZlibPool pool = new ZlibPool(1);
+        Deflater deflater = pool.checkoutDeflater(9, true);
+        assertEquals(1, pool.getMisses());
+        pool.checkin(deflater, true);
+        assertSame(deflater, pool.checkoutDeflater(1, true));
+        assertEquals(1, pool.getMisses());
+
+        // Instances are pooled per wrapping mode
+        assertNotSame(deflater, pool.checkoutDeflater(1, false));
+        assertEquals(2, pool.getMisses());
+
+        Inflater inflater = pool.checkoutInflater(false);
+        pool.checkin(inflater, false);
+        assertSame(inflater, pool.checkoutInflater(false));
+        assertEquals(3, pool.getMisses());
+    }
+
+    public void testEncoderService() {
+        EncoderService service = new EncoderService();
+        service.setMinimumSize(100);
+        service.setCompressionLevel(MediaType.TEXT_ALL, 1);
+        service.setCompressionLevel(MediaType.TEXT_HTML, 9);
+        service.setMinimumSize(MediaType.APPLICATION_JSON, 10);
+
+        assertEquals(Deflater.DEFAULT_COMPRESSION,
+                service.getCompressionLevel(MediaType.APPLICATION_JSON));
+        assertEquals(1, service.getCompressionLevel(MediaType.TEXT_PLAIN));
+        assertEquals(9, service.getCompressionLevel(MediaType.TEXT_HTML));
+        assertEquals(100, service.getMinimumSize(MediaType.TEXT_PLAIN));
+        assertEquals(10, service.getMinimumSize(MediaType.APPLICATION_JSON));
+
+        char[] chars = new char[50];
+        Arrays.fill(chars, 'a');
+        Representation json = new StringRepresentation(new String(chars),
+                MediaType.APPLICATION_JSON);
+        Representation text = new StringRepresentation(new String(chars),
+                MediaType.TEXT_PLAIN);
+        assertTrue(service.canEncode(json));
+        assertFalse(service.canEncode(text));
+    }
+
+    public void testRoundTrip() throws IOException {
+        String content = getContent();
+        Encoding[] encodings = { Encoding.GZIP, Encoding.DEFLATE,
+                Encoding.DEFLATE_NOWRAP };
+
+        for (Encoding encoding : encodings) {
+            for (int level : new int[] { 1, Deflater.DEFAULT_COMPRESSION }) {
+                for (long maxBufferedSize : new long[] { 0, 100000 }) {
+                    EncodeRepresentation encoded = new EncodeRepresentation(
+                            encoding, new StringRepresentation(content),
+                            level);
+                    encoded.setMaxBufferedSize(maxBufferedSize);
+                    assertEquals(level, encoded.getLevel());
+
+                    if (maxBufferedSize == 0) {
+                        assertEquals(Representation.UNKNOWN_SIZE,
+                                encoded.getSize());
+                    } else {
+                        assertTrue(encoded.getSize() > 0);
+                        assertTrue(encoded.getSize() < content.length());
+                    }
+
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    encoded.write(out);
+
+                    if (maxBufferedSize != 0) {
+                        assertEquals(encoded.getSize(), out.size());
+                    }
+
+                    Representation wrapped = new ByteArrayRepresentation(
+                            out.toByteArray());
+                    wrapped.getEncodings().add(encoding);
+                    assertEquals(encoding.getName(), content,
+                            new DecodeRepresentation(wrapped).getText());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jetty;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.engine.Engine;
+import org.restlet.ext.jetty.HttpClientHelper;
+import org.restlet.ext.jetty.HttpServerHelper;
+import org.restlet.ext.jetty.internal.SpdyResponseListener;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the SPDY support of the Jetty connectors.
+ * 
+ * @author Jerome Louvel
+ */
+public class JettySpdyTestCase extends RestletTestCase {
+
+    /** The size of the response entity, above the SPDY flow control window. */
+    private static final int SIZE = 256 * 1024;
+
+    private Client client;
+
+    private Component component;
+
+    private String start() throws Exception {
+        Engine engine = Engine.register(false);
+        engine.getRegisteredServers().add(new HttpServerHelper(null));
+        engine.getRegisteredClients().add(new HttpClientHelper(null));
+
+        this.component = new Component();
+        Server server = this.component.getServers().add(Protocol.HTTP, 0);
+        server.getContext().getParameters().add("spdy.version", "3");
+        server.getContext().getParameters().add("spdy.clearText", "true");
+        this.component.getDefaultHost().attach(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                super.handle(request, response);
+
+                if (Method.POST.equals(request.getMethod())) {
+                    try {
+                        response.setEntity(request.getEntity().getText()
+                                .toUpperCase(), MediaType.TEXT_PLAIN);
+                    } catch (Exception e) {
+                        response.setStatus(
+                                org.restlet.data.Status.SERVER_ERROR_INTERNAL,
+                                e);
+                    }
+                } else {
+                    byte[] bytes = new byte[SIZE];
+                    Arrays.fill(bytes, (byte) 'a');
+                    response.setEntity(new ByteArrayRepresentation(bytes,
+                            MediaType.TEXT_PLAIN, SIZE));
+                }
+            }
+        });
+        this.component.start();
+
+        this.client = new Client(new Context(), Protocol.HTTP);
+        this.client.getContext().getParameters().add("spdyVersion", "3");
+        this.client.start();
+        return "http://localhost:" + server.getEphemeralPort() + "/";
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.client != null) {
+            this.client.stop();
+            this.client = null;
+        }
+
+        if (this.component != null) {
+            this.component.stop();
+            this.component = null;
+        }
+
+        Engine.register();
+        super.tearDown();
+    }
+
+    /**
+     * Checks that reading a SPDY response entity gives up once no data frame
+     * was received during the read timeout.
+     * 
+     * @throws Exception
+     */
+    public void testReadTimeout() throws Exception {
+        SpdyResponseListener listener = new SpdyResponseListener(100);
+        long start = System.currentTimeMillis();
+
+        try {
+            listener.getInputStream().read();
+            fail("The read should have timed out");
+        } catch (IOException e) {
+            assertTrue(System.currentTimeMillis() - start >= 100);
+        }
+    }
+
+    /**
+     * Checks that requests and responses round-trip over a clear-text SPDY
+     * session, including a response larger than the flow control window.
+     * 
+     * @throws Exception
+     */
+    public void testRoundTrip() throws Exception {
+        String uri = start();
+
+        Response response = this.client.handle(new Request(Method.GET, uri));
+        assertTrue(response.getStatus().isSuccess());
+        byte[] bytes = response.getEntity().getBytes();
+        assertEquals(SIZE, bytes.length);
+        assertEquals('a', bytes[SIZE - 1]);
+
+        Request request = new Request(Method.POST, uri);
+        request.setEntity(new StringRepresentation("spdy"));
+        response = this.client.handle(request);
+        assertTrue(response.getStatus().isSuccess());
+        assertEquals("SPDY", response.getEntity().getText());
+    }
+
+}
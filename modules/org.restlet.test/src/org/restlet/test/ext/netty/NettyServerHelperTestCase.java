@@ -0,0 +1,138 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.ext.netty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.engine.Engine;
+import org.restlet.ext.netty.HttpServerHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the Netty server connector.
+ * 
+ * @author Jerome Louvel
+ */
+public class NettyServerHelperTestCase extends RestletTestCase {
+
+    /** The number of concurrent calls. */
+    private static final int CALLS = 3;
+
+    private Component component;
+
+    private volatile CountDownLatch latch;
+
+    private String start() throws Exception {
+        Engine engine = Engine.register(false);
+        engine.getRegisteredServers().add(new HttpServerHelper(null));
+        engine.getRegisteredClients().add(
+                new org.restlet.engine.connector.HttpClientHelper(null));
+
+        this.component = new Component();
+        Server server = this.component.getServers().add(Protocol.HTTP, 0);
+        this.component.getDefaultHost().attach(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                super.handle(request, response);
+                latch.countDown();
+                boolean parallel = false;
+
+                try {
+                    parallel = latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                response.setEntity(parallel ? "parallel" : "sequential",
+                        MediaType.TEXT_PLAIN);
+            }
+        });
+        this.component.start();
+        return "http://localhost:" + server.getEphemeralPort() + "/";
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.component != null) {
+            this.component.stop();
+            this.component = null;
+        }
+
+        Engine.register();
+        super.tearDown();
+    }
+
+    /**
+     * Checks that concurrent calls are handled by several worker threads with
+     * the default parameters.
+     * 
+     * @throws Exception
+     */
+    public void testConcurrentCalls() throws Exception {
+        this.latch = new CountDownLatch(CALLS);
+        final String uri = start();
+        final Client client = new Client(Protocol.HTTP);
+        client.start();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLS);
+
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+
+            for (int i = 0; i < CALLS; i++) {
+                results.add(callers.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        Response response = client.handle(new Request(
+                                Method.GET, uri));
+                        return response.getEntity().getText();
+                    }
+                }));
+            }
+
+            for (Future<String> result : results) {
+                assertEquals("parallel", result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+            client.stop();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.representation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Range;
+import org.restlet.engine.application.ByteRangesRepresentation;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.ReadableRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test case for the {@link ByteRangesRepresentation} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ByteRangesRepresentationTestCase extends RestletTestCase {
+
+    private static final List<Range> RANGES = Arrays.asList(new Range(6, 2),
+            new Range(1, 2), new Range(Range.INDEX_LAST, 1));
+
+    private File file;
+
+    private String getExpected(ByteRangesRepresentation representation) {
+        String boundary = representation.getBoundary();
+        return "--" + boundary + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Range: bytes 1-2/10\r\n\r\n12\r\n--" + boundary
+                + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Range: bytes 6-7/10\r\n\r\n67\r\n--" + boundary
+                + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Range: bytes 9-9/10\r\n\r\n9\r\n--" + boundary
+                + "--\r\n";
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.file = File.createTempFile("ByteRangesRepresentationTestCase",
+                ".txt");
+        FileOutputStream os = new FileOutputStream(this.file);
+        os.write("0123456789".getBytes());
+        os.close();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.file.delete();
+        this.file = null;
+        super.tearDown();
+    }
+
+    private void verify(Representation wrapped) throws Exception {
+        ByteRangesRepresentation brr = new ByteRangesRepresentation(wrapped,
+                RANGES);
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(brr.getMediaType(),
+                true));
+        assertEquals(brr.getBoundary(), brr.getMediaType().getParameters()
+                .getFirstValue("boundary"));
+
+        String expected = getExpected(brr);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        brr.write(out);
+        assertEquals(expected, out.toString("US-ASCII"));
+        assertEquals(expected.length(), brr.getSize());
+    }
+
+    public void testByteArray() throws Exception {
+        verify(new ByteArrayRepresentation("0123456789".getBytes(),
+                MediaType.TEXT_PLAIN, 10));
+    }
+
+    public void testCoalesce() {
+        List<Range> ranges = ByteRangesRepresentation.coalesce(Arrays.asList(
+                new Range(5, 3), new Range(0, 2), new Range(2, 2), new Range(
+                        6, 10), new Range(20, 5)), 10);
+        assertEquals(2, ranges.size());
+        assertEquals(0, ranges.get(0).getIndex());
+        assertEquals(4, ranges.get(0).getSize());
+        assertEquals(5, ranges.get(1).getIndex());
+        assertEquals(5, ranges.get(1).getSize());
+
+        ranges = ByteRangesRepresentation.coalesce(Arrays.asList(new Range(
+                Range.INDEX_LAST, 3), new Range(0, Range.SIZE_MAX)), 10);
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.get(0).getIndex());
+        assertEquals(10, ranges.get(0).getSize());
+
+        assertTrue(ByteRangesRepresentation.coalesce(
+                Arrays.asList(new Range(10, 2)), 10).isEmpty());
+    }
+
+    public void testFile() throws Exception {
+        verify(new FileRepresentation(this.file, MediaType.TEXT_PLAIN));
+
+        FileRepresentation fr = new FileRepresentation(this.file,
+                MediaType.TEXT_PLAIN);
+        fr.setMappingSize(2);
+        verify(fr);
+
+        ByteRangesRepresentation brr = new ByteRangesRepresentation(
+                new FileRepresentation(this.file, MediaType.TEXT_PLAIN),
+                RANGES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        brr.write(Channels.newChannel(out));
+        assertEquals(getExpected(brr), out.toString("US-ASCII"));
+    }
+
+    public void testSeekableChannel() throws Exception {
+        verify(new ReadableRepresentation(
+                new FileInputStream(this.file).getChannel(),
+                MediaType.TEXT_PLAIN, 10));
+    }
+
+}
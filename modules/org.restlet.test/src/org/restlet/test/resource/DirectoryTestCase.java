@@ -25,26 +25,37 @@
 package org.restlet.test.resource;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 import org.restlet.Application;
 import org.restlet.Component;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Metadata;
 import org.restlet.data.Method;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.Encoder;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Directory;
+import org.restlet.service.EncoderService;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -264,6 +275,9 @@ public class DirectoryTestCase extends RestletTestCase {
         this.testDir.mkdirs();
         application.setTestDirectory(testDir);
 
+        // Test the serving of precompressed files.
+        testPrecompressed(application, application.getDirectory());
+
         // Test the access to the sub directories.
         testDirectoryDeeplyAccessible(application, application.getDirectory());
 
@@ -699,6 +713,72 @@ public class DirectoryTestCase extends RestletTestCase {
         System.out.println("End of tests*********************");
     }
 
+    /**
+     * Tests the serving of precompressed siblings of files and the cache of
+     * encoded files.
+     * 
+     * @param application
+     * @param directory
+     * @throws IOException
+     */
+    private void testPrecompressed(MyApplication application,
+            Directory directory) throws IOException {
+        final File testDirectory = new File(this.testDir, "static");
+        testDirectory.mkdir();
+        final String content = "var app = 'precompressed sibling';";
+        final String testFileUrl = this.webSiteURL.concat("static/app.js");
+
+        File file = new File(testDirectory, "app.js");
+        OutputStream os = new FileOutputStream(file);
+        os.write(content.getBytes("UTF-8"));
+        os.close();
+
+        File sibling = new File(testDirectory, "app.js.gz");
+        os = new GZIPOutputStream(new FileOutputStream(sibling));
+        os.write(content.getBytes("UTF-8"));
+        os.close();
+        sibling.setLastModified(file.lastModified());
+
+        Response response = handle(application, this.webSiteURL, testFileUrl,
+                Method.GET, null, "gz-1", Encoding.GZIP);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JAVASCRIPT, response.getEntity()
+                .getMediaType());
+        assertTrue(response.getEntity().getEncodings().contains(Encoding.GZIP));
+        assertTrue(response.getDimensions().contains(Dimension.ENCODING));
+        assertEquals(content,
+                new DecodeRepresentation(response.getEntity()).getText());
+
+        response = handle(application, this.webSiteURL, testFileUrl,
+                Method.GET, null, "gz-2");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertTrue(response.getEntity().getEncodings().isEmpty());
+        assertEquals(content, response.getEntityAsText());
+
+        directory.setPrecompressedServed(false);
+        response = handle(application, this.webSiteURL, testFileUrl,
+                Method.GET, null, "gz-3", Encoding.GZIP);
+        assertTrue(response.getEntity().getEncodings().isEmpty());
+        directory.setPrecompressedServed(true);
+
+        // Files without sibling are only compressed once by the encoder
+        EncoderService encoderService = new EncoderService();
+        encoderService.setMinimumSize(EncoderService.ANY_SIZE);
+        Encoder encoder = new Encoder(null, false, true, encoderService);
+        ClientInfo clientInfo = new ClientInfo();
+        clientInfo.accept(Encoding.GZIP);
+
+        for (int i = 0; i < 2; i++) {
+            Representation encoded = encoder.encode(clientInfo,
+                    new FileRepresentation(file, MediaType.TEXT_PLAIN));
+            assertTrue(encoded.getEncodings().contains(Encoding.GZIP));
+            assertEquals(content, new DecodeRepresentation(encoded).getText());
+        }
+
+        assertEquals(1, encoderService.getEncodedFiles().size());
+        assertEquals(1, encoderService.getEncodedFiles().getHits());
+    }
+
     /**
      * Test content negotiation based on client preferences.
      * 
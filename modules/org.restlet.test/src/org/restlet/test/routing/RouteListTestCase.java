@@ -26,7 +26,12 @@ package org.restlet.test.routing;
 
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
 import org.restlet.routing.Route;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+import org.restlet.test.MockRestlet;
 import org.restlet.test.RestletTestCase;
 import org.restlet.util.RouteList;
 
@@ -51,6 +56,83 @@ public class RouteListTestCase extends RestletTestCase {
         }
     }
 
+    public void testGetIndexed() {
+        Router router = new Router();
+        Restlet users = new MockRestlet(null);
+        Restlet user = new MockRestlet(null);
+        Restlet orders = new MockRestlet(null);
+        Restlet usersPrefix = new MockRestlet(null);
+        Restlet any = new MockRestlet(null);
+
+        Route usersRoute = router.attach("/users", users);
+        Route userRoute = router.attach("/users/{id}", user);
+        Route ordersRoute = router.attach("/users/{id}/orders", orders);
+        Route usersPrefixRoute = router.attach("/users",
+                usersPrefix, Template.MODE_STARTS_WITH);
+        Route anyRoute = router.attach("/{type}/{id}", any);
+        RouteList list = router.getRoutes();
+
+        String[] paths = { "/users", "/users/12", "/users/12/orders",
+                "/users2", "/items/3", "/users/12/other", "", "/" };
+
+        for (String path : paths) {
+            Request request = new Request(Method.GET, "http://localhost"
+                    + path);
+            request.getResourceRef().setBaseRef("http://localhost");
+            Response response = new Response(request);
+
+            assertSame(path, list.getFirst(request, response, 0.5F),
+                    list.getFirstIndexed(request, response, 0.5F));
+            assertSame(path, list.getBest(request, response, 0.5F),
+                    list.getBestIndexed(request, response, 0.5F));
+        }
+
+        Request request = new Request(Method.GET,
+                "http://localhost/users/12/orders");
+        request.getResourceRef().setBaseRef("http://localhost");
+        assertSame(ordersRoute,
+                list.getFirstIndexed(request, new Response(request), 0.5F));
+
+        // Detaching routes recompiles the trie
+        router.detach(orders);
+        assertSame(usersPrefixRoute,
+                list.getFirstIndexed(request, new Response(request), 0.5F));
+        assertFalse(list.contains(ordersRoute));
+        assertTrue(list.contains(usersRoute));
+        assertTrue(list.contains(userRoute));
+        assertTrue(list.contains(anyRoute));
+    }
+
+    public void testGetIndexedRegex() {
+        Router router = new Router();
+        Route route = router.attach("/ab+c/x", new MockRestlet(null));
+        RouteList list = router.getRoutes();
+
+        // The '+' character isn't quoted, so "/abbc/x" matches
+        Request request = new Request(Method.GET, "http://localhost/abbc/x");
+        request.getResourceRef().setBaseRef("http://localhost");
+        Response response = new Response(request);
+        assertSame(route, list.getFirst(request, response, 0.5F));
+        assertSame(route, list.getFirstIndexed(request, response, 0.5F));
+    }
+
+    public void testGetIndexedSubList() {
+        Router router = new Router();
+        router.attach("/a", new MockRestlet(null));
+        Route bRoute = router.attach("/b", new MockRestlet(null));
+        RouteList list = router.getRoutes();
+
+        Request request = new Request(Method.GET, "http://localhost/b");
+        request.getResourceRef().setBaseRef("http://localhost");
+        Response response = new Response(request);
+        assertSame(bRoute, list.getFirstIndexed(request, response, 0.5F));
+
+        // Changes made via a view recompile the trie of the parent list
+        list.subList(1, 2).clear();
+        assertEquals(1, list.size());
+        assertNull(list.getFirstIndexed(request, response, 0.5F));
+    }
+
     public void testGetLast() {
         final RouteList list = new RouteList();
 
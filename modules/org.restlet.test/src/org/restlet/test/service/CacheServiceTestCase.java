@@ -0,0 +1,298 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.ChallengeResponse;
+import org.restlet.data.ChallengeScheme;
+import org.restlet.data.Dimension;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.CacheFilter;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.CacheService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the cache service.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheServiceTestCase extends RestletTestCase {
+
+    /**
+     * Restlet counting its calls and returning a representation in the
+     * preferred language of the client.
+     */
+    private static class CountingRestlet extends Restlet {
+
+        private final List<CacheDirective> cacheDirectives = new CopyOnWriteArrayList<CacheDirective>();
+
+        private volatile int count;
+
+        private volatile boolean tagged = true;
+
+        @Override
+        public void handle(Request request, Response response) {
+            super.handle(request, response);
+            this.count++;
+
+            if (Method.GET.equals(request.getMethod())) {
+                Language language = request.getClientInfo()
+                        .getAcceptedLanguages().isEmpty() ? Language.ENGLISH
+                        : request.getClientInfo().getAcceptedLanguages().get(0)
+                                .getMetadata();
+                Representation entity = new StringRepresentation("value-"
+                        + language, MediaType.TEXT_PLAIN, language);
+                entity.setModificationDate(new Date(1000000000000L));
+
+                if (this.tagged) {
+                    entity.setTag(new Tag(language.getName()));
+                }
+
+                response.getDimensions().add(Dimension.LANGUAGE);
+                response.getCacheDirectives().addAll(this.cacheDirectives);
+
+                if (request.getConditions().getStatus(request.getMethod(),
+                        entity) == null) {
+                    response.setEntity(entity);
+                } else {
+                    response.setStatus(Status.REDIRECTION_NOT_MODIFIED);
+                }
+            } else {
+                response.setStatus(Status.SUCCESS_NO_CONTENT);
+            }
+        }
+    }
+
+    private CacheFilter filter;
+
+    private CountingRestlet next;
+
+    private Response handle(Method method, Language language) {
+        return handle(new Request(method, "http://localhost/test"), language);
+    }
+
+    private Response handle(Request request, Language language) {
+        if (language != null) {
+            request.getClientInfo().getAcceptedLanguages()
+                    .add(new Preference<Language>(language));
+        }
+
+        Response response = new Response(request);
+        this.filter.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.next = new CountingRestlet();
+        this.filter = new CacheFilter(new Context(), new CacheService());
+        this.filter.setNext(this.next);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.filter = null;
+        this.next = null;
+        super.tearDown();
+    }
+
+    public void testClientSide() throws Exception {
+        CacheService cacheService = new CacheService();
+        this.filter = new CacheFilter(new Context(), cacheService, true);
+        this.filter.setNext(this.next);
+        this.next.tagged = false;
+        handle(Method.GET, Language.FRENCH);
+
+        // Stale response revalidated with its modification date
+        Response response = handle(Method.GET, Language.FRENCH);
+        assertEquals(2, this.next.count);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("value-fr", response.getEntity().getText());
+
+        // Authenticated requests only store shared responses
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.setChallengeResponse(new ChallengeResponse(
+                ChallengeScheme.HTTP_BASIC, "login", "secret"));
+        handle(request, Language.SPANISH);
+        handle(Method.GET, Language.SPANISH);
+        assertEquals(4, this.next.count);
+
+        this.next.cacheDirectives.add(CacheDirective.publicInfo());
+        request = new Request(Method.GET, "http://localhost/test");
+        request.setChallengeResponse(new ChallengeResponse(
+                ChallengeScheme.HTTP_BASIC, "login", "secret"));
+        handle(request, Language.ENGLISH);
+        assertEquals("value-en", handle(Method.GET, Language.ENGLISH)
+                .getEntity().getText());
+        assertEquals(5, this.next.count);
+    }
+
+    public void testDirections() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        CacheService cacheService = this.filter.getCacheService();
+        CacheFilter outbound = new CacheFilter(new Context(), cacheService,
+                true);
+        outbound.setNext(this.next);
+
+        // Each direction has its own store
+        handle(Method.GET, Language.FRENCH);
+        Request request = new Request(Method.GET, "http://localhost/test");
+        outbound.handle(request, new Response(request));
+        assertEquals(2, this.next.count);
+        assertNotNull(cacheService.getInboundStore().getVariants(
+                "http://localhost/test"));
+        assertNotNull(cacheService.getOutboundStore().getVariants(
+                "http://localhost/test"));
+
+        // Each direction can be disabled separately
+        cacheService.setInboundEnabled(false);
+        handle(Method.GET, Language.FRENCH);
+        assertEquals(3, this.next.count);
+        request = new Request(Method.GET, "http://localhost/test");
+        outbound.handle(request, new Response(request));
+        assertEquals(3, this.next.count);
+    }
+
+    public void testFreshHit() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        assertEquals("value-fr", handle(Method.GET, Language.FRENCH)
+                .getEntity().getText());
+
+        Response response = handle(Method.GET, Language.FRENCH);
+        assertEquals(1, this.next.count);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("value-fr", response.getEntity().getText());
+        assertEquals(MediaType.TEXT_PLAIN, response.getEntity().getMediaType());
+        assertEquals(new Tag("fr"), response.getEntity().getTag());
+        assertTrue(response.getDimensions().contains(Dimension.LANGUAGE));
+    }
+
+    public void testInvalidation() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        handle(Method.GET, Language.FRENCH);
+        handle(Method.PUT, Language.FRENCH);
+        assertEquals(2, this.next.count);
+
+        assertEquals("value-fr", handle(Method.GET, Language.FRENCH)
+                .getEntity().getText());
+        assertEquals(3, this.next.count);
+    }
+
+    public void testNoStore() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.noStore());
+        handle(Method.GET, Language.FRENCH);
+        handle(Method.GET, Language.FRENCH);
+        assertEquals(2, this.next.count);
+        assertEquals(0, this.filter.getCacheService().getSize());
+    }
+
+    public void testOnlyIfCached() throws Exception {
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getCacheDirectives().add(CacheDirective.onlyIfCached());
+        assertEquals(Status.SERVER_ERROR_GATEWAY_TIMEOUT,
+                handle(request, Language.FRENCH).getStatus());
+        assertEquals(0, this.next.count);
+    }
+
+    public void testPrivate() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        this.next.cacheDirectives.add(CacheDirective.privateInfo());
+
+        // The shared server side cache doesn't store private responses
+        handle(Method.GET, Language.FRENCH);
+        handle(Method.GET, Language.FRENCH);
+        assertEquals(2, this.next.count);
+
+        // The client side cache stores them
+        this.filter = new CacheFilter(new Context(), new CacheService(), true);
+        this.filter.setNext(this.next);
+        handle(Method.GET, Language.FRENCH);
+        assertEquals("value-fr", handle(Method.GET, Language.FRENCH)
+                .getEntity().getText());
+        assertEquals(3, this.next.count);
+    }
+
+    public void testRevalidation() throws Exception {
+                handle(Method.GET, Language.FRENCH);
+
+        // Stale response revalidated with its entity tag
+        Response response = handle(Method.GET, Language.FRENCH);
+        assertEquals(2, this.next.count);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("value-fr", response.getEntity().getText());
+    }
+
+    public void testStatistics() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        CacheService cacheService = this.filter.getCacheService();
+        cacheService.setMaxSize(1000);
+        handle(Method.GET, Language.FRENCH);
+        handle(Method.GET, Language.FRENCH);
+        handle(Method.GET, Language.SPANISH);
+        assertEquals(1, cacheService.getHits());
+        assertEquals(1, cacheService.getMisses());
+
+        // Each entry weighs more than half of the store
+        assertEquals(1, cacheService.getEvictions());
+        handle(Method.GET, Language.ENGLISH);
+        assertEquals(2, cacheService.getEvictions());
+        assertTrue(cacheService.getSize() <= 1000);
+
+        cacheService.resetStatistics();
+        assertEquals(0, cacheService.getHits());
+    }
+
+    public void testVariants() throws Exception {
+        this.next.cacheDirectives.add(CacheDirective.maxAge(60));
+        handle(Method.GET, Language.FRENCH);
+        assertEquals("value-es", handle(Method.GET, Language.SPANISH)
+                .getEntity().getText());
+        assertEquals(2, this.next.count);
+
+        assertEquals("value-fr", handle(Method.GET, Language.FRENCH)
+                .getEntity().getText());
+        assertEquals("value-es", handle(Method.GET, Language.SPANISH)
+                .getEntity().getText());
+        assertEquals(2, this.next.count);
+    }
+
+}
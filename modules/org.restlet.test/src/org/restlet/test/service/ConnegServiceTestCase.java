@@ -42,6 +42,57 @@ import org.restlet.test.RestletTestCase;
  */
 public class ConnegServiceTestCase extends RestletTestCase {
 
+    public void testCache() {
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        Request request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        connegService.setMaxCachedNegotiations(10);
+
+        Variant preferedVariant = connegService.getPreferredVariant(variants,
+                request, metadataService);
+        assertEquals(MediaType.APPLICATION_JSON, preferedVariant.getMediaType());
+        assertEquals(0, connegService.getCacheHits());
+        assertEquals(1, connegService.getCacheMisses());
+
+        // Same preferences and variants
+        preferedVariant = connegService.getPreferredVariant(variants, request,
+                metadataService);
+        assertEquals(MediaType.APPLICATION_JSON, preferedVariant.getMediaType());
+        assertEquals(1, connegService.getCacheHits());
+
+        // Different preferences
+        request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_XML));
+        preferedVariant = connegService.getPreferredVariant(variants, request,
+                metadataService);
+        assertEquals(MediaType.APPLICATION_XML, preferedVariant.getMediaType());
+        assertEquals(1, connegService.getCacheHits());
+        assertEquals(2, connegService.getCacheMisses());
+
+        // Cached absence of strict match
+        connegService.setStrict(true);
+        variants.remove(0);
+        assertNull(connegService.getPreferredVariant(variants, request,
+                metadataService));
+        assertNull(connegService.getPreferredVariant(variants, request,
+                metadataService));
+        assertEquals(2, connegService.getCacheHits());
+
+        // Disabled cache
+        connegService.setMaxCachedNegotiations(0);
+        connegService.getPreferredVariant(variants, request, metadataService);
+        assertEquals(2, connegService.getCacheHits());
+        assertEquals(3, connegService.getCacheMisses());
+    }
+
     public void testStrict() {
         List<Variant> variants = new ArrayList<Variant>();
         Variant variant = new Variant(MediaType.APPLICATION_XML);
@@ -0,0 +1,280 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Digest;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Range;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.DigestRecorderRepresentation;
+import org.restlet.engine.application.ETagFilter;
+import org.restlet.engine.local.FileMetadata;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.routing.Filter;
+import org.restlet.service.ETagService;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the ETag service.
+ * 
+ * @author Jerome Louvel
+ */
+public class ETagServiceTestCase extends RestletTestCase {
+
+    /**
+     * Restlet returning a string or a file representation.
+     */
+    private static class TestRestlet extends Restlet {
+
+        private volatile File file;
+
+        private volatile Tag tag;
+
+        @Override
+        public void handle(Request request, Response response) {
+            super.handle(request, response);
+            Representation entity = (this.file == null) ? new StringRepresentation(
+                    "0123456789", MediaType.TEXT_PLAIN)
+                    : new FileRepresentation(this.file, MediaType.TEXT_PLAIN);
+            entity.setTag(this.tag);
+            response.setEntity(entity);
+        }
+    }
+
+    private File file;
+
+    private ETagFilter filter;
+
+    private TestRestlet next;
+
+    private ETagService service;
+
+    private Tag getTag(String content) throws Exception {
+        return ETagFilter.createTag(new Digest(Digest.ALGORITHM_MD5,
+                MessageDigest.getInstance(Digest.ALGORITHM_MD5).digest(
+                        content.getBytes())));
+    }
+
+    private Response handle(Request request) {
+        Response response = new Response(request);
+        this.filter.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.file = File.createTempFile("ETagServiceTestCase", ".txt");
+        write("0123456789");
+        this.service = new ETagService();
+        this.next = new TestRestlet();
+        this.filter = new ETagFilter(new Context(), this.service);
+        this.filter.setNext(this.next);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.file.delete();
+        this.file = null;
+        this.filter = null;
+        this.next = null;
+        this.service = null;
+        super.tearDown();
+    }
+
+    public void testBuffered() throws Exception {
+        Tag tag = getTag("0123456789");
+        Response response = handle(new Request(Method.GET,
+                "http://localhost/test"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(tag, response.getEntity().getTag());
+        assertFalse(response.getEntity().getTag().isWeak());
+        assertEquals("0123456789", response.getEntity().getText());
+        assertEquals(MediaType.TEXT_PLAIN, response.getEntity().getMediaType());
+
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getConditions().setNoneMatch(Arrays.asList(tag));
+        response = handle(request);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals(tag, response.getEntity().getTag());
+
+        request = new Request(Method.GET, "http://localhost/test");
+        request.getConditions().setMatch(Arrays.asList(new Tag("other")));
+        response = handle(request);
+        assertEquals(Status.CLIENT_ERROR_PRECONDITION_FAILED,
+                response.getStatus());
+        assertNull(response.getEntity());
+
+        // Tags set by the resource are kept
+        this.next.tag = new Tag("resource", false);
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertEquals(new Tag("resource", false), response.getEntity().getTag());
+        this.next.tag = new Tag("resource", true);
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertEquals(new Tag("resource", true), response.getEntity().getTag());
+
+        // Too large
+        this.next.tag = null;
+        this.service.setMaxBufferedSize(5);
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertNull(response.getEntity().getTag());
+        assertEquals("0123456789", response.getEntity().getText());
+    }
+
+    public void testEncoded() throws Exception {
+        EncoderService encoderService = new EncoderService();
+        encoderService.setMinimumSize(EncoderService.ANY_SIZE);
+        Filter encoder = encoderService.createInboundFilter(new Context());
+        encoder.setNext(this.filter);
+        Tag tag = getTag("0123456789");
+        Tag weakTag = new Tag(tag.getName(), true);
+
+        // Encoded entities can't share the strong tag of the identity bytes
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        Response response = new Response(request);
+        encoder.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(Encoding.GZIP, response.getEntity().getEncodings().get(0));
+        assertEquals(weakTag, response.getEntity().getTag());
+
+        // The weak tag still validates the cached encoded entity
+        request = new Request(Method.GET, "http://localhost/test");
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        request.getConditions().setNoneMatch(Arrays.asList(weakTag));
+        response = new Response(request);
+        encoder.handle(request, response);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals(weakTag, response.getEntity().getTag());
+
+        // Identity entities keep the strong tag
+        request = new Request(Method.GET, "http://localhost/test");
+        response = new Response(request);
+        encoder.handle(request, response);
+        assertEquals(tag, response.getEntity().getTag());
+    }
+
+    public void testFile() throws Exception {
+        this.next.file = this.file;
+        Tag tag = getTag("0123456789");
+
+        // The digest is computed while the file is written
+        Response response = handle(new Request(Method.GET,
+                "http://localhost/test"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertNull(response.getEntity().getTag());
+        assertTrue(response.getEntity() instanceof DigestRecorderRepresentation);
+        assertNull(this.service.getDigestCache().get(this.file));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getEntity().write(out);
+        assertEquals("0123456789", out.toString());
+        assertEquals(tag, this.service.getDigestCache().get(this.file));
+
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertEquals(tag, response.getEntity().getTag());
+        assertEquals(FileRepresentation.class, response.getEntity().getClass());
+
+        // Weak tags derived from the file metadata are replaced
+        this.next.tag = new FileMetadata(this.file).getTag();
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertEquals(tag, response.getEntity().getTag());
+
+        // Other weak tags set by the resource are kept
+        Tag weakTag = new Tag("resource", true);
+        this.next.tag = weakTag;
+        response = handle(new Request(Method.GET, "http://localhost/test"));
+        assertEquals(weakTag, response.getEntity().getTag());
+        this.next.tag = null;
+
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getConditions().setNoneMatch(Arrays.asList(tag));
+        response = handle(request);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+
+        // Range requests don't record digests
+        write("abcdefghijklmnop");
+        assertNull(this.service.getDigestCache().get(this.file));
+        request = new Request(Method.GET, "http://localhost/test");
+        request.setRanges(Arrays.asList(new Range(0, 2)));
+        response = handle(request);
+        assertEquals(FileRepresentation.class, response.getEntity().getClass());
+        assertNull(response.getEntity().getTag());
+    }
+
+    public void testPersistence() throws Exception {
+        File cacheFile = new File(this.file.getPath() + ".digests");
+
+        try {
+            Tag tag = getTag("0123456789");
+            this.service.setCacheFile(cacheFile);
+            this.service.start();
+            this.service.getDigestCache().put(this.file,
+                    this.file.lastModified(), this.file.length(), tag);
+            this.service.stop();
+            assertTrue(cacheFile.isFile());
+
+            ETagService restarted = new ETagService();
+            restarted.setCacheFile(cacheFile);
+            restarted.start();
+            assertEquals(tag, restarted.getDigestCache().get(this.file));
+            restarted.stop();
+
+            // Stale entries are not reloaded
+            write("abcdefghijklmnop");
+            restarted = new ETagService();
+            restarted.setCacheFile(cacheFile);
+            restarted.start();
+            assertEquals(0, restarted.getDigestCache().size());
+        } finally {
+            cacheFile.delete();
+        }
+    }
+
+    private void write(String content) throws Exception {
+        FileOutputStream os = new FileOutputStream(this.file);
+        os.write(content.getBytes());
+        os.close();
+    }
+
+}
@@ -33,8 +33,11 @@ public class ServiceTestSuite {
         TestSuite suite = new TestSuite("Service package");
 
         // $JUnit-BEGIN$
+        suite.addTestSuite(CacheServiceTestCase.class);
         suite.addTestSuite(ConnegServiceTestCase.class);
+        suite.addTestSuite(ETagServiceTestCase.class);
         suite.addTestSuite(MetadataServiceTestCase.class);
+        suite.addTestSuite(TaskServiceTestCase.class);
         // [ifndef jee]
         suite.addTestSuite(StatusServiceTestCase.class);
         // [enddef]
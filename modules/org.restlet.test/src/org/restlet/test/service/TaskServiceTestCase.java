@@ -0,0 +1,93 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.service;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Context;
+import org.restlet.engine.util.VirtualThreadExecutorService;
+import org.restlet.service.TaskService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the task service.
+ * 
+ * @author Jerome Louvel
+ */
+public class TaskServiceTestCase extends RestletTestCase {
+
+    public void testVirtualThreads() throws Exception {
+        final Context context = new Context();
+        final Context[] currentContext = new Context[1];
+        final Thread[] currentThread = new Thread[1];
+
+        TaskService taskService = new TaskService();
+        taskService.setVirtualThreads(true);
+        assertTrue(taskService.isVirtualThreads());
+
+        Context.setCurrent(context);
+
+        try {
+            taskService.start();
+            Future<?> future = taskService.submit(new Runnable() {
+                public void run() {
+                    currentThread[0] = Thread.currentThread();
+                }
+            });
+            future.get(5, TimeUnit.SECONDS);
+
+            final Object lock = new Object();
+
+            synchronized (lock) {
+                taskService.execute(new Runnable() {
+                    public void run() {
+                        synchronized (lock) {
+                            currentContext[0] = Context.getCurrent();
+                            lock.notifyAll();
+                        }
+                    }
+                });
+                lock.wait(5000);
+            }
+        } finally {
+            Context.setCurrent(null);
+            taskService.stop();
+        }
+
+        // Thread local variables are still propagated
+        assertSame(context, currentContext[0]);
+        assertNotNull(currentThread[0]);
+
+        if (VirtualThreadExecutorService.isSupported()) {
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual")
+                    .invoke(currentThread[0]));
+        } else {
+            assertTrue(currentThread[0].getName().startsWith("restlet-"));
+        }
+    }
+
+}
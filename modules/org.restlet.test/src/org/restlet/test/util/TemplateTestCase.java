@@ -40,6 +40,28 @@ import org.restlet.test.RestletTestCase;
  */
 public class TemplateTestCase extends RestletTestCase {
 
+    public void testBacktracking() {
+        Template template = new Template("/{name}.{extension}");
+        template.getDefaultVariable().setType(Variable.TYPE_URI_SEGMENT);
+
+        Map<String, Object> variables = new HashMap<String, Object>();
+        assertEquals(15, template.parse("/archive.tar.gz", variables));
+        assertEquals("archive.tar", variables.get("name"));
+        assertEquals("gz", variables.get("extension"));
+
+        assertEquals(-1, template.match("/archive"));
+        assertEquals(-1, template.match("/archive/a.b"));
+
+        template = new Template("/{a}{b}/end", Template.MODE_STARTS_WITH);
+        template.getVariables().put("a", new Variable(Variable.TYPE_DIGIT));
+        template.getVariables().put("b",
+                new Variable(Variable.TYPE_ALPHA_DIGIT));
+        variables.clear();
+        assertEquals(9, template.parse("/1234/end/more", variables));
+        assertEquals("123", variables.get("a"));
+        assertEquals("4", variables.get("b"));
+    }
+
     public void testEncodedCharacters() {
         Template template = new Template(
                 "http://localhost/{token}/bookstore/{bookid}");
@@ -81,6 +103,35 @@ public class TemplateTestCase extends RestletTestCase {
         assertEquals("123/456", variables3.get("v1"));
     }
 
+    public void testVariableTypes() {
+        Template template = new Template("/users/{id}/{path}");
+        template.getVariables().put("id", new Variable(Variable.TYPE_DIGIT));
+        template.getVariables().put("path",
+                new Variable(Variable.TYPE_URI_PATH, null, true, false, true,
+                        false));
+
+        Map<String, Object> variables = new HashMap<String, Object>();
+        assertEquals(22, template.parse("/users/42/a%20b/c.html", variables));
+        assertEquals("42", variables.get("id"));
+        assertEquals("a b/c.html", variables.get("path"));
+        assertEquals(-1, template.match("/users/4x/a"));
+        assertEquals(-1, template.match("/users/42/"));
+        assertEquals(-1, template.match("/users/42/a%2"));
+
+        // Fixed variables only match their default value
+        template.getVariables().put("id",
+                new Variable(Variable.TYPE_DIGIT, "7", true, true));
+        template.setPattern(template.getPattern());
+        assertEquals(-1, template.match("/users/42/a"));
+        assertEquals(11, template.match("/users/7/ab"));
+
+        // Repeated variables are matched with the same value
+        template = new Template("/{v}/{v}");
+        template.getDefaultVariable().setType(Variable.TYPE_ALPHA);
+        assertEquals(4, template.match("/a/a"));
+        assertEquals(-1, template.match("/a/b"));
+    }
+
     public void testVariableNames() throws Exception {
         Template tpl = new Template(
                 "http://{userId}.restlet.com/invoices/{invoiceId}");
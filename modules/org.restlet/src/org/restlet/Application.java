@@ -36,10 +36,12 @@ import org.restlet.resource.ServerResource;
 import org.restlet.routing.Router;
 import org.restlet.routing.VirtualHost;
 import org.restlet.security.Role;
+import org.restlet.service.CacheService;
 import org.restlet.service.ConnectorService;
 import org.restlet.service.ConnegService;
 import org.restlet.service.ConverterService;
 import org.restlet.service.DecoderService;
+import org.restlet.service.ETagService;
 import org.restlet.service.EncoderService;
 import org.restlet.service.MetadataService;
 import org.restlet.service.RangeService;
@@ -57,6 +59,8 @@ import org.restlet.util.ServiceList;
  * Applications also have many useful services associated. Most are enabled by
  * default and are available as properties that can be eventually overridden:
  * <ul>
+ * <li>"cacheService" to store and serve cacheable responses (disabled by
+ * default).</li>
  * <li>"connectorService" to declare necessary client and server connectors.</li>
  * <li>"converterService" to convert between regular objects and
  * representations.</li>
@@ -64,6 +68,8 @@ import org.restlet.util.ServiceList;
  * </li>
  * <li>"encoderService" to automatically encode or compress sent entities
  * (disabled by default).</li>
+ * <li>"etagService" to add strong entity tags to responses and evaluate the
+ * request conditions against them (disabled by default).</li>
  * <li>"metadataService" to provide access to metadata and their associated
  * extension names.</li>
  * <li>"rangeService" to automatically exposes ranges of response entities.</li>
@@ -167,6 +173,8 @@ public class Application extends Restlet {
         this.services.add(new DecoderService());
         this.services.add(new EncoderService(false));
         this.services.add(new RangeService());
+        this.services.add(new CacheService(false));
+        this.services.add(new ETagService(false));
         this.services.add(new ConnectorService());
         this.services.add(connegService);
         this.services.add(converterService);
@@ -207,6 +215,15 @@ public class Application extends Restlet {
         return getHelper().getFirstOutboundFilter();
     }
 
+    /**
+     * Returns the cache service. The service is disabled by default.
+     * 
+     * @return The cache service.
+     */
+    public CacheService getCacheService() {
+        return getServices().get(CacheService.class);
+    }
+
     /**
      * Returns the connector service. The service is enabled by default.
      * 
@@ -244,6 +261,15 @@ public class Application extends Restlet {
         return getServices().get(DecoderService.class);
     }
 
+    /**
+     * Returns the ETag service. The service is disabled by default.
+     * 
+     * @return The ETag service.
+     */
+    public ETagService getETagService() {
+        return getServices().get(ETagService.class);
+    }
+
     /**
      * Returns the encoder service. The service is disabled by default.
      * 
@@ -398,6 +424,16 @@ public class Application extends Restlet {
         return debugging;
     }
 
+    /**
+     * Sets the cache service.
+     * 
+     * @param cacheService
+     *            The cache service.
+     */
+    public void setCacheService(CacheService cacheService) {
+        getServices().set(cacheService);
+    }
+
     /**
      * Sets the connector service.
      * 
@@ -455,6 +491,16 @@ public class Application extends Restlet {
         getServices().set(decoderService);
     }
 
+    /**
+     * Sets the ETag service.
+     * 
+     * @param etagService
+     *            The ETag service.
+     */
+    public void setETagService(ETagService etagService) {
+        getServices().set(etagService);
+    }
+
     /**
      * Sets the encoder service.
      * 
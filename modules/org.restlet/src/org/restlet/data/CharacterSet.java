@@ -24,12 +24,21 @@
 
 package org.restlet.data;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Metadata used to specify the character set of textual representations.
  * 
  * @author Jerome Louvel
  */
 public final class CharacterSet extends Metadata {
+    /**
+     * The well-known character sets indexed by upper-case name, built lazily.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static volatile Map<String, CharacterSet> _characterSets = null;
+
     /** All character sets acceptable. */
     public static final CharacterSet ALL = new CharacterSet("*",
             "All character sets");
@@ -182,7 +191,7 @@ public final class CharacterSet extends Metadata {
      */
     private static String getIanaName(String name) {
         if (name != null) {
-            name = name.toUpperCase();
+            name = toUpperCase(name);
 
             if (name.equalsIgnoreCase("MACROMAN")) {
                 name = MACINTOSH.getName();
@@ -214,6 +223,46 @@ public final class CharacterSet extends Metadata {
         return name;
     }
 
+    /**
+     * Returns the well-known character sets indexed by upper-case name. Built
+     * once and never modified, lookups don't lock.
+     * 
+     * @return The well-known character sets indexed by upper-case name.
+     */
+    private static Map<String, CharacterSet> getCharacterSets() {
+        Map<String, CharacterSet> result = _characterSets;
+
+        if (result == null) {
+            result = new HashMap<String, CharacterSet>();
+
+            for (CharacterSet item : new CharacterSet[] {
+                    ALL, ISO_8859_1, ISO_8859_2, ISO_8859_3, ISO_8859_4,
+                    ISO_8859_5, ISO_8859_6, ISO_8859_7, ISO_8859_8, ISO_8859_9,
+                    ISO_8859_10, MACINTOSH, US_ASCII, UTF_16, UTF_8,
+                    WINDOWS_1252 }) {
+                result.put(toUpperCase(item.getName()), item);
+            }
+
+            _characterSets = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a name to upper case, independently of the default locale.
+     * 
+     * @param name
+     *            The name to convert.
+     * @return The upper-case name.
+     */
+    private static String toUpperCase(String name) {
+        // [ifndef gwt] instruction
+        return name.toUpperCase(java.util.Locale.ENGLISH);
+        // [ifdef gwt] instruction uncomment
+        // return name.toUpperCase();
+    }
+
     /**
      * Returns the character set associated to a name. If an existing constant
      * exists then it is returned, otherwise a new instance is created.
@@ -227,21 +276,10 @@ public final class CharacterSet extends Metadata {
         name = getIanaName(name);
 
         if ((name != null) && !name.equals("")) {
-            if (name.equalsIgnoreCase(ALL.getName())) {
-                result = ALL;
-            } else if (name.equalsIgnoreCase(ISO_8859_1.getName())) {
-                result = ISO_8859_1;
-            } else if (name.equalsIgnoreCase(US_ASCII.getName())) {
-                result = US_ASCII;
-            } else if (name.equalsIgnoreCase(UTF_8.getName())) {
-                result = UTF_8;
-            } else if (name.equalsIgnoreCase(UTF_16.getName())) {
-                result = UTF_16;
-            } else if (name.equalsIgnoreCase(WINDOWS_1252.getName())) {
-                result = WINDOWS_1252;
-            } else if (name.equalsIgnoreCase(MACINTOSH.getName())) {
-                result = MACINTOSH;
-            } else {
+            // The IANA name of MACINTOSH is lower-case
+            result = getCharacterSets().get(toUpperCase(name));
+
+            if (result == null) {
                 result = new CharacterSet(name);
             }
         }
@@ -267,7 +305,7 @@ public final class CharacterSet extends Metadata {
      *            The name.
      */
     public CharacterSet(String name) {
-        this(name == null ? null : name.toUpperCase(),
+        this(name == null ? null : toUpperCase(name),
                 "Character set or range of character sets");
     }
 
@@ -299,7 +337,7 @@ public final class CharacterSet extends Metadata {
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return (getName() == null) ? 0 : getName().toLowerCase().hashCode();
+        return (getName() == null) ? 0 : toUpperCase(getName()).hashCode();
     }
 
     /**
@@ -117,11 +117,15 @@ import org.restlet.engine.io.IoUtils;
  * data (name, version, comment). This instance is accessible via the
  * {@link ClientInfo#getMainAgentProduct()} method. All other variables used in
  * the template aims at catching a sequence of characters and are accessible via
- * the {@link ClientInfo#getAgentAttributes()} method.
+ * the {@link ClientInfo#getAgentAttributes()} method.<br>
+ * <br>
+ * This class isn't final so that connectors can extend it, for example to parse
+ * each property from the request headers on its first access. Subclasses must
+ * go through the getters to read the properties.
  * 
  * @author Jerome Louvel
  */
-public final class ClientInfo {
+public class ClientInfo {
 
     // [ifndef gwt] member
     /**
@@ -887,12 +891,13 @@ public final class ClientInfo {
      * @see #getForwardedAddresses()
      */
     public String getUpstreamAddress() {
-        if (this.forwardedAddresses == null
-                || this.forwardedAddresses.isEmpty()) {
+        List<String> addresses = getForwardedAddresses();
+
+        if (addresses.isEmpty()) {
             return getAddress();
         }
 
-        return this.forwardedAddresses.get(0);
+        return addresses.get(0);
     }
 
     // [ifndef gwt] method
@@ -285,7 +285,10 @@ public final class Conditions {
                     for (Iterator<Tag> iter = getNoneMatch().iterator(); !matched
                             && iter.hasNext();) {
                         noneMatchTag = iter.next();
-                        matched = noneMatchTag.equals(tag, (Method.GET
+
+                        // GET and HEAD use the weak comparison, so that
+                        // encoded variants with weakened tags still match
+                        matched = noneMatchTag.equals(tag, !(Method.GET
                                 .equals(method) || Method.HEAD.equals(method)));
                     }
 
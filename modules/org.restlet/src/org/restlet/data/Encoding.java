@@ -24,6 +24,9 @@
 
 package org.restlet.data;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Modifier of a representation's media type. Useful to apply compression
  * without losing the identity of the underlying media type.
@@ -31,6 +34,12 @@ package org.restlet.data;
  * @author Jerome Louvel
  */
 public final class Encoding extends Metadata {
+    /**
+     * The well-known encodings indexed by lower-case name, built lazily.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static volatile Map<String, Encoding> _encodings = null;
+
     /** All encodings acceptable. */
     public static final Encoding ALL = new Encoding("*", "All encodings");
 
@@ -65,6 +74,44 @@ public final class Encoding extends Metadata {
     /** The Info-Zip encoding. */
     public static final Encoding ZIP = new Encoding("zip", "Zip compression");
 
+    /**
+     * Returns the well-known encodings indexed by lower-case name. Built
+     * once and never modified, lookups don't lock.
+     * 
+     * @return The well-known encodings indexed by lower-case name.
+     */
+    private static Map<String, Encoding> getEncodings() {
+        Map<String, Encoding> result = _encodings;
+
+        if (result == null) {
+            result = new HashMap<String, Encoding>();
+
+            for (Encoding item : new Encoding[] {
+                    ALL, COMPRESS, DEFLATE, DEFLATE_NOWRAP, FREEMARKER, GZIP,
+                    IDENTITY, VELOCITY, ZIP }) {
+                result.put(toLowerCase(item.getName()), item);
+            }
+
+            _encodings = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a name to lower case, independently of the default locale.
+     * 
+     * @param name
+     *            The name to convert.
+     * @return The lower-case name.
+     */
+    private static String toLowerCase(String name) {
+        // [ifndef gwt] instruction
+        return name.toLowerCase(java.util.Locale.ENGLISH);
+        // [ifdef gwt] instruction uncomment
+        // return name.toLowerCase();
+    }
+
     /**
      * Returns the encoding associated to a name. If an existing constant exists
      * then it is returned, otherwise a new instance is created.
@@ -77,25 +124,9 @@ public final class Encoding extends Metadata {
         Encoding result = null;
 
         if ((name != null) && !name.equals("")) {
-            if (name.equalsIgnoreCase(ALL.getName())) {
-                result = ALL;
-            } else if (name.equalsIgnoreCase(GZIP.getName())) {
-                result = GZIP;
-            } else if (name.equalsIgnoreCase(ZIP.getName())) {
-                result = ZIP;
-            } else if (name.equalsIgnoreCase(COMPRESS.getName())) {
-                result = COMPRESS;
-            } else if (name.equalsIgnoreCase(DEFLATE.getName())) {
-                result = DEFLATE;
-            } else if (name.equalsIgnoreCase(DEFLATE_NOWRAP.getName())) {
-                result = DEFLATE_NOWRAP;
-            } else if (name.equalsIgnoreCase(IDENTITY.getName())) {
-                result = IDENTITY;
-            } else if (name.equalsIgnoreCase(FREEMARKER.getName())) {
-                result = FREEMARKER;
-            } else if (name.equalsIgnoreCase(VELOCITY.getName())) {
-                result = VELOCITY;
-            } else {
+            result = getEncodings().get(toLowerCase(name));
+
+            if (result == null) {
                 result = new Encoding(name);
             }
         }
@@ -140,7 +171,7 @@ public final class Encoding extends Metadata {
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return (getName() == null) ? 0 : getName().toLowerCase().hashCode();
+        return (getName() == null) ? 0 : toLowerCase(getName()).hashCode();
     }
 
     /**
@@ -79,15 +79,18 @@ public class Form extends Series<Parameter> {
     }
 
     /**
-     * Constructor.
+     * Constructor. As posted Web forms can have many fields, the lookups by
+     * name are indexed.
      * 
      * @param webForm
      *            The URL encoded Web form.
      * @throws IOException
+     * @see #setIndexed(boolean)
      */
     public Form(Representation webForm, boolean decode) {
         this();
         FormUtils.parse(this, webForm, decode);
+        setIndexed(true);
     }
 
     /**
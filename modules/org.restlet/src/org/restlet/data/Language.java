@@ -25,7 +25,9 @@
 package org.restlet.data;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -36,6 +38,12 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author Jerome Louvel
  */
 public final class Language extends Metadata {
+    /**
+     * The well-known languages indexed by lower-case name, built lazily.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static volatile Map<String, Language> _languages = null;
+
     /** All languages acceptable. */
     public static final Language ALL = new Language("*", "All languages");
 
@@ -71,6 +79,43 @@ public final class Language extends Metadata {
     public static final Language SPANISH = new Language("es",
             "Spanish language");
 
+    /**
+     * Returns the well-known languages indexed by lower-case name. Built
+     * once and never modified, lookups don't lock.
+     * 
+     * @return The well-known languages indexed by lower-case name.
+     */
+    private static Map<String, Language> getLanguages() {
+        Map<String, Language> result = _languages;
+
+        if (result == null) {
+            result = new HashMap<String, Language>();
+
+            for (Language item : new Language[] {
+                    ALL, ENGLISH, ENGLISH_US, FRENCH, FRENCH_FRANCE, SPANISH }) {
+                result.put(toLowerCase(item.getName()), item);
+            }
+
+            _languages = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a name to lower case, independently of the default locale.
+     * 
+     * @param name
+     *            The name to convert.
+     * @return The lower-case name.
+     */
+    private static String toLowerCase(String name) {
+        // [ifndef gwt] instruction
+        return name.toLowerCase(java.util.Locale.ENGLISH);
+        // [ifdef gwt] instruction uncomment
+        // return name.toLowerCase();
+    }
+
     /**
      * Returns the language associated to a name. If an existing constant exists
      * then it is returned, otherwise a new instance is created.
@@ -83,19 +128,9 @@ public final class Language extends Metadata {
         Language result = null;
 
         if ((name != null) && !name.equals("")) {
-            if (name.equalsIgnoreCase(ALL.getName())) {
-                result = ALL;
-            } else if (name.equalsIgnoreCase(ENGLISH.getName())) {
-                result = ENGLISH;
-            } else if (name.equalsIgnoreCase(ENGLISH_US.getName())) {
-                result = ENGLISH_US;
-            } else if (name.equalsIgnoreCase(FRENCH.getName())) {
-                result = FRENCH;
-            } else if (name.equalsIgnoreCase(FRENCH_FRANCE.getName())) {
-                result = FRENCH_FRANCE;
-            } else if (name.equalsIgnoreCase(SPANISH.getName())) {
-                result = SPANISH;
-            } else {
+            result = getLanguages().get(toLowerCase(name));
+
+            if (result == null) {
                 result = new Language(name);
             }
         }
@@ -196,7 +231,7 @@ public final class Language extends Metadata {
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return (getName() == null) ? 0 : getName().toLowerCase().hashCode();
+        return (getName() == null) ? 0 : toLowerCase(getName()).hashCode();
     }
 
     /**
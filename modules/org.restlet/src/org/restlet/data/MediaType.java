@@ -44,6 +44,35 @@ import org.restlet.util.Series;
  */
 public final class MediaType extends Metadata {
 
+    /**
+     * Parameter parsed from the name of a media type. As instances returned by
+     * {@link MediaType#valueOf(String)} are shared, it can't be modified.
+     */
+    private static final class ParsedParameter extends Parameter {
+
+        /**
+         * Constructor.
+         * 
+         * @param parameter
+         *            The parsed parameter to copy.
+         */
+        public ParsedParameter(Parameter parameter) {
+            super(parameter.getName(), parameter.getValue());
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException(
+                    "The parameters of a media type can't be modified");
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw new UnsupportedOperationException(
+                    "The parameters of a media type can't be modified");
+        }
+    }
+
     /**
      * Illegal ASCII characters as defined in RFC 1521.<br>
      * Keep the underscore for the ordering
@@ -59,6 +88,16 @@ public final class MediaType extends Metadata {
      */
     private static volatile Map<String, MediaType> _types = null;
 
+    // [ifndef gwt] member
+    /**
+     * The parameterized media types recently parsed by
+     * {@link #valueOf(String)}, as their parameters can't be registered.
+     * Bounded to protect against arbitrary values sent by clients.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static final org.restlet.engine.util.BoundedCache<String, MediaType> _parsedTypes = new org.restlet.engine.util.BoundedCache<String, MediaType>(
+            256);
+
     public static final MediaType ALL = register("*/*", "All media");
 
     public static final MediaType APPLICATION_ALL = register("application/*",
@@ -586,6 +625,10 @@ public final class MediaType extends Metadata {
     public static final MediaType MULTIPART_ALL = register("multipart/*",
             "All multipart data");
 
+    // [ifndef gwt] member
+    public static final MediaType MULTIPART_BYTERANGES = register(
+            "multipart/byteranges", "Multipart byte ranges");
+
     // [ifndef gwt] member
     public static final MediaType MULTIPART_FORM_DATA = register(
             "multipart/form-data", "Multipart form data");
@@ -727,13 +770,17 @@ public final class MediaType extends Metadata {
     }
 
     /**
-     * Returns the known media types map.
+     * Returns the known media types map. Lookups don't lock as the map is only
+     * updated by {@link #register(String, String)}.
      * 
      * @return the known media types map.
      */
     private static Map<String, MediaType> getTypes() {
         if (_types == null) {
-            _types = new HashMap<String, MediaType>();
+            // [ifndef gwt] instruction
+            _types = new java.util.concurrent.ConcurrentHashMap<String, MediaType>();
+            // [ifdef gwt] instruction uncomment
+            // _types = new HashMap<String, MediaType>();
         }
         return _types;
     }
@@ -858,7 +905,9 @@ public final class MediaType extends Metadata {
 
     /**
      * Returns the media type associated to a name. If an existing constant
-     * exists then it is returned, otherwise a new instance is created.
+     * exists then it is returned, otherwise a new instance is created. Recently
+     * parsed instances with parameters are reused, so that frequent values such
+     * as "application/json; charset=UTF-8" are only parsed once.
      * 
      * @param name
      *            The name.
@@ -870,7 +919,20 @@ public final class MediaType extends Metadata {
         if ((name != null) && !name.equals("")) {
             result = getTypes().get(name);
             if (result == null) {
-                result = new MediaType(name);
+                // [ifndef gwt]
+                if (name.indexOf(';') != -1) {
+                    result = _parsedTypes.get(name);
+
+                    if (result == null) {
+                        result = new MediaType(name);
+                        _parsedTypes.put(name, result);
+                    }
+                } else {
+                    result = new MediaType(name);
+                }
+                // [enddef]
+                // [ifdef gwt] instruction uncomment
+                // result = new MediaType(name);
             }
         }
 
@@ -1022,6 +1084,11 @@ public final class MediaType extends Metadata {
                         if (index != -1) {
                             params = new Form(getName().substring(index + 1)
                                     .trim(), ';');
+
+                            for (int i = 0; i < params.size(); i++) {
+                                params.set(i,
+                                        new ParsedParameter(params.get(i)));
+                            }
                         }
                     }
 
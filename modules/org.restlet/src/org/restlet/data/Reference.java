@@ -114,6 +114,93 @@ import org.restlet.engine.Edition;
  */
 public class Reference {
 
+    /**
+     * Value computed from an internal reference string and a base reference,
+     * such as the remaining part or the target reference.
+     */
+    private static final class BasedPart {
+
+        /** The base reference used. */
+        final Reference base;
+
+        /** The internal reference of the base reference when used. */
+        final String baseSource;
+
+        /** The computed value. */
+        final String value;
+
+        /**
+         * Constructor.
+         * 
+         * @param base
+         *            The base reference used.
+         * @param value
+         *            The computed value.
+         */
+        BasedPart(Reference base, String value) {
+            this.base = base;
+            this.baseSource = (base == null) ? null : base.internalRef;
+            this.value = value;
+        }
+
+        /**
+         * Indicates if the value was computed for the given base reference in
+         * its current state.
+         * 
+         * @param base
+         *            The base reference.
+         * @return True if the value was computed for the given base reference.
+         */
+        boolean isFor(Reference base) {
+            return (this.base == base)
+                    && ((base == null) || (this.baseSource == base.internalRef));
+        }
+    }
+
+    /**
+     * Components computed from a given internal reference string. Setters
+     * always replace the internal reference string, so parts computed from an
+     * outdated string are detected by an identity check and simply discarded.
+     * Each component is published at once, so concurrent readers at worst
+     * compute the same value twice.
+     */
+    private static final class CachedParts {
+
+        /** The decoded path segments. */
+        volatile String[] decodedSegments;
+
+        /** The path component, valid once pathParsed is set. */
+        volatile String path;
+
+        /** Indicates if the path component has been parsed. */
+        volatile boolean pathParsed;
+
+        /** The relative reference to the last base reference used. */
+        volatile BasedPart relativeRef;
+
+        /** The remaining part, with query, after the base reference. */
+        volatile BasedPart remainingPart;
+
+        /** The remaining part, without query, after the base reference. */
+        volatile BasedPart remainingPartNoQuery;
+
+        /** The internal reference the parts were computed from. */
+        final String source;
+
+        /** The target reference, resolved against the base reference. */
+        volatile BasedPart targetRef;
+
+        /**
+         * Constructor.
+         * 
+         * @param source
+         *            The internal reference the parts are computed from.
+         */
+        CachedParts(String source) {
+            this.source = source;
+        }
+    }
+
     /** Helps to map characters and their validity as URI characters. */
     private static final boolean[] charValidityMap = new boolean[127];
 
@@ -512,9 +599,27 @@ public class Reference {
         return sb.toString();
     }
 
+    /**
+     * Creates a reference from a string previously produced by a reference,
+     * skipping the check for invalid characters.
+     * 
+     * @param parsedRef
+     *            The valid URI reference.
+     * @return The new reference.
+     */
+    private static Reference valueOfParsed(String parsedRef) {
+        final Reference result = new Reference();
+        result.internalRef = parsedRef;
+        result.updateIndexes();
+        return result;
+    }
+
     /** The base reference for relative references. */
     private volatile Reference baseRef;
 
+    /** The components lazily computed from the internal reference. */
+    private volatile CachedParts cachedParts;
+
     /** The fragment separator index. */
     private volatile int fragmentIndex;
 
@@ -790,6 +895,7 @@ public class Reference {
             newRef.baseRef = this.baseRef.clone();
         }
 
+        newRef.cachedParts = this.cachedParts;
         newRef.fragmentIndex = this.fragmentIndex;
         newRef.internalRef = this.internalRef;
         newRef.queryIndex = this.queryIndex;
@@ -929,6 +1035,24 @@ public class Reference {
         return this.baseRef;
     }
 
+    /**
+     * Returns the components computed from the current internal reference,
+     * discarding the ones computed from a previous value.
+     * 
+     * @return The components computed from the current internal reference.
+     */
+    private CachedParts getCachedParts() {
+        CachedParts result = this.cachedParts;
+        String source = this.internalRef;
+
+        if ((result == null) || (result.source != source)) {
+            result = new CachedParts(source);
+            this.cachedParts = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the optional extensions for hierarchical identifiers. An
      * extensions part starts after the first '.' character of the last path
@@ -1373,45 +1497,14 @@ public class Reference {
      * @return The path component for hierarchical identifiers.
      */
     public String getPath() {
-        String result = null;
-        String part = isRelative() ? getRelativePart()
-                : getSchemeSpecificPart();
-
-        if (part != null) {
-            if (part.startsWith("//")) {
-                // Authority found
-                int index1 = part.indexOf('/', 2);
-
-                if (index1 != -1) {
-                    // Path found
-                    int index2 = part.indexOf('?');
-
-                    if (index2 != -1) {
-                        // Query found
-                        result = part.substring(Math.min(index1, index2),
-                                index2);
-                    } else {
-                        // No query found
-                        result = part.substring(index1);
-                    }
-                } else {
-                    // Path must be empty in this case
-                }
-            } else {
-                // No authority found
-                int index = part.indexOf('?');
+        CachedParts parts = getCachedParts();
 
-                if (index != -1) {
-                    // Query found
-                    result = part.substring(0, index);
-                } else {
-                    // No query found
-                    result = part;
-                }
-            }
+        if (!parts.pathParsed) {
+            parts.path = parsePath();
+            parts.pathParsed = true;
         }
 
-        return result;
+        return parts.path;
     }
 
     /**
@@ -1554,162 +1647,19 @@ public class Reference {
 
         if (base == null) {
             result = this;
-        } else if (!isAbsolute() || !isHierarchical()) {
-            throw new IllegalArgumentException(
-                    "The reference must have an absolute hierarchical path component");
-        } else if (!base.isAbsolute() || !base.isHierarchical()) {
-            throw new IllegalArgumentException(
-                    "The base reference must have an absolute hierarchical path component");
-        } else if (!getHostIdentifier().equals(base.getHostIdentifier())) {
-            result = this;
         } else {
-            final String localPath = getPath();
-            final String basePath = base.getPath();
-            String relativePath = null;
+            final CachedParts parts = getCachedParts();
+            final BasedPart cached = parts.relativeRef;
 
-            if ((basePath == null) || (localPath == null)) {
-                relativePath = localPath;
+            if ((cached != null) && cached.isFor(base)) {
+                result = valueOfParsed(cached.value);
             } else {
-                // Find the junction point
-                boolean diffFound = false;
-                int lastSlashIndex = -1;
-                int i = 0;
-                char current;
-                while (!diffFound && (i < localPath.length())
-                        && (i < basePath.length())) {
-                    current = localPath.charAt(i);
-
-                    if (current != basePath.charAt(i)) {
-                        diffFound = true;
-                    } else {
-                        if (current == '/') {
-                            lastSlashIndex = i;
-                        }
-                        i++;
-                    }
-                }
-
-                if (!diffFound) {
-                    if (localPath.length() == basePath.length()) {
-                        // Both paths are strictly equivalent
-                        relativePath = ".";
-                    } else if (i == localPath.length()) {
-                        // End of local path reached
-                        if (basePath.charAt(i) == '/') {
-                            if ((i + 1) == basePath.length()) {
-                                // Both paths are strictly equivalent
-                                relativePath = ".";
-                            } else {
-                                // The local path is a direct parent of the base
-                                // path
-                                // We need to add enough ".." in the relative
-                                // path
-                                final StringBuilder sb = new StringBuilder();
-
-                                // Count segments
-                                int segments = 0;
-                                for (int j = basePath.indexOf('/', i); j != -1; j = basePath
-                                        .indexOf('/', j + 1))
-                                    segments++;
-
-                                // Build relative path
-                                for (int j = 0; j < segments; j++)
-                                    sb.append("../");
-
-                                int lastLocalSlash = localPath.lastIndexOf('/');
-                                sb.append(localPath
-                                        .substring(lastLocalSlash + 1));
-
-                                relativePath = sb.toString();
-                            }
-                        } else {
-                            // The base path has a segment that starts like
-                            // the last local path segment
-                            // But that is longer. Situation similar to a
-                            // junction
-                            final StringBuilder sb = new StringBuilder();
-
-                            // Count segments
-                            int segments = 0;
-                            for (int j = basePath.indexOf('/', i); j != -1; j = basePath
-                                    .indexOf('/', j + 1))
-                                segments++;
-
-                            // Build relative path
-                            for (int j = 0; j < segments; j++)
-                                if (j > 0)
-                                    sb.append("/..");
-                                else
-                                    sb.append("..");
-
-                            relativePath = sb.toString();
-
-                            if (relativePath.equals("")) {
-                                relativePath = ".";
-                            }
-                        }
-                    } else if (i == basePath.length()) {
-                        if (localPath.charAt(i) == '/') {
-                            if ((i + 1) == localPath.length()) {
-                                // Both paths are strictly equivalent
-                                relativePath = ".";
-                            } else {
-                                // The local path is a direct child of the base
-                                // path
-                                relativePath = localPath.substring(i + 1);
-                            }
-                        } else {
-                            if (lastSlashIndex == (i - 1)) {
-                                // The local path is a direct subpath of the
-                                // base path
-                                relativePath = localPath.substring(i);
-                            } else {
-                                relativePath = ".."
-                                        + localPath.substring(lastSlashIndex);
-                            }
-                        }
-                    }
-                } else {
-                    // We found a junction point, we need to add enough ".." in
-                    // the relative path and append the rest of the local path
-                    // the local path is a direct subpath of the base path
-                    final StringBuilder sb = new StringBuilder();
-
-                    // Count segments
-                    int segments = 0;
-                    for (int j = basePath.indexOf('/', i); j != -1; j = basePath
-                            .indexOf('/', j + 1))
-                        segments++;
+                result = relativize(base);
 
-                    // Build relative path
-                    for (int j = 0; j < segments; j++)
-                        sb.append("../");
-
-                    sb.append(localPath.substring(lastSlashIndex + 1));
-
-                    relativePath = sb.toString();
+                if (result != this) {
+                    parts.relativeRef = new BasedPart(base, result.internalRef);
                 }
             }
-
-            // Build the result reference
-            result = new Reference();
-            final String query = getQuery();
-            final String fragment = getFragment();
-            boolean modified = false;
-
-            if ((query != null) && (!query.equals(base.getQuery()))) {
-                result.setQuery(query);
-                modified = true;
-            }
-
-            if ((fragment != null) && (!fragment.equals(base.getFragment()))) {
-                result.setFragment(fragment);
-                modified = true;
-            }
-
-            if (!modified || !relativePath.equals(".")) {
-                result.setPath(relativePath);
-            }
         }
 
         return result;
@@ -1761,16 +1711,34 @@ public class Reference {
      */
     public String getRemainingPart(boolean decode, boolean query) {
         String result = null;
-        final String all = toString(query, false);
+        final Reference baseReference = getBaseRef();
+        final CachedParts parts = getCachedParts();
+        BasedPart cached = query ? parts.remainingPart
+                : parts.remainingPartNoQuery;
+
+        if ((cached != null) && cached.isFor(baseReference)) {
+            // Typically scored by several routes then parsed by the best one
+            result = cached.value;
+        } else {
+            final String all = toString(query, false);
 
-        if (getBaseRef() != null) {
-            final String base = getBaseRef().toString(query, false);
+            if (baseReference != null) {
+                final String base = baseReference.toString(query, false);
 
-            if ((base != null) && all.startsWith(base)) {
-                result = all.substring(base.length());
+                if ((base != null) && all.startsWith(base)) {
+                    result = all.substring(base.length());
+                }
+            } else {
+                result = all;
+            }
+
+            cached = new BasedPart(baseReference, result);
+
+            if (query) {
+                parts.remainingPart = cached;
+            } else {
+                parts.remainingPartNoQuery = cached;
             }
-        } else {
-            result = all;
         }
 
         return decode ? decode(result) : result;
@@ -1908,12 +1876,28 @@ public class Reference {
      * @see #getSegments()
      */
     public List<String> getSegments(boolean decode) {
-        final List<String> result = getSegments();
+        if (!decode) {
+            return getSegments();
+        }
+
+        final CachedParts parts = getCachedParts();
+        String[] segments = parts.decodedSegments;
+        List<String> result;
+
+        if (segments == null) {
+            result = getSegments();
 
-        if (decode) {
             for (int i = 0; i < result.size(); i++) {
                 result.set(i, decode(result.get(i)));
             }
+
+            parts.decodedSegments = result.toArray(new String[result.size()]);
+        } else {
+            result = new ArrayList<String>(segments.length);
+
+            for (String segment : segments) {
+                result.add(segment);
+            }
         }
 
         return result;
@@ -1933,91 +1917,25 @@ public class Reference {
      */
     public Reference getTargetRef() {
         Reference result = null;
+        final Reference base = isAbsolute() ? null : this.baseRef;
 
-        // Step 1 - Resolve relative reference against their base reference
-        if (isRelative() && (this.baseRef != null)) {
-            Reference baseReference = null;
+        if (isAbsolute() || ((base != null) && base.isAbsolute())) {
+            // The target only depends on this reference and its base
+            final CachedParts parts = getCachedParts();
+            final BasedPart cached = parts.targetRef;
 
-            if (this.baseRef.isAbsolute()) {
-                baseReference = this.baseRef;
+            if ((cached != null) && cached.isFor(base)) {
+                result = valueOfParsed(cached.value);
             } else {
-                baseReference = this.baseRef.getTargetRef();
+                result = resolveTargetRef();
+                parts.targetRef = new BasedPart(base, result.internalRef);
             }
+        } else {
+            result = resolveTargetRef();
+        }
 
-            if (baseReference.isRelative()) {
-                throw new IllegalArgumentException(
-                        "The base reference must have an absolute hierarchical path component");
-            }
-
-            // Relative URI detected
-            String authority = getAuthority();
-            String path = getPath();
-            String query = getQuery();
-            String fragment = getFragment();
-
-            // Create an empty reference
-            result = new Reference();
-            result.setScheme(baseReference.getScheme());
-
-            if (authority != null) {
-                result.setAuthority(authority);
-                result.setPath(path);
-                result.setQuery(query);
-            } else {
-                result.setAuthority(baseReference.getAuthority());
-
-                if ((path == null) || (path.equals(""))) {
-                    result.setPath(baseReference.getPath());
-
-                    if (query != null) {
-                        result.setQuery(query);
-                    } else {
-                        result.setQuery(baseReference.getQuery());
-                    }
-                } else {
-                    if (path.startsWith("/")) {
-                        result.setPath(path);
-                    } else {
-                        final String basePath = baseReference.getPath();
-                        String mergedPath = null;
-
-                        if ((baseReference.getAuthority() != null)
-                                && ((basePath == null) || (basePath.equals("")))) {
-                            mergedPath = "/" + path;
-                        } else {
-                            // Remove the last segment which may be empty if
-                            // the path is ending with a slash
-                            final int lastSlash = basePath.lastIndexOf('/');
-                            if (lastSlash == -1) {
-                                mergedPath = path;
-                            } else {
-                                mergedPath = basePath.substring(0,
-                                        lastSlash + 1) + path;
-                            }
-                        }
-
-                        result.setPath(mergedPath);
-                    }
-
-                    result.setQuery(query);
-                }
-            }
-
-            result.setFragment(fragment);
-        } else if (isRelative()) {
-            // Relative reference with no baseRef detected
-            throw new IllegalArgumentException(
-                    "Relative references are only usable when a base reference is set.");
-        } else {
-            // Absolute URI detected
-            result = new Reference(this.internalRef);
-        }
-
-        // Step 2 - Normalize the target reference
-        result.normalize();
-
-        return result;
-    }
+        return result;
+    }
 
     /**
      * Returns the user info component for server based hierarchical
@@ -2306,6 +2224,227 @@ public class Reference {
         return this;
     }
 
+    /**
+     * Parses the path component out of the internal reference.
+     * 
+     * @return The path component or null.
+     */
+    private String parsePath() {
+        String result = null;
+        String part = isRelative() ? getRelativePart()
+                : getSchemeSpecificPart();
+
+        if (part != null) {
+            if (part.startsWith("//")) {
+                // Authority found
+                int index1 = part.indexOf('/', 2);
+
+                if (index1 != -1) {
+                    // Path found
+                    int index2 = part.indexOf('?');
+
+                    if (index2 != -1) {
+                        // Query found
+                        result = part.substring(Math.min(index1, index2),
+                                index2);
+                    } else {
+                        // No query found
+                        result = part.substring(index1);
+                    }
+                } else {
+                    // Path must be empty in this case
+                }
+            } else {
+                // No authority found
+                int index = part.indexOf('?');
+
+                if (index != -1) {
+                    // Query found
+                    result = part.substring(0, index);
+                } else {
+                    // No query found
+                    result = part;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the current reference relatively to a base reference.
+     * 
+     * @param base
+     *            The base reference to use.
+     * @return The current reference relatively to a base reference.
+     * @see #getRelativeRef(Reference)
+     */
+    private Reference relativize(Reference base) {
+        Reference result = null;
+
+        if (base == null) {
+            result = this;
+        } else if (!isAbsolute() || !isHierarchical()) {
+            throw new IllegalArgumentException(
+                    "The reference must have an absolute hierarchical path component");
+        } else if (!base.isAbsolute() || !base.isHierarchical()) {
+            throw new IllegalArgumentException(
+                    "The base reference must have an absolute hierarchical path component");
+        } else if (!getHostIdentifier().equals(base.getHostIdentifier())) {
+            result = this;
+        } else {
+            final String localPath = getPath();
+            final String basePath = base.getPath();
+            String relativePath = null;
+
+            if ((basePath == null) || (localPath == null)) {
+                relativePath = localPath;
+            } else {
+                // Find the junction point
+                boolean diffFound = false;
+                int lastSlashIndex = -1;
+                int i = 0;
+                char current;
+                while (!diffFound && (i < localPath.length())
+                        && (i < basePath.length())) {
+                    current = localPath.charAt(i);
+
+                    if (current != basePath.charAt(i)) {
+                        diffFound = true;
+                    } else {
+                        if (current == '/') {
+                            lastSlashIndex = i;
+                        }
+                        i++;
+                    }
+                }
+
+                if (!diffFound) {
+                    if (localPath.length() == basePath.length()) {
+                        // Both paths are strictly equivalent
+                        relativePath = ".";
+                    } else if (i == localPath.length()) {
+                        // End of local path reached
+                        if (basePath.charAt(i) == '/') {
+                            if ((i + 1) == basePath.length()) {
+                                // Both paths are strictly equivalent
+                                relativePath = ".";
+                            } else {
+                                // The local path is a direct parent of the base
+                                // path
+                                // We need to add enough ".." in the relative
+                                // path
+                                final StringBuilder sb = new StringBuilder();
+
+                                // Count segments
+                                int segments = 0;
+                                for (int j = basePath.indexOf('/', i); j != -1; j = basePath
+                                        .indexOf('/', j + 1))
+                                    segments++;
+
+                                // Build relative path
+                                for (int j = 0; j < segments; j++)
+                                    sb.append("../");
+
+                                int lastLocalSlash = localPath.lastIndexOf('/');
+                                sb.append(localPath
+                                        .substring(lastLocalSlash + 1));
+
+                                relativePath = sb.toString();
+                            }
+                        } else {
+                            // The base path has a segment that starts like
+                            // the last local path segment
+                            // But that is longer. Situation similar to a
+                            // junction
+                            final StringBuilder sb = new StringBuilder();
+
+                            // Count segments
+                            int segments = 0;
+                            for (int j = basePath.indexOf('/', i); j != -1; j = basePath
+                                    .indexOf('/', j + 1))
+                                segments++;
+
+                            // Build relative path
+                            for (int j = 0; j < segments; j++)
+                                if (j > 0)
+                                    sb.append("/..");
+                                else
+                                    sb.append("..");
+
+                            relativePath = sb.toString();
+
+                            if (relativePath.equals("")) {
+                                relativePath = ".";
+                            }
+                        }
+                    } else if (i == basePath.length()) {
+                        if (localPath.charAt(i) == '/') {
+                            if ((i + 1) == localPath.length()) {
+                                // Both paths are strictly equivalent
+                                relativePath = ".";
+                            } else {
+                                // The local path is a direct child of the base
+                                // path
+                                relativePath = localPath.substring(i + 1);
+                            }
+                        } else {
+                            if (lastSlashIndex == (i - 1)) {
+                                // The local path is a direct subpath of the
+                                // base path
+                                relativePath = localPath.substring(i);
+                            } else {
+                                relativePath = ".."
+                                        + localPath.substring(lastSlashIndex);
+                            }
+                        }
+                    }
+                } else {
+                    // We found a junction point, we need to add enough ".." in
+                    // the relative path and append the rest of the local path
+                    // the local path is a direct subpath of the base path
+                    final StringBuilder sb = new StringBuilder();
+
+                    // Count segments
+                    int segments = 0;
+                    for (int j = basePath.indexOf('/', i); j != -1; j = basePath
+                            .indexOf('/', j + 1))
+                        segments++;
+
+                    // Build relative path
+                    for (int j = 0; j < segments; j++)
+                        sb.append("../");
+
+                    sb.append(localPath.substring(lastSlashIndex + 1));
+
+                    relativePath = sb.toString();
+                }
+            }
+
+            // Build the result reference
+            result = new Reference();
+            final String query = getQuery();
+            final String fragment = getFragment();
+            boolean modified = false;
+
+            if ((query != null) && (!query.equals(base.getQuery()))) {
+                result.setQuery(query);
+                modified = true;
+            }
+
+            if ((fragment != null) && (!fragment.equals(base.getFragment()))) {
+                result.setFragment(fragment);
+                modified = true;
+            }
+
+            if (!modified || !relativePath.equals(".")) {
+                result.setPath(relativePath);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Removes the last segement from the output builder.
      * 
@@ -2330,6 +2469,101 @@ public class Reference {
 
     }
 
+    /**
+     * Resolves the target reference against the base reference then
+     * normalizes it.
+     * 
+     * @return The target reference.
+     * @see #getTargetRef()
+     */
+    private Reference resolveTargetRef() {
+        Reference result = null;
+
+        // Step 1 - Resolve relative reference against their base reference
+        if (isRelative() && (this.baseRef != null)) {
+            Reference baseReference = null;
+
+            if (this.baseRef.isAbsolute()) {
+                baseReference = this.baseRef;
+            } else {
+                baseReference = this.baseRef.getTargetRef();
+            }
+
+            if (baseReference.isRelative()) {
+                throw new IllegalArgumentException(
+                        "The base reference must have an absolute hierarchical path component");
+            }
+
+            // Relative URI detected
+            String authority = getAuthority();
+            String path = getPath();
+            String query = getQuery();
+            String fragment = getFragment();
+
+            // Create an empty reference
+            result = new Reference();
+            result.setScheme(baseReference.getScheme());
+
+            if (authority != null) {
+                result.setAuthority(authority);
+                result.setPath(path);
+                result.setQuery(query);
+            } else {
+                result.setAuthority(baseReference.getAuthority());
+
+                if ((path == null) || (path.equals(""))) {
+                    result.setPath(baseReference.getPath());
+
+                    if (query != null) {
+                        result.setQuery(query);
+                    } else {
+                        result.setQuery(baseReference.getQuery());
+                    }
+                } else {
+                    if (path.startsWith("/")) {
+                        result.setPath(path);
+                    } else {
+                        final String basePath = baseReference.getPath();
+                        String mergedPath = null;
+
+                        if ((baseReference.getAuthority() != null)
+                                && ((basePath == null) || (basePath.equals("")))) {
+                            mergedPath = "/" + path;
+                        } else {
+                            // Remove the last segment which may be empty if
+                            // the path is ending with a slash
+                            final int lastSlash = basePath.lastIndexOf('/');
+                            if (lastSlash == -1) {
+                                mergedPath = path;
+                            } else {
+                                mergedPath = basePath.substring(0,
+                                        lastSlash + 1) + path;
+                            }
+                        }
+
+                        result.setPath(mergedPath);
+                    }
+
+                    result.setQuery(query);
+                }
+            }
+
+            result.setFragment(fragment);
+        } else if (isRelative()) {
+            // Relative reference with no baseRef detected
+            throw new IllegalArgumentException(
+                    "Relative references are only usable when a base reference is set.");
+        } else {
+            // Absolute URI detected
+            result = new Reference(this.internalRef);
+        }
+
+        // Step 2 - Normalize the target reference
+        result.normalize();
+
+        return result;
+    }
+
     /**
      * Sets the authority component for hierarchical identifiers.
      * 
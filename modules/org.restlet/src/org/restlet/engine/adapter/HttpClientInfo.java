@@ -0,0 +1,387 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
+import org.restlet.data.Expectation;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.engine.header.ExpectationReader;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderTable;
+import org.restlet.engine.header.PreferenceReader;
+
+/**
+ * Client info wrapper for server HTTP calls. Each property is parsed from the
+ * request headers on its first access only, so that a request reading the
+ * agent name doesn't pay for the parsing of the "Accept*" headers.
+ * 
+ * @author Jerome Louvel
+ */
+public class HttpClientInfo extends ClientInfo {
+
+    /** Indicates if the character set preferences were parsed and added. */
+    private volatile boolean acceptedCharacterSetsAdded;
+
+    /** Indicates if the encoding preferences were parsed and added. */
+    private volatile boolean acceptedEncodingsAdded;
+
+    /** Indicates if the language preferences were parsed and added. */
+    private volatile boolean acceptedLanguagesAdded;
+
+    /** Indicates if the media type preferences were parsed and added. */
+    private volatile boolean acceptedMediaTypesAdded;
+
+    /** Indicates if the patch preferences were parsed and added. */
+    private volatile boolean acceptedPatchesAdded;
+
+    /** Indicates if the agent name was added. */
+    private volatile boolean agentAdded;
+
+    /** The context of the HTTP server connector that issued the call. */
+    private final Context context;
+
+    /** Indicates if the expectations were parsed and added. */
+    private volatile boolean expectationsAdded;
+
+    /** Indicates if the forwarded addresses were parsed and added. */
+    private volatile boolean forwardedAddressesAdded;
+
+    /** Indicates if the "From" email address was added. */
+    private volatile boolean fromAdded;
+
+    /** The request headers. */
+    private final HeaderTable headers;
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context of the HTTP server connector that issued the call.
+     * @param httpCall
+     *            The low-level HTTP server call.
+     */
+    public HttpClientInfo(Context context, ServerCall httpCall) {
+        this.context = context;
+        this.headers = httpCall.getRequestHeaderTable();
+        setAddress(httpCall.getClientAddress());
+        setPort(httpCall.getClientPort());
+
+        if (httpCall.getUserPrincipal() != null) {
+            getPrincipals().add(httpCall.getUserPrincipal());
+        }
+    }
+
+    @Override
+    public List<Preference<CharacterSet>> getAcceptedCharacterSets() {
+        if (!this.acceptedCharacterSetsAdded) {
+            synchronized (this) {
+                if (!this.acceptedCharacterSetsAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        PreferenceReader.addCharacterSets(this.headers
+                                .getValues(HeaderConstants.HEADER_ACCEPT_CHARSET),
+                                parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getAcceptedCharacterSets().addAll(
+                            parsed.getAcceptedCharacterSets());
+                    this.acceptedCharacterSetsAdded = true;
+                }
+            }
+        }
+
+        return super.getAcceptedCharacterSets();
+    }
+
+    @Override
+    public List<Preference<Encoding>> getAcceptedEncodings() {
+        if (!this.acceptedEncodingsAdded) {
+            synchronized (this) {
+                if (!this.acceptedEncodingsAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        PreferenceReader.addEncodings(this.headers
+                                .getValues(HeaderConstants.HEADER_ACCEPT_ENCODING),
+                                parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getAcceptedEncodings().addAll(
+                            parsed.getAcceptedEncodings());
+                    this.acceptedEncodingsAdded = true;
+                }
+            }
+        }
+
+        return super.getAcceptedEncodings();
+    }
+
+    @Override
+    public List<Preference<Language>> getAcceptedLanguages() {
+        if (!this.acceptedLanguagesAdded) {
+            synchronized (this) {
+                if (!this.acceptedLanguagesAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        PreferenceReader.addLanguages(this.headers
+                                .getValues(HeaderConstants.HEADER_ACCEPT_LANGUAGE),
+                                parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getAcceptedLanguages().addAll(
+                            parsed.getAcceptedLanguages());
+                    this.acceptedLanguagesAdded = true;
+                }
+            }
+        }
+
+        return super.getAcceptedLanguages();
+    }
+
+    @Override
+    public List<Preference<MediaType>> getAcceptedMediaTypes() {
+        if (!this.acceptedMediaTypesAdded) {
+            synchronized (this) {
+                if (!this.acceptedMediaTypesAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        PreferenceReader.addMediaTypes(this.headers
+                                .getValues(HeaderConstants.HEADER_ACCEPT), parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getAcceptedMediaTypes().addAll(
+                            parsed.getAcceptedMediaTypes());
+                    this.acceptedMediaTypesAdded = true;
+                }
+            }
+        }
+
+        return super.getAcceptedMediaTypes();
+    }
+
+    @Override
+    public List<Preference<MediaType>> getAcceptedPatches() {
+        if (!this.acceptedPatchesAdded) {
+            synchronized (this) {
+                if (!this.acceptedPatchesAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        PreferenceReader.addPatches(this.headers
+                                .getValues(HeaderConstants.HEADER_ACCEPT_PATCH),
+                                parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getAcceptedPatches().addAll(
+                            parsed.getAcceptedPatches());
+                    this.acceptedPatchesAdded = true;
+                }
+            }
+        }
+
+        return super.getAcceptedPatches();
+    }
+
+    @Override
+    public String getAgent() {
+        if (!this.agentAdded) {
+            super.setAgent(this.headers
+                    .getValues(HeaderConstants.HEADER_USER_AGENT));
+            this.agentAdded = true;
+        }
+
+        return super.getAgent();
+    }
+
+    @Override
+    public List<Expectation> getExpectations() {
+        if (!this.expectationsAdded) {
+            synchronized (this) {
+                if (!this.expectationsAdded) {
+                    ClientInfo parsed = new ClientInfo();
+
+                    try {
+                        ExpectationReader.addValues(this.headers
+                                .getValues(HeaderConstants.HEADER_EXPECT),
+                                parsed);
+                    } catch (Exception e) {
+                        log(e);
+                    }
+
+                    super.getExpectations().addAll(parsed.getExpectations());
+                    this.expectationsAdded = true;
+                }
+            }
+        }
+
+        return super.getExpectations();
+    }
+
+    /**
+     * Returns the list of forwarded IP addresses. They are only parsed from the
+     * "X-Forwarded-For" header if the "useForwardedForHeader" parameter of the
+     * server connector is set to "true".
+     * 
+     * @return The list of forwarded IP addresses.
+     */
+    @Override
+    public List<String> getForwardedAddresses() {
+        if (!this.forwardedAddressesAdded) {
+            synchronized (this) {
+                if (!this.forwardedAddressesAdded) {
+                    // Special handling for the non standard but common
+                    // "X-Forwarded-For" header.
+                    if ((this.context != null)
+                            && Boolean.parseBoolean(this.context
+                                    .getParameters().getFirstValue(
+                                            "useForwardedForHeader", false))) {
+                        // Lookup the "X-Forwarded-For" header supported by
+                        // popular proxies and caches.
+                        String header = this.headers
+                                .getValues(HeaderConstants.HEADER_X_FORWARDED_FOR);
+
+                        if (header != null) {
+                            List<String> result = new ArrayList<String>();
+
+                            for (String address : header.split(",")) {
+                                result.add(address.trim());
+                            }
+
+                            super.getForwardedAddresses().addAll(result);
+                        }
+                    }
+
+                    this.forwardedAddressesAdded = true;
+                }
+            }
+        }
+
+        return super.getForwardedAddresses();
+    }
+
+    @Override
+    public String getFrom() {
+        if (!this.fromAdded) {
+            super.setFrom(this.headers
+                    .getFirstValue(HeaderConstants.HEADER_FROM));
+            this.fromAdded = true;
+        }
+
+        return super.getFrom();
+    }
+
+    /**
+     * Logs a parsing error. The error is traced and the other properties are
+     * still parsed.
+     * 
+     * @param e
+     *            The parsing error.
+     */
+    private void log(Exception e) {
+        if (this.context != null) {
+            this.context.getLogger().log(Level.INFO, e.getMessage());
+        }
+    }
+
+    @Override
+    public void setAcceptedCharacterSets(
+            List<Preference<CharacterSet>> acceptedCharacterSets) {
+        this.acceptedCharacterSetsAdded = true;
+        super.setAcceptedCharacterSets(acceptedCharacterSets);
+    }
+
+    @Override
+    public void setAcceptedEncodings(
+            List<Preference<Encoding>> acceptedEncodings) {
+        this.acceptedEncodingsAdded = true;
+        super.setAcceptedEncodings(acceptedEncodings);
+    }
+
+    @Override
+    public void setAcceptedLanguages(
+            List<Preference<Language>> acceptedLanguages) {
+        this.acceptedLanguagesAdded = true;
+        super.setAcceptedLanguages(acceptedLanguages);
+    }
+
+    @Override
+    public void setAcceptedMediaTypes(
+            List<Preference<MediaType>> acceptedMediaTypes) {
+        this.acceptedMediaTypesAdded = true;
+        super.setAcceptedMediaTypes(acceptedMediaTypes);
+    }
+
+    @Override
+    public void setAcceptedPatches(List<Preference<MediaType>> acceptedPatches) {
+        this.acceptedPatchesAdded = true;
+        super.setAcceptedPatches(acceptedPatches);
+    }
+
+    @Override
+    public void setAgent(String agent) {
+        super.setAgent(agent);
+        this.agentAdded = true;
+    }
+
+    @Override
+    public void setExpectations(List<Expectation> expectations) {
+        this.expectationsAdded = true;
+        super.setExpectations(expectations);
+    }
+
+    @Override
+    public void setForwardedAddresses(List<String> forwardedAddresses) {
+        this.forwardedAddressesAdded = true;
+        super.setForwardedAddresses(forwardedAddresses);
+    }
+
+    @Override
+    public void setFrom(String from) {
+        super.setFrom(from);
+        this.fromAdded = true;
+    }
+}
@@ -48,10 +48,9 @@ import org.restlet.data.Tag;
 import org.restlet.data.Warning;
 import org.restlet.engine.header.CacheDirectiveReader;
 import org.restlet.engine.header.CookieReader;
-import org.restlet.engine.header.ExpectationReader;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderReader;
-import org.restlet.engine.header.PreferenceReader;
+import org.restlet.engine.header.HeaderTable;
 import org.restlet.engine.header.RangeReader;
 import org.restlet.engine.header.RecipientInfoReader;
 import org.restlet.engine.header.StringReader;
@@ -189,8 +188,8 @@ public class HttpRequest extends Request {
         }
 
         // Set the request date
-        String dateHeader = httpCall.getRequestHeaders().getFirstValue(
-                HeaderConstants.HEADER_DATE, true);
+        String dateHeader = httpCall.getRequestHeaderTable().getFirstValue(
+                HeaderConstants.HEADER_DATE);
         Date date = null;
         if (dateHeader != null) {
             date = DateUtils.parse(dateHeader);
@@ -217,11 +216,9 @@ public class HttpRequest extends Request {
     public Set<String> getAccessControlRequestHeaders() {
         Set<String> result = super.getAccessControlRequestHeaders();
         if (!accessControlRequestHeadersAdded) {
-            for (String header : getHttpCall()
-                    .getRequestHeaders()
+            for (String header : getHttpCall().getRequestHeaderTable()
                     .getValuesArray(
-                            HeaderConstants.HEADER_ACCESS_CONTROL_REQUEST_HEADERS,
-                            true)) {
+                            HeaderConstants.HEADER_ACCESS_CONTROL_REQUEST_HEADERS)) {
                 new StringReader(header).addValues(result);
             }
             accessControlRequestHeadersAdded = true;
@@ -233,8 +230,9 @@ public class HttpRequest extends Request {
     public Method getAccessControlRequestMethod() {
         Method result = super.getAccessControlRequestMethod();
         if (!accessControlRequestMethodAdded) {
-            String header = getHttpCall().getRequestHeaders().getFirstValue(
-                    HeaderConstants.HEADER_ACCESS_CONTROL_REQUEST_METHOD, true);
+            String header = getHttpCall().getRequestHeaderTable()
+                    .getFirstValue(
+                            HeaderConstants.HEADER_ACCESS_CONTROL_REQUEST_METHOD);
             if (header != null) {
                 result = Method.valueOf(header);
                 super.setAccessControlRequestMethod(result);
@@ -249,8 +247,8 @@ public class HttpRequest extends Request {
         List<CacheDirective> result = super.getCacheDirectives();
 
         if (!cacheDirectivesAdded) {
-            for (Header header : getHttpCall().getRequestHeaders().subList(
-                    HeaderConstants.HEADER_CACHE_CONTROL)) {
+            for (Header header : getHttpCall().getRequestHeaderTable()
+                    .getHeaders(HeaderConstants.HEADER_CACHE_CONTROL)) {
                 CacheDirectiveReader.addValues(header, result);
             }
 
@@ -266,8 +264,8 @@ public class HttpRequest extends Request {
 
         if (!this.securityAdded) {
             // Extract the header value
-            String authorization = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_AUTHORIZATION);
+            String authorization = getHttpCall().getRequestHeaderTable()
+                    .getValues(HeaderConstants.HEADER_AUTHORIZATION);
 
             // Set the challenge response
             result = AuthenticatorUtils.parseResponse(this, authorization,
@@ -280,107 +278,23 @@ public class HttpRequest extends Request {
     }
 
     /**
-     * Returns the client-specific information.
+     * Returns the client-specific information. Each property is parsed from
+     * the request headers on its first access.
      * 
      * @return The client-specific information.
      */
     @Override
     public ClientInfo getClientInfo() {
-        final ClientInfo result = super.getClientInfo();
-
         if (!this.clientAdded) {
-            // Extract the header values
-            String acceptMediaType = getHttpCall().getRequestHeaders()
-                    .getValues(HeaderConstants.HEADER_ACCEPT);
-            String acceptCharset = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_ACCEPT_CHARSET);
-            String acceptEncoding = getHttpCall().getRequestHeaders()
-                    .getValues(HeaderConstants.HEADER_ACCEPT_ENCODING);
-            String acceptLanguage = getHttpCall().getRequestHeaders()
-                    .getValues(HeaderConstants.HEADER_ACCEPT_LANGUAGE);
-            String acceptPatch = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_ACCEPT_PATCH);
-            String expect = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_EXPECT);
-
-            // Parse the headers and update the call preferences
-
-            // Parse the Accept* headers. If an error occurs during the parsing
-            // of each header, the error is traced and we keep on with the other
-            // headers.
-            try {
-                PreferenceReader.addCharacterSets(acceptCharset, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            try {
-                PreferenceReader.addEncodings(acceptEncoding, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            try {
-                PreferenceReader.addLanguages(acceptLanguage, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            try {
-                PreferenceReader.addMediaTypes(acceptMediaType, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            try {
-                PreferenceReader.addPatches(acceptPatch, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            try {
-                ExpectationReader.addValues(expect, result);
-            } catch (Exception e) {
-                this.context.getLogger().log(Level.INFO, e.getMessage());
-            }
-
-            // Set other properties
-            result.setAgent(getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_USER_AGENT));
-            result.setFrom(getHttpCall().getRequestHeaders().getFirstValue(
-                    HeaderConstants.HEADER_FROM, true));
-            result.setAddress(getHttpCall().getClientAddress());
-            result.setPort(getHttpCall().getClientPort());
-
-            if (getHttpCall().getUserPrincipal() != null) {
-                result.getPrincipals().add(getHttpCall().getUserPrincipal());
-            }
-
-            if (this.context != null) {
-                // Special handling for the non standard but common
-                // "X-Forwarded-For" header.
-                final boolean useForwardedForHeader = Boolean
-                        .parseBoolean(this.context.getParameters()
-                                .getFirstValue("useForwardedForHeader", false));
-                if (useForwardedForHeader) {
-                    // Lookup the "X-Forwarded-For" header supported by popular
-                    // proxies and caches.
-                    final String header = getHttpCall().getRequestHeaders()
-                            .getValues(HeaderConstants.HEADER_X_FORWARDED_FOR);
-                    if (header != null) {
-                        final String[] addresses = header.split(",");
-                        for (int i = 0; i < addresses.length; i++) {
-                            String address = addresses[i].trim();
-                            result.getForwardedAddresses().add(address);
-                        }
-                    }
+            synchronized (this) {
+                if (!this.clientAdded) {
+                    setClientInfo(new HttpClientInfo(this.context,
+                            getHttpCall()));
                 }
             }
-
-            this.clientAdded = true;
         }
 
-        return result;
+        return super.getClientInfo();
     }
 
     /**
@@ -394,25 +308,30 @@ public class HttpRequest extends Request {
 
         if (!this.conditionAdded) {
             // Extract the header values
-            String ifMatchHeader = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_IF_MATCH);
-            String ifNoneMatchHeader = getHttpCall().getRequestHeaders()
+            HeaderTable headers = getHttpCall().getRequestHeaderTable();
+            String ifMatchHeader = headers
+                    .getValues(HeaderConstants.HEADER_IF_MATCH);
+            String ifNoneMatchHeader = headers
                     .getValues(HeaderConstants.HEADER_IF_NONE_MATCH);
             Date ifModifiedSince = null;
             Date ifUnmodifiedSince = null;
-            String ifRangeHeader = getHttpCall().getRequestHeaders()
-                    .getFirstValue(HeaderConstants.HEADER_IF_RANGE, true);
-
-            for (Header header : getHttpCall().getRequestHeaders()) {
-                if (header.getName().equalsIgnoreCase(
-                        HeaderConstants.HEADER_IF_MODIFIED_SINCE)) {
-                    ifModifiedSince = HeaderReader.readDate(header.getValue(),
-                            false);
-                } else if (header.getName().equalsIgnoreCase(
-                        HeaderConstants.HEADER_IF_UNMODIFIED_SINCE)) {
-                    ifUnmodifiedSince = HeaderReader.readDate(
-                            header.getValue(), false);
-                }
+            String ifRangeHeader = headers
+                    .getFirstValue(HeaderConstants.HEADER_IF_RANGE);
+
+            // The last occurrence of the date headers prevails
+            String ifModifiedSinceHeader = headers
+                    .getLastValue(HeaderConstants.HEADER_IF_MODIFIED_SINCE);
+            String ifUnmodifiedSinceHeader = headers
+                    .getLastValue(HeaderConstants.HEADER_IF_UNMODIFIED_SINCE);
+
+            if (ifModifiedSinceHeader != null) {
+                ifModifiedSince = HeaderReader.readDate(ifModifiedSinceHeader,
+                        false);
+            }
+
+            if (ifUnmodifiedSinceHeader != null) {
+                ifUnmodifiedSince = HeaderReader.readDate(
+                        ifUnmodifiedSinceHeader, false);
             }
 
             // Set the If-Modified-Since date
@@ -515,8 +434,8 @@ public class HttpRequest extends Request {
         Series<Cookie> result = super.getCookies();
 
         if (!this.cookiesAdded) {
-            String cookieValues = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_COOKIE);
+            String cookieValues = getHttpCall().getRequestHeaderTable()
+                    .getValues(HeaderConstants.HEADER_COOKIE);
 
             if (cookieValues != null) {
                 new CookieReader(cookieValues).addValues(result);
@@ -558,7 +477,7 @@ public class HttpRequest extends Request {
 
         if (!this.proxySecurityAdded) {
             // Extract the header value
-            final String authorization = getHttpCall().getRequestHeaders()
+            final String authorization = getHttpCall().getRequestHeaderTable()
                     .getValues(HeaderConstants.HEADER_PROXY_AUTHORIZATION);
 
             // Set the challenge response
@@ -577,8 +496,8 @@ public class HttpRequest extends Request {
 
         if (!this.rangesAdded) {
             // Extract the header value
-            final String ranges = getHttpCall().getRequestHeaders().getValues(
-                    HeaderConstants.HEADER_RANGE);
+            final String ranges = getHttpCall().getRequestHeaderTable()
+                    .getValues(HeaderConstants.HEADER_RANGE);
             result.addAll(RangeReader.read(ranges));
 
             this.rangesAdded = true;
@@ -591,8 +510,8 @@ public class HttpRequest extends Request {
     public List<RecipientInfo> getRecipientsInfo() {
         List<RecipientInfo> result = super.getRecipientsInfo();
         if (!recipientsInfoAdded) {
-            for (String header : getHttpCall().getRequestHeaders()
-                    .getValuesArray(HeaderConstants.HEADER_VIA, true)) {
+            for (String header : getHttpCall().getRequestHeaderTable()
+                    .getValuesArray(HeaderConstants.HEADER_VIA)) {
                 new RecipientInfoReader(header).addValues(result);
             }
             recipientsInfoAdded = true;
@@ -608,7 +527,7 @@ public class HttpRequest extends Request {
     @Override
     public Reference getReferrerRef() {
         if (!this.referrerAdded) {
-            final String referrerValue = getHttpCall().getRequestHeaders()
+            final String referrerValue = getHttpCall().getRequestHeaderTable()
                     .getValues(HeaderConstants.HEADER_REFERRER);
             if (referrerValue != null) {
                 setReferrerRef(new Reference(referrerValue));
@@ -624,8 +543,8 @@ public class HttpRequest extends Request {
     public List<Warning> getWarnings() {
         List<Warning> result = super.getWarnings();
         if (!warningsAdded) {
-            for (String header : getHttpCall().getRequestHeaders()
-                    .getValuesArray(HeaderConstants.HEADER_WARNING, true)) {
+            for (String header : getHttpCall().getRequestHeaderTable()
+                    .getValuesArray(HeaderConstants.HEADER_WARNING)) {
                 new WarningReader(header).addValues(result);
             }
             warningsAdded = true;
@@ -652,6 +571,12 @@ public class HttpRequest extends Request {
         this.securityAdded = true;
     }
 
+    @Override
+    public void setClientInfo(ClientInfo clientInfo) {
+        super.setClientInfo(clientInfo);
+        this.clientAdded = true;
+    }
+
     @Override
     public void setEntity(Representation entity) {
         super.setEntity(entity);
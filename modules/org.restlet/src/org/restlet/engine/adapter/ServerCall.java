@@ -48,6 +48,7 @@ import org.restlet.engine.header.DispositionReader;
 import org.restlet.engine.header.EncodingReader;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderReader;
+import org.restlet.engine.header.HeaderTable;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.header.LanguageReader;
 import org.restlet.engine.header.RangeReader;
@@ -70,6 +71,9 @@ public abstract class ServerCall extends Call {
     /** Indicates if the "host" header was already parsed. */
     private volatile boolean hostParsed;
 
+    /** The request headers indexed by name. */
+    private volatile HeaderTable requestHeaderTable;
+
     /**
      * Constructor.
      * 
@@ -307,6 +311,27 @@ public abstract class ServerCall extends Call {
      */
     public abstract InputStream getRequestHeadStream();
 
+    /**
+     * Returns the request headers indexed by name. The index is built once, on
+     * first access, from the headers received.
+     * 
+     * @return The request headers indexed by name.
+     */
+    public HeaderTable getRequestHeaderTable() {
+        // Lazy initialization with double-check.
+        HeaderTable t = this.requestHeaderTable;
+        if (t == null) {
+            synchronized (this) {
+                t = this.requestHeaderTable;
+                if (t == null) {
+                    this.requestHeaderTable = t = new HeaderTable(
+                            getRequestHeaders());
+                }
+            }
+        }
+        return t;
+    }
+
     /**
      * Returns the response entity stream if it exists.
      * 
@@ -391,8 +416,8 @@ public abstract class ServerCall extends Call {
      * Parses the "host" header to set the server host and port properties.
      */
     private void parseHost() {
-        String host = getRequestHeaders().getFirstValue(
-                HeaderConstants.HEADER_HOST, true);
+        String host = getRequestHeaderTable().getFirstValue(
+                HeaderConstants.HEADER_HOST);
 
         if (host != null) {
             // Take care of IPV6 addresses
@@ -0,0 +1,465 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Parameter;
+import org.restlet.data.Range;
+import org.restlet.engine.header.ContentType;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.RangeWriter;
+import org.restlet.engine.io.FileSegment;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.ReadableRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.util.Series;
+
+// [excludes gwt]
+/**
+ * Representation exposing several ranges of a wrapped representation as a
+ * "multipart/byteranges" entity. The parts are streamed from the wrapped
+ * content without buffering it: file ranges are read at their position,
+ * seekable channels are positioned at the start of each part and other
+ * contents are read once, skipping the bytes between parts. The wrapped
+ * representation must have a known size.
+ * 
+ * @author Jerome Louvel
+ */
+public class ByteRangesRepresentation extends OutputRepresentation {
+
+    /** The line separator. */
+    private static final String CRLF = "\r\n";
+
+    /**
+     * Returns the satisfiable ranges of an entity, resolved to absolute
+     * indexes, sorted and with overlapping or adjacent ranges coalesced.
+     * 
+     * @param ranges
+     *            The requested ranges.
+     * @param size
+     *            The size of the entity.
+     * @return The coalesced ranges.
+     */
+    public static List<Range> coalesce(List<Range> ranges, long size) {
+        List<long[]> bounds = new ArrayList<long[]>(ranges.size());
+
+        for (Range range : ranges) {
+            long start;
+            long end = size - 1;
+
+            if (range.getIndex() == Range.INDEX_LAST) {
+                start = (range.getSize() == Range.SIZE_MAX) ? 0 : Math.max(0,
+                        size - range.getSize());
+            } else {
+                start = range.getIndex();
+
+                if (range.getSize() != Range.SIZE_MAX) {
+                    end = Math.min(end, start + range.getSize() - 1);
+                }
+            }
+
+            if ((start < size) && (start <= end)) {
+                bounds.add(new long[] { start, end });
+            }
+        }
+
+        Collections.sort(bounds, new Comparator<long[]>() {
+            public int compare(long[] bounds1, long[] bounds2) {
+                return (bounds1[0] < bounds2[0]) ? -1
+                        : ((bounds1[0] == bounds2[0]) ? 0 : 1);
+            }
+        });
+
+        List<Range> result = new ArrayList<Range>(bounds.size());
+        long[] current = null;
+
+        for (long[] next : bounds) {
+            if ((current != null) && (next[0] <= current[1] + 1)) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                if (current != null) {
+                    result.add(new Range(current[0], current[1] - current[0]
+                            + 1));
+                }
+
+                current = next;
+            }
+        }
+
+        if (current != null) {
+            result.add(new Range(current[0], current[1] - current[0] + 1));
+        }
+
+        return result;
+    }
+
+    /** The boundary separating the parts. */
+    private final String boundary;
+
+    /** The headers of each part, preceded by the boundary line. */
+    private final List<byte[]> partHeaders;
+
+    /** The absolute ranges, sorted and not overlapping. */
+    private final List<Range> ranges;
+
+    /** The wrapped representation. */
+    private final Representation wrappedRepresentation;
+
+    /**
+     * Constructor.
+     * 
+     * @param wrappedRepresentation
+     *            The wrapped representation with a complete content and a known
+     *            size.
+     * @param ranges
+     *            The requested ranges, coalesced by
+     *            {@link #coalesce(List, long)}.
+     */
+    public ByteRangesRepresentation(Representation wrappedRepresentation,
+            List<Range> ranges) {
+        super(null);
+
+        if (!wrappedRepresentation.hasKnownSize()) {
+            throw new IllegalArgumentException(
+                    "The wrapped representation must have a known size.");
+        }
+
+        long totalSize = wrappedRepresentation.getSize();
+        this.wrappedRepresentation = wrappedRepresentation;
+        this.ranges = coalesce(ranges, totalSize);
+        this.boundary = Long.toHexString(ThreadLocalRandom.current()
+                .nextLong() & Long.MAX_VALUE)
+                + Long.toHexString(System.nanoTime());
+        this.partHeaders = new ArrayList<byte[]>(this.ranges.size());
+
+        Series<Parameter> parameters = new Series<Parameter>(Parameter.class);
+        parameters.add("boundary", this.boundary);
+        setMediaType(new MediaType(MediaType.MULTIPART_BYTERANGES.getName(),
+                parameters));
+        setModificationDate(wrappedRepresentation.getModificationDate());
+        setExpirationDate(wrappedRepresentation.getExpirationDate());
+        setTag(wrappedRepresentation.getTag());
+
+        long size = 0;
+
+        for (Range range : this.ranges) {
+            StringBuilder sb = new StringBuilder();
+
+            if (!this.partHeaders.isEmpty()) {
+                sb.append(CRLF);
+            }
+
+            sb.append("--").append(this.boundary).append(CRLF);
+
+            if (wrappedRepresentation.getMediaType() != null) {
+                sb.append(HeaderConstants.HEADER_CONTENT_TYPE).append(": ")
+                        .append(ContentType.writeHeader(wrappedRepresentation))
+                        .append(CRLF);
+            }
+
+            sb.append(HeaderConstants.HEADER_CONTENT_RANGE).append(": ")
+                    .append(RangeWriter.write(range, totalSize)).append(CRLF)
+                    .append(CRLF);
+            byte[] headers = getBytes(sb.toString());
+            this.partHeaders.add(headers);
+            size += headers.length + range.getSize();
+        }
+
+        size += getClosingBoundary().length;
+        setSize(size);
+    }
+
+    /**
+     * Copies a given number of bytes from a stream.
+     * 
+     * @param in
+     *            The input stream.
+     * @param out
+     *            The output stream.
+     * @param count
+     *            The number of bytes to copy.
+     * @throws IOException
+     */
+    private void copy(InputStream in, OutputStream out, long count)
+            throws IOException {
+        byte[] buffer = IoUtils.getBufferPool().checkoutBytes();
+
+        try {
+            long remaining = count;
+
+            while (remaining > 0) {
+                int read = in.read(buffer, 0,
+                        (int) Math.min(buffer.length, remaining));
+
+                if (read < 0) {
+                    throw new EOFException(
+                            "The wrapped content is shorter than its size");
+                }
+
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            IoUtils.getBufferPool().checkin(buffer);
+        }
+    }
+
+    /**
+     * Copies a given number of bytes from the current position of a channel.
+     * 
+     * @param channel
+     *            The input channel.
+     * @param out
+     *            The output stream.
+     * @param count
+     *            The number of bytes to copy.
+     * @throws IOException
+     */
+    private void copy(ReadableByteChannel channel, OutputStream out,
+            long count) throws IOException {
+        byte[] bytes = IoUtils.getBufferPool().checkoutBytes();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long remaining = count;
+
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(bytes.length, remaining));
+                int read = channel.read(buffer);
+
+                if (read < 0) {
+                    throw new EOFException(
+                            "The wrapped content is shorter than its size");
+                }
+
+                out.write(bytes, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            IoUtils.getBufferPool().checkin(bytes);
+        }
+    }
+
+    /**
+     * Returns the ASCII bytes of a string.
+     * 
+     * @param value
+     *            The string.
+     * @return The ASCII bytes.
+     */
+    private byte[] getBytes(String value) {
+        try {
+            return value.getBytes("US-ASCII");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the boundary separating the parts.
+     * 
+     * @return The boundary separating the parts.
+     */
+    public String getBoundary() {
+        return this.boundary;
+    }
+
+    /**
+     * Returns the closing boundary line.
+     * 
+     * @return The closing boundary line.
+     */
+    private byte[] getClosingBoundary() {
+        return getBytes(CRLF + "--" + this.boundary + "--" + CRLF);
+    }
+
+    /**
+     * Returns the absolute ranges exposed, sorted and not overlapping.
+     * 
+     * @return The absolute ranges exposed.
+     */
+    public List<Range> getRanges() {
+        return Collections.unmodifiableList(this.ranges);
+    }
+
+    /**
+     * Returns the wrapped representation.
+     * 
+     * @return The wrapped representation.
+     */
+    public Representation getWrappedRepresentation() {
+        return this.wrappedRepresentation;
+    }
+
+    /**
+     * Indicates if the wrapped representation is a plain file whose segments
+     * can be read directly.
+     * 
+     * @return True if the wrapped representation is a plain file.
+     */
+    private boolean isFileBacked() {
+        return (this.ranges.isEmpty() || (FileSegment.get(
+                this.wrappedRepresentation, this.ranges.get(0)) != null));
+    }
+
+    @Override
+    public void release() {
+        this.wrappedRepresentation.release();
+        super.release();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        Representation wrapped = getWrappedRepresentation();
+        boolean fileBacked = isFileBacked();
+        SeekableByteChannel seekable = null;
+        InputStream sequential = null;
+        long position = 0;
+
+        if (!fileBacked) {
+            if (wrapped instanceof ReadableRepresentation) {
+                ReadableByteChannel channel = wrapped.getChannel();
+
+                if (channel instanceof SeekableByteChannel) {
+                    seekable = (SeekableByteChannel) channel;
+                } else {
+                    sequential = IoUtils.getStream(channel);
+                }
+            } else {
+                sequential = wrapped.getStream();
+            }
+        }
+
+        try {
+            for (int i = 0; i < this.ranges.size(); i++) {
+                Range range = this.ranges.get(i);
+                outputStream.write(this.partHeaders.get(i));
+
+                if (fileBacked) {
+                    FileSegment segment = FileSegment.get(wrapped, range);
+                    InputStream part = IoUtils.getStream(segment
+                            .openChannel(((FileRepresentation) wrapped)
+                                    .getMappingSize()));
+
+                    try {
+                        copy(part, outputStream, range.getSize());
+                    } finally {
+                        part.close();
+                    }
+                } else {
+                    if (seekable != null) {
+                        seekable.position(range.getIndex());
+                        copy(seekable, outputStream, range.getSize());
+                    } else {
+                        long skip = range.getIndex() - position;
+
+                        while (skip > 0) {
+                            long skipped = sequential.skip(skip);
+
+                            if (skipped <= 0) {
+                                if (sequential.read() < 0) {
+                                    throw new EOFException(
+                                            "The wrapped content is shorter than its size");
+                                }
+
+                                skipped = 1;
+                            }
+
+                            skip -= skipped;
+                        }
+
+                        copy(sequential, outputStream, range.getSize());
+                        position = range.getIndex() + range.getSize();
+                    }
+                }
+            }
+        } finally {
+            if (seekable != null) {
+                seekable.close();
+            } else if (sequential != null) {
+                sequential.close();
+            }
+        }
+
+        outputStream.write(getClosingBoundary());
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the parts to a channel. The segments of a plain file are
+     * transferred without copy.
+     */
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        if (isFileBacked()) {
+            for (int i = 0; i < this.ranges.size(); i++) {
+                writeFully(writableChannel,
+                        ByteBuffer.wrap(this.partHeaders.get(i)));
+                FileSegment.get(getWrappedRepresentation(), this.ranges.get(i))
+                        .transferTo(writableChannel);
+            }
+
+            writeFully(writableChannel, ByteBuffer.wrap(getClosingBoundary()));
+        } else {
+            OutputStream os = IoUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
+    }
+
+    /**
+     * Writes a whole buffer to a blocking channel.
+     * 
+     * @param channel
+     *            The channel.
+     * @param buffer
+     *            The buffer.
+     * @throws IOException
+     */
+    private void writeFully(WritableByteChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,576 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Dimension;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.io.BoundedOutputStream;
+import org.restlet.representation.Representation;
+import org.restlet.routing.Filter;
+import org.restlet.service.CacheService;
+
+// [excludes gwt]
+/**
+ * Filter serving the responses of GET and HEAD requests from the cache of the
+ * {@link CacheService}, and storing the cacheable ones. On the client-side, it
+ * can be attached in front of a {@link org.restlet.Client} or set as the next
+ * Restlet of a {@link org.restlet.resource.ClientResource}, so that fresh
+ * responses are served locally and stale ones revalidated with conditional
+ * requests.
+ * 
+ * Concurrency note: instances of this class or its subclasses can be invoked by
+ * several threads at the same time and therefore must be thread-safe. You
+ * should be especially careful when storing state in member variables.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheFilter extends Filter {
+
+    /**
+     * Returns the key of a resource, used to index its cached responses.
+     * 
+     * @param resourceRef
+     *            The resource reference.
+     * @return The key of the resource.
+     */
+    public static String getResourceKey(Reference resourceRef) {
+        return resourceRef.toString(true, false);
+    }
+
+    /** The parent cache service. */
+    private final CacheService cacheService;
+
+    /** Indicates if the filter caches responses received by a client. */
+    private final boolean clientSide;
+
+    /**
+     * Constructor for the server-side.
+     * 
+     * @param context
+     *            The context.
+     * @param cacheService
+     *            The parent cache service.
+     */
+    public CacheFilter(Context context, CacheService cacheService) {
+        this(context, cacheService, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param cacheService
+     *            The parent cache service.
+     * @param clientSide
+     *            Indicates if the filter caches responses received by a
+     *            client.
+     */
+    public CacheFilter(Context context, CacheService cacheService,
+            boolean clientSide) {
+        super(context);
+        this.cacheService = cacheService;
+        this.clientSide = clientSide;
+    }
+
+    /**
+     * Appends the preferences of a client to a key.
+     * 
+     * @param sb
+     *            The key builder.
+     * @param preferences
+     *            The preferences to append.
+     */
+    private void appendPreferences(StringBuilder sb,
+            List<? extends Preference<?>> preferences) {
+        for (Preference<?> preference : preferences) {
+            sb.append(preference.getMetadata()).append(';')
+                    .append(preference.getQuality()).append(',');
+        }
+    }
+
+    /**
+     * Buffers the entity of a response to store it.
+     * 
+     * @param entity
+     *            The entity to buffer.
+     * @return The entity content or null if it is too large.
+     * @throws IOException
+     */
+    private byte[] buffer(Representation entity) throws IOException {
+        byte[] result = null;
+        long maxEntrySize = getCacheService().getMaxEntrySize();
+
+        if (entity.getSize() > maxEntrySize) {
+            // Too large
+        } else if (entity.getSize() == Representation.UNKNOWN_SIZE) {
+            if (!entity.isTransient()) {
+                BoundedOutputStream bos = new BoundedOutputStream(maxEntrySize);
+
+                try {
+                    entity.write(bos);
+                    result = bos.toByteArray();
+                } catch (IllegalStateException e) {
+                    // Too large, the entity can still be written as is
+                }
+            }
+        } else {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(
+                    (int) entity.getSize());
+            entity.write(bos);
+            result = bos.toByteArray();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected int doHandle(Request request, Response response) {
+        int result = CONTINUE;
+        Method method = request.getMethod();
+
+        if (!isCaching() || (request.getResourceRef() == null)) {
+            result = super.doHandle(request, response);
+        } else if (!Method.GET.equals(method) && !Method.HEAD.equals(method)) {
+            result = super.doHandle(request, response);
+
+            if (!method.isSafe() && response.getStatus().isSuccess()) {
+                // Invalidates the responses cached for this resource
+                getStore().invalidate(getResourceKey(request.getResourceRef()));
+            }
+        } else if ((!isClientSide() && (request.getChallengeResponse() != null))
+                || hasDirective(request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_STORE)) {
+            // Server-side, the authentication happens after the cache
+            result = super.doHandle(request, response);
+        } else {
+            CacheStore store = getStore();
+            long now = System.currentTimeMillis();
+            String resourceKey = getResourceKey(request.getResourceRef());
+            CacheStore.Variants variants = store.getVariants(resourceKey);
+            CachedResponse cached = (variants == null) ? null : store
+                    .get(getKey(resourceKey, variants, request));
+            Tag tag = (cached == null) ? null : cached.getMetadata().getTag();
+            Date modificationDate = (cached == null) ? null : cached
+                    .getMetadata().getModificationDate();
+
+            if ((cached != null) && cached.isFresh(now)
+                    && !isRevalidating(request)) {
+                serve(request, response, cached, now);
+            } else if (hasDirective(request.getCacheDirectives(),
+                    HeaderConstants.CACHE_ONLY_IF_CACHED)) {
+                response.setStatus(Status.SERVER_ERROR_GATEWAY_TIMEOUT);
+            } else if (((tag != null) || (modificationDate != null))
+                    && !request.getConditions().hasSome()) {
+                // Revalidates the stale response with the resource
+                if (tag != null) {
+                    request.getConditions().setNoneMatch(
+                            new ArrayList<Tag>(Collections.singletonList(tag)));
+                }
+
+                request.getConditions().setModifiedSince(modificationDate);
+
+                try {
+                    result = super.doHandle(request, response);
+                } finally {
+                    request.getConditions().setNoneMatch(null);
+                    request.getConditions().setModifiedSince(null);
+                }
+
+                if (Status.REDIRECTION_NOT_MODIFIED
+                        .equals(response.getStatus())) {
+                    long expirationTime = getExpirationTime(response, now);
+
+                    if (expirationTime == -1) {
+                        store.invalidate(resourceKey);
+                    } else {
+                        store.put(getKey(resourceKey, variants, request),
+                                cached.refresh(expirationTime));
+                    }
+
+                    serve(request, response, cached, now);
+                } else {
+                    store(request, response, resourceKey, now);
+                }
+            } else {
+                result = super.doHandle(request, response);
+                store(request, response, resourceKey, now);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the parent cache service.
+     * 
+     * @return The parent cache service.
+     */
+    public CacheService getCacheService() {
+        return this.cacheService;
+    }
+
+    /**
+     * Returns the time when a response becomes stale, based on its cache
+     * directives or on the expiration date of its entity. Responses without
+     * freshness information are immediately stale, and only stored if they
+     * can be revalidated with their entity tag or modification date. Private
+     * responses are only stored on the client side, as the server side cache
+     * is shared between clients.
+     * 
+     * @param response
+     *            The response.
+     * @param now
+     *            The current time.
+     * @return The time when the response becomes stale or -1 if it can't be
+     *         stored.
+     */
+    private long getExpirationTime(Response response, long now) {
+        long result = -1;
+        int maxAge = -1;
+        int sharedMaxAge = -1;
+        boolean noCache = false;
+
+        for (CacheDirective directive : response.getCacheDirectives()) {
+            String name = directive.getName();
+
+            if (HeaderConstants.CACHE_NO_STORE.equals(name)
+                    || (!isClientSide() && HeaderConstants.CACHE_PRIVATE
+                            .equals(name))) {
+                // Private responses can only be stored by the client cache
+                return -1;
+            } else if (HeaderConstants.CACHE_NO_CACHE.equals(name)) {
+                noCache = true;
+            } else if (HeaderConstants.CACHE_SHARED_MAX_AGE.equals(name)) {
+                sharedMaxAge = parseSeconds(directive.getValue());
+            } else if (HeaderConstants.CACHE_MAX_AGE.equals(name)) {
+                maxAge = parseSeconds(directive.getValue());
+            }
+        }
+
+        Representation entity = response.getEntity();
+        Date expirationDate = (entity == null) ? null : entity
+                .getExpirationDate();
+
+        if (noCache) {
+            result = now;
+        } else if (sharedMaxAge != -1) {
+            result = now + sharedMaxAge * 1000L;
+        } else if (maxAge != -1) {
+            result = now + maxAge * 1000L;
+        } else if (expirationDate != null) {
+            result = expirationDate.getTime();
+        } else {
+            result = now;
+        }
+
+        if ((result <= now)
+                && ((entity == null) || ((entity.getTag() == null) && (entity
+                        .getModificationDate() == null)))) {
+            // Can't be revalidated
+            result = -1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key of a response variant, based on the resource key and on
+     * the client preferences matching the dimensions of the resource
+     * responses.
+     * 
+     * @param resourceKey
+     *            The resource key.
+     * @param variants
+     *            The dimensions of the resource responses.
+     * @param request
+     *            The request.
+     * @return The key of the response variant.
+     */
+    private String getKey(String resourceKey, CacheStore.Variants variants,
+            Request request) {
+        Set<Dimension> dimensions = variants.getDimensions();
+        StringBuilder sb = new StringBuilder(resourceKey).append('\n').append(
+                variants.getGeneration());
+
+        if (!dimensions.isEmpty()) {
+            ClientInfo clientInfo = request.getClientInfo();
+
+            for (Dimension dimension : Dimension.values()) {
+                if (dimensions.contains(dimension)) {
+                    sb.append('\n');
+
+                    switch (dimension) {
+                    case CHARACTER_SET:
+                        appendPreferences(sb,
+                                clientInfo.getAcceptedCharacterSets());
+                        break;
+                    case CLIENT_AGENT:
+                        sb.append(clientInfo.getAgent());
+                        break;
+                    case ENCODING:
+                        appendPreferences(sb, clientInfo.getAcceptedEncodings());
+                        break;
+                    case LANGUAGE:
+                        appendPreferences(sb, clientInfo.getAcceptedLanguages());
+                        break;
+                    case MEDIA_TYPE:
+                        appendPreferences(sb,
+                                clientInfo.getAcceptedMediaTypes());
+                        break;
+                    default:
+                        // Authenticated requests aren't cached
+                        break;
+                    }
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the store of the direction of this filter, inbound on the
+     * server-side and outbound on the client-side.
+     * 
+     * @return The store of the direction of this filter.
+     */
+    private CacheStore getStore() {
+        return isClientSide() ? getCacheService().getOutboundStore()
+                : getCacheService().getInboundStore();
+    }
+
+    /**
+     * Indicates if a list of cache directives contains a given one.
+     * 
+     * @param directives
+     *            The cache directives.
+     * @param name
+     *            The name of the directive to look for.
+     * @return True if the directive is present.
+     */
+    private boolean hasDirective(List<CacheDirective> directives, String name) {
+        for (CacheDirective directive : directives) {
+            if (name.equals(directive.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if the responses are cached, depending on the state of the
+     * cache service and of the direction of this filter.
+     * 
+     * @return True if the responses are cached.
+     */
+    private boolean isCaching() {
+        return getCacheService().isEnabled()
+                && (isClientSide() ? getCacheService().isOutboundEnabled()
+                        : getCacheService().isInboundEnabled());
+    }
+
+    /**
+     * Indicates if the filter caches responses received by a client.
+     * 
+     * @return True if the filter caches responses received by a client.
+     */
+    public boolean isClientSide() {
+        return this.clientSide;
+    }
+
+    /**
+     * Indicates if the client requires the cached response to be revalidated,
+     * using the "no-cache" or "max-age=0" directives.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the cached response must be revalidated.
+     */
+    private boolean isRevalidating(Request request) {
+        for (CacheDirective directive : request.getCacheDirectives()) {
+            if (HeaderConstants.CACHE_NO_CACHE.equals(directive.getName())
+                    || (HeaderConstants.CACHE_MAX_AGE.equals(directive
+                            .getName()) && (parseSeconds(directive.getValue()) == 0))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if the response to an authenticated request can be shared with
+     * other clients, using the "public", "s-maxage" or "must-revalidate"
+     * directives.
+     * 
+     * @param response
+     *            The response.
+     * @return True if the response can be shared.
+     */
+    private boolean isShared(Response response) {
+        List<CacheDirective> directives = response.getCacheDirectives();
+        return hasDirective(directives, HeaderConstants.CACHE_PUBLIC)
+                || hasDirective(directives,
+                        HeaderConstants.CACHE_SHARED_MAX_AGE)
+                || hasDirective(directives,
+                        HeaderConstants.CACHE_MUST_REVALIDATE);
+    }
+
+    /**
+     * Parses a number of seconds.
+     * 
+     * @param value
+     *            The value to parse.
+     * @return The number of seconds or -1.
+     */
+    private int parseSeconds(String value) {
+        int result = -1;
+
+        if (value != null) {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                // Ignore invalid values
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Serves a cached response, taking the request conditions into account.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response to update.
+     * @param cached
+     *            The cached response.
+     * @param now
+     *            The current time.
+     */
+    private void serve(Request request, Response response,
+            CachedResponse cached, long now) {
+        response.setStatus(Status.SUCCESS_OK);
+        response.setEntity(cached.createEntity());
+        response.getCacheDirectives().clear();
+        response.getCacheDirectives().addAll(cached.getCacheDirectives());
+        response.getDimensions().clear();
+        response.getDimensions().addAll(cached.getDimensions());
+        response.setAge(cached.getAge(now));
+
+        Status status = request.getConditions().getStatus(request.getMethod(),
+                response.getEntity());
+
+        if (status != null) {
+            response.setStatus(status);
+
+            if (status.isError()) {
+                response.setEntity(null);
+            }
+        }
+    }
+
+    /**
+     * Stores the response of a GET request if it is cacheable. In this case,
+     * the response entity is buffered and replaced by a copy.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @param resourceKey
+     *            The resource key.
+     * @param now
+     *            The current time.
+     */
+    private void store(Request request, Response response, String resourceKey,
+            long now) {
+        Set<Dimension> dimensions = response.getDimensions();
+
+        if (!Method.GET.equals(request.getMethod())
+                || !Status.SUCCESS_OK.equals(response.getStatus())
+                || !response.isEntityAvailable()
+                || !response.isAutoCommitting()
+                || !response.getCookieSettings().isEmpty()
+                || ((request.getChallengeResponse() != null) && !isShared(response))
+                || dimensions.contains(Dimension.CLIENT_ADDRESS)
+                || dimensions.contains(Dimension.TIME)
+                || dimensions.contains(Dimension.UNSPECIFIED)) {
+            return;
+        }
+
+        long expirationTime = getExpirationTime(response, now);
+
+        if (expirationTime != -1) {
+            Representation entity = response.getEntity();
+
+            try {
+                byte[] content = buffer(entity);
+
+                if (content != null) {
+                    CachedResponse cached = new CachedResponse(response,
+                            content, now, expirationTime);
+                    CacheStore store = getStore();
+                    CacheStore.Variants variants = store.updateVariants(
+                            resourceKey, cached.getDimensions());
+                    store.put(getKey(resourceKey, variants, request), cached);
+                    response.setEntity(cached.createEntity());
+                    entity.release();
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to buffer the response entity to cache it", e);
+
+                if (entity.isTransient()) {
+                    response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
+                    response.setEntity(null);
+                }
+            }
+        }
+    }
+
+}
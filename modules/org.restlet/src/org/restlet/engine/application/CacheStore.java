@@ -0,0 +1,582 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.Dimension;
+import org.restlet.engine.util.BoundedCache;
+
+// [excludes gwt]
+/**
+ * Least recently used store of cached responses, bounded by the total size of
+ * their entities. When a directory is set, the entries evicted from memory are
+ * moved to disk, in a second least recently used tier bounded by its own size.
+ * All operations on the tiers are synchronized while files are read and written
+ * outside of the locks.<br>
+ * <br>
+ * The store also indexes, for each resource, the dimensions on which its
+ * cached responses vary. Each index entry has a unique generation included in
+ * the keys of the responses, so that invalidating a resource is done by simply
+ * removing its index entry. The orphaned responses are then evicted over time.
+ * The numbers of hits, misses and evictions are recorded.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheStore {
+
+    /**
+     * Dimensions on which the responses cached for a resource vary.
+     */
+    public static final class Variants {
+
+        /** The dimensions of the responses. */
+        private final Set<Dimension> dimensions;
+
+        /** The unique generation of the index entry. */
+        private final long generation;
+
+        /**
+         * Constructor.
+         * 
+         * @param dimensions
+         *            The dimensions of the responses.
+         * @param generation
+         *            The unique generation of the index entry.
+         */
+        Variants(Set<Dimension> dimensions, long generation) {
+            this.dimensions = dimensions;
+            this.generation = generation;
+        }
+
+        /**
+         * Returns the dimensions of the responses.
+         * 
+         * @return The dimensions of the responses.
+         */
+        public Set<Dimension> getDimensions() {
+            return this.dimensions;
+        }
+
+        /**
+         * Returns the unique generation of the index entry.
+         * 
+         * @return The unique generation of the index entry.
+         */
+        public long getGeneration() {
+            return this.generation;
+        }
+    }
+
+    /** The estimated memory overhead of an entry, in bytes. */
+    private static final int ENTRY_OVERHEAD = 512;
+
+    /** The maximum number of resources indexed. */
+    private static final int MAX_INDEXED_RESOURCES = 10000;
+
+    /** The directory of the disk tier, or null. */
+    private volatile File directory;
+
+    /** The number of entries evicted from memory. */
+    private final AtomicLong evictions;
+
+    /** The entries stored on disk. */
+    private final LinkedHashMap<String, CachedResponse> diskEntries;
+
+    /** The size of the entries stored on disk. */
+    private long diskSize;
+
+    /** The counter of generations. */
+    private final AtomicLong generations;
+
+    /** The number of successful lookups. */
+    private final AtomicLong hits;
+
+    /** The dimensions of the responses cached for each resource. */
+    private final BoundedCache<String, Variants> index;
+
+    /** The maximum size of the entries stored on disk. */
+    private volatile long maxDiskSize;
+
+    /** The maximum size of a cached entity. */
+    private volatile long maxEntrySize;
+
+    /** The maximum size of the entries stored in memory. */
+    private volatile long maxSize;
+
+    /** The entries stored in memory. */
+    private final LinkedHashMap<String, CachedResponse> memoryEntries;
+
+    /** The number of failed lookups. */
+    private final AtomicLong misses;
+
+    /** The size of the entries stored in memory. */
+    private long size;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum size of the entries stored in memory.
+     * @param maxEntrySize
+     *            The maximum size of a cached entity.
+     */
+    public CacheStore(long maxSize, long maxEntrySize) {
+        this.diskEntries = new LinkedHashMap<String, CachedResponse>(16,
+                0.75f, true);
+        this.evictions = new AtomicLong();
+        this.generations = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.index = new BoundedCache<String, Variants>(MAX_INDEXED_RESOURCES);
+        this.maxDiskSize = 0;
+        this.maxEntrySize = maxEntrySize;
+        this.maxSize = maxSize;
+        this.memoryEntries = new LinkedHashMap<String, CachedResponse>(16,
+                0.75f, true);
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Removes all the entries, including the files of the disk tier. The
+     * statistics are preserved.
+     */
+    public void clear() {
+        List<CachedResponse> removed;
+
+        synchronized (this) {
+            removed = new ArrayList<CachedResponse>(this.diskEntries.values());
+            this.diskEntries.clear();
+            this.diskSize = 0;
+            this.memoryEntries.clear();
+            this.size = 0;
+        }
+
+        this.index.clear();
+        deleteFiles(removed);
+    }
+
+    /**
+     * Deletes the files of entries removed from the disk tier.
+     * 
+     * @param entries
+     *            The entries removed from the disk tier.
+     */
+    private void deleteFiles(List<CachedResponse> entries) {
+        for (CachedResponse entry : entries) {
+            if (!entry.getFile().delete()) {
+                entry.getFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries from a tier until its size is
+     * below a maximum.
+     * 
+     * @param entries
+     *            The entries of the tier.
+     * @param currentSize
+     *            The current size of the tier.
+     * @param maxSize
+     *            The maximum size of the tier.
+     * @param evicted
+     *            The evicted entries to update.
+     * @return The size of the evicted entries.
+     */
+    private long evict(LinkedHashMap<String, CachedResponse> entries,
+            long currentSize, long maxSize, Map<String, CachedResponse> evicted) {
+        long result = 0;
+
+        for (Iterator<Map.Entry<String, CachedResponse>> iter = entries
+                .entrySet().iterator(); (currentSize - result > maxSize)
+                && iter.hasNext();) {
+            Map.Entry<String, CachedResponse> entry = iter.next();
+            iter.remove();
+            result += getWeight(entry.getKey(), entry.getValue());
+            evicted.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the response stored for a key, in memory or on disk. Responses
+     * found on disk are moved back to memory.
+     * 
+     * @param key
+     *            The key.
+     * @return The stored response or null.
+     */
+    public CachedResponse get(String key) {
+        CachedResponse result;
+
+        synchronized (this) {
+            result = this.memoryEntries.get(key);
+
+            if ((result == null) && !this.diskEntries.isEmpty()) {
+                result = this.diskEntries.remove(key);
+
+                if (result != null) {
+                    this.diskSize -= getWeight(key, result);
+                }
+            }
+        }
+
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+
+        if ((result != null) && (result.getFile() != null)) {
+            File file = result.getFile();
+
+            try {
+                result = result.toMemory(read(file));
+                put(key, result);
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to read a cached response from " + file, e);
+                result = null;
+            } finally {
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the directory of the disk tier.
+     * 
+     * @return The directory of the disk tier, or null.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the size of the entries stored on disk, in bytes.
+     * 
+     * @return The size of the entries stored on disk.
+     */
+    public synchronized long getDiskSize() {
+        return this.diskSize;
+    }
+
+    /**
+     * Returns the number of entries evicted from memory, either dropped or
+     * moved to disk.
+     * 
+     * @return The number of entries evicted from memory.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of successful lookups.
+     * 
+     * @return The number of successful lookups.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the maximum size of the entries stored on disk, in bytes.
+     * 
+     * @return The maximum size of the entries stored on disk.
+     */
+    public long getMaxDiskSize() {
+        return this.maxDiskSize;
+    }
+
+    /**
+     * Returns the maximum size of a cached entity, in bytes.
+     * 
+     * @return The maximum size of a cached entity.
+     */
+    public long getMaxEntrySize() {
+        return this.maxEntrySize;
+    }
+
+    /**
+     * Returns the maximum size of the entries stored in memory, in bytes.
+     * 
+     * @return The maximum size of the entries stored in memory.
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of failed lookups.
+     * 
+     * @return The number of failed lookups.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the size of the entries stored in memory, in bytes.
+     * 
+     * @return The size of the entries stored in memory.
+     */
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the dimensions of the responses cached for a resource.
+     * 
+     * @param resourceKey
+     *            The resource key.
+     * @return The dimensions of the responses cached for a resource, or null.
+     */
+    public Variants getVariants(String resourceKey) {
+        return this.index.get(resourceKey);
+    }
+
+    /**
+     * Returns the estimated size of an entry.
+     * 
+     * @param key
+     *            The entry key.
+     * @param response
+     *            The stored response.
+     * @return The estimated size of an entry.
+     */
+    private long getWeight(String key, CachedResponse response) {
+        return response.getSize() + 2 * key.length() + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Invalidates the responses cached for a resource.
+     * 
+     * @param resourceKey
+     *            The resource key.
+     */
+    public void invalidate(String resourceKey) {
+        this.index.remove(resourceKey);
+    }
+
+    /**
+     * Stores a response in memory, evicting the least recently used entries if
+     * needed.
+     * 
+     * @param key
+     *            The key.
+     * @param response
+     *            The response to store, with its content in memory.
+     */
+    public void put(String key, CachedResponse response) {
+        Map<String, CachedResponse> evicted = new LinkedHashMap<String, CachedResponse>();
+        long weight = getWeight(key, response);
+
+        synchronized (this) {
+            CachedResponse previous = this.memoryEntries.put(key, response);
+
+            if (previous != null) {
+                this.size -= getWeight(key, previous);
+            }
+
+            this.size += weight;
+            this.size -= evict(this.memoryEntries, this.size, getMaxSize(),
+                    evicted);
+        }
+
+        this.evictions.addAndGet(evicted.size());
+
+        if (!evicted.isEmpty()) {
+            spill(evicted);
+        }
+    }
+
+    /**
+     * Reads the content of a file.
+     * 
+     * @param file
+     *            The file to read.
+     * @return The content of the file.
+     * @throws IOException
+     */
+    private byte[] read(File file) throws IOException {
+        byte[] result = new byte[(int) file.length()];
+        DataInputStream dis = new DataInputStream(new FileInputStream(file));
+
+        try {
+            dis.readFully(result);
+        } finally {
+            dis.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Resets the numbers of hits, misses and evictions.
+     */
+    public void resetStatistics() {
+        this.hits.set(0);
+        this.misses.set(0);
+        this.evictions.set(0);
+    }
+
+    /**
+     * Sets the directory of the disk tier.
+     * 
+     * @param directory
+     *            The directory of the disk tier, or null.
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the maximum size of the entries stored on disk, in bytes.
+     * 
+     * @param maxDiskSize
+     *            The maximum size of the entries stored on disk.
+     */
+    public void setMaxDiskSize(long maxDiskSize) {
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    /**
+     * Sets the maximum size of a cached entity, in bytes.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of a cached entity.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Sets the maximum size of the entries stored in memory, in bytes.
+     * 
+     * @param maxSize
+     *            The maximum size of the entries stored in memory.
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Moves entries evicted from memory to the disk tier, if any.
+     * 
+     * @param evicted
+     *            The entries evicted from memory.
+     */
+    private void spill(Map<String, CachedResponse> evicted) {
+        File dir = getDirectory();
+
+        if ((dir == null) || (getMaxDiskSize() <= 0)) {
+            return;
+        }
+
+        Map<String, CachedResponse> stored = new LinkedHashMap<String, CachedResponse>();
+
+        for (Map.Entry<String, CachedResponse> entry : evicted.entrySet()) {
+            try {
+                File file = File.createTempFile("restlet-cache-", ".bin", dir);
+                FileOutputStream fos = new FileOutputStream(file);
+
+                try {
+                    fos.write(entry.getValue().getContent());
+                } finally {
+                    fos.close();
+                }
+
+                stored.put(entry.getKey(), entry.getValue().toDisk(file));
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to write a cached response to " + dir, e);
+            }
+        }
+
+        List<CachedResponse> removed = new ArrayList<CachedResponse>();
+        Map<String, CachedResponse> diskEvicted = new LinkedHashMap<String, CachedResponse>();
+
+        synchronized (this) {
+            for (Map.Entry<String, CachedResponse> entry : stored.entrySet()) {
+                CachedResponse previous = this.diskEntries.put(entry.getKey(),
+                        entry.getValue());
+                this.diskSize += getWeight(entry.getKey(), entry.getValue());
+
+                if (previous != null) {
+                    this.diskSize -= getWeight(entry.getKey(), previous);
+                    removed.add(previous);
+                }
+            }
+
+            this.diskSize -= evict(this.diskEntries, this.diskSize,
+                    getMaxDiskSize(), diskEvicted);
+        }
+
+        removed.addAll(diskEvicted.values());
+        deleteFiles(removed);
+    }
+
+    /**
+     * Updates the index entry of a resource with the dimensions of a new
+     * response. The existing entry is kept if the dimensions are the same,
+     * otherwise a new generation is started.
+     * 
+     * @param resourceKey
+     *            The resource key.
+     * @param dimensions
+     *            The dimensions of the new response.
+     * @return The index entry to use.
+     */
+    public Variants updateVariants(String resourceKey, Set<Dimension> dimensions) {
+        Variants result = this.index.get(resourceKey);
+
+        if ((result == null) || !result.getDimensions().equals(dimensions)) {
+            result = new Variants(dimensions, this.generations.incrementAndGet());
+            this.index.put(resourceKey, result);
+        }
+
+        return result;
+    }
+
+}
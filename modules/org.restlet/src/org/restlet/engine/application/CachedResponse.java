@@ -0,0 +1,272 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.restlet.Response;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
+import org.restlet.data.Language;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Response stored by the {@link CacheStore}. Instances are immutable, the
+ * content being either kept in memory or in a file of the disk tier.
+ * 
+ * @author Jerome Louvel
+ */
+public class CachedResponse {
+
+    /** The cache directives of the response. */
+    private final List<CacheDirective> cacheDirectives;
+
+    /** The entity content, or null if stored on disk. */
+    private final byte[] content;
+
+    /** The time when the response was stored. */
+    private final long date;
+
+    /** The dimensions of the response. */
+    private final Set<Dimension> dimensions;
+
+    /** The time when the response becomes stale. */
+    private final long expirationTime;
+
+    /** The file containing the entity content, or null if stored in memory. */
+    private final File file;
+
+    /** The entity metadata, without content. */
+    private final Representation metadata;
+
+    /** The size of the entity content. */
+    private final int size;
+
+    /**
+     * Constructor.
+     * 
+     * @param response
+     *            The response to store, with an entity.
+     * @param content
+     *            The entity content.
+     * @param date
+     *            The time when the response is stored.
+     * @param expirationTime
+     *            The time when the response becomes stale.
+     */
+    public CachedResponse(Response response, byte[] content, long date,
+            long expirationTime) {
+        this.cacheDirectives = Collections
+                .unmodifiableList(new ArrayList<CacheDirective>(response
+                        .getCacheDirectives()));
+        this.content = content;
+        this.date = date;
+        this.dimensions = Collections.unmodifiableSet(new HashSet<Dimension>(
+                response.getDimensions()));
+        this.expirationTime = expirationTime;
+        this.file = null;
+        this.metadata = new ByteArrayRepresentation(new byte[0]);
+        copyMetadata(response.getEntity(), this.metadata);
+        this.size = content.length;
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param source
+     *            The source response.
+     * @param content
+     *            The entity content, or null if stored on disk.
+     * @param file
+     *            The file containing the entity content, or null if stored in
+     *            memory.
+     * @param expirationTime
+     *            The time when the response becomes stale.
+     */
+    private CachedResponse(CachedResponse source, byte[] content, File file,
+            long expirationTime) {
+        this.cacheDirectives = source.cacheDirectives;
+        this.content = content;
+        this.date = source.date;
+        this.dimensions = source.dimensions;
+        this.expirationTime = expirationTime;
+        this.file = file;
+        this.metadata = source.metadata;
+        this.size = source.size;
+    }
+
+    /**
+     * Copies the metadata of a representation.
+     * 
+     * @param source
+     *            The source representation.
+     * @param target
+     *            The target representation.
+     */
+    private void copyMetadata(Representation source, Representation target) {
+        target.setCharacterSet(source.getCharacterSet());
+        target.setDisposition(source.getDisposition());
+        target.setEncodings(new ArrayList<Encoding>(source.getEncodings()));
+        target.setExpirationDate(source.getExpirationDate());
+        target.setLanguages(new ArrayList<Language>(source.getLanguages()));
+        target.setLocationRef(source.getLocationRef());
+        target.setMediaType(source.getMediaType());
+        target.setModificationDate(source.getModificationDate());
+        target.setTag(source.getTag());
+    }
+
+    /**
+     * Creates a new entity for a response served from the cache.
+     * 
+     * @return A new entity.
+     */
+    public Representation createEntity() {
+        Representation result = new ByteArrayRepresentation(this.content,
+                this.metadata.getMediaType(), this.size);
+        copyMetadata(this.metadata, result);
+        return result;
+    }
+
+    /**
+     * Returns the age of the response, in seconds.
+     * 
+     * @param now
+     *            The current time.
+     * @return The age of the response.
+     */
+    public int getAge(long now) {
+        return (int) Math.max(0, (now - this.date) / 1000);
+    }
+
+    /**
+     * Returns the cache directives of the response.
+     * 
+     * @return The cache directives of the response.
+     */
+    public List<CacheDirective> getCacheDirectives() {
+        return this.cacheDirectives;
+    }
+
+    /**
+     * Returns the entity content, or null if stored on disk.
+     * 
+     * @return The entity content, or null if stored on disk.
+     */
+    public byte[] getContent() {
+        return this.content;
+    }
+
+    /**
+     * Returns the dimensions of the response.
+     * 
+     * @return The dimensions of the response.
+     */
+    public Set<Dimension> getDimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * Returns the file containing the entity content, or null if stored in
+     * memory.
+     * 
+     * @return The file containing the entity content, or null.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the entity metadata, without content.
+     * 
+     * @return The entity metadata.
+     */
+    public Representation getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * Returns the size of the entity content.
+     * 
+     * @return The size of the entity content.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Indicates if the response is still fresh.
+     * 
+     * @param now
+     *            The current time.
+     * @return True if the response is still fresh.
+     */
+    public boolean isFresh(long now) {
+        return now < this.expirationTime;
+    }
+
+    /**
+     * Returns a copy of this response with a new expiration time, after a
+     * successful revalidation.
+     * 
+     * @param expirationTime
+     *            The new time when the response becomes stale.
+     * @return The refreshed response.
+     */
+    public CachedResponse refresh(long expirationTime) {
+        return new CachedResponse(this, this.content, this.file,
+                expirationTime);
+    }
+
+    /**
+     * Returns a copy of this response with its content stored in a file.
+     * 
+     * @param file
+     *            The file containing the content.
+     * @return The response with its content on disk.
+     */
+    public CachedResponse toDisk(File file) {
+        return new CachedResponse(this, null, file, this.expirationTime);
+    }
+
+    /**
+     * Returns a copy of this response with its content loaded in memory.
+     * 
+     * @param content
+     *            The content loaded from disk.
+     * @return The response with its content in memory.
+     */
+    public CachedResponse toMemory(byte[] content) {
+        return new CachedResponse(this, content, null, this.expirationTime);
+    }
+
+}
@@ -36,12 +36,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipInputStream;
 
 import org.restlet.data.Encoding;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.io.ZlibPool;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
@@ -49,11 +49,57 @@ import org.restlet.util.WrapperRepresentation;
 /**
  * Representation that decodes a wrapped representation if its encoding is
  * supported. If at least one encoding of the wrapped representation is not
- * supported, then the wrapped representation is not decoded.
+ * supported, then the wrapped representation is not decoded. The inflaters of
+ * the deflate encodings are borrowed from the pool returned by
+ * {@link IoUtils#getZlibPool()} and returned when the decoded stream is closed.
  * 
  * @author Jerome Louvel
  */
 public class DecodeRepresentation extends WrapperRepresentation {
+
+    /**
+     * Inflater input stream returning its pooled inflater when closed.
+     */
+    private static class PooledInflaterInputStream extends InflaterInputStream {
+
+        /** Indicates if the inflater expects no ZLIB header and checksum. */
+        private final boolean nowrap;
+
+        /** The pool of the inflater. */
+        private volatile ZlibPool zlibPool;
+
+        /**
+         * Constructor.
+         * 
+         * @param in
+         *            The encoded input stream.
+         * @param zlibPool
+         *            The pool of inflaters.
+         * @param nowrap
+         *            Indicates if the inflater expects no ZLIB header and
+         *            checksum.
+         */
+        public PooledInflaterInputStream(InputStream in, ZlibPool zlibPool,
+                boolean nowrap) {
+            super(in, zlibPool.checkoutInflater(nowrap), IoUtils.BUFFER_SIZE);
+            this.nowrap = nowrap;
+            this.zlibPool = zlibPool;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                ZlibPool pool = this.zlibPool;
+
+                if (pool != null) {
+                    this.zlibPool = null;
+                    pool.checkin(this.inf, this.nowrap);
+                }
+            }
+        }
+    }
     /**
      * Returns the list of supported encodings.
      * 
@@ -117,10 +163,11 @@ public class DecodeRepresentation extends WrapperRepresentation {
             if (encoding.equals(Encoding.GZIP)) {
                 result = new GZIPInputStream(encodedStream);
             } else if (encoding.equals(Encoding.DEFLATE)) {
-                result = new InflaterInputStream(encodedStream);
+                result = new PooledInflaterInputStream(encodedStream,
+                        IoUtils.getZlibPool(), false);
             } else if (encoding.equals(Encoding.DEFLATE_NOWRAP)) {
-                result = new InflaterInputStream(encodedStream, new Inflater(
-                        true));
+                result = new PooledInflaterInputStream(encodedStream,
+                        IoUtils.getZlibPool(), true);
             } else if (encoding.equals(Encoding.ZIP)) {
                 @SuppressWarnings("resource")
                 final ZipInputStream stream = new ZipInputStream(encodedStream);
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+
+import org.restlet.data.Tag;
+import org.restlet.engine.util.BoundedCache;
+
+// [excludes gwt]
+/**
+ * Cache of the strong entity tags computed from the content of files. Each tag
+ * is keyed by the absolute path of its file and is only returned as long as
+ * the modification time and the length of the file are unchanged. The cache
+ * can be saved to and reloaded from a properties file, so that the digests
+ * survive restarts.
+ * 
+ * @author Jerome Louvel
+ */
+public class DigestCache {
+
+    /**
+     * Tag computed for a given version of a file.
+     */
+    private static class Entry {
+
+        /** The length of the file. */
+        private final long length;
+
+        /** The modification time of the file. */
+        private final long modificationTime;
+
+        /** The strong tag. */
+        private final Tag tag;
+
+        /**
+         * Constructor.
+         * 
+         * @param modificationTime
+         *            The modification time of the file.
+         * @param length
+         *            The length of the file.
+         * @param tag
+         *            The strong tag.
+         */
+        public Entry(long modificationTime, long length, Tag tag) {
+            this.modificationTime = modificationTime;
+            this.length = length;
+            this.tag = tag;
+        }
+
+        /**
+         * Indicates if the entry still describes a file.
+         * 
+         * @param file
+         *            The file.
+         * @return True if the entry still describes the file.
+         */
+        public boolean matches(File file) {
+            return (this.modificationTime == file.lastModified())
+                    && (this.length == file.length());
+        }
+    }
+
+    /** The cached entries, keyed by absolute file path. */
+    private final BoundedCache<String, Entry> entries;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries.
+     */
+    public DigestCache(int maxEntries) {
+        this.entries = new BoundedCache<String, Entry>(maxEntries);
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Returns the strong tag of the current version of a file.
+     * 
+     * @param file
+     *            The file.
+     * @return The strong tag or null if unknown or stale.
+     */
+    public Tag get(File file) {
+        Tag result = null;
+        String key = file.getAbsolutePath();
+        Entry entry = this.entries.get(key);
+
+        if (entry != null) {
+            if (entry.matches(file)) {
+                result = entry.tag;
+            } else {
+                this.entries.remove(key);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of successful lookups.
+     * 
+     * @return The number of successful lookups.
+     */
+    public long getHits() {
+        return this.entries.getHits();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxEntries() {
+        return this.entries.getMaxEntries();
+    }
+
+    /**
+     * Returns the number of failed lookups.
+     * 
+     * @return The number of failed lookups.
+     */
+    public long getMisses() {
+        return this.entries.getMisses();
+    }
+
+    /**
+     * Removes the tag of a file.
+     * 
+     * @param file
+     *            The file.
+     */
+    public void invalidate(File file) {
+        this.entries.remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Loads the entries saved in a properties file. Entries describing a file
+     * that changed since are ignored.
+     * 
+     * @param source
+     *            The properties file.
+     * @throws IOException
+     */
+    public void load(File source) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(source);
+
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        for (String path : properties.stringPropertyNames()) {
+            String[] values = properties.getProperty(path).split(" ", 3);
+
+            if (values.length == 3) {
+                try {
+                    Entry entry = new Entry(Long.parseLong(values[0]),
+                            Long.parseLong(values[1]), new Tag(values[2],
+                                    false));
+
+                    if (entry.matches(new File(path))) {
+                        this.entries.put(path, entry);
+                    }
+                } catch (NumberFormatException e) {
+                    // Ignore the corrupted entry
+                }
+            }
+        }
+    }
+
+    /**
+     * Caches the strong tag of a version of a file.
+     * 
+     * @param file
+     *            The file.
+     * @param modificationTime
+     *            The modification time of the digested version.
+     * @param length
+     *            The length of the digested version.
+     * @param tag
+     *            The strong tag.
+     */
+    public void put(File file, long modificationTime, long length, Tag tag) {
+        this.entries.put(file.getAbsolutePath(), new Entry(modificationTime,
+                length, tag));
+    }
+
+    /**
+     * Sets the maximum number of entries.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.entries.setMaxEntries(maxEntries);
+    }
+
+    /**
+     * Returns the current number of entries.
+     * 
+     * @return The current number of entries.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Saves the entries to a properties file. The file is written under a
+     * temporary name first, then renamed, so that a concurrent reader or a
+     * crash never sees a partial file.
+     * 
+     * @param target
+     *            The properties file.
+     * @throws IOException
+     */
+    public void store(File target) throws IOException {
+        Properties properties = new Properties();
+
+        for (Map.Entry<String, Entry> entry : this.entries.toMap().entrySet()) {
+            Entry value = entry.getValue();
+            properties.setProperty(entry.getKey(), value.modificationTime + " "
+                    + value.length + " " + value.tag.getName());
+        }
+
+        File parent = target.getAbsoluteFile().getParentFile();
+
+        if ((parent != null) && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = new File(target.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temp);
+
+        try {
+            properties.store(out, "Restlet digest cache");
+        } finally {
+            out.close();
+        }
+
+        // [ifndef android,gae] instruction
+        java.nio.file.Files.move(temp.toPath(), target.toPath(),
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        // [ifdef android,gae] uncomment
+        // if ((target.exists() && !target.delete())
+        // || !temp.renameTo(target)) {
+        // throw new IOException("Unable to replace " + target);
+        // }
+        // [enddef]
+    }
+
+}
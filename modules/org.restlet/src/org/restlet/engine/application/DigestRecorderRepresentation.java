@@ -0,0 +1,112 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+
+import org.restlet.representation.DigesterRepresentation;
+import org.restlet.representation.FileRepresentation;
+
+// [excludes gwt]
+/**
+ * Representation computing the digest of a file while it is written, then
+ * recording the matching strong tag in a {@link DigestCache}. The tag is only
+ * recorded when the whole file has been written and wasn't modified meanwhile,
+ * so that the following requests can be answered with a strong tag without
+ * reading the file twice.
+ * 
+ * @author Jerome Louvel
+ */
+public class DigestRecorderRepresentation extends DigesterRepresentation {
+
+    /** The cache where the tag is recorded. */
+    private final DigestCache digestCache;
+
+    /** The digested file. */
+    private final File file;
+
+    /** The length of the file when the representation was created. */
+    private final long length;
+
+    /** The modification time of the file when the representation was created. */
+    private final long modificationTime;
+
+    /**
+     * Constructor.
+     * 
+     * @param fileRepresentation
+     *            The wrapped file representation.
+     * @param algorithm
+     *            The digest algorithm.
+     * @param digestCache
+     *            The cache where the tag is recorded.
+     * @throws NoSuchAlgorithmException
+     */
+    public DigestRecorderRepresentation(FileRepresentation fileRepresentation,
+            String algorithm, DigestCache digestCache)
+            throws NoSuchAlgorithmException {
+        super(fileRepresentation, algorithm);
+        this.digestCache = digestCache;
+        this.file = fileRepresentation.getFile();
+        this.modificationTime = this.file.lastModified();
+        this.length = this.file.length();
+    }
+
+    /**
+     * Writes the file while computing its digest. Once the whole file has been
+     * written, its strong tag is recorded.
+     */
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        final long[] count = new long[1];
+        OutputStream counter = new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                count[0] += len;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                count[0]++;
+            }
+        };
+
+        super.write(counter);
+
+        if ((count[0] == this.length)
+                && (this.file.lastModified() == this.modificationTime)
+                && (this.file.length() == this.length)) {
+            this.digestCache.put(this.file, this.modificationTime,
+                    this.length, ETagFilter.createTag(getComputedDigest()));
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Digest;
+import org.restlet.data.Encoding;
+import org.restlet.data.Language;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.io.BoundedOutputStream;
+import org.restlet.engine.local.FileMetadata;
+import org.restlet.engine.util.Base64;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.routing.Filter;
+import org.restlet.service.ETagService;
+
+// [excludes gwt]
+/**
+ * Filter adding strong entity tags to the successful responses of GET and HEAD
+ * requests, then evaluating the request conditions against them. Tags set by
+ * the resources are kept, except the weak tag derived from the modification
+ * time and the length of a plain file by the file client connector.
+ * 
+ * Concurrency note: instances of this class or its subclasses can be invoked by
+ * several threads at the same time and therefore must be thread-safe. You
+ * should be especially careful when storing state in member variables.
+ * 
+ * @author Jerome Louvel
+ */
+public class ETagFilter extends Filter {
+
+    /**
+     * Creates a strong tag from a digest.
+     * 
+     * @param digest
+     *            The digest of the entity.
+     * @return The strong tag.
+     */
+    public static Tag createTag(Digest digest) {
+        return new Tag(Base64.encode(digest.getValue(), false), false);
+    }
+
+    /** The ETag service. */
+    private final ETagService etagService;
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param etagService
+     *            The ETag service.
+     */
+    public ETagFilter(Context context, ETagService etagService) {
+        super(context);
+        this.etagService = etagService;
+    }
+
+    @Override
+    protected void afterHandle(Request request, Response response) {
+        Method method = request.getMethod();
+        Representation entity = response.getEntity();
+
+        if ((Method.GET.equals(method) || Method.HEAD.equals(method))
+                && Status.SUCCESS_OK.equals(response.getStatus())
+                && response.isEntityAvailable() && (entity.getRange() == null)) {
+            boolean file = (entity.getClass() == FileRepresentation.class);
+            Tag tag = entity.getTag();
+
+            if ((tag != null)
+                    && (!file || !isMetadataTag(tag,
+                            ((FileRepresentation) entity).getFile()))) {
+                // Keep the tag set by the resource
+                tag = null;
+            } else if (file) {
+                tag = getFileTag(request, response);
+            } else {
+                tag = getBufferedTag(response);
+            }
+
+            if (tag != null) {
+                entity = response.getEntity();
+                entity.setTag(tag);
+                Status status = request.getConditions().getStatus(method,
+                        entity);
+
+                if (status != null) {
+                    response.setStatus(status);
+
+                    if (status.isError()) {
+                        entity.release();
+                        response.setEntity(null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the metadata of a representation.
+     * 
+     * @param source
+     *            The source representation.
+     * @param target
+     *            The target representation.
+     */
+    private void copyMetadata(Representation source, Representation target) {
+        target.setCharacterSet(source.getCharacterSet());
+        target.setDisposition(source.getDisposition());
+        target.setEncodings(new ArrayList<Encoding>(source.getEncodings()));
+        target.setExpirationDate(source.getExpirationDate());
+        target.setLanguages(new ArrayList<Language>(source.getLanguages()));
+        target.setLocationRef(source.getLocationRef());
+        target.setMediaType(source.getMediaType());
+        target.setModificationDate(source.getModificationDate());
+    }
+
+    /**
+     * Buffers the response entity while computing its digest, then replaces it
+     * by the buffered copy. Entities larger than the maximum buffered size and
+     * transient entities of unknown size are left unchanged.
+     * 
+     * @param response
+     *            The response.
+     * @return The strong tag of the entity or null.
+     */
+    private Tag getBufferedTag(Response response) {
+        Tag result = null;
+        Representation entity = response.getEntity();
+        long maxSize = getETagService().getMaxBufferedSize();
+        long size = entity.getSize();
+
+        if ((maxSize > 0)
+                && (size <= maxSize)
+                && ((size != Representation.UNKNOWN_SIZE) || !entity
+                        .isTransient())) {
+            String algorithm = getETagService().getAlgorithm();
+
+            try {
+                MessageDigest digest = MessageDigest.getInstance(algorithm);
+                BoundedOutputStream bos = new BoundedOutputStream(maxSize);
+                DigestOutputStream dos = new DigestOutputStream(bos, digest);
+                entity.write(dos);
+                dos.flush();
+
+                byte[] content = bos.toByteArray();
+                Representation buffered = new ByteArrayRepresentation(content,
+                        entity.getMediaType(), content.length);
+                copyMetadata(entity, buffered);
+                entity.release();
+                response.setEntity(buffered);
+                result = createTag(new Digest(algorithm, digest.digest()));
+            } catch (IllegalStateException e) {
+                // Too large, the entity can still be written as is
+            } catch (NoSuchAlgorithmException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to digest the response entity", e);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to buffer the response entity to tag it", e);
+
+                if (entity.isTransient()) {
+                    response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
+                    response.setEntity(null);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the ETag service.
+     * 
+     * @return The ETag service.
+     */
+    public ETagService getETagService() {
+        return this.etagService;
+    }
+
+    /**
+     * Indicates if a tag is the weak tag derived from the modification time
+     * and the length of a file by the file client connector.
+     * 
+     * @param tag
+     *            The tag to test.
+     * @param file
+     *            The file.
+     * @return True if the tag is the weak tag derived from the file metadata.
+     */
+    private boolean isMetadataTag(Tag tag, File file) {
+        boolean result = false;
+
+        // [ifndef android,gae]
+        if (tag.isWeak()) {
+            result = tag.equals(new FileMetadata(file).getTag());
+        }
+        // [enddef]
+
+        return result;
+    }
+
+    /**
+     * Returns the cached strong tag of a file entity. When it is unknown and
+     * the whole file is requested, the entity is wrapped so that the digest
+     * is computed and recorded while the file is written.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @return The cached strong tag of the file or null.
+     */
+    private Tag getFileTag(Request request, Response response) {
+        FileRepresentation entity = (FileRepresentation) response.getEntity();
+        DigestCache digestCache = getETagService().getDigestCache();
+        Tag result = digestCache.get(entity.getFile());
+
+        if ((result == null) && Method.GET.equals(request.getMethod())
+                && request.getRanges().isEmpty() && entity.getFile().isFile()) {
+            try {
+                response.setEntity(new DigestRecorderRepresentation(entity,
+                        getETagService().getAlgorithm(), digestCache));
+            } catch (NoSuchAlgorithmException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to digest the response entity", e);
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -24,6 +24,8 @@
 
 package org.restlet.engine.application;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,15 +36,19 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.restlet.Context;
 import org.restlet.data.Disposition;
 import org.restlet.data.Encoding;
+import org.restlet.data.Tag;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.io.ZlibPool;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperList;
 import org.restlet.util.WrapperRepresentation;
@@ -50,10 +56,67 @@ import org.restlet.util.WrapperRepresentation;
 // [excludes gwt]
 /**
  * Content that encodes a wrapped content. Allows to apply only one encoding.
+ * The deflaters are borrowed from the pool returned by
+ * {@link IoUtils#getZlibPool()}. Small wrapped contents of known size can be
+ * encoded in memory on demand, so that the encoded size is known before
+ * writing, instead of being sent in chunks.
  * 
  * @author Jerome Louvel
  */
 public class EncodeRepresentation extends WrapperRepresentation {
+
+    /**
+     * Output stream compressing in the GZIP format with a given deflater.
+     */
+    private static class GzipOutputStream extends DeflaterOutputStream {
+
+        /** The GZIP header, without flags, modification time nor OS. */
+        private static final byte[] HEADER = { 0x1f, (byte) 0x8b,
+                Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        /** The checksum of the uncompressed data. */
+        private final CRC32 crc;
+
+        /**
+         * Constructor. Writes the GZIP header.
+         * 
+         * @param out
+         *            The output stream.
+         * @param deflater
+         *            The deflater omitting the ZLIB header and checksum.
+         * @throws IOException
+         */
+        public GzipOutputStream(OutputStream out, Deflater deflater)
+                throws IOException {
+            super(out, deflater, IoUtils.BUFFER_SIZE);
+            this.crc = new CRC32();
+            out.write(HEADER);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!this.def.finished()) {
+                super.finish();
+                long crcValue = this.crc.getValue();
+                long size = this.def.getBytesRead();
+                byte[] trailer = new byte[8];
+
+                for (int i = 0; i < 4; i++) {
+                    trailer[i] = (byte) (crcValue >> (8 * i));
+                    trailer[4 + i] = (byte) (size >> (8 * i));
+                }
+
+                this.out.write(trailer);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            this.crc.update(b, off, len);
+        }
+    }
+
     /**
      * Returns the list of supported encodings.
      * 
@@ -64,6 +127,9 @@ public class EncodeRepresentation extends WrapperRepresentation {
                 Encoding.DEFLATE_NOWRAP, Encoding.ZIP, Encoding.IDENTITY);
     }
 
+    /** The content encoded in memory, if any. */
+    private volatile byte[] buffered;
+
     /** Indicates if the encoding can happen. */
     private volatile boolean canEncode;
 
@@ -73,8 +139,14 @@ public class EncodeRepresentation extends WrapperRepresentation {
     /** The applied encodings. */
     private volatile List<Encoding> encodings;
 
+    /** The compression level. */
+    private final int level;
+
+    /** The maximum size of a wrapped content encoded in memory. */
+    private volatile long maxBufferedSize;
+
     /**
-     * Constructor.
+     * Constructor using the default compression level.
      * 
      * @param encoding
      *            Encoder algorithm.
@@ -83,10 +155,28 @@ public class EncodeRepresentation extends WrapperRepresentation {
      */
     public EncodeRepresentation(Encoding encoding,
             Representation wrappedRepresentation) {
+        this(encoding, wrappedRepresentation, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            Encoder algorithm.
+     * @param wrappedRepresentation
+     *            The wrapped representation.
+     * @param level
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public EncodeRepresentation(Encoding encoding,
+            Representation wrappedRepresentation, int level) {
         super(wrappedRepresentation);
         this.canEncode = getSupportedEncodings().contains(encoding);
         this.encodings = null;
         this.encoding = encoding;
+        this.level = level;
+        this.maxBufferedSize = 0;
     }
 
     /**
@@ -98,6 +188,66 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return this.canEncode;
     }
 
+    /**
+     * Encodes the wrapped representation into an output stream.
+     * 
+     * @param outputStream
+     *            The output stream.
+     * @throws IOException
+     */
+    private void encode(OutputStream outputStream) throws IOException {
+        ZlibPool zlibPool = IoUtils.getZlibPool();
+        DeflaterOutputStream encoderOutputStream = null;
+        Deflater deflater = null;
+        boolean nowrap = false;
+
+        try {
+            if (this.encoding.equals(Encoding.GZIP)) {
+                nowrap = true;
+                deflater = zlibPool.checkoutDeflater(getLevel(), nowrap);
+                encoderOutputStream = new GzipOutputStream(outputStream,
+                        deflater);
+            } else if (this.encoding.equals(Encoding.DEFLATE)) {
+                deflater = zlibPool.checkoutDeflater(getLevel(), nowrap);
+                encoderOutputStream = new DeflaterOutputStream(outputStream,
+                        deflater, IoUtils.BUFFER_SIZE);
+            } else if (this.encoding.equals(Encoding.DEFLATE_NOWRAP)) {
+                nowrap = true;
+                deflater = zlibPool.checkoutDeflater(getLevel(), nowrap);
+                encoderOutputStream = new DeflaterOutputStream(outputStream,
+                        deflater, IoUtils.BUFFER_SIZE);
+            } else if (this.encoding.equals(Encoding.ZIP)) {
+                @SuppressWarnings("resource")
+                final ZipOutputStream stream = new ZipOutputStream(outputStream);
+                String name = "entry";
+
+                if (getWrappedRepresentation().getDisposition() != null) {
+                    name = getWrappedRepresentation()
+                            .getDisposition()
+                            .getParameters()
+                            .getFirstValue(Disposition.NAME_FILENAME, true,
+                                    name);
+                }
+
+                stream.setLevel(getLevel());
+                stream.putNextEntry(new ZipEntry(name));
+                encoderOutputStream = stream;
+            } else if (this.encoding.equals(Encoding.IDENTITY)) {
+                // Encoder unnecessary for identity encoding
+            }
+
+            if (encoderOutputStream != null) {
+                getWrappedRepresentation().write(encoderOutputStream);
+                encoderOutputStream.flush();
+                encoderOutputStream.finish();
+            } else {
+                getWrappedRepresentation().write(outputStream);
+            }
+        } finally {
+            zlibPool.checkin(deflater, nowrap);
+        }
+    }
+
     /**
      * Returns the available size in bytes of the encoded representation if
      * known, UNKNOWN_SIZE (-1) otherwise.
@@ -112,6 +262,8 @@ public class EncodeRepresentation extends WrapperRepresentation {
         if (canEncode()) {
             if (this.encoding.equals(Encoding.IDENTITY)) {
                 result = getWrappedRepresentation().getAvailableSize();
+            } else if (getBuffered() != null) {
+                result = getBuffered().length;
             }
         } else {
             result = getWrappedRepresentation().getAvailableSize();
@@ -120,6 +272,40 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return result;
     }
 
+    /**
+     * Returns the content encoded in memory, encoding it on the first call if
+     * the wrapped representation isn't transient and has a known size lower
+     * than the maximum buffered size.
+     * 
+     * @return The content encoded in memory or null.
+     */
+    private byte[] getBuffered() {
+        byte[] result = this.buffered;
+
+        if ((result == null) && (getMaxBufferedSize() > 0) && canEncode()
+                && !this.encoding.equals(Encoding.IDENTITY)) {
+            Representation wrapped = getWrappedRepresentation();
+            long size = wrapped.getSize();
+
+            if ((size != UNKNOWN_SIZE) && (size <= getMaxBufferedSize())
+                    && !wrapped.isTransient()) {
+                try {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                            (int) Math.max(64, size / 2));
+                    encode(baos);
+                    result = baos.toByteArray();
+                    this.buffered = result;
+                } catch (IOException e) {
+                    Context.getCurrentLogger().log(Level.FINE,
+                            "Unable to encode the representation in memory", e);
+                    this.maxBufferedSize = 0;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns a readable byte channel. If it is supported by a file a read-only
      * instance of FileChannel is returned.
@@ -208,6 +394,25 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return this.encodings;
     }
 
+    /**
+     * Returns the compression level.
+     * 
+     * @return The compression level.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Returns the maximum size of a wrapped content encoded in memory on
+     * demand, so that the encoded size is known. Zero by default.
+     * 
+     * @return The maximum size of a wrapped content encoded in memory.
+     */
+    public long getMaxBufferedSize() {
+        return this.maxBufferedSize;
+    }
+
     @Override
     public Reader getReader() throws IOException {
         if (canEncode()) {
@@ -230,6 +435,8 @@ public class EncodeRepresentation extends WrapperRepresentation {
         if (canEncode()) {
             if (this.encoding.equals(Encoding.IDENTITY)) {
                 result = getWrappedRepresentation().getSize();
+            } else if (getBuffered() != null) {
+                result = getBuffered().length;
             }
         } else {
             result = getWrappedRepresentation().getSize();
@@ -240,13 +447,34 @@ public class EncodeRepresentation extends WrapperRepresentation {
 
     @Override
     public InputStream getStream() throws IOException {
-        if (canEncode()) {
+        if (getBuffered() != null) {
+            return new ByteArrayInputStream(getBuffered());
+        } else if (canEncode()) {
             return IoUtils.getStream(this);
         } else {
             return getWrappedRepresentation().getStream();
         }
     }
 
+    /**
+     * Returns the tag of the wrapped representation, weakened when an actual
+     * encoding is applied. The encoded bytes differ from the wrapped ones, so
+     * they can't share a strong tag, but they remain semantically equivalent.
+     * 
+     * @return The tag.
+     */
+    @Override
+    public Tag getTag() {
+        Tag result = getWrappedRepresentation().getTag();
+
+        if ((result != null) && !result.isWeak() && canEncode()
+                && !this.encoding.equals(Encoding.IDENTITY)) {
+            result = new Tag(result.getName(), true);
+        }
+
+        return result;
+    }
+
     @Override
     public String getText() throws IOException {
         if (canEncode()) {
@@ -256,44 +484,24 @@ public class EncodeRepresentation extends WrapperRepresentation {
         }
     }
 
+    /**
+     * Sets the maximum size of a wrapped content encoded in memory on demand,
+     * so that the encoded size is known. Larger or transient contents are
+     * encoded while being written, with an unknown size.
+     * 
+     * @param maxBufferedSize
+     *            The maximum size of a wrapped content encoded in memory.
+     */
+    public void setMaxBufferedSize(long maxBufferedSize) {
+        this.maxBufferedSize = maxBufferedSize;
+    }
+
     @Override
     public void write(OutputStream outputStream) throws IOException {
-        if (canEncode()) {
-            DeflaterOutputStream encoderOutputStream = null;
-
-            if (this.encoding.equals(Encoding.GZIP)) {
-                encoderOutputStream = new GZIPOutputStream(outputStream);
-            } else if (this.encoding.equals(Encoding.DEFLATE)) {
-                encoderOutputStream = new DeflaterOutputStream(outputStream);
-            } else if (this.encoding.equals(Encoding.DEFLATE_NOWRAP)) {
-                encoderOutputStream = new DeflaterOutputStream(outputStream,
-                        new Deflater(Deflater.DEFAULT_COMPRESSION, true));
-            } else if (this.encoding.equals(Encoding.ZIP)) {
-                @SuppressWarnings("resource")
-                final ZipOutputStream stream = new ZipOutputStream(outputStream);
-                String name = "entry";
-
-                if (getWrappedRepresentation().getDisposition() != null) {
-                    name = getWrappedRepresentation()
-                            .getDisposition()
-                            .getParameters()
-                            .getFirstValue(Disposition.NAME_FILENAME, true,
-                                    name);
-                }
-
-                stream.putNextEntry(new ZipEntry(name));
-                encoderOutputStream = stream;
-            } else if (this.encoding.equals(Encoding.IDENTITY)) {
-                // Encoder unnecessary for identity encoding
-            }
-
-            if (encoderOutputStream != null) {
-                getWrappedRepresentation().write(encoderOutputStream);
-                encoderOutputStream.flush();
-                encoderOutputStream.finish();
-            } else {
-                getWrappedRepresentation().write(outputStream);
-            }
+        if (getBuffered() != null) {
+            outputStream.write(getBuffered());
+        } else if (canEncode()) {
+            encode(outputStream);
         } else {
             getWrappedRepresentation().write(outputStream);
         }
@@ -24,8 +24,17 @@
 
 package org.restlet.engine.application;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.Request;
@@ -33,6 +42,8 @@ import org.restlet.Response;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
 import org.restlet.data.Preference;
+import org.restlet.engine.util.BoundedCache;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.EncoderService;
@@ -45,6 +56,7 @@ import org.restlet.service.EncoderService;
  * If the {@link org.restlet.representation.Representation} has an unknown size,
  * it will always be a candidate for encoding. Candidate representations need to
  * respect media type criteria by the lists of accepted and ignored media types.
+ * The encoded content of files is cached by the parent encoder service.
  * 
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
@@ -56,6 +68,58 @@ import org.restlet.service.EncoderService;
  */
 public class Encoder extends Filter {
 
+    /**
+     * Encoded representation whose content has already been encoded.
+     */
+    private static class CachedEncodeRepresentation extends
+            EncodeRepresentation {
+
+        /** The encoded content. */
+        private final byte[] content;
+
+        /**
+         * Constructor.
+         * 
+         * @param encoding
+         *            The applied encoding.
+         * @param wrappedRepresentation
+         *            The wrapped representation.
+         * @param content
+         *            The encoded content.
+         */
+        public CachedEncodeRepresentation(Encoding encoding,
+                Representation wrappedRepresentation, int level,
+                byte[] content) {
+            super(encoding, wrappedRepresentation, level);
+            this.content = content;
+        }
+
+        @Override
+        public long getAvailableSize() {
+            return this.content.length;
+        }
+
+        @Override
+        public ReadableByteChannel getChannel() throws IOException {
+            return Channels.newChannel(getStream());
+        }
+
+        @Override
+        public long getSize() {
+            return this.content.length;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            return new ByteArrayInputStream(this.content);
+        }
+
+        @Override
+        public void write(OutputStream outputStream) throws IOException {
+            outputStream.write(this.content);
+        }
+    }
+
     /** Indicates if the request entity should be encoded. */
     private final boolean encodingRequest;
 
@@ -142,7 +206,70 @@ public class Encoder extends Filter {
         Encoding bestEncoding = getBestEncoding(client);
 
         if (bestEncoding != null) {
-            result = new EncodeRepresentation(bestEncoding, representation);
+            if ((representation instanceof FileRepresentation)
+                    && (representation.getRange() == null)) {
+                result = encodeFile(bestEncoding,
+                        (FileRepresentation) representation);
+            } else {
+                EncodeRepresentation encoded = new EncodeRepresentation(
+                        bestEncoding, representation, getEncoderService()
+                                .getCompressionLevel(
+                                        representation.getMediaType()));
+                encoded.setMaxBufferedSize(getEncoderService()
+                        .getMaxBufferedSize());
+                result = encoded;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Encodes a file representation, reusing the encoded content cached by the
+     * parent encoder service for the same file path, modification time and
+     * encoding.
+     * 
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The file representation to encode.
+     * @return The encoded representation.
+     */
+    private Representation encodeFile(Encoding encoding,
+            FileRepresentation representation) {
+        int level = getEncoderService().getCompressionLevel(
+                representation.getMediaType());
+        EncodeRepresentation result = new EncodeRepresentation(encoding,
+                representation, level);
+        File file = representation.getFile();
+        long length = file.length();
+
+        if (result.canEncode() && !Encoding.IDENTITY.equals(encoding)
+                && (length <= getEncoderService().getMaxCachedFileSize())) {
+            BoundedCache<String, byte[]> encodedFiles = getEncoderService()
+                    .getEncodedFiles();
+            String key = file.getAbsolutePath() + '\n' + file.lastModified()
+                    + '\n' + length + '\n' + encoding.getName() + '\n'
+                    + level;
+            byte[] content = encodedFiles.get(key);
+
+            if (content == null) {
+                try {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    result.write(baos);
+                    content = baos.toByteArray();
+                    encodedFiles.put(key, content);
+                } catch (IOException e) {
+                    getLogger().log(Level.FINE,
+                            "Unable to cache the encoded content of " + file,
+                            e);
+                }
+            }
+
+            if (content != null) {
+                result = new CachedEncodeRepresentation(encoding,
+                        representation, level, content);
+            }
         }
 
         return result;
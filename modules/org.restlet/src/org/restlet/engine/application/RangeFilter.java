@@ -24,11 +24,15 @@
 
 package org.restlet.engine.application;
 
+import java.util.List;
+
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.RangeService;
 
@@ -71,12 +75,8 @@ public class RangeFilter extends Filter {
                             // properly ranged.
                         }
                     } else {
-                        // At this time, list of ranges are not supported.
                         if (request.getRanges().size() == 1
-                                && (!request.getConditions().hasSomeRange() || request
-                                        .getConditions()
-                                        .getRangeStatus(response.getEntity())
-                                        .isSuccess())) {
+                                && isRangeApplicable(request, response)) {
                             Range requestedRange = request.getRanges().get(0);
 
                             if ((!response.getEntity().hasKnownSize())
@@ -103,18 +103,37 @@ public class RangeFilter extends Filter {
                                     requestedRange.setSize(Range.SIZE_MAX);
                                 }
 
+                                updateMappingSize(response.getEntity());
                                 response.setEntity(new RangeRepresentation(
                                         response.getEntity(), requestedRange));
                                 response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
                             }
-                        } else if (request.getRanges().size() > 1) {
-                            // Return a server error as this feature isn't
-                            // supported yet
-                            response.setStatus(Status.SERVER_ERROR_NOT_IMPLEMENTED);
-                            getLogger()
-                                    .warning(
-                                            "Multiple ranges are not supported at this time.");
-                            response.setEntity(null);
+                        } else if (request.getRanges().size() > 1
+                                && isRangeApplicable(request, response)) {
+                            if (response.getEntity().hasKnownSize()) {
+                                List<Range> ranges = ByteRangesRepresentation
+                                        .coalesce(request.getRanges(), response
+                                                .getEntity().getSize());
+                                updateMappingSize(response.getEntity());
+
+                                if (ranges.size() == 1) {
+                                    response.setEntity(new RangeRepresentation(
+                                            response.getEntity(), ranges.get(0)));
+                                    response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+                                } else if (ranges.size() > 1) {
+                                    response.setEntity(new ByteRangesRepresentation(
+                                            response.getEntity(), ranges));
+                                    response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+                                } else {
+                                    // No satisfiable range, send the whole
+                                    // entity
+                                }
+                            } else {
+                                // The parts cannot be delimited, send the
+                                // whole entity
+                                getLogger()
+                                        .fine("Unable to serve multiple ranges of an entity of unknown size.");
+                            }
                         }
                     }
                 } else {
@@ -133,4 +152,38 @@ public class RangeFilter extends Filter {
         return getApplication().getRangeService();
     }
 
+    /**
+     * Indicates if the requested ranges apply to the response entity, taking
+     * the "If-Range" condition into account.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @return True if the requested ranges apply to the response entity.
+     */
+    private boolean isRangeApplicable(Request request, Response response) {
+        return !request.getConditions().hasSomeRange()
+                || request.getConditions()
+                        .getRangeStatus(response.getEntity()).isSuccess();
+    }
+
+    /**
+     * Applies the memory mapping size of the Range service to a file entity
+     * that doesn't define its own.
+     * 
+     * @param entity
+     *            The response entity.
+     */
+    private void updateMappingSize(Representation entity) {
+        if ((getRangeService().getMappingSize() > 0)
+                && (entity instanceof FileRepresentation)) {
+            FileRepresentation file = (FileRepresentation) entity;
+
+            if (file.getMappingSize() == 0) {
+                file.setMappingSize(getRangeService().getMappingSize());
+            }
+        }
+    }
+
 }
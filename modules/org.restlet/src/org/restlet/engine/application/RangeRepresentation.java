@@ -28,18 +28,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.restlet.data.Range;
+import org.restlet.engine.io.FileSegment;
 import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.io.RangeInputStream;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.ReadableRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
 // [excludes gwt]
 /**
  * Representation that exposes only a range of the content of a wrapped
- * representation.
+ * representation. Ranges of files and of seekable channels are read from their
+ * position, the preceding content being skipped without being read. Files can
+ * also be read through memory mappings, see
+ * {@link FileRepresentation#setMappingSize(long)}.
  * 
  * @author Jerome Louvel
  */
@@ -84,9 +92,26 @@ public class RangeRepresentation extends WrapperRepresentation {
     @Override
     public java.nio.channels.ReadableByteChannel getChannel()
             throws IOException {
+        FileSegment segment = getFileSegment();
+
+        if (segment != null) {
+            return segment
+                    .openChannel(((FileRepresentation) getWrappedRepresentation())
+                            .getMappingSize());
+        }
+
         return IoUtils.getChannel(getStream());
     }
 
+    /**
+     * Returns the segment of the wrapped file exposed, if any.
+     * 
+     * @return The segment of the wrapped file or null.
+     */
+    private FileSegment getFileSegment() {
+        return FileSegment.get(getWrappedRepresentation(), getRange());
+    }
+
     /**
      * Returns the range specific to this wrapper. The wrapped representation
      * must not have a range set itself.
@@ -103,9 +128,59 @@ public class RangeRepresentation extends WrapperRepresentation {
         return IoUtils.getReader(getStream(), getCharacterSet());
     }
 
+    /**
+     * Returns the index of the first byte of the range in the wrapped content.
+     * 
+     * @return The index of the first byte or -1 if it can't be computed.
+     */
+    private long getStart() {
+        long result = -1;
+
+        if (getRange() != null) {
+            if (getRange().getIndex() != Range.INDEX_LAST) {
+                result = getRange().getIndex();
+            } else if ((getSize() != UNKNOWN_SIZE)
+                    && (getRange().getSize() != Range.SIZE_MAX)) {
+                result = Math.max(0, getSize() - getRange().getSize());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a stream on the range. The wrapped file or seekable channel is
+     * positioned at the start of the range.
+     */
     @Override
     public InputStream getStream() throws IOException {
-        return new RangeInputStream(super.getStream(), getSize(), getRange());
+        InputStream result = null;
+
+        if (getFileSegment() != null) {
+            result = IoUtils.getStream(getChannel());
+        } else if (getWrappedRepresentation() instanceof ReadableRepresentation) {
+            ReadableByteChannel channel = getWrappedRepresentation()
+                    .getChannel();
+            long start = getStart();
+
+            if ((channel instanceof SeekableByteChannel) && (start >= 0)) {
+                ((SeekableByteChannel) channel).position(start);
+                long size = (getRange().getIndex() == Range.INDEX_LAST) ? Range.SIZE_MAX
+                        : getRange().getSize();
+                long remaining = (getSize() == UNKNOWN_SIZE) ? UNKNOWN_SIZE
+                        : getSize() - start;
+                result = new RangeInputStream(IoUtils.getStream(channel),
+                        remaining, new Range(0, size));
+            } else {
+                result = new RangeInputStream(IoUtils.getStream(channel),
+                        getSize(), getRange());
+            }
+        } else {
+            result = new RangeInputStream(super.getStream(), getSize(),
+                    getRange());
+        }
+
+        return result;
     }
 
     @Override
@@ -140,9 +215,15 @@ public class RangeRepresentation extends WrapperRepresentation {
 
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        OutputStream os = IoUtils.getStream(writableChannel);
-        write(os);
-        os.flush();
+        FileSegment segment = getFileSegment();
+
+        if (segment != null) {
+            segment.transferTo(writableChannel);
+        } else {
+            OutputStream os = IoUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
     }
 
 }
@@ -121,7 +121,7 @@ public class HttpsServerHelper extends NetServerHelper {
             }
         });
         // creates a default executor
-        server.setExecutor(createThreadPool());
+        server.setExecutor(createExecutor());
         server.start();
 
         setConfidential(true);
@@ -27,6 +27,7 @@ package org.restlet.engine.connector;
 import java.net.InetSocketAddress;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
@@ -36,6 +37,7 @@ import java.util.concurrent.TimeUnit;
 import org.restlet.Server;
 import org.restlet.engine.adapter.HttpServerHelper;
 import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.engine.util.VirtualThreadExecutorService;
 
 /**
  * Abstract Internal web server connector based on com.sun.net.httpserver
@@ -82,6 +84,14 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * <td>300 000</td>
  * <td>Time for an idle thread to wait for an operation before being collected.</td>
  * </tr>
+ * <tr>
+ * <td>virtualThreads</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if each call should be handled by a new virtual thread instead
+ * of a pooled thread, when supported by the JVM. In this case, the thread pool
+ * parameters above are ignored.</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
@@ -107,6 +117,31 @@ public abstract class NetServerHelper extends HttpServerHelper {
         super(server);
     }
 
+    /**
+     * Creates the executor handling the calls. By default, it returns an
+     * executor starting a virtual thread per call if
+     * {@link #isVirtualThreads()} returns true and the JVM supports them,
+     * otherwise the result of {@link #createThreadPool()}.
+     * 
+     * @return The executor handling the calls.
+     */
+    protected Executor createExecutor() {
+        Executor result = null;
+
+        if (isVirtualThreads()) {
+            result = VirtualThreadExecutorService
+                    .createVirtualThreadExecutor("Restlet-virtual-");
+
+            if (result == null) {
+                getLogger().warning(
+                        "Virtual threads aren't supported by this JVM, "
+                                + "using a thread pool instead");
+            }
+        }
+
+        return (result == null) ? createThreadPool() : result;
+    }
+
     /**
      * Creates the handler service.
      * 
@@ -211,6 +246,17 @@ public abstract class NetServerHelper extends HttpServerHelper {
         return this.confidential;
     }
 
+    /**
+     * Indicates if each call should be handled by a new virtual thread instead
+     * of a pooled thread, when supported by the JVM.
+     * 
+     * @return True if each call should be handled by a new virtual thread.
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "virtualThreads", "false"));
+    }
+
     /**
      * Sets the socket address this server is listening to.
      * 
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.restlet.data.Header;
+import org.restlet.util.Series;
+
+/**
+ * Read-only index of a series of headers by name, built in a single pass. The
+ * names are compared ignoring the case, like HTTP requires, and the headers
+ * sharing a name are kept in their original order.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeaderTable {
+
+    /**
+     * Returns the lookup key of a header name.
+     * 
+     * @param name
+     *            The header name.
+     * @return The lookup key.
+     */
+    private static String getKey(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    /** The headers indexed by lower-case name. */
+    private final Map<String, List<Header>> headers;
+
+    /**
+     * Constructor.
+     * 
+     * @param headers
+     *            The headers to index.
+     */
+    public HeaderTable(Series<Header> headers) {
+        this.headers = new HashMap<String, List<Header>>();
+
+        if (headers != null) {
+            for (Header header : headers) {
+                String key = getKey(header.getName());
+                List<Header> list = this.headers.get(key);
+
+                if (list == null) {
+                    list = new ArrayList<Header>(1);
+                    this.headers.put(key, list);
+                }
+
+                list.add(header);
+            }
+        }
+    }
+
+    /**
+     * Indicates if at least one header has the given name.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return True if at least one header has the given name.
+     */
+    public boolean contains(String name) {
+        return this.headers.containsKey(getKey(name));
+    }
+
+    /**
+     * Returns the value of the first header with the given name.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return The value of the first header with the given name or null.
+     */
+    public String getFirstValue(String name) {
+        List<Header> list = this.headers.get(getKey(name));
+        return (list == null) ? null : list.get(0).getValue();
+    }
+
+    /**
+     * Returns the value of the last header with the given name.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return The value of the last header with the given name or null.
+     */
+    public String getLastValue(String name) {
+        List<Header> list = this.headers.get(getKey(name));
+        return (list == null) ? null : list.get(list.size() - 1).getValue();
+    }
+
+    /**
+     * Returns the unmodifiable list of the headers with the given name.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return The list of the headers with the given name, possibly empty.
+     */
+    public List<Header> getHeaders(String name) {
+        List<Header> list = this.headers.get(getKey(name));
+        return (list == null) ? Collections.<Header> emptyList() : Collections
+                .unmodifiableList(list);
+    }
+
+    /**
+     * Returns the values of the headers with the given name, concatenated and
+     * separated by a comma like {@link Series#getValues(String)}.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return The values of the headers with the given name or null.
+     */
+    public String getValues(String name) {
+        List<Header> list = this.headers.get(getKey(name));
+
+        if (list == null) {
+            return null;
+        } else if (list.size() == 1) {
+            return list.get(0).getValue();
+        }
+
+        StringBuilder sb = new StringBuilder(list.get(0).getValue());
+
+        for (int i = 1; i < list.size(); i++) {
+            sb.append(',').append(list.get(i).getValue());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the array of the values of the headers with the given name.
+     * 
+     * @param name
+     *            The header name, ignoring the case.
+     * @return The array of the values, possibly empty.
+     */
+    public String[] getValuesArray(String name) {
+        List<Header> list = this.headers.get(getKey(name));
+
+        if (list == null) {
+            return new String[0];
+        }
+
+        String[] result = new String[list.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i).getValue();
+        }
+
+        return result;
+    }
+}
@@ -253,21 +253,27 @@ public class PreferenceReader<T extends Metadata> extends
 
             switch (this.type) {
             case TYPE_CHARACTER_SET:
-                result.setMetadata((T) new CharacterSet(metadata.toString()));
+                result.setMetadata((T) CharacterSet.valueOf(metadata.toString()));
                 break;
 
             case TYPE_ENCODING:
-                result.setMetadata((T) new Encoding(metadata.toString()));
+                result.setMetadata((T) Encoding.valueOf(metadata.toString()));
                 break;
 
             case TYPE_LANGUAGE:
-                result.setMetadata((T) new Language(metadata.toString()));
+                result.setMetadata((T) Language.valueOf(metadata.toString()));
                 break;
 
             case TYPE_MEDIA_TYPE:
             case TYPE_PATCH:
-                result.setMetadata((T) new MediaType(metadata.toString(),
-                        mediaParams));
+                if (mediaParams.isEmpty()) {
+                    // Only the quality was set, reuse the known instance
+                    result.setMetadata((T) MediaType.valueOf(metadata
+                            .toString()));
+                } else {
+                    result.setMetadata((T) new MediaType(metadata.toString(),
+                            mediaParams));
+                }
                 break;
             }
         }
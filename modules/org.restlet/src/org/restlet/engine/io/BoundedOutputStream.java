@@ -0,0 +1,89 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.io.ByteArrayOutputStream;
+
+// [excludes gwt]
+/**
+ * Byte array output stream failing when a maximum size is exceeded.
+ * 
+ * @author Jerome Louvel
+ */
+public class BoundedOutputStream extends ByteArrayOutputStream {
+
+    /** The maximum size. */
+    private final long maxSize;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum size.
+     */
+    public BoundedOutputStream(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the maximum size.
+     * 
+     * @return The maximum size.
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Writes bytes.
+     * 
+     * @throws IllegalStateException
+     *             If the maximum size is exceeded.
+     */
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if (size() + len > this.maxSize) {
+            throw new IllegalStateException("Maximum size exceeded");
+        }
+
+        super.write(b, off, len);
+    }
+
+    /**
+     * Writes a byte.
+     * 
+     * @throws IllegalStateException
+     *             If the maximum size is exceeded.
+     */
+    @Override
+    public synchronized void write(int b) {
+        if (size() + 1 > this.maxSize) {
+            throw new IllegalStateException("Maximum size exceeded");
+        }
+
+        super.write(b);
+    }
+
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of reusable byte arrays and byte buffers of a fixed size. In order to
+ * limit contention, the pooled buffers are spread over several stripes
+ * selected by the current thread. Each stripe retains a bounded number of
+ * buffers, extra ones being left to the garbage collector.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPool {
+
+    /** Pool of byte arrays. */
+    private class BytesPool extends Pool<byte[]> {
+
+        @Override
+        protected byte[] createObject() {
+            misses.incrementAndGet();
+            return new byte[getBufferSize()];
+        }
+
+        @Override
+        protected Queue<byte[]> createStore() {
+            return new ArrayBlockingQueue<byte[]>(getMaxPooled());
+        }
+    }
+
+    /** Pool of byte buffers. */
+    private class ByteBufferPool extends Pool<ByteBuffer> {
+
+        @Override
+        protected void clear(ByteBuffer byteBuffer) {
+            byteBuffer.clear();
+        }
+
+        @Override
+        protected ByteBuffer createObject() {
+            misses.incrementAndGet();
+            return isDirect() ? ByteBuffer.allocateDirect(getBufferSize())
+                    : ByteBuffer.allocate(getBufferSize());
+        }
+
+        @Override
+        protected Queue<ByteBuffer> createStore() {
+            return new ArrayBlockingQueue<ByteBuffer>(getMaxPooled());
+        }
+    }
+
+    /**
+     * Returns the number of stripes, the lowest power of two greater or equal
+     * to the number of available processors.
+     * 
+     * @return The number of stripes.
+     */
+    private static int getStripeCount() {
+        int result = 1;
+
+        while (result < Runtime.getRuntime().availableProcessors()) {
+            result <<= 1;
+        }
+
+        return result;
+    }
+
+    /** The size of the buffers. */
+    private final int bufferSize;
+
+    /** The stripes of pooled byte buffers. */
+    private final ByteBufferPool[] byteBuffers;
+
+    /** The stripes of pooled byte arrays. */
+    private final BytesPool[] bytes;
+
+    /** The number of checkouts. */
+    private final AtomicLong checkouts;
+
+    /** Indicates if direct byte buffers are allocated. */
+    private final boolean direct;
+
+    /** The maximum number of buffers retained by each stripe. */
+    private final int maxPooled;
+
+    /** The number of checkouts requiring a new allocation. */
+    private final AtomicLong misses;
+
+    /**
+     * Constructor. Retains up to 16 buffers of each kind per stripe.
+     * 
+     * @param bufferSize
+     *            The size of the buffers.
+     * @param direct
+     *            Indicates if direct byte buffers are allocated.
+     */
+    public BufferPool(int bufferSize, boolean direct) {
+        this(bufferSize, direct, 16);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param bufferSize
+     *            The size of the buffers.
+     * @param direct
+     *            Indicates if direct byte buffers are allocated.
+     * @param maxPooled
+     *            The maximum number of buffers of each kind retained by each
+     *            stripe.
+     */
+    public BufferPool(int bufferSize, boolean direct, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.maxPooled = Math.max(1, maxPooled);
+        this.checkouts = new AtomicLong();
+        this.misses = new AtomicLong();
+
+        int stripeCount = getStripeCount();
+        this.bytes = new BytesPool[stripeCount];
+        this.byteBuffers = new ByteBufferPool[stripeCount];
+
+        for (int i = 0; i < stripeCount; i++) {
+            this.bytes[i] = new BytesPool();
+            this.byteBuffers[i] = new ByteBufferPool();
+        }
+    }
+
+    /**
+     * Returns a byte buffer to the pool. Buffers of a different capacity or
+     * kind are ignored.
+     * 
+     * @param byteBuffer
+     *            The byte buffer to return.
+     */
+    public void checkin(ByteBuffer byteBuffer) {
+        if ((byteBuffer != null)
+                && (byteBuffer.capacity() == getBufferSize())
+                && (byteBuffer.isDirect() == isDirect())
+                && !byteBuffer.isReadOnly()) {
+            this.byteBuffers[getStripe()].checkin(byteBuffer);
+        }
+    }
+
+    /**
+     * Returns a byte array to the pool. Arrays of a different size are ignored.
+     * 
+     * @param byteArray
+     *            The byte array to return.
+     */
+    public void checkin(byte[] byteArray) {
+        if ((byteArray != null) && (byteArray.length == getBufferSize())) {
+            this.bytes[getStripe()].checkin(byteArray);
+        }
+    }
+
+    /**
+     * Checks out a byte array, allocating it if none is pooled.
+     * 
+     * @return A byte array of the buffer size.
+     */
+    public byte[] checkoutBytes() {
+        this.checkouts.incrementAndGet();
+        return this.bytes[getStripe()].checkout();
+    }
+
+    /**
+     * Checks out a cleared byte buffer, allocating it if none is pooled.
+     * 
+     * @return A byte buffer of the buffer size.
+     */
+    public ByteBuffer checkoutByteBuffer() {
+        this.checkouts.incrementAndGet();
+        return this.byteBuffers[getStripe()].checkout();
+    }
+
+    /**
+     * Removes all the pooled buffers.
+     */
+    public void clear() {
+        for (int i = 0; i < this.bytes.length; i++) {
+            this.bytes[i].clear();
+            this.byteBuffers[i].clear();
+        }
+    }
+
+    /**
+     * Returns the size of the buffers.
+     * 
+     * @return The size of the buffers.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of checkouts served by a pooled buffer.
+     * 
+     * @return The number of checkouts served by a pooled buffer.
+     */
+    public long getHits() {
+        return this.checkouts.get() - this.misses.get();
+    }
+
+    /**
+     * Returns the maximum number of buffers of each kind retained by each
+     * stripe.
+     * 
+     * @return The maximum number of buffers retained by each stripe.
+     */
+    public int getMaxPooled() {
+        return maxPooled;
+    }
+
+    /**
+     * Returns the number of checkouts requiring a new allocation.
+     * 
+     * @return The number of checkouts requiring a new allocation.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the index of the stripe used by the current thread.
+     * 
+     * @return The index of the stripe used by the current thread.
+     */
+    private int getStripe() {
+        return (int) (Thread.currentThread().getId() & (this.bytes.length - 1));
+    }
+
+    /**
+     * Indicates if direct byte buffers are allocated.
+     * 
+     * @return True if direct byte buffers are allocated.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+}
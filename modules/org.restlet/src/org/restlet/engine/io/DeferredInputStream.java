@@ -0,0 +1,180 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Input stream returning the content of a representation that can only be
+ * written. The representation is written in memory, on the reading thread,
+ * when the stream is first read. This avoids the writer thread and the pipe
+ * otherwise needed, and should only be used for representations of a limited
+ * size.
+ * 
+ * @author Jerome Louvel
+ */
+public class DeferredInputStream extends InputStream {
+
+    /** Output stream exposing its internal buffer. */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        /**
+         * Constructor.
+         * 
+         * @param size
+         *            The initial size.
+         */
+        public Buffer(int size) {
+            super(size);
+        }
+
+        /**
+         * Returns the number of bytes still available from an index.
+         * 
+         * @param index
+         *            The index.
+         * @return The number of bytes still available.
+         */
+        public int available(int index) {
+            return count - index;
+        }
+
+        /**
+         * Copies written bytes to an array.
+         * 
+         * @param index
+         *            The index of the first byte to copy.
+         * @param b
+         *            The target array.
+         * @param off
+         *            The offset in the target array.
+         * @param len
+         *            The number of bytes to copy.
+         */
+        public void copy(int index, byte[] b, int off, int len) {
+            System.arraycopy(buf, index, b, off, len);
+        }
+
+        /**
+         * Returns the written byte at a given index.
+         * 
+         * @param index
+         *            The index.
+         * @return The written byte.
+         */
+        public int get(int index) {
+            return buf[index] & 0xff;
+        }
+    }
+
+    /** The written content, or null if not yet written. */
+    private volatile Buffer buffer;
+
+    /** The index of the next byte to read. */
+    private volatile int index;
+
+    /** The representation to write. */
+    private final Representation representation;
+
+    /**
+     * Constructor.
+     * 
+     * @param representation
+     *            The representation to write.
+     */
+    public DeferredInputStream(Representation representation) {
+        this.representation = representation;
+        this.index = 0;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return getBuffer().available(this.index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer = new Buffer(0);
+        this.index = 0;
+    }
+
+    /**
+     * Returns the written content, writing the representation if needed.
+     * 
+     * @return The written content.
+     * @throws IOException
+     */
+    private Buffer getBuffer() throws IOException {
+        Buffer result = this.buffer;
+
+        if (result == null) {
+            long size = this.representation.getSize();
+            result = new Buffer((size >= 0) ? (int) size : IoUtils.BUFFER_SIZE);
+            this.representation.write(result);
+            this.buffer = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public int read() throws IOException {
+        Buffer content = getBuffer();
+        return (content.available(this.index) > 0) ? content
+                .get(this.index++) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Buffer content = getBuffer();
+        int result = Math.min(len, content.available(this.index));
+
+        if (len == 0) {
+            result = 0;
+        } else if (result <= 0) {
+            result = -1;
+        } else {
+            content.copy(this.index, b, off, result);
+            this.index += result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long result = Math.max(0,
+                Math.min(n, getBuffer().available(this.index)));
+        this.index += result;
+        return result;
+    }
+
+}
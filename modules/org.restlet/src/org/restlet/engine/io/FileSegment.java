@@ -0,0 +1,439 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.restlet.data.Range;
+import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Contiguous segment of a file backing a representation. Connectors use it to
+ * send file content without copying it through user space, for example with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. A segment
+ * can also be read at its position without reading the preceding content,
+ * either with positional reads or through read-only memory mappings.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileSegment {
+
+    /**
+     * Channel reading a segment of a file, either with positional reads or
+     * through successive read-only memory mappings. The mappings are never
+     * exposed so they are explicitly released when consumed.
+     */
+    private static class SegmentChannel implements ReadableByteChannel {
+
+        /** The file channel. */
+        private final FileChannel channel;
+
+        /** The position following the segment. */
+        private final long end;
+
+        /** The maximum size of each mapping or zero. */
+        private final int mappingSize;
+
+        /** The current mapping. */
+        private volatile MappedByteBuffer mapping;
+
+        /** Indicates if the channel is open. */
+        private volatile boolean open;
+
+        /** The position of the next byte to read or map. */
+        private volatile long position;
+
+        /**
+         * Constructor.
+         * 
+         * @param channel
+         *            The file channel.
+         * @param position
+         *            The position of the first byte of the segment.
+         * @param count
+         *            The number of bytes of the segment.
+         * @param mappingSize
+         *            The maximum size of each mapping or zero.
+         */
+        public SegmentChannel(FileChannel channel, long position, long count,
+                long mappingSize) {
+            this.channel = channel;
+            this.end = position + count;
+            this.mappingSize = (int) Math.min(mappingSize, Integer.MAX_VALUE);
+            this.open = true;
+            this.position = position;
+        }
+
+        public void close() throws IOException {
+            this.open = false;
+            unmap(this.mapping);
+            this.mapping = null;
+            this.channel.close();
+        }
+
+        public boolean isOpen() {
+            return this.open;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            if (!isOpen()) {
+                throw new ClosedChannelException();
+            }
+
+            int result;
+
+            if (this.mappingSize > 0) {
+                if ((this.mapping == null) || !this.mapping.hasRemaining()) {
+                    unmap(this.mapping);
+                    this.mapping = null;
+
+                    if (this.position < this.end) {
+                        long size = Math.min(this.mappingSize, this.end
+                                - this.position);
+                        this.mapping = this.channel.map(
+                                FileChannel.MapMode.READ_ONLY, this.position,
+                                size);
+                        this.position += size;
+                    }
+                }
+
+                if (this.mapping == null) {
+                    result = -1;
+                } else {
+                    result = Math.min(dst.remaining(),
+                            this.mapping.remaining());
+                    ByteBuffer source = this.mapping.duplicate();
+                    source.limit(source.position() + result);
+                    dst.put(source);
+                    this.mapping.position(this.mapping.position() + result);
+                }
+            } else if (this.position >= this.end) {
+                result = -1;
+            } else {
+                int limit = dst.limit();
+                dst.limit(dst.position()
+                        + (int) Math.min(dst.remaining(), this.end
+                                - this.position));
+
+                try {
+                    result = this.channel.read(dst, this.position);
+                } finally {
+                    dst.limit(limit);
+                }
+
+                if (result > 0) {
+                    this.position += result;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /** The clean method of sun.misc.Cleaner, on Java 7 and 8. */
+    private static final Method CLEAN;
+
+    /** The cleaner method of sun.nio.ch.DirectBuffer, on Java 7 and 8. */
+    private static final Method CLEANER;
+
+    /** The cleaner method of sun.misc.Unsafe, on Java 9 and later. */
+    private static final Method INVOKE_CLEANER;
+
+    /** The sun.misc.Unsafe instance, on Java 9 and later. */
+    private static final Object UNSAFE;
+
+    static {
+        Method clean = null;
+        Method cleaner = null;
+        Method invokeCleaner = null;
+        Object unsafe = null;
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                    ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Throwable t) {
+            invokeCleaner = null;
+            unsafe = null;
+
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod(
+                        "cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (Throwable t2) {
+                // Mappings are released by the garbage collector
+                cleaner = null;
+                clean = null;
+            }
+        }
+
+        CLEAN = clean;
+        CLEANER = cleaner;
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    /**
+     * Returns the file segment backing a representation. Only plain
+     * {@link FileRepresentation} instances, possibly wrapped in a
+     * {@link RangeRepresentation}, are supported as subclasses could alter the
+     * written content.
+     * 
+     * @param representation
+     *            The representation.
+     * @return The file segment or null if the representation isn't backed by a
+     *         file.
+     */
+    public static FileSegment get(Representation representation) {
+        Range range = null;
+        Representation target = representation;
+
+        if ((target != null)
+                && (target.getClass() == RangeRepresentation.class)) {
+            range = target.getRange();
+            target = ((RangeRepresentation) target).getWrappedRepresentation();
+        }
+
+        return get(target, range);
+    }
+
+    /**
+     * Returns the file segment backing a range of a plain
+     * {@link FileRepresentation}.
+     * 
+     * @param representation
+     *            The representation with a complete content.
+     * @param range
+     *            The range or null for the complete content.
+     * @return The file segment or null if the representation isn't backed by a
+     *         file.
+     */
+    public static FileSegment get(Representation representation, Range range) {
+        FileSegment result = null;
+        Representation target = representation;
+
+        if ((target != null) && (target.getClass() == FileRepresentation.class)
+                && (target.getRange() == null) && target.isAvailable()) {
+            File file = ((FileRepresentation) target).getFile();
+
+            if ((file != null) && file.isFile()) {
+                long totalSize = target.getSize();
+                long start = 0;
+                long end = totalSize;
+
+                if (range != null) {
+                    if (range.getIndex() == Range.INDEX_LAST) {
+                        start = totalSize - range.getSize();
+                    } else {
+                        start = range.getIndex();
+
+                        if (range.getSize() != Range.SIZE_MAX) {
+                            end = Math.min(end, start + range.getSize());
+                        }
+                    }
+                }
+
+                start = Math.max(0, start);
+                end = Math.min(end, file.length());
+                result = new FileSegment(file, start, Math.max(0, end - start));
+            }
+        }
+
+        return result;
+    }
+
+    /** The number of bytes of the segment. */
+    private final long count;
+
+    /** The file. */
+    private final File file;
+
+    /** The position of the first byte of the segment. */
+    private final long position;
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The file.
+     * @param position
+     *            The position of the first byte of the segment.
+     * @param count
+     *            The number of bytes of the segment.
+     */
+    public FileSegment(File file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of bytes of the segment.
+     * 
+     * @return The number of bytes of the segment.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the file.
+     * 
+     * @return The file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the position of the first byte of the segment.
+     * 
+     * @return The position of the first byte of the segment.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Releases a memory mapping that isn't referenced anymore. If not
+     * supported by the JVM, the mapping is released by the garbage collector.
+     * 
+     * @param mapping
+     *            The memory mapping to release.
+     */
+    private static void unmap(MappedByteBuffer mapping) {
+        if (mapping != null) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, mapping);
+                } else if (CLEANER != null) {
+                    Object cleaner = CLEANER.invoke(mapping);
+
+                    if (cleaner != null) {
+                        CLEAN.invoke(cleaner);
+                    }
+                }
+            } catch (Throwable t) {
+                // Released by the garbage collector
+            }
+        }
+    }
+
+    /**
+     * Maps the segment in memory, in read-only mode. The content isn't copied
+     * and the mapping is released by the garbage collector once unreferenced.
+     * 
+     * @return The read-only memory mapping of the segment.
+     * @throws IOException
+     */
+    public MappedByteBuffer map() throws IOException {
+        if (getCount() > Integer.MAX_VALUE) {
+            throw new IOException("The segment is too large to be mapped");
+        }
+
+        FileChannel channel = openChannel();
+
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, getPosition(),
+                    getCount());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens a read-only channel on the file.
+     * 
+     * @return A read-only channel on the file.
+     * @throws IOException
+     */
+    public FileChannel openChannel() throws IOException {
+        return new FileInputStream(getFile()).getChannel();
+    }
+
+    /**
+     * Opens a read-only channel on the segment only. The preceding content of
+     * the file isn't read. The file must not be truncated while memory mapped.
+     * 
+     * @param mappingSize
+     *            The maximum size of the successive memory mappings used to
+     *            read the segment, or zero to use positional reads.
+     * @return A read-only channel on the segment.
+     * @throws IOException
+     */
+    public ReadableByteChannel openChannel(long mappingSize)
+            throws IOException {
+        return new SegmentChannel(openChannel(), getPosition(), getCount(),
+                mappingSize);
+    }
+
+    /**
+     * Transfers the segment to a blocking writable channel. When the target is
+     * a socket channel, the operating system can send the file content
+     * directly.
+     * 
+     * @param target
+     *            The target channel.
+     * @throws IOException
+     */
+    public void transferTo(WritableByteChannel target) throws IOException {
+        FileChannel channel = openChannel();
+
+        try {
+            long sent = 0;
+            long written = 1;
+
+            while ((sent < getCount()) && (written > 0)) {
+                written = channel.transferTo(getPosition() + sent, getCount()
+                        - sent, target);
+                sent += written;
+            }
+
+            if (sent < getCount()) {
+                throw new IOException("The file was truncated while being sent");
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -34,8 +34,10 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
@@ -64,10 +66,39 @@ public class IoUtils {
     public static final int BUFFER_SIZE = getProperty(
             "org.restlet.engine.io.bufferSize", 8192);
 
+    // [ifndef gwt] member
+    /**
+     * The pool of buffers used by the copy methods. The buffers have a size of
+     * {@link #BUFFER_SIZE}. Direct byte buffers are used for channel copies if
+     * the System property "org.restlet.engine.io.directBuffers" is set to
+     * "true".
+     */
+    private static final BufferPool BUFFER_POOL = new BufferPool(BUFFER_SIZE,
+            Boolean.getBoolean("org.restlet.engine.io.directBuffers"));
+
+    // [ifndef gwt] member
+    /**
+     * The pool of deflaters and inflaters used by the encoded and decoded
+     * representations. Each kind retains up to four instances per available
+     * processor.
+     */
+    private static final ZlibPool ZLIB_POOL = new ZlibPool(4 * Runtime
+            .getRuntime().availableProcessors());
+
     // [ifndef gwt] member
     /** Support for byte to hexa conversions. */
     private static final char[] HEXDIGITS = "0123456789ABCDEF".toCharArray();
 
+    /**
+     * The maximum size of the write-only representations that are converted
+     * into streams, channels or readers by writing them in memory on the
+     * reading thread, instead of using a writer thread and a pipe. It looks
+     * for the System property "org.restlet.engine.io.maxDeferredSize" and if
+     * not defined, uses the "65536" default value.
+     */
+    public static final int MAX_DEFERRED_SIZE = getProperty(
+            "org.restlet.engine.io.maxDeferredSize", 65536);
+
     /**
      * The number of milliseconds after which IO operation will time out. It
      * looks for the System property "org.restlet.engine.io.timeoutMs" and if
@@ -92,10 +123,14 @@ public class IoUtils {
         if (inputStream != null) {
             if (outputStream != null) {
                 int bytesRead;
-                byte[] buffer = new byte[2048];
+                byte[] buffer = BUFFER_POOL.checkoutBytes();
 
-                while ((bytesRead = inputStream.read(buffer)) > 0) {
-                    outputStream.write(buffer, 0, bytesRead);
+                try {
+                    while ((bytesRead = inputStream.read(buffer)) > 0) {
+                        outputStream.write(buffer, 0, bytesRead);
+                    }
+                } finally {
+                    BUFFER_POOL.checkin(buffer);
                 }
 
                 outputStream.flush();
@@ -126,10 +161,14 @@ public class IoUtils {
     public static void copy(InputStream inputStream,
             java.io.RandomAccessFile randomAccessFile) throws IOException {
         int bytesRead;
-        byte[] buffer = new byte[2048];
+        byte[] buffer = BUFFER_POOL.checkoutBytes();
 
-        while ((bytesRead = inputStream.read(buffer)) > 0) {
-            randomAccessFile.write(buffer, 0, bytesRead);
+        try {
+            while ((bytesRead = inputStream.read(buffer)) > 0) {
+                randomAccessFile.write(buffer, 0, bytesRead);
+            }
+        } finally {
+            BUFFER_POOL.checkin(buffer);
         }
 
         inputStream.close();
@@ -137,7 +176,10 @@ public class IoUtils {
 
     // [ifndef gwt] method
     /**
-     * Writes a readable channel to a writable channel.
+     * Writes a readable channel to a writable channel. When the reading is
+     * done, the readable channel is closed. File channels are transferred
+     * without copying their content through user space when possible, other
+     * blocking channels are directly copied using a pooled byte buffer.
      * 
      * @param readableChannel
      *            The readable channel.
@@ -148,7 +190,46 @@ public class IoUtils {
     public static void copy(ReadableByteChannel readableChannel,
             WritableByteChannel writableChannel) throws IOException {
         if ((readableChannel != null) && (writableChannel != null)) {
-            copy(getStream(readableChannel), getStream(writableChannel));
+            if ((readableChannel instanceof FileChannel)
+                    && isBlocking(writableChannel)) {
+                FileChannel fileChannel = (FileChannel) readableChannel;
+
+                try {
+                    long position = fileChannel.position();
+                    long size = fileChannel.size();
+                    long transferred = 1;
+
+                    while ((position < size) && (transferred > 0)) {
+                        transferred = fileChannel.transferTo(position, size
+                                - position, writableChannel);
+                        position += transferred;
+                    }
+                } finally {
+                    // Don't leak the file descriptor if the client goes away
+                    fileChannel.close();
+                }
+            } else if (isBlocking(readableChannel)
+                    && isBlocking(writableChannel)) {
+                ByteBuffer buffer = BUFFER_POOL.checkoutByteBuffer();
+
+                try {
+                    while (readableChannel.read(buffer) != -1) {
+                        buffer.flip();
+
+                        while (buffer.hasRemaining()) {
+                            writableChannel.write(buffer);
+                        }
+
+                        buffer.clear();
+                    }
+                } finally {
+                    BUFFER_POOL.checkin(buffer);
+                }
+
+                readableChannel.close();
+            } else {
+                copy(getStream(readableChannel), getStream(writableChannel));
+            }
         }
     }
 
@@ -274,13 +355,18 @@ public class IoUtils {
         long result = -1L;
 
         if (input != null) {
-            byte[] buf = new byte[2048];
-            int read = input.read(buf);
-            result = (read == -1) ? -1 : 0;
+            byte[] buf = BUFFER_POOL.checkoutBytes();
 
-            while (read != -1) {
-                result += read;
-                read = input.read(buf);
+            try {
+                int read = input.read(buf);
+                result = (read == -1) ? -1 : 0;
+
+                while (read != -1) {
+                    result += read;
+                    read = input.read(buf);
+                }
+            } finally {
+                BUFFER_POOL.checkin(buf);
             }
         }
 
@@ -324,6 +410,16 @@ public class IoUtils {
         // return representation.getSize();
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the pool of buffers used by the copy methods.
+     * 
+     * @return The pool of buffers used by the copy methods.
+     */
+    public static BufferPool getBufferPool() {
+        return BUFFER_POOL;
+    }
+
     // [ifndef gwt] method
     /**
      * Returns a readable byte channel based on a given input stream. If it is
@@ -362,8 +458,9 @@ public class IoUtils {
     // [ifndef gwt] method
     /**
      * Returns a readable byte channel based on the given representation's
-     * content and its write(WritableByteChannel) method. Internally, it uses a
-     * writer thread and a pipe channel.
+     * content and its write(WritableByteChannel) method. Small representations
+     * of known size are written in memory on the reading thread, otherwise a
+     * writer thread and a pipe channel are used.
      * 
      * @param representation
      *            the representation to get the {@link OutputStream} from.
@@ -374,7 +471,10 @@ public class IoUtils {
             final Representation representation) throws IOException {
         ReadableByteChannel result = null;
 
-        if (Edition.CURRENT != Edition.GAE) {
+        if (isDeferrable(representation)) {
+            result = Channels.newChannel(new DeferredInputStream(
+                    representation));
+        } else if (Edition.CURRENT != Edition.GAE) {
             // [ifndef gae]
             final java.nio.channels.Pipe pipe = java.nio.channels.Pipe.open();
 
@@ -460,8 +560,9 @@ public class IoUtils {
 
     // [ifndef gwt] method
     /**
-     * Returns a reader from a writer representation.Internally, it uses a
-     * writer thread and a pipe stream.
+     * Returns a reader from a writer representation. Small representations of
+     * known size are written in memory on the reading thread, otherwise a
+     * writer thread and a pipe stream are used.
      * 
      * @param representation
      *            The representation to read from.
@@ -471,6 +572,10 @@ public class IoUtils {
     public static Reader getReader(
             final org.restlet.representation.WriterRepresentation representation)
             throws IOException {
+        if (isDeferrable(representation)) {
+            return new DeferredReader(representation);
+        }
+
         Reader result = null;
         final java.io.PipedWriter pipedWriter = new java.io.PipedWriter();
 
@@ -572,8 +677,9 @@ public class IoUtils {
     // [ifndef gwt] method
     /**
      * Returns an input stream based on the given representation's content and
-     * its write(OutputStream) method. Internally, it uses a writer thread and a
-     * pipe stream.
+     * its write(OutputStream) method. Small representations of known size are
+     * written in memory on the reading thread, otherwise a writer thread and a
+     * pipe stream are used.
      * 
      * @param representation
      *            the representation to get the {@link java.io.OutputStream}
@@ -585,6 +691,8 @@ public class IoUtils {
 
         if (representation == null) {
             return null;
+        } else if (isDeferrable(representation)) {
+            return new DeferredInputStream(representation);
         }
 
         final PipeStream pipe = new PipeStream();
@@ -700,6 +808,17 @@ public class IoUtils {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the pool of deflaters and inflaters used by the encoded and
+     * decoded representations.
+     * 
+     * @return The pool of deflaters and inflaters.
+     */
+    public static ZlibPool getZlibPool() {
+        return ZLIB_POOL;
+    }
+
     // [ifndef gwt] method
     /**
      * Indicates if the channel is in blocking mode. It returns false when the
@@ -720,6 +839,21 @@ public class IoUtils {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if a write-only representation can be converted by writing it
+     * in memory on the reading thread. This is the case when its size is known
+     * and doesn't exceed {@link #MAX_DEFERRED_SIZE}.
+     * 
+     * @param representation
+     *            The representation to test.
+     * @return True if the representation can be written in memory.
+     */
+    private static boolean isDeferrable(Representation representation) {
+        long size = representation.getSize();
+        return (size >= 0) && (size <= MAX_DEFERRED_SIZE);
+    }
+
     // [ifndef gwt] method
     /**
      * Converts a char array into a byte array using the default character set.
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of reusable deflaters and inflaters, saving the allocation of their
+ * native zlib state for each encoded or decoded entity. Each pool retains a
+ * bounded number of instances, extra ones being ended when checked in.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZlibPool {
+
+    /** Pool of deflaters. */
+    private class DeflaterPool extends Pool<Deflater> {
+
+        /** Indicates if the deflaters omit the ZLIB header and checksum. */
+        private final boolean nowrap;
+
+        /**
+         * Constructor.
+         * 
+         * @param nowrap
+         *            Indicates if the deflaters omit the ZLIB header and
+         *            checksum.
+         */
+        public DeflaterPool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        @Override
+        public void checkin(Deflater deflater) {
+            deflater.reset();
+
+            if (!getStore().offer(deflater)) {
+                deflater.end();
+            }
+        }
+
+        @Override
+        protected Deflater createObject() {
+            misses.incrementAndGet();
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, this.nowrap);
+        }
+
+        @Override
+        protected Queue<Deflater> createStore() {
+            return new ArrayBlockingQueue<Deflater>(getMaxPooled());
+        }
+    }
+
+    /** Pool of inflaters. */
+    private class InflaterPool extends Pool<Inflater> {
+
+        /** Indicates if the inflaters expect no ZLIB header and checksum. */
+        private final boolean nowrap;
+
+        /**
+         * Constructor.
+         * 
+         * @param nowrap
+         *            Indicates if the inflaters expect no ZLIB header and
+         *            checksum.
+         */
+        public InflaterPool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        @Override
+        public void checkin(Inflater inflater) {
+            inflater.reset();
+
+            if (!getStore().offer(inflater)) {
+                inflater.end();
+            }
+        }
+
+        @Override
+        protected Inflater createObject() {
+            misses.incrementAndGet();
+            return new Inflater(this.nowrap);
+        }
+
+        @Override
+        protected Queue<Inflater> createStore() {
+            return new ArrayBlockingQueue<Inflater>(getMaxPooled());
+        }
+    }
+
+    /** The number of checkouts. */
+    private final AtomicLong checkouts;
+
+    /** The pooled deflaters with ZLIB header and checksum. */
+    private final DeflaterPool deflaters;
+
+    /** The pooled inflaters expecting ZLIB header and checksum. */
+    private final InflaterPool inflaters;
+
+    /** The maximum number of instances retained by each pool. */
+    private final int maxPooled;
+
+    /** The number of checkouts requiring a new allocation. */
+    private final AtomicLong misses;
+
+    /** The pooled deflaters without ZLIB header and checksum. */
+    private final DeflaterPool nowrapDeflaters;
+
+    /** The pooled inflaters expecting no ZLIB header and checksum. */
+    private final InflaterPool nowrapInflaters;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxPooled
+     *            The maximum number of instances retained by each pool.
+     */
+    public ZlibPool(int maxPooled) {
+        this.maxPooled = Math.max(1, maxPooled);
+        this.checkouts = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.deflaters = new DeflaterPool(false);
+        this.nowrapDeflaters = new DeflaterPool(true);
+        this.inflaters = new InflaterPool(false);
+        this.nowrapInflaters = new InflaterPool(true);
+    }
+
+    /**
+     * Returns a deflater to the pool, once its output has been finished or
+     * abandoned. It must not be used afterwards.
+     * 
+     * @param deflater
+     *            The deflater to return.
+     * @param nowrap
+     *            Indicates if the deflater omits the ZLIB header and checksum.
+     */
+    public void checkin(Deflater deflater, boolean nowrap) {
+        if (deflater != null) {
+            (nowrap ? this.nowrapDeflaters : this.deflaters).checkin(deflater);
+        }
+    }
+
+    /**
+     * Returns an inflater to the pool, once its input has been finished or
+     * abandoned. It must not be used afterwards.
+     * 
+     * @param inflater
+     *            The inflater to return.
+     * @param nowrap
+     *            Indicates if the inflater expects no ZLIB header and checksum.
+     */
+    public void checkin(Inflater inflater, boolean nowrap) {
+        if (inflater != null) {
+            (nowrap ? this.nowrapInflaters : this.inflaters).checkin(inflater);
+        }
+    }
+
+    /**
+     * Checks out a deflater, allocating it if none is pooled.
+     * 
+     * @param level
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param nowrap
+     *            Indicates if the deflater omits the ZLIB header and checksum.
+     * @return A deflater ready to compress a new stream.
+     */
+    public Deflater checkoutDeflater(int level, boolean nowrap) {
+        this.checkouts.incrementAndGet();
+        Deflater result = (nowrap ? this.nowrapDeflaters : this.deflaters)
+                .checkout();
+        result.setLevel(level);
+        return result;
+    }
+
+    /**
+     * Checks out an inflater, allocating it if none is pooled.
+     * 
+     * @param nowrap
+     *            Indicates if the inflater expects no ZLIB header and checksum.
+     * @return An inflater ready to decompress a new stream.
+     */
+    public Inflater checkoutInflater(boolean nowrap) {
+        this.checkouts.incrementAndGet();
+        return (nowrap ? this.nowrapInflaters : this.inflaters).checkout();
+    }
+
+    /**
+     * Returns the number of checkouts.
+     * 
+     * @return The number of checkouts.
+     */
+    public long getCheckouts() {
+        return this.checkouts.get();
+    }
+
+    /**
+     * Returns the maximum number of instances retained by each pool.
+     * 
+     * @return The maximum number of instances retained by each pool.
+     */
+    public int getMaxPooled() {
+        return this.maxPooled;
+    }
+
+    /**
+     * Returns the number of checkouts that required a new allocation.
+     * 
+     * @return The number of checkouts that required a new allocation.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+}
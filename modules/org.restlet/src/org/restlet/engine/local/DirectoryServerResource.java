@@ -35,6 +35,7 @@ import java.util.logging.Level;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Dimension;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Preference;
@@ -184,6 +185,10 @@ public class DirectoryServerResource extends ServerResource {
             this.relativePart = getReference().getRemainingPart(false, false);
             setNegotiated(this.directory.isNegotiatingContent());
 
+            if (this.directory.isPrecompressedServed()) {
+                getResponse().getDimensions().add(Dimension.ENCODING);
+            }
+
             // Restore the original URI in case the call has been tunneled.
             if ((getApplication() != null)
                     && getApplication().getTunnelService().isExtensionsTunnel()) {
@@ -488,15 +493,23 @@ public class DirectoryServerResource extends ServerResource {
 
     /**
      * Returns a representation of the resource at the target URI. Leverages the
-     * client dispatcher of the parent directory's context.
+     * client dispatcher of the parent directory's context. If the directory
+     * serves precompressed files, the encodings accepted by the client are
+     * passed along.
      * 
      * @param resourceUri
      *            The URI of the target resource.
      * @return A response with the representation if success.
      */
     private Response getRepresentation(String resourceUri) {
-        return getClientDispatcher().handle(
-                new Request(Method.GET, resourceUri));
+        Request request = new Request(Method.GET, resourceUri);
+
+        if (getDirectory().isPrecompressedServed()) {
+            request.getClientInfo().getAcceptedEncodings()
+                    .addAll(getClientInfo().getAcceptedEncodings());
+        }
+
+        return getClientDispatcher().handle(request);
     }
 
     /**
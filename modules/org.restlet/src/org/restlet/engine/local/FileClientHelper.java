@@ -49,10 +49,13 @@ import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
 import org.restlet.data.Metadata;
 import org.restlet.data.Method;
+import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
 
@@ -81,13 +84,43 @@ import org.restlet.representation.Variant;
  * <td>Indicates if a failed upload can be resumed. This will prevent the
  * deletion of the temporary file created.</td>
  * </tr>
+ * <tr>
+ * <td>metadataCached</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the directory listings and the file attributes are cached,
+ * see {@link FileMetadataCache}. Served files then also have a weak tag. Not
+ * available in the Android edition.</td>
+ * </tr>
+ * <tr>
+ * <td>metadataCacheSize</td>
+ * <td>int</td>
+ * <td>1000</td>
+ * <td>The maximum number of cached directory listings.</td>
+ * </tr>
+ * <tr>
+ * <td>metadataPollingInterval</td>
+ * <td>long</td>
+ * <td>2000</td>
+ * <td>The time in milliseconds after which cached listings are read again when
+ * the file system can't be watched for changes.</td>
+ * </tr>
  * </table>
+ * <br>
+ * When a GET or HEAD request accepts an encoding, a precompressed sibling of
+ * the requested file is served instead, if it exists and is not older than the
+ * file. For example "app.js.gz" is served for "app.js" to clients accepting the
+ * "gzip" encoding.
  * 
  * @author Jerome Louvel
  * @author Thierry Boileau
  */
 public class FileClientHelper extends EntityClientHelper {
 
+    // [ifndef android] member
+    /** The file metadata cache, created on demand. */
+    private volatile FileMetadataCache metadataCache;
+
     /**
      * Constructor.
      * 
@@ -168,9 +201,157 @@ public class FileClientHelper extends EntityClientHelper {
     @Override
     public Entity getEntity(String decodedPath) {
         // Take care of the file separator.
-        return new FileEntity(
-                new File(LocalReference.localizePath(decodedPath)),
-                getMetadataService());
+        File file = new File(LocalReference.localizePath(decodedPath));
+
+        // [ifndef android]
+        if (isMetadataCached()) {
+            return new FileEntity(file, getMetadataService(),
+                    getMetadataCache());
+        }
+        // [enddef]
+
+        return new FileEntity(file, getMetadataService());
+    }
+
+    // [ifndef android] method
+    /**
+     * Returns the file metadata cache, creating it on the first call.
+     * 
+     * @return The file metadata cache.
+     */
+    public FileMetadataCache getMetadataCache() {
+        FileMetadataCache result = this.metadataCache;
+
+        if (result == null) {
+            synchronized (this) {
+                result = this.metadataCache;
+
+                if (result == null) {
+                    result = new FileMetadataCache(getMetadataCacheSize(),
+                            getMetadataPollingInterval());
+                    this.metadataCache = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of cached directory listings. Defaults to
+     * 1000.
+     * 
+     * @return The maximum number of cached directory listings.
+     */
+    public int getMetadataCacheSize() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "metadataCacheSize", "1000"));
+    }
+
+    /**
+     * Returns the time in milliseconds after which cached listings are read
+     * again when the file system can't be watched for changes. Defaults to
+     * 2000.
+     * 
+     * @return The polling interval in milliseconds.
+     */
+    public long getMetadataPollingInterval() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "metadataPollingInterval", "2000"));
+    }
+
+    /**
+     * Returns a representation of the precompressed sibling of a file, if the
+     * client accepts its encoding. When several siblings are acceptable, the
+     * encoding with the highest quality is preferred.
+     * 
+     * @param request
+     *            The request.
+     * @param original
+     *            The representation of the requested file.
+     * @return The representation of the precompressed sibling or null.
+     */
+    protected Representation getPrecompressedRepresentation(Request request,
+            FileRepresentation original) {
+        FileRepresentation result = null;
+        File file = original.getFile();
+        float bestQuality = 0F;
+
+        for (Preference<Encoding> preference : request.getClientInfo()
+                .getAcceptedEncodings()) {
+            String extension = getPrecompressedExtension(preference
+                    .getMetadata());
+
+            if ((extension != null)
+                    && (preference.getQuality() > bestQuality)) {
+                File sibling = new File(file.getPath() + "." + extension);
+                Tag siblingTag = null;
+                boolean fresh;
+
+                // [ifndef android]
+                if (isMetadataCached()) {
+                    FileMetadata fileMetadata = getMetadataCache()
+                            .getMetadata(file);
+                    FileMetadata siblingMetadata = getMetadataCache()
+                            .getMetadata(sibling);
+                    fresh = (fileMetadata != null)
+                            && (siblingMetadata != null)
+                            && siblingMetadata.isNormal()
+                            && (siblingMetadata.getModificationTime() >= fileMetadata
+                                    .getModificationTime());
+
+                    if (fresh) {
+                        siblingTag = siblingMetadata.getTag();
+                    }
+                } else
+                // [enddef]
+                {
+                    fresh = sibling.isFile()
+                            && (sibling.lastModified() >= file.lastModified());
+                }
+
+                if (fresh) {
+                    bestQuality = preference.getQuality();
+                    result = new FileRepresentation(sibling,
+                            original.getMediaType());
+                    result.setCharacterSet(original.getCharacterSet());
+                    result.setDisposition(original.getDisposition());
+                    result.setExpirationDate(original.getExpirationDate());
+                    result.setLanguages(new ArrayList<Language>(original
+                            .getLanguages()));
+                    result.setLocationRef(original.getLocationRef());
+                    result.getEncodings().add(preference.getMetadata());
+
+                    if (siblingTag != null) {
+                        result.setTag(siblingTag);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the extension of the precompressed siblings of files for a given
+     * encoding. Supports "gz" for gzip, "zz" for deflate and "Z" for compress.
+     * 
+     * @param encoding
+     *            The encoding.
+     * @return The extension of the precompressed siblings or null.
+     */
+    protected String getPrecompressedExtension(Encoding encoding) {
+        String result = null;
+
+        if (Encoding.GZIP.equals(encoding)) {
+            result = "gz";
+        } else if (Encoding.DEFLATE.equals(encoding)) {
+            result = "zz";
+        } else if (Encoding.COMPRESS.equals(encoding)) {
+            result = "Z";
+        }
+
+        return result;
     }
 
     /**
@@ -203,10 +384,24 @@ public class FileClientHelper extends EntityClientHelper {
         if (Method.GET.equals(request.getMethod())
                 || Method.HEAD.equals(request.getMethod())) {
             handleEntityGet(request, response, getEntity(decodedPath));
+
+            if ((response.getEntity() instanceof FileRepresentation)
+                    && response.getEntity().getEncodings().isEmpty()) {
+                Representation precompressed = getPrecompressedRepresentation(
+                        request, (FileRepresentation) response.getEntity());
+
+                if (precompressed != null) {
+                    response.setEntity(precompressed);
+                }
+            }
         } else if (Method.PUT.equals(request.getMethod())) {
-            handleFilePut(request, response, decodedPath, new File(decodedPath));
+            File file = new File(decodedPath);
+            handleFilePut(request, response, decodedPath, file);
+            invalidateMetadata(file);
         } else if (Method.DELETE.equals(request.getMethod())) {
-            handleFileDelete(response, new File(decodedPath));
+            File file = new File(decodedPath);
+            handleFileDelete(response, file);
+            invalidateMetadata(file);
         } else {
             response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
             response.getAllowedMethods().add(Method.GET);
@@ -654,6 +849,33 @@ public class FileClientHelper extends EntityClientHelper {
         }
     }
 
+    /**
+     * Removes the cached metadata of a modified file and of its parent
+     * directory, if the metadata cache was created.
+     * 
+     * @param file
+     *            The modified file.
+     */
+    protected void invalidateMetadata(File file) {
+        // [ifndef android]
+        if (this.metadataCache != null) {
+            this.metadataCache.invalidate(file);
+        }
+        // [enddef]
+    }
+
+    /**
+     * Indicates if the directory listings and the file attributes are cached.
+     * Defaults to "false".
+     * 
+     * @return True if the directory listings and the file attributes are
+     *         cached.
+     */
+    public boolean isMetadataCached() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "metadataCached", "false"));
+    }
+
     /**
      * Indicates if a failed upload can be resumed. This will prevent the
      * deletion of the temporary file created. Defaults to "false".
@@ -665,6 +887,21 @@ public class FileClientHelper extends EntityClientHelper {
                 "resumeUpload", "false"));
     }
 
+    /**
+     * Closes the file metadata cache, if it was created.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        // [ifndef android]
+        if (this.metadataCache != null) {
+            this.metadataCache.close();
+            this.metadataCache = null;
+        }
+        // [enddef]
+
+        super.stop();
+    }
+
     /**
      * Complete the given file name with the extension corresponding to the
      * given metadata.
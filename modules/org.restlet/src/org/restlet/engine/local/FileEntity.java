@@ -31,16 +31,23 @@ import java.util.List;
 import org.restlet.data.MediaType;
 import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
 import org.restlet.service.MetadataService;
 
 /**
- * Local entity based on a regular {@link File}.
+ * Local entity based on a regular {@link File}. When a
+ * {@link FileMetadataCache} is provided, the file attributes and the
+ * directory listings are taken from it, except in the Android and GAE editions.
  */
 public class FileEntity extends Entity {
 
     /** The underlying regular file. */
     private final File file;
 
+    // [ifndef android,gae] member
+    /** The file metadata cache or null. */
+    private final FileMetadataCache metadataCache;
+
     /**
      * Constructor.
      * 
@@ -52,10 +59,36 @@ public class FileEntity extends Entity {
     public FileEntity(File file, MetadataService metadataService) {
         super(metadataService);
         this.file = file;
+        // [ifndef android,gae] instruction
+        this.metadataCache = null;
+    }
+
+    // [ifndef android,gae] method
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The underlying file.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param metadataCache
+     *            The file metadata cache or null.
+     */
+    public FileEntity(File file, MetadataService metadataService,
+            FileMetadataCache metadataCache) {
+        super(metadataService);
+        this.file = file;
+        this.metadataCache = metadataCache;
     }
 
     @Override
     public boolean exists() {
+        // [ifndef android,gae]
+        if (getMetadataCache() != null) {
+            return getMetadata() != null;
+        }
+        // [enddef]
+
         // [ifndef gae] instruction
         return getFile().exists();
         // [ifdef gae] uncomment
@@ -67,10 +100,41 @@ public class FileEntity extends Entity {
         // [enddef]
     }
 
+    @Override
+    public String getBaseName() {
+        // [ifndef android,gae]
+        FileMetadata metadata = getMetadata();
+
+        if (metadata != null) {
+            return metadata.getBaseName(getMetadataService());
+        }
+        // [enddef]
+
+        return super.getBaseName();
+    }
+
     @Override
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
+        // [ifndef android,gae]
+        if (getMetadataCache() != null) {
+            List<FileMetadata> children = getMetadataCache().getChildren(
+                    getFile());
+
+            if (children != null) {
+                result = new ArrayList<Entity>(children.size());
+
+                for (FileMetadata child : children) {
+                    result.add(new FileEntity(child.getFile(),
+                            getMetadataService(), getMetadataCache()));
+                }
+            }
+
+            return result;
+        }
+        // [enddef]
+
         if (isDirectory()) {
             result = new ArrayList<Entity>();
 
@@ -98,6 +162,28 @@ public class FileEntity extends Entity {
         return file;
     }
 
+    // [ifndef android,gae] method
+    /**
+     * Returns the cached metadata of the file.
+     * 
+     * @return The cached metadata of the file or null if it doesn't exist or
+     *         isn't cached.
+     */
+    public FileMetadata getMetadata() {
+        return (getMetadataCache() == null) ? null : getMetadataCache()
+                .getMetadata(getFile());
+    }
+
+    // [ifndef android,gae] method
+    /**
+     * Returns the file metadata cache.
+     * 
+     * @return The file metadata cache or null.
+     */
+    public FileMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
     @Override
     public String getName() {
         return getFile().getName();
@@ -106,18 +192,68 @@ public class FileEntity extends Entity {
     @Override
     public Entity getParent() {
         File parentFile = getFile().getParentFile();
-        return (parentFile == null) ? null : new FileEntity(parentFile,
-                getMetadataService());
+
+        if (parentFile == null) {
+            return null;
+        }
+
+        // [ifndef android,gae]
+        if (getMetadataCache() != null) {
+            return new FileEntity(parentFile, getMetadataService(),
+                    getMetadataCache());
+        }
+        // [enddef]
+
+        return new FileEntity(parentFile, getMetadataService());
     }
 
+    /**
+     * Returns a representation of the file. When the metadata are cached, a
+     * weak tag based on the modification date and the size is set.
+     */
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
-        return new FileRepresentation(getFile(), defaultMediaType, timeToLive);
+        Representation result = new FileRepresentation(getFile(),
+                defaultMediaType, timeToLive);
+        // [ifndef android,gae]
+        FileMetadata metadata = getMetadata();
+
+        if (metadata != null) {
+            result.setTag(metadata.getTag());
+        }
+        // [enddef]
+
+        return result;
+    }
+
+    /**
+     * Returns a variant corresponding to the extensions of this entity. When
+     * the metadata are cached, the returned instance is shared and must not be
+     * modified.
+     */
+    @Override
+    public Variant getVariant() {
+        // [ifndef android,gae]
+        FileMetadata metadata = getMetadata();
+
+        if (metadata != null) {
+            return metadata.getVariant(getMetadataService());
+        }
+        // [enddef]
+
+        return super.getVariant();
     }
 
     @Override
     public boolean isDirectory() {
+        // [ifndef android,gae]
+        if (getMetadataCache() != null) {
+            FileMetadata metadata = getMetadata();
+            return (metadata != null) && metadata.isDirectory();
+        }
+        // [enddef]
+
         // [ifndef gae] instruction
         return getFile().isDirectory();
         // [ifdef gae] uncomment
@@ -132,6 +268,13 @@ public class FileEntity extends Entity {
 
     @Override
     public boolean isNormal() {
+        // [ifndef android,gae]
+        if (getMetadataCache() != null) {
+            FileMetadata metadata = getMetadata();
+            return (metadata != null) && metadata.isNormal();
+        }
+        // [enddef]
+
         // [ifndef gae] instruction
         return getFile().isFile();
         // [ifdef gae] uncomment
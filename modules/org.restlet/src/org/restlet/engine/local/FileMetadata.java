@@ -0,0 +1,231 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.restlet.data.Tag;
+import org.restlet.representation.Variant;
+import org.restlet.service.MetadataService;
+
+/**
+ * Snapshot of the metadata of a file, read with a single call to the file
+ * system. The base name and the variant derived from the file name are
+ * computed on demand and kept as long as the same metadata service is used.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileMetadata {
+
+    /** The base name, computed on demand. */
+    private volatile String baseName;
+
+    /** Indicates if the file is a directory. */
+    private final boolean directory;
+
+    /** Indicates if the file exists. */
+    private final boolean exists;
+
+    /** The file. */
+    private final File file;
+
+    /** The length of the file. */
+    private final long length;
+
+    /** The metadata service used to compute the base name and the variant. */
+    private volatile MetadataService metadataService;
+
+    /** The modification time of the file. */
+    private final long modificationTime;
+
+    /** Indicates if the file is a normal file. */
+    private final boolean normal;
+
+    /** The weak tag, computed on demand. */
+    private volatile Tag tag;
+
+    /** The variant, computed on demand. */
+    private volatile Variant variant;
+
+    /**
+     * Constructor. Reads the attributes of the file, considered as missing if
+     * they can't be read.
+     * 
+     * @param file
+     *            The file.
+     */
+    public FileMetadata(File file) {
+        BasicFileAttributes attributes = null;
+
+        try {
+            attributes = Files.readAttributes(file.toPath(),
+                    BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Broken link or deleted meanwhile
+        }
+
+        this.exists = (attributes != null);
+        this.file = file;
+
+        if (attributes == null) {
+            this.directory = false;
+            this.normal = false;
+            this.length = 0L;
+            this.modificationTime = 0L;
+        } else {
+            this.directory = attributes.isDirectory();
+            this.normal = attributes.isRegularFile();
+            this.length = attributes.size();
+            this.modificationTime = attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * Indicates if the file exists.
+     * 
+     * @return True if the file exists.
+     */
+    public boolean exists() {
+        return this.exists;
+    }
+
+    /**
+     * Returns the base name of the file, that is to say the longest part of
+     * the name without known extensions.
+     * 
+     * @param metadataService
+     *            The metadata service.
+     * @return The base name of the file.
+     */
+    public String getBaseName(MetadataService metadataService) {
+        String result = this.baseName;
+
+        if ((result == null) || (this.metadataService != metadataService)) {
+            result = Entity.getBaseName(getName(), metadataService);
+            this.variant = null;
+            this.metadataService = metadataService;
+            this.baseName = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the file.
+     * 
+     * @return The file.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the length of the file.
+     * 
+     * @return The length of the file.
+     */
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the modification time of the file, in milliseconds.
+     * 
+     * @return The modification time of the file.
+     */
+    public long getModificationTime() {
+        return this.modificationTime;
+    }
+
+    /**
+     * Returns the name of the file.
+     * 
+     * @return The name of the file.
+     */
+    public String getName() {
+        return this.file.getName();
+    }
+
+    /**
+     * Returns a weak tag based on the modification time and the length of the
+     * file.
+     * 
+     * @return The weak tag.
+     */
+    public Tag getTag() {
+        Tag result = this.tag;
+
+        if (result == null) {
+            result = new Tag(Long.toHexString(getModificationTime()) + "-"
+                    + Long.toHexString(getLength()), true);
+            this.tag = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the variant corresponding to the extensions of the file. The
+     * returned instance is shared and must not be modified.
+     * 
+     * @param metadataService
+     *            The metadata service.
+     * @return The variant corresponding to the extensions of the file.
+     */
+    public Variant getVariant(MetadataService metadataService) {
+        Variant result = this.variant;
+
+        if ((result == null) || (this.metadataService != metadataService)) {
+            getBaseName(metadataService);
+            result = new Variant();
+            Entity.updateMetadata(getName(), result, true, metadataService);
+            this.variant = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if the file is a directory.
+     * 
+     * @return True if the file is a directory.
+     */
+    public boolean isDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Indicates if the file is a normal file.
+     * 
+     * @return True if the file is a normal file.
+     */
+    public boolean isNormal() {
+        return this.normal;
+    }
+
+}
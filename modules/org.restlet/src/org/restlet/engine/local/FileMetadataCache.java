@@ -0,0 +1,386 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.engine.util.BoundedCache;
+
+/**
+ * Cache of directory listings holding the metadata of each file, in order to
+ * avoid reading directories and file attributes on each call. The cached
+ * directories are watched with a {@link WatchService} and their listing is
+ * read again once a change is notified. When the file system can't be
+ * watched, listings are read again after a polling interval.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileMetadataCache {
+
+    /**
+     * Cached listing of a directory.
+     */
+    private static class Listing {
+
+        /** The metadata of the children, indexed by name. */
+        private final Map<String, FileMetadata> children;
+
+        /** The creation time. */
+        private final long creationTime;
+
+        /** The watch key or null if the directory is polled. */
+        private final WatchKey key;
+
+        /**
+         * Constructor.
+         * 
+         * @param children
+         *            The metadata of the children, indexed by name.
+         * @param key
+         *            The watch key or null if the directory is polled.
+         */
+        public Listing(Map<String, FileMetadata> children, WatchKey key) {
+            this.children = children;
+            this.creationTime = System.currentTimeMillis();
+            this.key = key;
+        }
+
+        /**
+         * Indicates if the listing can still be used.
+         * 
+         * @param pollingInterval
+         *            The polling interval for unwatched directories.
+         * @return True if the listing can still be used.
+         */
+        public boolean isValid(long pollingInterval) {
+            return (this.key != null) ? this.key.isValid() : (System
+                    .currentTimeMillis() - this.creationTime) < pollingInterval;
+        }
+    }
+
+    /** Indicates if the cache was closed. */
+    private volatile boolean closed;
+
+    /** The number of notified changes. */
+    private final AtomicLong invalidations;
+
+    /** The cached listings, indexed by absolute directory path. */
+    private final BoundedCache<String, Listing> listings;
+
+    /** The polling interval for unwatched directories, in milliseconds. */
+    private volatile long pollingInterval;
+
+    /** Indicates if directories should be watched. */
+    private volatile boolean watched;
+
+    /** The watch service, created on demand. */
+    private volatile WatchService watchService;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxDirectories
+     *            The maximum number of cached directory listings.
+     * @param pollingInterval
+     *            The polling interval for unwatched directories, in
+     *            milliseconds.
+     */
+    public FileMetadataCache(int maxDirectories, long pollingInterval) {
+        this.invalidations = new AtomicLong();
+        this.listings = new BoundedCache<String, Listing>(maxDirectories) {
+            @Override
+            protected void afterEviction(String key, Listing value) {
+                if (value.key != null) {
+                    value.key.cancel();
+                }
+            }
+        };
+        this.pollingInterval = pollingInterval;
+        this.watched = true;
+    }
+
+    /**
+     * Stops watching directories and removes all the listings.
+     */
+    public synchronized void close() {
+        this.closed = true;
+
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (Exception e) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to close the watch service", e);
+            }
+
+            this.watchService = null;
+        }
+
+        this.listings.clear();
+    }
+
+    /**
+     * Returns the metadata of the files contained in a directory.
+     * 
+     * @param directory
+     *            The directory.
+     * @return The metadata of the contained files or null if it isn't a
+     *         directory.
+     */
+    public List<FileMetadata> getChildren(File directory) {
+        Listing listing = getListing(directory);
+        return (listing == null) ? null : new ArrayList<FileMetadata>(
+                listing.children.values());
+    }
+
+    /**
+     * Returns the cached listing of a directory, reading it if needed.
+     * 
+     * @param directory
+     *            The directory.
+     * @return The listing or null if it isn't a directory.
+     */
+    private Listing getListing(File directory) {
+        String path = directory.getAbsolutePath();
+        Listing result = this.listings.get(path);
+
+        if ((result != null) && !result.isValid(getPollingInterval())) {
+            this.listings.remove(path);
+            result = null;
+        }
+
+        if (result == null) {
+            result = load(path);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the metadata of a file, taken from the listing of its parent
+     * directory.
+     * 
+     * @param file
+     *            The file.
+     * @return The metadata or null if the file doesn't exist.
+     */
+    public FileMetadata getMetadata(File file) {
+        FileMetadata result = null;
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent == null) {
+            result = new FileMetadata(file);
+        } else {
+            Listing listing = getListing(parent);
+
+            if (listing != null) {
+                result = listing.children.get(file.getName());
+            }
+        }
+
+        return ((result == null) || !result.exists()) ? null : result;
+    }
+
+    /**
+     * Returns the polling interval for directories that can't be watched, in
+     * milliseconds.
+     * 
+     * @return The polling interval for unwatched directories.
+     */
+    public long getPollingInterval() {
+        return this.pollingInterval;
+    }
+
+    /**
+     * Returns the watch service, creating it and its watching thread on the
+     * first call.
+     * 
+     * @return The watch service or null if directories can't be watched.
+     */
+    private synchronized WatchService getWatchService() {
+        if ((this.watchService == null) && isWatched() && !this.closed) {
+            try {
+                final WatchService service = FileSystems.getDefault()
+                        .newWatchService();
+                Thread watcher = new Thread(new Runnable() {
+                    public void run() {
+                        watch(service);
+                    }
+                }, "Restlet-FileMetadataCache");
+                watcher.setDaemon(true);
+                watcher.start();
+                this.watchService = service;
+            } catch (Exception e) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to watch directories, polling them instead",
+                        e);
+                this.watched = false;
+            }
+        }
+
+        return this.watchService;
+    }
+
+    /**
+     * Removes the listings of a modified file and of its parent directory.
+     * 
+     * @param file
+     *            The modified file.
+     */
+    public void invalidate(File file) {
+        File absolute = file.getAbsoluteFile();
+        this.listings.remove(absolute.getPath());
+
+        if (absolute.getParentFile() != null) {
+            this.listings.remove(absolute.getParent());
+        }
+    }
+
+    /**
+     * Indicates if directories are watched for changes. If false, listings
+     * are read again after the polling interval.
+     * 
+     * @return True if directories are watched for changes.
+     */
+    public boolean isWatched() {
+        return this.watched;
+    }
+
+    /**
+     * Reads and caches the listing of a directory. The directory is watched
+     * before being read so that no change is missed.
+     * 
+     * @param path
+     *            The absolute directory path.
+     * @return The listing or null if it isn't a directory.
+     */
+    private Listing load(String path) {
+        long invalidations = this.invalidations.get();
+        File directory = new File(path);
+        WatchKey key = null;
+        WatchService service = getWatchService();
+
+        if (service != null) {
+            try {
+                key = Paths.get(path).register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (Exception e) {
+                // Not a directory or not watchable, poll it instead
+            }
+        }
+
+        Listing result = null;
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            Map<String, FileMetadata> children = new LinkedHashMap<String, FileMetadata>();
+
+            for (File file : files) {
+                children.put(file.getName(), new FileMetadata(file));
+            }
+
+            result = new Listing(children, key);
+            this.listings.put(path, result);
+
+            if (this.invalidations.get() != invalidations) {
+                // A change may have been notified before the listing was
+                // cached
+                this.listings.remove(path);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the polling interval for directories that can't be watched.
+     * 
+     * @param pollingInterval
+     *            The polling interval for unwatched directories, in
+     *            milliseconds.
+     */
+    public void setPollingInterval(long pollingInterval) {
+        this.pollingInterval = pollingInterval;
+    }
+
+    /**
+     * Indicates if directories should be watched for changes. Must be set
+     * before the first lookup.
+     * 
+     * @param watched
+     *            True if directories should be watched for changes.
+     */
+    public void setWatched(boolean watched) {
+        this.watched = watched;
+    }
+
+    /**
+     * Returns the number of cached directory listings.
+     * 
+     * @return The number of cached directory listings.
+     */
+    public int size() {
+        return this.listings.size();
+    }
+
+    /**
+     * Removes the listings of the directories whose changes are notified,
+     * until the watch service is closed.
+     * 
+     * @param service
+     *            The watch service.
+     */
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                key.pollEvents();
+                this.invalidations.incrementAndGet();
+                this.listings.remove(key.watchable().toString());
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            // Stop watching
+        } catch (ClosedWatchServiceException e) {
+            // Stop watching
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.restlet.Context;
+
+/**
+ * Opened Zip archive with an in-memory index of its entries. Instances are
+ * reference counted: the Zip file is closed when the last reference is
+ * released. The modification date and length of the archive file are recorded
+ * when opening it, in order to detect stale instances.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipArchive {
+
+    /** The entries indexed by name. */
+    private final SortedMap<String, ZipEntry> entries;
+
+    /** The archive file. */
+    private final File file;
+
+    /** The length of the archive file when it was opened. */
+    private final long length;
+
+    /** The modification time of the archive file when it was opened. */
+    private final long modificationTime;
+
+    /** The number of references. */
+    private int references;
+
+    /** The opened Zip file. */
+    private final ZipFile zipFile;
+
+    /**
+     * Constructor. Opens the archive and indexes its entries. The caller holds
+     * the first reference.
+     * 
+     * @param file
+     *            The archive file.
+     * @throws IOException
+     */
+    public ZipArchive(File file) throws IOException {
+        this.file = file;
+        this.modificationTime = file.lastModified();
+        this.length = file.length();
+        this.zipFile = new ZipFile(file);
+        this.entries = new TreeMap<String, ZipEntry>();
+        this.references = 1;
+
+        for (Enumeration<? extends ZipEntry> iter = this.zipFile.entries(); iter
+                .hasMoreElements();) {
+            ZipEntry entry = iter.nextElement();
+            this.entries.put(entry.getName(), entry);
+        }
+    }
+
+    /**
+     * Adds a reference to this archive.
+     * 
+     * @throws IllegalStateException
+     *             If the archive has already been closed.
+     */
+    public synchronized void acquire() {
+        if (this.references <= 0) {
+            throw new IllegalStateException("The Zip archive "
+                    + this.file.getPath() + " is closed");
+        }
+
+        this.references++;
+    }
+
+    /**
+     * Returns the entries whose name starts with a given prefix, excluding the
+     * entry named like the prefix, sorted by name.
+     * 
+     * @param prefix
+     *            The name prefix.
+     * @return The matching entries.
+     */
+    public List<ZipEntry> getEntries(String prefix) {
+        return Collections.unmodifiableList(new ArrayList<ZipEntry>(
+                this.entries.subMap(prefix + '\0', prefix + Character.MAX_VALUE)
+                        .values()));
+    }
+
+    /**
+     * Returns the entry of a given name. Like {@link ZipFile#getEntry(String)}
+     * , the directory entry with a trailing slash is returned if no entry
+     * exactly matches.
+     * 
+     * @param name
+     *            The entry name.
+     * @return The entry or null.
+     */
+    public ZipEntry getEntry(String name) {
+        ZipEntry result = this.entries.get(name);
+
+        if ((result == null) && !name.endsWith("/")) {
+            result = this.entries.get(name + "/");
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the archive file.
+     * 
+     * @return The archive file.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the current number of references.
+     * 
+     * @return The current number of references.
+     */
+    public synchronized int getReferences() {
+        return this.references;
+    }
+
+    /**
+     * Returns the opened Zip file.
+     * 
+     * @return The opened Zip file.
+     */
+    public ZipFile getZipFile() {
+        return this.zipFile;
+    }
+
+    /**
+     * Indicates if the archive file was modified or deleted since it was
+     * opened.
+     * 
+     * @return True if the archive file was modified or deleted.
+     */
+    public boolean isStale() {
+        return (this.file.lastModified() != this.modificationTime)
+                || (this.file.length() != this.length);
+    }
+
+    /**
+     * Removes a reference to this archive, closing the Zip file if it was the
+     * last one.
+     */
+    public void release() {
+        boolean close;
+
+        synchronized (this) {
+            close = (this.references > 0) && (--this.references == 0);
+        }
+
+        if (close) {
+            try {
+                this.zipFile.close();
+            } catch (IOException e) {
+                Context.getCurrentLogger().fine(
+                        "Unable to close the Zip archive "
+                                + this.file.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
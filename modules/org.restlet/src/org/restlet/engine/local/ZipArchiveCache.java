@@ -0,0 +1,196 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of opened Zip archives, owned by a single Zip client connector so that
+ * the central directory of an archive is only read once by this connector. An
+ * archive is opened again when its file is modified. The least recently used
+ * archives are released when the maximum number of archives is exceeded, and
+ * all of them are released when the connector is stopped, see
+ * {@link ZipClientHelper#stop()}.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipArchiveCache {
+
+    /** The cached archives, in access order, indexed by absolute path. */
+    private final Map<String, ZipArchive> archives;
+
+    /** The maximum number of cached archives. */
+    private volatile int maxArchives;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxArchives
+     *            The maximum number of cached archives.
+     */
+    public ZipArchiveCache(int maxArchives) {
+        this.archives = new LinkedHashMap<String, ZipArchive>(16, 0.75f, true);
+        this.maxArchives = maxArchives;
+    }
+
+    /**
+     * Returns a referenced archive for a given file, opening it if it isn't
+     * cached or if its file was modified. The caller must release it.
+     * 
+     * @param file
+     *            The archive file.
+     * @return The referenced archive.
+     * @throws IOException
+     */
+    public ZipArchive acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        ZipArchive result = lookup(key);
+
+        if (result == null) {
+            // Open the archive outside of the lock
+            ZipArchive opened = new ZipArchive(file);
+
+            synchronized (this.archives) {
+                result = lookup(key);
+
+                if (result == null) {
+                    this.archives.put(key, opened);
+                    result = opened;
+                    result.acquire();
+                    evict();
+                } else {
+                    opened.release();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Releases all the cached archives.
+     */
+    public void clear() {
+        synchronized (this.archives) {
+            for (ZipArchive archive : this.archives.values()) {
+                archive.release();
+            }
+
+            this.archives.clear();
+        }
+    }
+
+    /**
+     * Releases the least recently used archives exceeding the maximum number.
+     */
+    private void evict() {
+        for (Iterator<ZipArchive> iter = this.archives.values().iterator(); (this.archives
+                .size() > getMaxArchives()) && iter.hasNext();) {
+            ZipArchive archive = iter.next();
+            iter.remove();
+            archive.release();
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached archives.
+     * 
+     * @return The maximum number of cached archives.
+     */
+    public int getMaxArchives() {
+        return this.maxArchives;
+    }
+
+    /**
+     * Removes a file from the cache. Its archive is closed once its last
+     * reference is released.
+     * 
+     * @param file
+     *            The archive file.
+     */
+    public void invalidate(File file) {
+        ZipArchive archive;
+
+        synchronized (this.archives) {
+            archive = this.archives.remove(file.getAbsolutePath());
+        }
+
+        if (archive != null) {
+            archive.release();
+        }
+    }
+
+    /**
+     * Returns and references the cached archive of a given key, removing it if
+     * it is stale.
+     * 
+     * @param key
+     *            The archive key.
+     * @return The referenced archive or null.
+     */
+    private ZipArchive lookup(String key) {
+        synchronized (this.archives) {
+            ZipArchive result = this.archives.get(key);
+
+            if ((result != null) && result.isStale()) {
+                this.archives.remove(key);
+                result.release();
+                result = null;
+            }
+
+            if (result != null) {
+                result.acquire();
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached archives.
+     * 
+     * @param maxArchives
+     *            The maximum number of cached archives.
+     */
+    public void setMaxArchives(int maxArchives) {
+        this.maxArchives = maxArchives;
+    }
+
+    /**
+     * Returns the number of cached archives.
+     * 
+     * @return The number of cached archives.
+     */
+    public int size() {
+        synchronized (this.archives) {
+            return this.archives.size();
+        }
+    }
+
+}
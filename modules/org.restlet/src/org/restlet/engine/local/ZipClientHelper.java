@@ -53,12 +53,19 @@ import org.restlet.service.MetadataService;
  * files.<br>
  * <br>
  * Handles GET, HEAD and PUT request on resources referenced as :
- * zip:file://<file path>
+ * zip:file://<file path><br>
+ * <br>
+ * The opened archives and the index of their entries are kept in a cache,
+ * see {@link #getArchiveCache()}. An archive is opened again when its file is
+ * modified, and all of them are released when the connector is stopped.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipClientHelper extends LocalClientHelper {
 
+    /** The cache of opened archives. */
+    private final ZipArchiveCache archiveCache;
+
     /**
      * Constructor.
      * 
@@ -69,6 +76,16 @@ public class ZipClientHelper extends LocalClientHelper {
         super(client);
         getProtocols().add(Protocol.ZIP);
         getProtocols().add(Protocol.JAR);
+        this.archiveCache = new ZipArchiveCache(16);
+    }
+
+    /**
+     * Returns the cache of opened archives.
+     * 
+     * @return The cache of opened archives.
+     */
+    public ZipArchiveCache getArchiveCache() {
+        return this.archiveCache;
     }
 
     /**
@@ -137,54 +154,55 @@ public class ZipClientHelper extends LocalClientHelper {
         if (!file.exists()) {
             response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
         } else {
-            ZipFile zipFile;
+            ZipArchive archive;
 
             try {
-                zipFile = new ZipFile(file);
+                archive = getArchiveCache().acquire(file);
             } catch (Exception e) {
                 response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
                 return;
             }
 
-            Entity entity = new ZipEntryEntity(zipFile, entryName,
-                    metadataService);
-            if (!entity.exists()) {
-                response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
-            } else {
-                final Representation output;
-
-                if (entity.isDirectory()) {
-                    // Return the directory listing
-                    final Collection<Entity> children = entity.getChildren();
-                    final ReferenceList rl = new ReferenceList(children.size());
-                    String fileUri = LocalReference.createFileReference(file)
-                            .toString();
-                    String scheme = request.getResourceRef().getScheme();
-                    String baseUri = scheme + ":" + fileUri + "!/";
+            try {
+                Entity entity = new ZipEntryEntity(archive, entryName,
+                        metadataService);
+                if (!entity.exists()) {
+                    response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+                } else {
+                    final Representation output;
 
-                    for (final Entity entry : children) {
-                        rl.add(baseUri + entry.getName());
-                    }
+                    if (entity.isDirectory()) {
+                        // Return the directory listing
+                        final Collection<Entity> children = entity
+                                .getChildren();
+                        final ReferenceList rl = new ReferenceList(
+                                children.size());
+                        String fileUri = LocalReference.createFileReference(
+                                file).toString();
+                        String scheme = request.getResourceRef().getScheme();
+                        String baseUri = scheme + ":" + fileUri + "!/";
 
-                    output = rl.getTextRepresentation();
+                        for (final Entity entry : children) {
+                            rl.add(baseUri + entry.getName());
+                        }
 
-                    try {
-                        zipFile.close();
-                    } catch (IOException e) {
-                        // Do something ???
+                        output = rl.getTextRepresentation();
+                    } else {
+                        // Return the file content, holding its own reference
+                        // on the archive until released
+                        output = entity.getRepresentation(
+                                metadataService.getDefaultMediaType(),
+                                getTimeToLive());
+                        output.setLocationRef(request.getResourceRef());
+                        Entity.updateMetadata(entity.getName(), output, true,
+                                getMetadataService());
                     }
-                } else {
-                    // Return the file content
-                    output = entity.getRepresentation(
-                            metadataService.getDefaultMediaType(),
-                            getTimeToLive());
-                    output.setLocationRef(request.getResourceRef());
-                    Entity.updateMetadata(entity.getName(), output, true,
-                            getMetadataService());
-                }
 
-                response.setStatus(Status.SUCCESS_OK);
-                response.setEntity(output);
+                    response.setStatus(Status.SUCCESS_OK);
+                    response.setEntity(output);
+                }
+            } finally {
+                archive.release();
             }
         }
     }
@@ -219,21 +237,21 @@ public class ZipClientHelper extends LocalClientHelper {
         boolean canAppend = !zipExists;
         boolean isDirectory = entryName.endsWith("/");
         boolean wrongReplace = false;
+        ZipArchive archive = null;
         try {
             if (zipExists) {
-                ZipFile zipFile = new ZipFile(file);
+                archive = getArchiveCache().acquire(file);
                 // Already exists ?
-                canAppend &= null == zipFile.getEntry(entryName);
+                canAppend &= null == archive.getEntry(entryName);
                 // Directory with the same name ?
                 if (isDirectory) {
-                    wrongReplace = null != zipFile.getEntry(entryName
+                    wrongReplace = null != archive.getEntry(entryName
                             .substring(0, entryName.length() - 1));
                 } else {
-                    wrongReplace = null != zipFile.getEntry(entryName + "/");
+                    wrongReplace = null != archive.getEntry(entryName + "/");
                 }
 
                 canAppend &= !wrongReplace;
-                zipFile.close();
             }
 
             Representation entity;
@@ -244,6 +262,8 @@ public class ZipClientHelper extends LocalClientHelper {
             }
 
             if (canAppend) {
+                getArchiveCache().invalidate(file);
+
                 try {
                     // zipOut = new ZipOutputStream(new BufferedOutputStream(new
                     // FileOutputStream(file, true)));
@@ -265,10 +285,9 @@ public class ZipClientHelper extends LocalClientHelper {
                             "Directory cannot be replaced by a file or file by a directory.");
                 } else {
                     File writeTo = null;
-                    ZipFile zipFile = null;
+                    ZipFile zipFile = archive.getZipFile();
                     try {
                         writeTo = File.createTempFile("restlet_zip_", "zip");
-                        zipFile = new ZipFile(file);
                         zipOut = new ZipOutputStream(new BufferedOutputStream(
                                 new FileOutputStream(writeTo)));
                         Enumeration<? extends ZipEntry> entries = zipFile
@@ -290,18 +309,17 @@ public class ZipClientHelper extends LocalClientHelper {
                         if (!replaced) {
                             writeEntityStream(entity, zipOut, entryName);
                         }
-                        zipFile.close();
                         zipOut.close();
                     } finally {
-                        try {
-                            if (zipFile != null)
-                                zipFile.close();
-                        } finally {
-                            if (zipOut != null)
-                                zipOut.close();
-                        }
+                        if (zipOut != null)
+                            zipOut.close();
                     }
 
+                    // Close the archive before replacing its file
+                    getArchiveCache().invalidate(file);
+                    archive.release();
+                    archive = null;
+
                     if (!(IoUtils.delete(file) && writeTo.renameTo(file))) {
                         if (!file.exists())
                             file.createNewFile();
@@ -331,9 +349,22 @@ public class ZipClientHelper extends LocalClientHelper {
         } catch (Exception e) {
             response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
             return;
+        } finally {
+            if (archive != null) {
+                archive.release();
+            }
         }
     }
 
+    /**
+     * Releases the cached archives.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        getArchiveCache().clear();
+        super.stop();
+    }
+
     /**
      * Writes an entity to a given ZIP output stream with a given ZIP entry
      * name.
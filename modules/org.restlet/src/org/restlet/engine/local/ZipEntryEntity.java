@@ -35,18 +35,67 @@ import org.restlet.representation.Representation;
 import org.restlet.service.MetadataService;
 
 /**
- * Local entity based on an entry in a Zip archive.
+ * Local entity based on an entry in a Zip archive. When built on a
+ * {@link ZipArchive}, its index of entries is used instead of scanning the Zip
+ * file.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipEntryEntity extends Entity {
 
+    /** The indexed Zip archive, if any. */
+    protected final ZipArchive archive;
+
     /** The Zip entry. */
     protected final ZipEntry entry;
 
     /** The Zip file. */
     protected final ZipFile zipFile;
 
+    /**
+     * Constructor.
+     * 
+     * @param archive
+     *            The indexed Zip archive.
+     * @param entryName
+     *            The Zip entry name.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, String entryName,
+            MetadataService metadataService) {
+        super(metadataService);
+        this.archive = archive;
+        this.zipFile = archive.getZipFile();
+        ZipEntry entry = archive.getEntry(entryName);
+
+        if (entry == null) {
+            this.entry = new ZipEntry(entryName);
+        } else {
+            // Checking we don't have a directory
+            ZipEntry entryDir = archive.getEntry(entryName + "/");
+            this.entry = (entryDir != null) ? entryDir : entry;
+        }
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param archive
+     *            The indexed Zip archive.
+     * @param entry
+     *            The Zip entry.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, ZipEntry entry,
+            MetadataService metadataService) {
+        super(metadataService);
+        this.archive = archive;
+        this.zipFile = archive.getZipFile();
+        this.entry = entry;
+    }
+
     /**
      * Constructor.
      * 
@@ -60,6 +109,7 @@ public class ZipEntryEntity extends Entity {
     public ZipEntryEntity(ZipFile zipFile, String entryName,
             MetadataService metadataService) {
         super(metadataService);
+        this.archive = null;
         this.zipFile = zipFile;
         ZipEntry entry = zipFile.getEntry(entryName);
         if (entry == null)
@@ -87,6 +137,7 @@ public class ZipEntryEntity extends Entity {
     public ZipEntryEntity(ZipFile zipFile, ZipEntry entry,
             MetadataService metadataService) {
         super(metadataService);
+        this.archive = null;
         this.zipFile = zipFile;
         this.entry = entry;
     }
@@ -104,7 +155,14 @@ public class ZipEntryEntity extends Entity {
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
-        if (isDirectory()) {
+        if (isDirectory() && (this.archive != null)) {
+            result = new ArrayList<Entity>();
+
+            for (ZipEntry e : this.archive.getEntries(entry.getName())) {
+                result.add(new ZipEntryEntity(this.archive, e,
+                        getMetadataService()));
+            }
+        } else if (isDirectory()) {
             result = new ArrayList<Entity>();
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             String n = entry.getName();
@@ -132,6 +190,14 @@ public class ZipEntryEntity extends Entity {
 
         String n = entry.getName();
         String pn = n.substring(0, n.lastIndexOf('/') + 1);
+
+        if (this.archive != null) {
+            ZipEntry parent = this.archive.getEntry(pn);
+            return new ZipEntryEntity(this.archive,
+                    (parent == null) ? new ZipEntry(pn) : parent,
+                    getMetadataService());
+        }
+
         return new ZipEntryEntity(zipFile, zipFile.getEntry(pn),
                 getMetadataService());
     }
@@ -139,6 +205,12 @@ public class ZipEntryEntity extends Entity {
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
+        if (this.archive != null) {
+            this.archive.acquire();
+            return new ZipEntryRepresentation(defaultMediaType, this.archive,
+                    entry, timeToLive);
+        }
+
         return new ZipEntryRepresentation(defaultMediaType, zipFile, entry,
                 timeToLive);
     }
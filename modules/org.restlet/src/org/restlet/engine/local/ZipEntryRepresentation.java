@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -40,15 +41,21 @@ import org.restlet.representation.StreamRepresentation;
  * An entry in a Zip/JAR file.
  * 
  * It is very important {@link #release()} is called to close the underlying Zip
- * file.
+ * file, or to release the reference held on the underlying {@link ZipArchive}.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipEntryRepresentation extends StreamRepresentation {
 
+    /** The referenced Zip archive, if any. */
+    protected final ZipArchive archive;
+
     /** The Zip entry. */
     protected final ZipEntry entry;
 
+    /** Indicates if the Zip file or archive was released. */
+    private final AtomicBoolean released;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -84,7 +91,46 @@ public class ZipEntryRepresentation extends StreamRepresentation {
      */
     public ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
             ZipEntry entry, int timeToLive) {
+        this(mediaType, null, zipFile, entry, timeToLive);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param archive
+     *            The parent Zip archive, whose reference is released with this
+     *            representation.
+     * @param entry
+     *            The Zip entry.
+     * @param timeToLive
+     *            The time to live before it expires (in seconds).
+     */
+    public ZipEntryRepresentation(MediaType mediaType, ZipArchive archive,
+            ZipEntry entry, int timeToLive) {
+        this(mediaType, archive, archive.getZipFile(), entry, timeToLive);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param archive
+     *            The parent Zip archive or null.
+     * @param zipFile
+     *            The parent Zip archive file.
+     * @param entry
+     *            The Zip entry.
+     * @param timeToLive
+     *            The time to live before it expires (in seconds).
+     */
+    private ZipEntryRepresentation(MediaType mediaType, ZipArchive archive,
+            ZipFile zipFile, ZipEntry entry, int timeToLive) {
         super(mediaType);
+        this.archive = archive;
+        this.released = new AtomicBoolean();
         this.zipFile = zipFile;
         this.entry = entry;
         Disposition disposition = new Disposition();
@@ -108,9 +154,17 @@ public class ZipEntryRepresentation extends StreamRepresentation {
 
     @Override
     public void release() {
-        try {
-            zipFile.close();
-        } catch (IOException e) {
+        if (!this.released.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (this.archive != null) {
+            this.archive.release();
+        } else {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+            }
         }
     }
 
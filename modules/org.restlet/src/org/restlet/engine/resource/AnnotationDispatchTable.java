@@ -0,0 +1,335 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Encoding;
+import org.restlet.data.Form;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.engine.util.BoundedCache;
+import org.restlet.representation.Representation;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
+
+// [excludes gwt]
+/**
+ * Precomputed dispatch table of the annotated methods of a resource class. The
+ * method annotations are grouped by Restlet method and the annotated method
+ * selected for a given request entity is remembered, so that repeated calls
+ * become a single hash lookup.<br>
+ * <br>
+ * Selections are keyed on the metadata of the request entity, and only
+ * reused with the same metadata and converter services. Selections depending
+ * on the query parameters, because one of the annotations of the Restlet
+ * method declares query constraints, are never remembered.
+ * 
+ * @author Jerome Louvel
+ */
+public class AnnotationDispatchTable {
+
+    /**
+     * Key of a remembered selection.
+     */
+    private static final class DispatchKey {
+
+        /** The character set of the request entity. */
+        private final CharacterSet characterSet;
+
+        /** The encodings of the request entity. */
+        private final List<Encoding> encodings;
+
+        /** The languages of the request entity. */
+        private final List<Language> languages;
+
+        /** The media type of the request entity. */
+        private final MediaType mediaType;
+
+        /** The Restlet method. */
+        private final Method method;
+
+        /**
+         * Constructor.
+         * 
+         * @param method
+         *            The Restlet method.
+         * @param entity
+         *            The available request entity or null.
+         */
+        private DispatchKey(Method method, Representation entity) {
+            this.method = method;
+
+            if (entity == null) {
+                this.mediaType = null;
+                this.characterSet = null;
+                this.encodings = null;
+                this.languages = null;
+            } else {
+                this.mediaType = entity.getMediaType();
+                this.characterSet = entity.getCharacterSet();
+                this.encodings = new ArrayList<Encoding>(entity.getEncodings());
+                this.languages = new ArrayList<Language>(entity.getLanguages());
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof DispatchKey)) {
+                return false;
+            }
+
+            DispatchKey key = (DispatchKey) other;
+            return equals(this.method, key.method)
+                    && equals(this.mediaType, key.mediaType)
+                    && equals(this.characterSet, key.characterSet)
+                    && equals(this.encodings, key.encodings)
+                    && equals(this.languages, key.languages);
+        }
+
+        /**
+         * Indicates if two nullable objects are equal.
+         * 
+         * @param object1
+         *            The first object.
+         * @param object2
+         *            The second object.
+         * @return True if both objects are null or equal.
+         */
+        private boolean equals(Object object1, Object object2) {
+            return (object1 == null) ? (object2 == null) : object1
+                    .equals(object2);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (this.method == null) ? 0 : this.method.hashCode();
+            result = 31 * result
+                    + ((this.mediaType == null) ? 0 : this.mediaType.hashCode());
+            result = 31
+                    * result
+                    + ((this.characterSet == null) ? 0 : this.characterSet
+                            .hashCode());
+            result = 31 * result
+                    + ((this.encodings == null) ? 0 : this.encodings.hashCode());
+            result = 31 * result
+                    + ((this.languages == null) ? 0 : this.languages.hashCode());
+            return result;
+        }
+    }
+
+    /**
+     * Remembered selection, with the services it was computed with.
+     */
+    private static final class Selection {
+
+        /** The selected annotation descriptor or null. */
+        private final MethodAnnotationInfo annotation;
+
+        /** The converter service used. */
+        private final ConverterService converterService;
+
+        /** The metadata service used. */
+        private final MetadataService metadataService;
+
+        /**
+         * Constructor.
+         * 
+         * @param annotation
+         *            The selected annotation descriptor or null.
+         * @param metadataService
+         *            The metadata service used.
+         * @param converterService
+         *            The converter service used.
+         */
+        private Selection(MethodAnnotationInfo annotation,
+                MetadataService metadataService,
+                ConverterService converterService) {
+            this.annotation = annotation;
+            this.metadataService = metadataService;
+            this.converterService = converterService;
+        }
+
+        /**
+         * Indicates if the selection was computed with the given services.
+         * 
+         * @param metadataService
+         *            The metadata service to use.
+         * @param converterService
+         *            The converter service to use.
+         * @return True if the selection was computed with the given services.
+         */
+        private boolean isFor(MetadataService metadataService,
+                ConverterService converterService) {
+            return (this.metadataService == metadataService)
+                    && (this.converterService == converterService);
+        }
+    }
+
+    /** The maximum number of remembered selections. */
+    public static final int MAX_SELECTIONS = 256;
+
+    /** The method annotations grouped by Restlet method. */
+    private final Map<Method, List<MethodAnnotationInfo>> methodAnnotations;
+
+    /** The Restlet methods with query constraints. */
+    private final Set<Method> queryMethods;
+
+    /** The remembered selections, the oldest ones being evicted first. */
+    private final BoundedCache<DispatchKey, Selection> selections;
+
+    /**
+     * Constructor.
+     * 
+     * @param annotations
+     *            The annotation descriptors of the resource class or null.
+     */
+    public AnnotationDispatchTable(List<AnnotationInfo> annotations) {
+        Map<Method, List<MethodAnnotationInfo>> map = new HashMap<Method, List<MethodAnnotationInfo>>();
+        this.queryMethods = new HashSet<Method>();
+        this.selections = new BoundedCache<DispatchKey, Selection>(
+                MAX_SELECTIONS);
+
+        if (annotations != null) {
+            for (AnnotationInfo annotationInfo : annotations) {
+                if (annotationInfo instanceof MethodAnnotationInfo) {
+                    MethodAnnotationInfo mai = (MethodAnnotationInfo) annotationInfo;
+                    List<MethodAnnotationInfo> list = map.get(mai
+                            .getRestletMethod());
+
+                    if (list == null) {
+                        list = new ArrayList<MethodAnnotationInfo>();
+                        map.put(mai.getRestletMethod(), list);
+                    }
+
+                    list.add(mai);
+
+                    if (mai.getQuery() != null) {
+                        this.queryMethods.add(mai.getRestletMethod());
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Method, List<MethodAnnotationInfo>> entry : map
+                .entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        this.methodAnnotations = map;
+    }
+
+    /**
+     * Returns the first annotation descriptor compatible with the given
+     * request, in the order of the class annotations.
+     * 
+     * @param restletMethod
+     *            The Restlet method.
+     * @param query
+     *            The query parameters.
+     * @param entity
+     *            The request entity or null.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The annotation descriptor or null.
+     * @throws IOException
+     */
+    public MethodAnnotationInfo getMethodAnnotation(Method restletMethod,
+            Form query, Representation entity, MetadataService metadataService,
+            ConverterService converterService) throws IOException {
+        List<MethodAnnotationInfo> candidates = getMethodAnnotations(restletMethod);
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        DispatchKey key = null;
+
+        if (!this.queryMethods.contains(restletMethod)) {
+            key = new DispatchKey(restletMethod,
+                    ((entity != null) && entity.isAvailable()) ? entity : null);
+            Selection selection = this.selections.get(key);
+
+            if ((selection != null)
+                    && selection.isFor(metadataService, converterService)) {
+                return selection.annotation;
+            }
+        }
+
+        MethodAnnotationInfo result = null;
+
+        for (int i = 0; (result == null) && (i < candidates.size()); i++) {
+            if (candidates.get(i).isCompatible(restletMethod, query, entity,
+                    metadataService, converterService)) {
+                result = candidates.get(i);
+            }
+        }
+
+        if (key != null) {
+            // Replaces a selection computed with other services
+            this.selections.put(key, new Selection(result, metadataService,
+                    converterService));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the method annotations of a given Restlet method, in the order
+     * of the class annotations.
+     * 
+     * @param restletMethod
+     *            The Restlet method.
+     * @return The unmodifiable list of method annotations.
+     */
+    public List<MethodAnnotationInfo> getMethodAnnotations(Method restletMethod) {
+        List<MethodAnnotationInfo> result = this.methodAnnotations
+                .get(restletMethod);
+        return (result == null) ? Collections
+                .<MethodAnnotationInfo> emptyList() : result;
+    }
+
+    /**
+     * Returns the number of remembered selections.
+     * 
+     * @return The number of remembered selections.
+     */
+    public int getSelectionCount() {
+        return this.selections.size();
+    }
+
+}
@@ -49,6 +49,9 @@ public class AnnotationUtils {
     /** Annotation info cache. */
     private static final ConcurrentMap<Class<?>, List<AnnotationInfo>> cache = new ConcurrentHashMap<Class<?>, List<AnnotationInfo>>();
 
+    /** Dispatch table cache. */
+    private static final ConcurrentMap<Class<?>, AnnotationDispatchTable> dispatchTables = new ConcurrentHashMap<Class<?>, AnnotationDispatchTable>();
+
     /** Current instance. */
     private static AnnotationUtils instance = new AnnotationUtils();
 
@@ -224,6 +227,7 @@ public class AnnotationUtils {
      */
     public void clearCache() {
         cache.clear();
+        dispatchTables.clear();
     }
 
     /**
@@ -233,7 +237,7 @@ public class AnnotationUtils {
      *            The resource class to introspect.
      * @return The list of annotation descriptors.
      */
-    public synchronized List<AnnotationInfo> getAnnotations(Class<?> clazz) {
+    public List<AnnotationInfo> getAnnotations(Class<?> clazz) {
         List<AnnotationInfo> result = cache.get(clazz);
 
         if (result == null) {
@@ -264,6 +268,33 @@ public class AnnotationUtils {
         return addMethodAnnotationDescriptors(null, clazz, clazz, javaMethod);
     }
 
+    /**
+     * Returns the dispatch table for the given resource class, built from its
+     * annotation descriptors.
+     * 
+     * @param clazz
+     *            The resource class to introspect.
+     * @return The dispatch table.
+     */
+    public AnnotationDispatchTable getDispatchTable(Class<?> clazz) {
+        AnnotationDispatchTable result = dispatchTables.get(clazz);
+
+        if (result == null) {
+            result = new AnnotationDispatchTable(getAnnotations(clazz));
+
+            // Put the table in the cache if no one was previously present
+            AnnotationDispatchTable prev = dispatchTables.putIfAbsent(clazz,
+                    result);
+
+            if (prev != null) {
+                // Reuse the previous entry
+                result = prev;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the first annotation descriptor matching the given Java method.
      * 
@@ -327,6 +358,35 @@ public class AnnotationUtils {
         return null;
     }
 
+    /**
+     * Returns the first annotation descriptor of a resource class matching the
+     * given Restlet method, using the class dispatch table.
+     * 
+     * @param clazz
+     *            The resource class.
+     * @param restletMethod
+     *            The method to match.
+     * @param query
+     *            The query parameters.
+     * @param entity
+     *            The request entity to match or null if no entity is provided.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The annotation descriptor.
+     * @throws IOException
+     * @see #getDispatchTable(Class)
+     */
+    public MethodAnnotationInfo getMethodAnnotation(Class<?> clazz,
+            Method restletMethod, Form query, Representation entity,
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService)
+            throws IOException {
+        return getDispatchTable(clazz).getMethodAnnotation(restletMethod,
+                query, entity, metadataService, converterService);
+    }
+
     /**
      * Returns an instance of {@link Method} according to the given annotations.
      * 
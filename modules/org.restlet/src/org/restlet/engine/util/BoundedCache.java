@@ -0,0 +1,247 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent cache bounded by a maximum number of entries. When the maximum is
+ * reached, the oldest entries are evicted first. Lookups never lock and the
+ * numbers of hits, misses and evictions are recorded. Subclasses can release
+ * the evicted values by overriding {@link #afterEviction(Object, Object)}.
+ * 
+ * @author Jerome Louvel
+ * 
+ * @param <K>
+ *            The key type.
+ * @param <V>
+ *            The value type.
+ */
+public class BoundedCache<K, V> {
+
+    /** The cached entries. */
+    private final ConcurrentMap<K, V> entries;
+
+    /** The number of evictions. */
+    private final AtomicLong evictions;
+
+    /** The number of hits. */
+    private final AtomicLong hits;
+
+    /** The keys in insertion order. */
+    private final Queue<K> keys;
+
+    /** The maximum number of entries. */
+    private volatile int maxEntries;
+
+    /** The number of misses. */
+    private final AtomicLong misses;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries.
+     */
+    public BoundedCache(int maxEntries) {
+        this.entries = new ConcurrentHashMap<K, V>();
+        this.keys = new ConcurrentLinkedQueue<K>();
+        this.maxEntries = maxEntries;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Callback invoked after an entry has been evicted. Does nothing by
+     * default.
+     * 
+     * @param key
+     *            The evicted key.
+     * @param value
+     *            The evicted value.
+     */
+    protected void afterEviction(K key, V value) {
+    }
+
+    /**
+     * Removes all the entries. The statistics are preserved.
+     */
+    public void clear() {
+        this.entries.clear();
+        this.keys.clear();
+    }
+
+    /**
+     * Returns the cached value of a key and records a hit or a miss.
+     * 
+     * @param key
+     *            The key to look up.
+     * @return The cached value or null.
+     */
+    public V get(K key) {
+        V result = this.entries.get(key);
+
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of evicted entries.
+     * 
+     * @return The number of evicted entries.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of successful lookups.
+     * 
+     * @return The number of successful lookups.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * Returns the number of failed lookups.
+     * 
+     * @return The number of failed lookups.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Caches a value, evicting the oldest entries if the maximum number of
+     * entries is exceeded.
+     * 
+     * @param key
+     *            The key.
+     * @param value
+     *            The value to cache.
+     * @return The value previously cached for this key or null.
+     */
+    public V put(K key, V value) {
+        V result = this.entries.put(key, value);
+
+        if (result == null) {
+            this.keys.offer(key);
+
+            while (this.entries.size() > getMaxEntries()) {
+                K oldest = this.keys.poll();
+                V evicted = (oldest == null) ? null : this.entries
+                        .remove(oldest);
+
+                if (oldest == null) {
+                    break;
+                } else if (evicted != null) {
+                    this.evictions.incrementAndGet();
+                    afterEviction(oldest, evicted);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the cached value of a key.
+     * 
+     * @param key
+     *            The key.
+     * @return The removed value or null.
+     */
+    public V remove(K key) {
+        V result = this.entries.remove(key);
+
+        if (result != null) {
+            this.keys.remove(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Resets the numbers of hits, misses and evictions.
+     */
+    public void resetStatistics() {
+        this.hits.set(0);
+        this.misses.set(0);
+        this.evictions.set(0);
+    }
+
+    /**
+     * Sets the maximum number of entries. Extra entries are evicted on the next
+     * insertion.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the current number of entries.
+     * 
+     * @return The current number of entries.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns a snapshot of the cached entries. No hit or miss is recorded.
+     * 
+     * @return A snapshot of the cached entries.
+     */
+    public Map<K, V> toMap() {
+        return new HashMap<K, V>(this.entries);
+    }
+
+}
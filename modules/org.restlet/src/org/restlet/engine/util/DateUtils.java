@@ -161,7 +161,9 @@ public final class DateUtils {
     }
 
     /**
-     * Formats a Date according to the given format.
+     * Formats a Date according to the given format. The RFC 1123 format is
+     * written without creating a date format and the value of the latest
+     * second formatted is reused.
      * 
      * @param date
      *            The date to format.
@@ -175,6 +177,14 @@ public final class DateUtils {
         }
 
         // [ifndef gwt]
+        if (FORMAT_RFC_1123.get(0).equals(format)) {
+            String result = HttpDateUtils.format(date.getTime());
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         java.text.DateFormat formatter = null;
 
         if (FORMAT_RFC_3339.get(0).equals(format)) {
@@ -217,7 +227,9 @@ public final class DateUtils {
     }
 
     /**
-     * Parses a formatted date into a Date object.
+     * Parses a formatted date into a Date object. The HTTP date formats are
+     * parsed without creating a date format and the times of recently parsed
+     * values are cached. A new modifiable date is always returned.
      * 
      * @param date
      *            The date to parse.
@@ -232,6 +244,14 @@ public final class DateUtils {
             throw new IllegalArgumentException("Date is null");
         }
 
+        // [ifndef gwt]
+        if ((formats == FORMAT_RFC_1123) || (formats == FORMAT_RFC_1036)
+                || (formats == FORMAT_ASC_TIME)) {
+            // Any of the HTTP date formats is accepted by the fast parser
+            result = HttpDateUtils.parse(date);
+        }
+        // [enddef]
+
         String format = null;
         int formatsSize = formats.size();
 
@@ -280,6 +300,10 @@ public final class DateUtils {
      * @return An immutable version of a given date.
      */
     public static Date unmodifiable(Date date) {
+        if (date instanceof ImmutableDate) {
+            return date;
+        }
+
         return (date == null) ? null : new ImmutableDate(date);
     }
 
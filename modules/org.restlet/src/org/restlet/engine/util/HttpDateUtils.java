@@ -0,0 +1,421 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.Date;
+
+/**
+ * Allocation-light formatting and parsing of the HTTP date formats defined by
+ * RFC 7231: the preferred IMF-fixdate (RFC 1123) and the obsolete RFC 850 and
+ * ANSI C asctime() formats. Only dates in the GMT time zone between years 1970
+ * and 9999 are supported, other values are left to the {@link DateUtils}
+ * formatters by returning null.<br>
+ * <br>
+ * The formatted value of the latest second is shared, so that the Date header
+ * written by all connectors is only formatted once per second. Recently parsed
+ * strings are also cached, as numbers of milliseconds so that each caller gets
+ * its own modifiable date.
+ * 
+ * @author Jerome Louvel
+ */
+final class HttpDateUtils {
+
+    /**
+     * Formatted value of a given second.
+     */
+    private static final class FormattedSecond {
+
+        /** The number of seconds since January 1, 1970, 00:00:00 GMT. */
+        final long second;
+
+        /** The formatted value. */
+        final String value;
+
+        /**
+         * Constructor.
+         * 
+         * @param second
+         *            The number of seconds since January 1, 1970, 00:00:00
+         *            GMT.
+         * @param value
+         *            The formatted value.
+         */
+        FormattedSecond(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /** The short names of the days, starting with Sunday. */
+    private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu",
+            "Fri", "Sat" };
+
+    /** The short names of the months, starting with January. */
+    private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May",
+            "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    /** The number of seconds in a day. */
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /** The value of the latest second formatted. */
+    private static volatile FormattedSecond latestSecond;
+
+    /** The times of the recently parsed dates. */
+    private static final BoundedCache<String, Long> parsedDates = new BoundedCache<String, Long>(
+            512);
+
+    /**
+     * Appends a number on two digits.
+     * 
+     * @param buffer
+     *            The target buffer.
+     * @param index
+     *            The index of the first digit.
+     * @param value
+     *            The number between 0 and 99.
+     */
+    private static void appendTwoDigits(char[] buffer, int index, int value) {
+        buffer[index] = (char) ('0' + (value / 10));
+        buffer[index + 1] = (char) ('0' + (value % 10));
+    }
+
+    /**
+     * Formats a time in the IMF-fixdate format, for example
+     * "Sun, 06 Nov 1994 08:49:37 GMT".
+     * 
+     * @param time
+     *            The number of milliseconds since January 1, 1970, 00:00:00
+     *            GMT.
+     * @return The formatted date or null if the time isn't supported.
+     */
+    static String format(long time) {
+        String result = null;
+
+        if (time >= 0) {
+            long second = time / 1000;
+            FormattedSecond latest = latestSecond;
+
+            if ((latest != null) && (latest.second == second)) {
+                result = latest.value;
+            } else {
+                result = formatSecond(second);
+
+                if ((result != null)
+                        && ((latest == null) || (latest.second < second))) {
+                    // Mostly used for the current date
+                    latestSecond = new FormattedSecond(second, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats a number of seconds in the IMF-fixdate format.
+     * 
+     * @param second
+     *            The positive number of seconds since January 1, 1970,
+     *            00:00:00 GMT.
+     * @return The formatted date or null if the year is above 9999.
+     */
+    private static String formatSecond(long second) {
+        long days = second / SECONDS_PER_DAY;
+        int secondOfDay = (int) (second % SECONDS_PER_DAY);
+
+        // Civil date from the number of days, see
+        // http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = z / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra
+                / 146096) / 365;
+        int dayOfYear = dayOfEra
+                - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+
+        if (year > 9999) {
+            return null;
+        }
+
+        // January 1, 1970 was a Thursday
+        String dayName = DAYS[(int) ((days + 4) % 7)];
+        String monthName = MONTHS[month - 1];
+        char[] buffer = new char[29];
+        buffer[0] = dayName.charAt(0);
+        buffer[1] = dayName.charAt(1);
+        buffer[2] = dayName.charAt(2);
+        buffer[3] = ',';
+        buffer[4] = ' ';
+        appendTwoDigits(buffer, 5, day);
+        buffer[7] = ' ';
+        buffer[8] = monthName.charAt(0);
+        buffer[9] = monthName.charAt(1);
+        buffer[10] = monthName.charAt(2);
+        buffer[11] = ' ';
+        appendTwoDigits(buffer, 12, (int) (year / 100));
+        appendTwoDigits(buffer, 14, (int) (year % 100));
+        buffer[16] = ' ';
+        appendTwoDigits(buffer, 17, secondOfDay / 3600);
+        buffer[19] = ':';
+        appendTwoDigits(buffer, 20, (secondOfDay / 60) % 60);
+        buffer[22] = ':';
+        appendTwoDigits(buffer, 23, secondOfDay % 60);
+        buffer[25] = ' ';
+        buffer[26] = 'G';
+        buffer[27] = 'M';
+        buffer[28] = 'T';
+        return new String(buffer);
+    }
+
+    /**
+     * Returns the index of a month short name.
+     * 
+     * @param date
+     *            The date string.
+     * @param index
+     *            The index of the month name.
+     * @return The month index, starting at 1, or -1.
+     */
+    private static int getMonth(String date, int index) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (date.regionMatches(true, index, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Indicates if a date string starts with a day name, either short or long.
+     * 
+     * @param date
+     *            The date string.
+     * @return True if the date string starts with a day name.
+     */
+    private static boolean isDay(String date) {
+        for (String day : DAYS) {
+            if (date.regionMatches(true, 0, day, 0, 3)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses a date in one of the HTTP date formats.
+     * 
+     * @param date
+     *            The date to parse.
+     * @return A new parsed date or null if the format isn't supported.
+     */
+    static Date parse(String date) {
+        Long time = parsedDates.get(date);
+
+        if (time == null) {
+            long parsed = parseTime(date);
+
+            if (parsed != -1) {
+                time = parsed;
+                parsedDates.put(date, time);
+            }
+        }
+
+        return (time == null) ? null : new Date(time);
+    }
+
+    /**
+     * Parses a number of digits.
+     * 
+     * @param date
+     *            The date string.
+     * @param index
+     *            The index of the first digit.
+     * @param length
+     *            The number of digits.
+     * @return The parsed number or -1.
+     */
+    private static int parseNumber(String date, int index, int length) {
+        int result = 0;
+
+        for (int i = index; i < index + length; i++) {
+            char c = date.charAt(i);
+
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses a date in one of the HTTP date formats into a time.
+     * 
+     * @param date
+     *            The date to parse.
+     * @return The number of milliseconds since January 1, 1970, 00:00:00 GMT
+     *         or -1 if the format isn't supported.
+     */
+    private static long parseTime(String date) {
+        int length = date.length();
+        int comma = date.indexOf(',');
+        int day;
+        int month;
+        int year;
+        int timeIndex;
+
+        if (!isDay(date)) {
+            return -1;
+        } else if ((comma == 3) && (length == 29) && (date.charAt(7) == ' ')
+                && date.endsWith(" GMT")) {
+            // IMF-fixdate: "Sun, 06 Nov 1994 08:49:37 GMT"
+            if ((date.charAt(4) != ' ') || (date.charAt(7) != ' ')
+                    || (date.charAt(11) != ' ') || (date.charAt(16) != ' ')) {
+                return -1;
+            }
+
+            day = parseNumber(date, 5, 2);
+            month = getMonth(date, 8);
+            year = parseNumber(date, 12, 4);
+            timeIndex = 17;
+        } else if ((comma > 2) && (comma < 10) && date.endsWith(" GMT")
+                && ((length == comma + 24) || (length == comma + 26))) {
+            // RFC 850: "Sunday, 06-Nov-94 08:49:37 GMT", also accepting the
+            // four digits years found in cookies
+            int index = comma + 2;
+
+            if ((date.charAt(comma + 1) != ' ')
+                    || (date.charAt(index + 2) != '-')
+                    || (date.charAt(index + 6) != '-')) {
+                return -1;
+            }
+
+            int yearLength = length - comma - 22;
+            day = parseNumber(date, index, 2);
+            month = getMonth(date, index + 3);
+            year = parseNumber(date, index + 7, yearLength);
+            timeIndex = index + 8 + yearLength;
+
+            if (date.charAt(timeIndex - 1) != ' ') {
+                return -1;
+            }
+
+            if ((yearLength == 2) && (year != -1)) {
+                year = toFullYear(year);
+            }
+        } else if ((comma == -1) && (length == 24)) {
+            // ANSI C asctime(): "Sun Nov  6 08:49:37 1994"
+            if ((date.charAt(3) != ' ') || (date.charAt(7) != ' ')
+                    || (date.charAt(10) != ' ') || (date.charAt(19) != ' ')) {
+                return -1;
+            }
+
+            month = getMonth(date, 4);
+            day = (date.charAt(8) == ' ') ? parseNumber(date, 9, 1)
+                    : parseNumber(date, 8, 2);
+            year = parseNumber(date, 20, 4);
+            timeIndex = 11;
+        } else {
+            return -1;
+        }
+
+        if ((date.charAt(timeIndex + 2) != ':')
+                || (date.charAt(timeIndex + 5) != ':')) {
+            return -1;
+        }
+
+        int hour = parseNumber(date, timeIndex, 2);
+        int minute = parseNumber(date, timeIndex + 3, 2);
+        int second = parseNumber(date, timeIndex + 6, 2);
+
+        if ((day < 1) || (day > 31) || (month == -1) || (year < 1970)
+                || (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59)
+                || (second < 0) || (second > 59)) {
+            // Let the lenient parsers handle such values
+            return -1;
+        }
+
+        return (toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600
+                + minute * 60 + second) * 1000;
+    }
+
+    /**
+     * Returns the number of days since January 1, 1970 for a civil date.
+     * 
+     * @param year
+     *            The year.
+     * @param month
+     *            The month, starting at 1.
+     * @param day
+     *            The day of the month, starting at 1.
+     * @return The number of days since January 1, 1970.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        int y = (month <= 2) ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5
+                + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Expands a two digits year like {@link java.text.SimpleDateFormat}, within
+     * 80 years before and 20 years after the current year.
+     * 
+     * @param year
+     *            The two digits year.
+     * @return The full year.
+     */
+    private static int toFullYear(int year) {
+        String now = formatSecond(System.currentTimeMillis() / 1000);
+        int start = ((now == null) ? 9999 : parseNumber(now, 12, 4)) - 80;
+        int result = (start / 100) * 100 + year;
+
+        if (result < start) {
+            result += 100;
+        }
+
+        return result;
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility class
+     * i.e. it isn't instantiable and extensible.
+     */
+    private HttpDateUtils() {
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.routing.Route;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+
+/**
+ * Segment trie compiled from a list of routes. Each {@link TemplateRoute} is
+ * indexed under the literal path segments that start its URI template, up to
+ * the first variable. Other routes are kept at the root and are therefore
+ * candidates for any path.<br>
+ * <br>
+ * Looking up a path walks the trie one segment at a time and collects the
+ * routes found on the way, in their original list order. The result is a
+ * superset of the routes able to match the path, so the usual scoring can be
+ * applied to it without changing the routing semantics. Note that changes to
+ * the template of an indexed route are not detected, the trie must be
+ * recompiled instead.<br>
+ * <br>
+ * Instances are immutable and can be shared by several threads.
+ * 
+ * @author Jerome Louvel
+ */
+public class RouteTrie {
+
+    /**
+     * Node of the trie.
+     */
+    private static class Node {
+        /** The child nodes, indexed by path segment. */
+        private final Map<String, Node> children;
+
+        /** The positions of the routes attached to this node. */
+        private int[] positions;
+
+        /** The positions being collected during compilation. */
+        private List<Integer> pending;
+
+        /**
+         * Constructor.
+         */
+        private Node() {
+            this.children = new HashMap<String, Node>();
+            this.positions = new int[0];
+            this.pending = new ArrayList<Integer>();
+        }
+
+        /**
+         * Freezes the positions collected during compilation.
+         */
+        private void compile() {
+            this.positions = new int[this.pending.size()];
+
+            for (int i = 0; i < this.positions.length; i++) {
+                this.positions[i] = this.pending.get(i);
+            }
+
+            this.pending = null;
+
+            for (Node child : this.children.values()) {
+                child.compile();
+            }
+        }
+    }
+
+    /**
+     * Returns the literal prefix of a route's URI template, ending with the
+     * last complete segment before the first variable or regular expression
+     * character. Returns null if the route can't be indexed.
+     * 
+     * @param route
+     *            The route to index.
+     * @return The literal prefix or null.
+     */
+    private static String getLiteralPrefix(Route route) {
+        String result = null;
+
+        // Subclasses may override the scoring logic, don't index them
+        if ((route != null) && (route.getClass() == TemplateRoute.class)) {
+            Template template = ((TemplateRoute) route).getTemplate();
+
+            if ((template != null) && (template.getPattern() != null)) {
+                String pattern = template.getPattern();
+                int end = 0;
+
+                while ((end < pattern.length())
+                        && isLiteral(pattern.charAt(end))) {
+                    end++;
+                }
+
+                result = pattern.substring(0,
+                        pattern.lastIndexOf('/', end - 1) + 1);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if a character of a URI template is matched literally. The
+     * variable delimiters and the regular expression characters not quoted by
+     * {@link Template} aren't.
+     * 
+     * @param character
+     *            The template character.
+     * @return True if the character is matched literally.
+     */
+    private static boolean isLiteral(char character) {
+        return (character != '{') && (character != '}')
+                && (character != '+');
+    }
+
+    /** The root node. */
+    private final Node root;
+
+    /** The snapshot of indexed routes. */
+    private final Route[] routes;
+
+    /**
+     * Constructor.
+     * 
+     * @param routes
+     *            The routes to compile.
+     */
+    public RouteTrie(List<Route> routes) {
+        this.routes = routes.toArray(new Route[0]);
+        this.root = new Node();
+
+        for (int i = 0; i < this.routes.length; i++) {
+            Node node = this.root;
+            String prefix = getLiteralPrefix(this.routes[i]);
+
+            if (prefix != null) {
+                int start = 0;
+
+                for (int end = prefix.indexOf('/'); end != -1; end = prefix
+                        .indexOf('/', start)) {
+                    String segment = prefix.substring(start, end);
+                    Node child = node.children.get(segment);
+
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(segment, child);
+                    }
+
+                    node = child;
+                    start = end + 1;
+                }
+            }
+
+            node.pending.add(i);
+        }
+
+        this.root.compile();
+    }
+
+    /**
+     * Returns the routes that could match a given path, in their original
+     * order.
+     * 
+     * @param path
+     *            The remaining part of the resource reference to route.
+     * @return The candidate routes.
+     */
+    public List<Route> getCandidates(String path) {
+        if (path == null) {
+            return Arrays.asList(this.routes);
+        }
+
+        // Collect the positions attached along the path
+        List<int[]> found = new ArrayList<int[]>();
+        int count = 0;
+        Node node = this.root;
+        int start = 0;
+
+        while (node != null) {
+            if (node.positions.length > 0) {
+                found.add(node.positions);
+                count += node.positions.length;
+            }
+
+            int end = path.indexOf('/', start);
+
+            if (end == -1) {
+                node = null;
+            } else {
+                node = node.children.get(path.substring(start, end));
+                start = end + 1;
+            }
+        }
+
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+
+        // Restore the original order of routes
+        int[] positions = new int[count];
+        int offset = 0;
+
+        for (int[] current : found) {
+            System.arraycopy(current, 0, positions, offset, current.length);
+            offset += current.length;
+        }
+
+        if (found.size() > 1) {
+            Arrays.sort(positions);
+        }
+
+        List<Route> result = new ArrayList<Route>(count);
+
+        for (int position : positions) {
+            result.add(this.routes[position]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of compiled routes.
+     * 
+     * @return The number of compiled routes.
+     */
+    public int size() {
+        return this.routes.length;
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.restlet.Context;
+
+/**
+ * Scheduled executor service running each submitted task on a new virtual
+ * thread. Delayed and periodic tasks are still run by the wrapped scheduler, as
+ * they are expected to be short and not to run concurrently with themselves.<br>
+ * <br>
+ * Virtual threads are only available since Java SE 21. They are looked up by
+ * reflection, so this class can be loaded by older JVMs. Use
+ * {@link #isSupported()} before creating instances.
+ * 
+ * @author Jerome Louvel
+ */
+public class VirtualThreadExecutorService extends
+        WrapperScheduledExecutorService {
+
+    /** The "Thread.Builder.factory()" method. */
+    private static final Method FACTORY_METHOD;
+
+    /** The "Thread.Builder.name(String, long)" method. */
+    private static final Method NAME_METHOD;
+
+    /** The "Executors.newThreadPerTaskExecutor(ThreadFactory)" method. */
+    private static final Method NEW_EXECUTOR_METHOD;
+
+    /** The "Thread.ofVirtual()" method. */
+    private static final Method OF_VIRTUAL_METHOD;
+
+    static {
+        Method factoryMethod = null;
+        Method nameMethod = null;
+        Method newExecutorMethod = null;
+        Method ofVirtualMethod = null;
+
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            factoryMethod = builderClass.getMethod("factory");
+            nameMethod = builderClass.getMethod("name", String.class,
+                    Long.TYPE);
+            newExecutorMethod = Executors.class.getMethod(
+                    "newThreadPerTaskExecutor", ThreadFactory.class);
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+        } catch (Exception e) {
+            // Virtual threads aren't supported by this JVM
+            factoryMethod = null;
+        }
+
+        FACTORY_METHOD = factoryMethod;
+        NAME_METHOD = nameMethod;
+        NEW_EXECUTOR_METHOD = newExecutorMethod;
+        OF_VIRTUAL_METHOD = ofVirtualMethod;
+    }
+
+    /**
+     * Creates a factory of virtual threads.
+     * 
+     * @param prefix
+     *            The prefix of the thread names, followed by a counter.
+     * @return A factory of virtual threads or null if they aren't supported.
+     */
+    public static ThreadFactory createThreadFactory(String prefix) {
+        ThreadFactory result = null;
+
+        if (isSupported()) {
+            try {
+                Object builder = OF_VIRTUAL_METHOD.invoke(null);
+                builder = NAME_METHOD.invoke(builder, prefix, 0L);
+                result = (ThreadFactory) FACTORY_METHOD.invoke(builder);
+            } catch (Exception e) {
+                Context.getCurrentLogger().warning(
+                        "Unable to create a virtual thread factory: "
+                                + e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates an executor service starting a new virtual thread for each task.
+     * 
+     * @param prefix
+     *            The prefix of the thread names, followed by a counter.
+     * @return An executor service or null if virtual threads aren't supported.
+     */
+    public static ExecutorService createVirtualThreadExecutor(String prefix) {
+        ExecutorService result = null;
+        ThreadFactory threadFactory = createThreadFactory(prefix);
+
+        if (threadFactory != null) {
+            try {
+                result = (ExecutorService) NEW_EXECUTOR_METHOD.invoke(null,
+                        threadFactory);
+            } catch (Exception e) {
+                Context.getCurrentLogger().warning(
+                        "Unable to create a virtual thread executor: "
+                                + e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if the current JVM supports virtual threads.
+     * 
+     * @return True if the current JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return FACTORY_METHOD != null;
+    }
+
+    /** The executor service starting a virtual thread per task. */
+    private final ExecutorService executor;
+
+    /**
+     * Constructor.
+     * 
+     * @param executor
+     *            The executor service starting a virtual thread per task.
+     * @param scheduler
+     *            The scheduler of delayed and periodic tasks.
+     */
+    public VirtualThreadExecutorService(ExecutorService executor,
+            ScheduledExecutorService scheduler) {
+        super(scheduler);
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return getExecutor().awaitTermination(timeout, unit)
+                && getWrapped().awaitTermination(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        getExecutor().execute(command);
+    }
+
+    /**
+     * Returns the executor service starting a virtual thread per task.
+     * 
+     * @return The executor service starting a virtual thread per task.
+     */
+    protected ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException {
+        return getExecutor().invokeAll(tasks);
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks, long timeout,
+            TimeUnit unit) throws InterruptedException {
+        return getExecutor().invokeAll(tasks, timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        return getExecutor().invokeAny(tasks);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks,
+            long timeout, TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+        return getExecutor().invokeAny(tasks, timeout, unit);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return getExecutor().isShutdown() && getWrapped().isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return getExecutor().isTerminated() && getWrapped().isTerminated();
+    }
+
+    @Override
+    public void shutdown() {
+        getExecutor().shutdown();
+        getWrapped().shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> result = new ArrayList<Runnable>(getExecutor()
+                .shutdownNow());
+        result.addAll(getWrapped().shutdownNow());
+        return result;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return getExecutor().submit(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return getExecutor().submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return getExecutor().submit(task, result);
+    }
+
+}
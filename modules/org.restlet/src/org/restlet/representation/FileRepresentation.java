@@ -45,7 +45,11 @@ import org.restlet.engine.io.IoUtils;
  * Representation based on a static file. Note that in order for Web clients to
  * display a download box upon reception of a file representation, it needs an
  * additional call to {@link Disposition#setType(String)} with a
- * {@link Disposition#TYPE_ATTACHMENT} value.
+ * {@link Disposition#TYPE_ATTACHMENT} value.<br>
+ * <br>
+ * Ranges of the file are read at their position, without reading the
+ * preceding content. When a mapping size is set, they are read through
+ * read-only memory mappings of at most this size.
  * 
  * @author Jerome Louvel
  */
@@ -76,6 +80,9 @@ public class FileRepresentation extends Representation {
     /** The file handle. */
     private volatile File file;
 
+    /** The maximum size of the memory mappings used to read ranges. */
+    private volatile long mappingSize;
+
     /**
      * Constructor that does not set an expiration date for {@code file}
      * 
@@ -175,6 +182,17 @@ public class FileRepresentation extends Representation {
         return this.file;
     }
 
+    /**
+     * Returns the maximum size of the memory mappings used to read ranges of
+     * the file. Zero, the default, disables memory mapping in favor of
+     * positional reads.
+     * 
+     * @return The maximum size of the memory mappings.
+     */
+    public long getMappingSize() {
+        return this.mappingSize;
+    }
+
     @Override
     public Reader getReader() throws IOException {
         return new FileReader(this.file);
@@ -246,6 +264,18 @@ public class FileRepresentation extends Representation {
         this.autoDeleting = autoDeleting;
     }
 
+    /**
+     * Sets the maximum size of the memory mappings used to read ranges of the
+     * file. The file must not be truncated while being read.
+     * 
+     * @param mappingSize
+     *            The maximum size of the memory mappings or zero to disable
+     *            memory mapping.
+     */
+    public void setMappingSize(long mappingSize) {
+        this.mappingSize = mappingSize;
+    }
+
     /**
      * Sets the file handle.
      * 
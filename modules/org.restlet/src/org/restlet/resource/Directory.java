@@ -106,6 +106,12 @@ public class Directory extends Finder {
     /** Indicates if the best content is automatically negotiated. */
     private volatile boolean negotiatingContent;
 
+    /**
+     * Indicates if precompressed siblings of files are served to the clients
+     * accepting their encoding (true by default).
+     */
+    private volatile boolean precompressedServed;
+
     /** The absolute root reference (file, clap URI). */
     private volatile Reference rootRef;
 
@@ -139,6 +145,7 @@ public class Directory extends Finder {
         this.listingAllowed = false;
         this.modifiable = false;
         this.negotiatingContent = true;
+        this.precompressedServed = true;
         setTargetClass(DirectoryServerResource.class);
     }
 
@@ -278,6 +285,19 @@ public class Directory extends Finder {
         return this.negotiatingContent;
     }
 
+    /**
+     * Indicates if precompressed siblings of files, such as "app.js.gz" for
+     * "app.js", are served to the clients accepting their encoding. This saves
+     * the compression of static files on each request by the encoder service.
+     * Note that the underlying client connector must support them, like the
+     * FILE connector does. Default value is true.
+     * 
+     * @return True if precompressed siblings of files are served.
+     */
+    public boolean isPrecompressedServed() {
+        return this.precompressedServed;
+    }
+
     /**
      * Sets the reference comparator used to sort index pages.
      * 
@@ -341,6 +361,17 @@ public class Directory extends Finder {
         this.negotiatingContent = negotiatingContent;
     }
 
+    /**
+     * Indicates if precompressed siblings of files are served to the clients
+     * accepting their encoding. Default value is true.
+     * 
+     * @param precompressedServed
+     *            True if precompressed siblings of files are served.
+     */
+    public void setPrecompressedServed(boolean precompressedServed) {
+        this.precompressedServed = precompressedServed;
+    }
+
     /**
      * Sets the root URI from which the relative resource URIs will be lookep
      * up.
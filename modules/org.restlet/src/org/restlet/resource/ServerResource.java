@@ -777,8 +777,8 @@ public abstract class ServerResource extends Resource {
             Representation entity) throws IOException {
         if (isAnnotated()) {
             return AnnotationUtils.getInstance().getMethodAnnotation(
-                    getAnnotations(), method, query, entity,
-                    getMetadataService(), getConverterService());
+                    getClass(), method, query, entity, getMetadataService(),
+                    getConverterService());
         }
 
         return null;
@@ -945,56 +945,54 @@ public abstract class ServerResource extends Resource {
                 List<Variant> annoVariants = null;
                 method = (Method.HEAD.equals(method)) ? Method.GET : method;
 
-                for (AnnotationInfo annotationInfo : getAnnotations()) {
+                for (MethodAnnotationInfo methodAnnotationInfo : AnnotationUtils
+                        .getInstance().getDispatchTable(getClass())
+                        .getMethodAnnotations(method)) {
                     try {
-                        if (annotationInfo instanceof MethodAnnotationInfo) {
-                            MethodAnnotationInfo methodAnnotationInfo = (MethodAnnotationInfo) annotationInfo;
-
-                            if (methodAnnotationInfo
-                                    .isCompatible(method, getQuery(),
-                                            getRequestEntity(),
+                        if (methodAnnotationInfo
+                                .isCompatible(method, getQuery(),
+                                        getRequestEntity(),
+                                        getMetadataService(),
+                                        getConverterService())) {
+                            annoVariants = methodAnnotationInfo
+                                    .getResponseVariants(
                                             getMetadataService(),
-                                            getConverterService())) {
-                                annoVariants = methodAnnotationInfo
-                                        .getResponseVariants(
-                                                getMetadataService(),
-                                                getConverterService());
-
-                                if (annoVariants != null) {
-                                    // Compute an affinity score between this
-                                    // annotation and the input entity.
-                                    float score = 0.5f;
-                                    if ((getRequest().getEntity() != null)
-                                            && getRequest().getEntity()
-                                                    .isAvailable()) {
-                                        MediaType emt = getRequest()
-                                                .getEntity().getMediaType();
-                                        List<MediaType> amts = getMetadataService()
-                                                .getAllMediaTypes(
-                                                        methodAnnotationInfo
-                                                                .getInput());
-                                        if (amts != null) {
-                                            for (MediaType amt : amts) {
-                                                if (amt.equals(emt)) {
-                                                    score = 1.0f;
-                                                } else if (amt.includes(emt)) {
-                                                    score = Math.max(0.8f,
-                                                            score);
-                                                } else if (amt
-                                                        .isCompatible(emt)) {
-                                                    score = Math.max(0.6f,
-                                                            score);
-                                                }
+                                            getConverterService());
+
+                            if (annoVariants != null) {
+                                // Compute an affinity score between this
+                                // annotation and the input entity.
+                                float score = 0.5f;
+                                if ((getRequest().getEntity() != null)
+                                        && getRequest().getEntity()
+                                                .isAvailable()) {
+                                    MediaType emt = getRequest()
+                                            .getEntity().getMediaType();
+                                    List<MediaType> amts = getMetadataService()
+                                            .getAllMediaTypes(
+                                                    methodAnnotationInfo
+                                                            .getInput());
+                                    if (amts != null) {
+                                        for (MediaType amt : amts) {
+                                            if (amt.equals(emt)) {
+                                                score = 1.0f;
+                                            } else if (amt.includes(emt)) {
+                                                score = Math.max(0.8f,
+                                                        score);
+                                            } else if (amt
+                                                    .isCompatible(emt)) {
+                                                score = Math.max(0.6f,
+                                                        score);
                                             }
                                         }
                                     }
+                                }
 
-                                    for (Variant v : annoVariants) {
-                                        VariantInfo vi = new VariantInfo(v,
-                                                methodAnnotationInfo);
-                                        vi.setInputScore(score);
-                                        result.add(vi);
-                                    }
+                                for (Variant v : annoVariants) {
+                                    VariantInfo vi = new VariantInfo(v,
+                                            methodAnnotationInfo);
+                                    vi.setInputScore(score);
+                                    result.add(vi);
                                 }
                             }
                         }
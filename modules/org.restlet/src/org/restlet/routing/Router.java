@@ -53,6 +53,11 @@ import org.restlet.util.RouteList;
  * <li>Custom</li>
  * </ul>
  * <br>
+ * When routes are numerous, the best and first match modes can use an index of
+ * the routes, compiled into a trie of literal path segments, in order to only
+ * score the routes whose URI pattern could match the remaining part. See
+ * {@link #setIndexingRoutes(boolean)}.<br>
+ * <br>
  * Note that for routes using URI patterns will update the resource reference's
  * base reference during the routing if they are selected. It is also important
  * to know that the routing is very strict about path separators in your URI
@@ -136,6 +141,12 @@ public class Router extends Restlet {
     /** The default route tested if no other one was available. */
     private volatile Route defaultRoute;
 
+    /**
+     * Indicates if the best and first match modes should only score the routes
+     * selected by the compiled index of routes.
+     */
+    private volatile boolean indexingRoutes;
+
     /**
      * The maximum number of attempts if no attachment could be matched on the
      * first attempt.
@@ -176,6 +187,7 @@ public class Router extends Restlet {
         this.defaultMatchingMode = Template.MODE_EQUALS;
         this.defaultMatchingQuery = false;
         this.defaultRoute = null;
+        this.indexingRoutes = false;
         this.routingMode = MODE_FIRST_MATCH;
         this.requiredScore = 0.5F;
         this.maxAttempts = 1;
@@ -532,13 +544,23 @@ public class Router extends Restlet {
                 // Select the routing mode
                 switch (getRoutingMode()) {
                 case MODE_BEST_MATCH:
-                    result = getRoutes().getBest(request, response,
-                            getRequiredScore());
+                    if (isIndexingRoutes()) {
+                        result = getRoutes().getBestIndexed(request, response,
+                                getRequiredScore());
+                    } else {
+                        result = getRoutes().getBest(request, response,
+                                getRequiredScore());
+                    }
                     break;
 
                 case MODE_FIRST_MATCH:
-                    result = getRoutes().getFirst(request, response,
-                            getRequiredScore());
+                    if (isIndexingRoutes()) {
+                        result = getRoutes().getFirstIndexed(request,
+                                response, getRequiredScore());
+                    } else {
+                        result = getRoutes().getFirst(request, response,
+                                getRequiredScore());
+                    }
                     break;
 
                 case MODE_LAST_MATCH:
@@ -642,6 +664,22 @@ public class Router extends Restlet {
         }
     }
 
+    /**
+     * Indicates if the best and first match modes should only score the routes
+     * selected by the compiled index of routes. The index is a trie of the
+     * literal path segments starting the URI pattern of each
+     * {@link TemplateRoute}, recompiled when routes are attached or detached.
+     * The selected route is the same as without index, but the scoring cost
+     * doesn't grow anymore with the number of attached routes. Default value
+     * is false.
+     * 
+     * @return True if the compiled index of routes should be used.
+     * @see RouteList#getFirstIndexed(Request, Response, float)
+     */
+    public boolean isIndexingRoutes() {
+        return this.indexingRoutes;
+    }
+
     /**
      * Logs the route selected.
      * 
@@ -749,6 +787,18 @@ public class Router extends Restlet {
         this.defaultRoute = defaultRoute;
     }
 
+    /**
+     * Indicates if the best and first match modes should only score the routes
+     * selected by the compiled index of routes.
+     * 
+     * @param indexingRoutes
+     *            True if the compiled index of routes should be used.
+     * @see #isIndexingRoutes()
+     */
+    public void setIndexingRoutes(boolean indexingRoutes) {
+        this.indexingRoutes = indexingRoutes;
+    }
+
     /**
      * Sets the maximum number of attempts if no attachment could be matched on
      * the first attempt. This is useful when the attachment scoring is dynamic
@@ -51,7 +51,13 @@ import org.restlet.util.Resolver;
  * <br>
  * Format and parsing methods are specially available to deal with requests and
  * response. See {@link #format(Request, Response)} and
- * {@link #parse(String, Request)}.
+ * {@link #parse(String, Request)}.<br>
+ * <br>
+ * When all the variables have a type based on URI or alphanumeric characters,
+ * matching and parsing directly scan the formatted string without any Regex
+ * pattern nor matcher. The other types, such as {@link Variable#TYPE_TOKEN} or
+ * {@link Variable#TYPE_COMMENT}, as well as variables repeated in the pattern,
+ * rely on a lazily compiled Regex pattern.
  * 
  * @see Resolver
  * @see <a href="http://code.google.com/p/uri-templates/">URI Template
@@ -60,6 +66,361 @@ import org.restlet.util.Resolver;
  */
 public class Template {
 
+    /**
+     * Regex-free form of a template, used when all the variables have a type
+     * whose characters can be directly scanned. The pattern is split into a
+     * sequence of literals separated by variables, then matched with the same
+     * greedy and backtracking semantics as the equivalent Regex pattern.
+     */
+    private static final class ScanPattern {
+
+        /**
+         * Compiles a template pattern.
+         * 
+         * @param template
+         *            The template to compile.
+         * @return The compiled pattern or null if the Regex pattern must be
+         *         used instead.
+         */
+        private static ScanPattern compile(Template template) {
+            String pattern = template.getPattern();
+            List<String> literals = new ArrayList<String>();
+            List<String> names = new ArrayList<String>();
+            List<Variable> variables = new ArrayList<Variable>();
+            StringBuilder literalBuffer = new StringBuilder();
+            StringBuilder varBuffer = null;
+            boolean inVariable = false;
+            char next;
+
+            for (int i = 0; i < pattern.length(); i++) {
+                next = pattern.charAt(i);
+
+                if (inVariable) {
+                    if (Reference.isUnreserved(next)) {
+                        varBuffer.append(next);
+                    } else if (next == '}') {
+                        if (varBuffer.length() > 0) {
+                            String varName = varBuffer.toString();
+
+                            if (names.contains(varName)) {
+                                // Back references are left to the Regex
+                                return null;
+                            }
+
+                            Variable var = template.getVariables().get(
+                                    varName);
+
+                            if (var == null) {
+                                var = template.getDefaultVariable();
+                            }
+
+                            if (!isSupported(var)) {
+                                return null;
+                            }
+
+                            literals.add(literalBuffer.toString());
+                            literalBuffer = new StringBuilder();
+                            names.add(varName);
+                            variables.add(var);
+                        }
+
+                        inVariable = false;
+                    }
+                } else if (next == '{') {
+                    inVariable = true;
+                    varBuffer = new StringBuilder();
+                } else if (next == '+') {
+                    // Not quoted, so interpreted as a Regex quantifier
+                    return null;
+                } else if (next != '}') {
+                    literalBuffer.append(next);
+                }
+            }
+
+            literals.add(literalBuffer.toString());
+            return new ScanPattern(literals.toArray(new String[0]),
+                    names.toArray(new String[0]),
+                    variables.toArray(new Variable[0]));
+        }
+
+        /**
+         * Indicates if the given character is part of the characters class of
+         * a variable type.
+         * 
+         * @param type
+         *            The variable type.
+         * @param character
+         *            The character to test.
+         * @return True if the character is part of the class.
+         */
+        private static boolean isClassChar(int type, char character) {
+            switch (type) {
+            case Variable.TYPE_ALL:
+                return (character != '\n') && (character != '\r')
+                        && (character != '\u0085')
+                        && (character != '\u2028')
+                        && (character != '\u2029');
+            case Variable.TYPE_ALPHA:
+                return isAlpha(character);
+            case Variable.TYPE_DIGIT:
+                return isDigit(character);
+            case Variable.TYPE_ALPHA_DIGIT:
+                return isAlpha(character) || isDigit(character);
+            case Variable.TYPE_WORD:
+                return isAlpha(character) || isDigit(character)
+                        || (character == '_');
+            case Variable.TYPE_URI_UNRESERVED:
+                return Reference.isUnreserved(character);
+            case Variable.TYPE_URI_ALL:
+                return Reference.isReserved(character)
+                        || Reference.isUnreserved(character);
+            case Variable.TYPE_URI_SEGMENT:
+                return isSegmentChar(character);
+            case Variable.TYPE_URI_PATH:
+                return isSegmentChar(character) || (character == '/');
+            case Variable.TYPE_URI_QUERY:
+            case Variable.TYPE_URI_FRAGMENT:
+                return isSegmentChar(character) || (character == '/')
+                        || (character == '?');
+            case Variable.TYPE_URI_QUERY_PARAM:
+                return (isSegmentChar(character) && (character != '&') && (character != '='))
+                        || (character == '/') || (character == '?');
+            default:
+                return false;
+            }
+        }
+
+        /**
+         * Indicates if the given character is alphabetical (a-z or A-Z).
+         * 
+         * @param character
+         *            The character to test.
+         * @return True if the given character is alphabetical.
+         */
+        private static boolean isAlpha(char character) {
+            return ((character >= 'a') && (character <= 'z'))
+                    || ((character >= 'A') && (character <= 'Z'));
+        }
+
+        /**
+         * Indicates if the given character is a digit (0-9).
+         * 
+         * @param character
+         *            The character to test.
+         * @return True if the given character is a digit.
+         */
+        private static boolean isDigit(char character) {
+            return (character >= '0') && (character <= '9');
+        }
+
+        /**
+         * Indicates if the given character is an hexadecimal digit.
+         * 
+         * @param character
+         *            The character to test.
+         * @return True if the given character is an hexadecimal digit.
+         */
+        private static boolean isHexDigit(char character) {
+            return isDigit(character)
+                    || ((character >= 'a') && (character <= 'f'))
+                    || ((character >= 'A') && (character <= 'F'));
+        }
+
+        /**
+         * Indicates if the given character is a path segment character, except
+         * percent-encoded octets.
+         * 
+         * @param character
+         *            The character to test.
+         * @return True if the given character is a path segment character.
+         */
+        private static boolean isSegmentChar(char character) {
+            return Reference.isUnreserved(character)
+                    || Reference.isSubDelimiter(character)
+                    || (character == ':') || (character == '@');
+        }
+
+        /**
+         * Indicates if a variable can be matched without Regex.
+         * 
+         * @param variable
+         *            The variable to test.
+         * @return True if the variable can be matched without Regex.
+         */
+        private static boolean isSupported(Variable variable) {
+            if (variable.isFixed()) {
+                return variable.getDefaultValue() != null;
+            }
+
+            switch (variable.getType()) {
+            case Variable.TYPE_ALL:
+            case Variable.TYPE_ALPHA:
+            case Variable.TYPE_ALPHA_DIGIT:
+            case Variable.TYPE_DIGIT:
+            case Variable.TYPE_URI_ALL:
+            case Variable.TYPE_URI_FRAGMENT:
+            case Variable.TYPE_URI_PATH:
+            case Variable.TYPE_URI_QUERY:
+            case Variable.TYPE_URI_QUERY_PARAM:
+            case Variable.TYPE_URI_SEGMENT:
+            case Variable.TYPE_URI_UNRESERVED:
+            case Variable.TYPE_WORD:
+                return true;
+            default:
+                return false;
+            }
+        }
+
+        /**
+         * Indicates if a variable type also accepts percent-encoded octets.
+         * 
+         * @param type
+         *            The variable type.
+         * @return True if percent-encoded octets are accepted.
+         */
+        private static boolean isPercentEncodable(int type) {
+            return (type == Variable.TYPE_URI_ALL)
+                    || (type == Variable.TYPE_URI_FRAGMENT)
+                    || (type == Variable.TYPE_URI_PATH)
+                    || (type == Variable.TYPE_URI_QUERY)
+                    || (type == Variable.TYPE_URI_QUERY_PARAM)
+                    || (type == Variable.TYPE_URI_SEGMENT);
+        }
+
+        /** The literals before, between and after the variables. */
+        private final String[] literals;
+
+        /** The variable names, in pattern order. */
+        private final String[] names;
+
+        /** The variable descriptors, in pattern order. */
+        private final Variable[] variables;
+
+        /**
+         * Constructor.
+         * 
+         * @param literals
+         *            The literals before, between and after the variables.
+         * @param names
+         *            The variable names.
+         * @param variables
+         *            The variable descriptors.
+         */
+        private ScanPattern(String[] literals, String[] names,
+                Variable[] variables) {
+            this.literals = literals;
+            this.names = names;
+            this.variables = variables;
+        }
+
+        /**
+         * Matches a formatted string.
+         * 
+         * @param formattedString
+         *            The string to match.
+         * @param equals
+         *            True if the whole string must be matched.
+         * @param bounds
+         *            The start and end index of each variable value, updated
+         *            when the match succeeds. Can be null.
+         * @return The number of matched characters or -1.
+         */
+        private int match(String formattedString, boolean equals, int[] bounds) {
+            return match(formattedString, equals, bounds, 0, 0);
+        }
+
+        /**
+         * Matches a formatted string, starting at a given variable.
+         * 
+         * @param value
+         *            The string to match.
+         * @param equals
+         *            True if the whole string must be matched.
+         * @param bounds
+         *            The start and end index of each variable value.
+         * @param index
+         *            The index of the current variable.
+         * @param start
+         *            The current position in the string.
+         * @return The end position of the match or -1.
+         */
+        private int match(String value, boolean equals, int[] bounds,
+                int index, int start) {
+            String literal = this.literals[index];
+
+            if (!value.startsWith(literal, start)) {
+                return -1;
+            }
+
+            int position = start + literal.length();
+
+            if (index == this.variables.length) {
+                return (!equals || (position == value.length())) ? position
+                        : -1;
+            }
+
+            Variable variable = this.variables[index];
+
+            if (variable.isFixed()) {
+                String fixed = variable.getDefaultValue();
+
+                if (!value.startsWith(fixed, position)) {
+                    return -1;
+                }
+
+                if (bounds != null) {
+                    bounds[2 * index] = position;
+                    bounds[2 * index + 1] = position + fixed.length();
+                }
+
+                return match(value, equals, bounds, index + 1, position
+                        + fixed.length());
+            }
+
+            // Greedily consume the characters of the variable
+            int type = variable.getType();
+            boolean percent = isPercentEncodable(type);
+            int end = position;
+
+            while (end < value.length()) {
+                if (isClassChar(type, value.charAt(end))) {
+                    end++;
+                } else if (percent && (value.charAt(end) == '%')
+                        && (end + 2 < value.length())
+                        && isHexDigit(value.charAt(end + 1))
+                        && isHexDigit(value.charAt(end + 2))) {
+                    end += 3;
+                } else {
+                    break;
+                }
+            }
+
+            // Then backtrack one unit at a time
+            int minEnd = variable.isRequired() ? position + 1 : position;
+            int result = -1;
+
+            while ((result == -1) && (end >= minEnd)) {
+                if (bounds != null) {
+                    bounds[2 * index] = position;
+                    bounds[2 * index + 1] = end;
+                }
+
+                result = match(value, equals, bounds, index + 1, end);
+
+                if (result == -1) {
+                    if (percent && (end - 3 >= position)
+                            && (value.charAt(end - 3) == '%')) {
+                        end -= 3;
+                    } else {
+                        end--;
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+
     /** Mode where all characters must match the template and size be identical. */
     public static final int MODE_EQUALS = 2;
 
@@ -252,6 +613,12 @@ public class Template {
     /** The sequence of Regex variable names as found in the pattern string. */
     private volatile List<String> regexVariables;
 
+    /** Indicates if the pattern was compiled for regex-free matching. */
+    private volatile boolean scanCompiled;
+
+    /** The regex-free pattern, or null if the Regex pattern must be used. */
+    private volatile ScanPattern scanPattern;
+
     /** The map of variables associated to the route's template. */
     private final Map<String, Variable> variables;
 
@@ -588,6 +955,26 @@ public class Template {
         return rv;
     }
 
+    /**
+     * Compiles the URI pattern for regex-free matching, if all its variables
+     * support it.
+     * 
+     * @return The regex-free pattern or null if the Regex pattern must be
+     *         used.
+     */
+    private ScanPattern getScanPattern() {
+        if (!this.scanCompiled) {
+            synchronized (this) {
+                if (!this.scanCompiled) {
+                    this.scanPattern = ScanPattern.compile(this);
+                    this.scanCompiled = true;
+                }
+            }
+        }
+
+        return this.scanPattern;
+    }
+
     /**
      * Returns the list of variable names in the template.
      * 
@@ -675,14 +1062,25 @@ public class Template {
 
         try {
             if (formattedString != null) {
-                final Matcher matcher = getRegexPattern().matcher(
-                        formattedString);
-
-                if ((getMatchingMode() == MODE_EQUALS) && matcher.matches()) {
-                    result = matcher.end();
-                } else if ((getMatchingMode() == MODE_STARTS_WITH)
-                        && matcher.lookingAt()) {
-                    result = matcher.end();
+                final ScanPattern scanPattern = getScanPattern();
+
+                if (scanPattern != null) {
+                    if ((getMatchingMode() == MODE_EQUALS)
+                            || (getMatchingMode() == MODE_STARTS_WITH)) {
+                        result = scanPattern.match(formattedString,
+                                getMatchingMode() == MODE_EQUALS, null);
+                    }
+                } else {
+                    final Matcher matcher = getRegexPattern().matcher(
+                            formattedString);
+
+                    if ((getMatchingMode() == MODE_EQUALS)
+                            && matcher.matches()) {
+                        result = matcher.end();
+                    } else if ((getMatchingMode() == MODE_STARTS_WITH)
+                            && matcher.lookingAt()) {
+                        result = matcher.end();
+                    }
                 }
             }
         } catch (StackOverflowError soe) {
@@ -734,37 +1132,41 @@ public class Template {
 
         if (formattedString != null) {
             try {
-                Matcher matcher = getRegexPattern().matcher(formattedString);
-                boolean matched = ((getMatchingMode() == MODE_EQUALS) && matcher
-                        .matches())
-                        || ((getMatchingMode() == MODE_STARTS_WITH) && matcher
-                                .lookingAt());
-
-                if (matched) {
-                    // Update the number of matched characters
-                    result = matcher.end();
-
-                    // Update the attributes with the variables value
-                    String attributeName = null;
-                    String attributeValue = null;
-
-                    for (int i = 0; i < getRegexVariables().size(); i++) {
-                        attributeName = getRegexVariables().get(i);
-                        attributeValue = matcher.group(i + 1);
-                        Variable var = getVariables().get(attributeName);
-
-                        if ((var != null) && var.isDecodingOnParse()) {
-                            attributeValue = Reference.decode(attributeValue);
+                ScanPattern scanPattern = getScanPattern();
+
+                if (scanPattern != null) {
+                    if ((getMatchingMode() == MODE_EQUALS)
+                            || (getMatchingMode() == MODE_STARTS_WITH)) {
+                        int[] bounds = new int[2 * scanPattern.names.length];
+                        result = scanPattern.match(formattedString,
+                                getMatchingMode() == MODE_EQUALS, bounds);
+
+                        if (result != -1) {
+                            for (int i = 0; i < scanPattern.names.length; i++) {
+                                putVariable(variables, scanPattern.names[i],
+                                        formattedString.substring(
+                                                bounds[2 * i],
+                                                bounds[2 * i + 1]), loggable);
+                            }
                         }
-
-                        if (loggable) {
-                            getLogger().fine(
-                                    "Template variable \"" + attributeName
-                                            + "\" matched with value \""
-                                            + attributeValue + "\"");
+                    }
+                } else {
+                    Matcher matcher = getRegexPattern().matcher(
+                            formattedString);
+                    boolean matched = ((getMatchingMode() == MODE_EQUALS) && matcher
+                            .matches())
+                            || ((getMatchingMode() == MODE_STARTS_WITH) && matcher
+                                    .lookingAt());
+
+                    if (matched) {
+                        // Update the number of matched characters
+                        result = matcher.end();
+
+                        // Update the attributes with the variables value
+                        for (int i = 0; i < getRegexVariables().size(); i++) {
+                            putVariable(variables, getRegexVariables().get(i),
+                                    matcher.group(i + 1), loggable);
                         }
-
-                        variables.put(attributeName, attributeValue);
                     }
                 }
             } catch (StackOverflowError soe) {
@@ -796,6 +1198,36 @@ public class Template {
                 request.isLoggable());
     }
 
+    /**
+     * Updates the map of variables with a parsed value, decoding it if
+     * required by its descriptor.
+     * 
+     * @param variables
+     *            The map of variables to update.
+     * @param name
+     *            The variable name.
+     * @param value
+     *            The raw value parsed.
+     * @param loggable
+     *            True if the parsing should be logged.
+     */
+    private void putVariable(Map<String, Object> variables, String name,
+            String value, boolean loggable) {
+        Variable var = getVariables().get(name);
+
+        if ((var != null) && var.isDecodingOnParse()) {
+            value = Reference.decode(value);
+        }
+
+        if (loggable) {
+            getLogger().fine(
+                    "Template variable \"" + name
+                            + "\" matched with value \"" + value + "\"");
+        }
+
+        variables.put(name, value);
+    }
+
     /**
      * Quotes special characters that could be taken for special Regex
      * characters.
@@ -892,6 +1324,7 @@ public class Template {
     public void setPattern(String pattern) {
         this.pattern = pattern;
         this.regexPattern = null;
+        this.scanCompiled = false;
     }
 
     /**
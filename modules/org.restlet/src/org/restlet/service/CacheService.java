@@ -0,0 +1,341 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.service;
+
+import java.io.File;
+
+import org.restlet.Context;
+import org.restlet.data.Reference;
+import org.restlet.engine.application.CacheFilter;
+import org.restlet.engine.application.CacheStore;
+import org.restlet.routing.Filter;
+
+/**
+ * Application service caching the responses of GET and HEAD requests, both
+ * for the requests received on the server-side (inbound) and for the requests
+ * sent on the client-side (outbound). Each direction has its own store and can
+ * be enabled separately. The inbound store has the semantics of a shared
+ * cache: responses marked as "private" are never stored there. The outbound
+ * store is private to the application. Only successful responses explicitly
+ * declared as cacheable by their cache directives ("max-age" or "s-maxage") or
+ * by the expiration date of their entity are stored. Responses without such
+ * freshness information but with an entity tag are also stored, and
+ * revalidated with the resource on each use by sending "If-None-Match" or
+ * "If-Modified-Since" conditions.<br>
+ * <br>
+ * The cached responses are keyed by resource reference and by the client
+ * preferences listed in the response dimensions (the HTTP "Vary" header).
+ * They are kept in least recently used stores, each bounded by the total size
+ * of its cached entities. When a cache directory is set, the entries evicted
+ * from memory are moved to disk, in an "inbound" and an "outbound"
+ * sub-directory, up to a maximum disk size per store. Unsafe requests
+ * successfully handled invalidate the responses cached for their resource.
+ * The numbers of hits, misses and evictions can be monitored.<br>
+ * <br>
+ * This service is disabled by default.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheService extends Service {
+
+    /** The default maximum size of a cached entity, 1 MB. */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+    /** The default maximum size of each memory store, 16 MB. */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    /** The directory where the entries evicted from memory are stored. */
+    private volatile File directory;
+
+    /** Indicates if the responses to inbound requests are cached. */
+    private volatile boolean inboundEnabled;
+
+    /** The store of the responses to inbound requests. */
+    private final CacheStore inboundStore;
+
+    /** Indicates if the responses to outbound requests are cached. */
+    private volatile boolean outboundEnabled;
+
+    /** The store of the responses to outbound requests. */
+    private final CacheStore outboundStore;
+
+    /**
+     * Constructor.
+     */
+    public CacheService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public CacheService(boolean enabled) {
+        super(enabled);
+        this.directory = null;
+        this.inboundEnabled = true;
+        this.inboundStore = new CacheStore(DEFAULT_MAX_SIZE,
+                DEFAULT_MAX_ENTRY_SIZE);
+        this.outboundEnabled = true;
+        this.outboundStore = new CacheStore(DEFAULT_MAX_SIZE,
+                DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * Removes all the cached responses.
+     */
+    public void clear() {
+        getInboundStore().clear();
+        getOutboundStore().clear();
+    }
+
+    @Override
+    public Filter createInboundFilter(Context context) {
+        return new CacheFilter(context, this, false);
+    }
+
+    @Override
+    public Filter createOutboundFilter(Context context) {
+        return new CacheFilter(context, this, true);
+    }
+
+    /**
+     * Returns the directory where the entries evicted from memory are stored.
+     * 
+     * @return The directory where the entries evicted from memory are stored,
+     *         or null if there is no disk tier.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the number of entries evicted from memory, in both stores.
+     * 
+     * @return The number of entries evicted from memory.
+     */
+    public long getEvictions() {
+        return getInboundStore().getEvictions()
+                + getOutboundStore().getEvictions();
+    }
+
+    /**
+     * Returns the number of successful lookups in the cache, in both stores.
+     * 
+     * @return The number of successful lookups in the cache.
+     */
+    public long getHits() {
+        return getInboundStore().getHits() + getOutboundStore().getHits();
+    }
+
+    /**
+     * Returns the store of the responses to inbound requests.
+     * 
+     * @return The store of the responses to inbound requests.
+     */
+    public CacheStore getInboundStore() {
+        return this.inboundStore;
+    }
+
+    /**
+     * Returns the maximum size of the entries stored on disk by each store, in
+     * bytes.
+     * 
+     * @return The maximum size of the entries stored on disk.
+     */
+    public long getMaxDiskSize() {
+        return getInboundStore().getMaxDiskSize();
+    }
+
+    /**
+     * Returns the maximum size of a cached entity, in bytes.
+     * 
+     * @return The maximum size of a cached entity.
+     */
+    public long getMaxEntrySize() {
+        return getInboundStore().getMaxEntrySize();
+    }
+
+    /**
+     * Returns the maximum size of the entries stored in memory by each store,
+     * in bytes.
+     * 
+     * @return The maximum size of the entries stored in memory.
+     */
+    public long getMaxSize() {
+        return getInboundStore().getMaxSize();
+    }
+
+    /**
+     * Returns the number of failed lookups in the cache, in both stores.
+     * 
+     * @return The number of failed lookups in the cache.
+     */
+    public long getMisses() {
+        return getInboundStore().getMisses() + getOutboundStore().getMisses();
+    }
+
+    /**
+     * Returns the store of the responses to outbound requests.
+     * 
+     * @return The store of the responses to outbound requests.
+     */
+    public CacheStore getOutboundStore() {
+        return this.outboundStore;
+    }
+
+    /**
+     * Returns the size of the entries stored in memory, in both stores, in
+     * bytes.
+     * 
+     * @return The size of the entries stored in memory.
+     */
+    public long getSize() {
+        return getInboundStore().getSize() + getOutboundStore().getSize();
+    }
+
+    /**
+     * Removes the responses cached for a given resource, in all their
+     * variants, from both stores.
+     * 
+     * @param resourceRef
+     *            The resource reference.
+     */
+    public void invalidate(Reference resourceRef) {
+        String resourceKey = CacheFilter.getResourceKey(resourceRef);
+        getInboundStore().invalidate(resourceKey);
+        getOutboundStore().invalidate(resourceKey);
+    }
+
+    /**
+     * Indicates if the responses to inbound requests are cached, when the
+     * service is enabled. Default value is true.
+     * 
+     * @return True if the responses to inbound requests are cached.
+     */
+    public boolean isInboundEnabled() {
+        return this.inboundEnabled;
+    }
+
+    /**
+     * Indicates if the responses to outbound requests are cached, when the
+     * service is enabled. Default value is true.
+     * 
+     * @return True if the responses to outbound requests are cached.
+     */
+    public boolean isOutboundEnabled() {
+        return this.outboundEnabled;
+    }
+
+    /**
+     * Resets the numbers of hits, misses and evictions.
+     */
+    public void resetStatistics() {
+        getInboundStore().resetStatistics();
+        getOutboundStore().resetStatistics();
+    }
+
+    /**
+     * Sets the directory where the entries evicted from memory are stored.
+     * Each store uses its own sub-directory.
+     * 
+     * @param directory
+     *            The directory where the entries evicted from memory are
+     *            stored, or null to disable the disk tier.
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+        getInboundStore().setDirectory(
+                (directory == null) ? null : new File(directory, "inbound"));
+        getOutboundStore().setDirectory(
+                (directory == null) ? null : new File(directory, "outbound"));
+    }
+
+    /**
+     * Indicates if the responses to inbound requests are cached, when the
+     * service is enabled.
+     * 
+     * @param inboundEnabled
+     *            True if the responses to inbound requests are cached.
+     */
+    public void setInboundEnabled(boolean inboundEnabled) {
+        this.inboundEnabled = inboundEnabled;
+    }
+
+    /**
+     * Sets the maximum size of the entries stored on disk by each store, in
+     * bytes.
+     * 
+     * @param maxDiskSize
+     *            The maximum size of the entries stored on disk.
+     */
+    public void setMaxDiskSize(long maxDiskSize) {
+        getInboundStore().setMaxDiskSize(maxDiskSize);
+        getOutboundStore().setMaxDiskSize(maxDiskSize);
+    }
+
+    /**
+     * Sets the maximum size of a cached entity, in bytes.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of a cached entity.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        getInboundStore().setMaxEntrySize(maxEntrySize);
+        getOutboundStore().setMaxEntrySize(maxEntrySize);
+    }
+
+    /**
+     * Sets the maximum size of the entries stored in memory by each store, in
+     * bytes.
+     * 
+     * @param maxSize
+     *            The maximum size of the entries stored in memory.
+     */
+    public void setMaxSize(long maxSize) {
+        getInboundStore().setMaxSize(maxSize);
+        getOutboundStore().setMaxSize(maxSize);
+    }
+
+    /**
+     * Indicates if the responses to outbound requests are cached, when the
+     * service is enabled.
+     * 
+     * @param outboundEnabled
+     *            True if the responses to outbound requests are cached.
+     */
+    public void setOutboundEnabled(boolean outboundEnabled) {
+        this.outboundEnabled = outboundEnabled;
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+        clear();
+    }
+
+}
@@ -24,23 +24,56 @@
 
 package org.restlet.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.restlet.Request;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Metadata;
+import org.restlet.data.Preference;
 import org.restlet.engine.application.Conneg;
 import org.restlet.engine.application.FlexibleConneg;
 import org.restlet.engine.application.StrictConneg;
+import org.restlet.engine.resource.MethodAnnotationInfo;
+import org.restlet.engine.resource.VariantInfo;
+import org.restlet.engine.util.BoundedCache;
 import org.restlet.representation.Variant;
 
 /**
  * Application service negotiating the preferred resource variants. This service
  * is leveraged by server-side and client-side content negotiation, annotated
- * method dispatching, and so on.
+ * method dispatching, and so on.<br>
+ * <br>
+ * As the number of distinct client preferences is usually small, negotiation
+ * results can be cached, keyed by the client preferences and the scored
+ * properties of the variants. The cache is disabled by default, see
+ * {@link #setMaxCachedNegotiations(int)}.
  * 
  * @author Jerome Louvel
  */
 public class ConnegService extends Service {
 
+    /**
+     * Adds the preferences to a negotiation cache key.
+     * 
+     * @param key
+     *            The key to update.
+     * @param preferences
+     *            The preferences to add.
+     */
+    private static <T extends Metadata> void addPreferences(List<Object> key,
+            List<Preference<T>> preferences) {
+        key.add(preferences.size());
+
+        for (Preference<T> preference : preferences) {
+            key.add(preference.getMetadata());
+            key.add(preference.getQuality());
+        }
+    }
+
+    /** The cache of negotiation results, as indexes in the variants list. */
+    private final BoundedCache<List<Object>, Integer> negotiations;
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -63,6 +96,99 @@ public class ConnegService extends Service {
     public ConnegService(boolean enabled) {
         super(enabled);
         this.strict = false;
+        this.negotiations = new BoundedCache<List<Object>, Integer>(0);
+    }
+
+    /**
+     * Returns the number of negotiations served by the cache.
+     * 
+     * @return The number of negotiations served by the cache.
+     */
+    public long getCacheHits() {
+        return this.negotiations.getHits();
+    }
+
+    /**
+     * Returns the number of negotiations not found in the cache.
+     * 
+     * @return The number of negotiations not found in the cache.
+     */
+    public long getCacheMisses() {
+        return this.negotiations.getMisses();
+    }
+
+    /**
+     * Returns the key identifying a negotiation in the cache. It contains the
+     * negotiation mode, the default metadata, the client preferences, the
+     * query when annotations depend on it and the scored properties of each
+     * variant.
+     * 
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @return The negotiation key.
+     */
+    private List<Object> getCacheKey(List<? extends Variant> variants,
+            Request request, MetadataService metadataService) {
+        List<Object> result = new ArrayList<Object>();
+        result.add(isStrict());
+
+        if (metadataService == null) {
+            result.add(null);
+        } else {
+            result.add(metadataService.getDefaultMediaType());
+            result.add(metadataService.getDefaultLanguage());
+            result.add(metadataService.getDefaultCharacterSet());
+            result.add(metadataService.getDefaultEncoding());
+        }
+
+        ClientInfo clientInfo = request.getClientInfo();
+        addPreferences(result, clientInfo.getAcceptedMediaTypes());
+        addPreferences(result, clientInfo.getAcceptedLanguages());
+        addPreferences(result, clientInfo.getAcceptedCharacterSets());
+        addPreferences(result, clientInfo.getAcceptedEncodings());
+
+        boolean queryConstraint = false;
+
+        for (Variant variant : variants) {
+            result.add(variant.getMediaType());
+            result.add(variant.getCharacterSet());
+            result.add(new ArrayList<Object>(variant.getLanguages()));
+            result.add(new ArrayList<Object>(variant.getEncodings()));
+
+            if (variant instanceof VariantInfo) {
+                VariantInfo variantInfo = (VariantInfo) variant;
+                MethodAnnotationInfo annotationInfo = variantInfo
+                        .getAnnotationInfo();
+                result.add(variantInfo.getInputScore());
+                result.add(annotationInfo != null);
+
+                if (annotationInfo != null) {
+                    result.add(annotationInfo.getQuery());
+                    queryConstraint |= (annotationInfo.getQuery() != null);
+                }
+            } else {
+                result.add(null);
+            }
+        }
+
+        String query = (request.getResourceRef() == null) ? null : request
+                .getResourceRef().getQuery();
+        result.add(queryConstraint ? query : Boolean.valueOf(query == null));
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of negotiation results cached. Default value
+     * is 0, disabling the cache.
+     * 
+     * @return The maximum number of negotiation results cached.
+     */
+    public int getMaxCachedNegotiations() {
+        return this.negotiations.getMaxEntries();
     }
 
     /**
@@ -84,9 +210,35 @@ public class ConnegService extends Service {
      */
     public Variant getPreferredVariant(List<? extends Variant> variants,
             Request request, MetadataService metadataService) {
+        List<Object> key = null;
+
+        if ((getMaxCachedNegotiations() > 0) && (variants != null)
+                && (request.getClientInfo() != null)) {
+            key = getCacheKey(variants, request, metadataService);
+            Integer index = this.negotiations.get(key);
+
+            if (index != null) {
+                return (index.intValue() < 0) ? null : variants.get(index);
+            }
+        }
+
         Conneg conneg = isStrict() ? new StrictConneg(request, metadataService)
                 : new FlexibleConneg(request, metadataService);
-        return conneg.getPreferredVariant(variants);
+        Variant result = conneg.getPreferredVariant(variants);
+
+        if (key != null) {
+            int index = -1;
+
+            for (int i = 0; (index == -1) && (i < variants.size()); i++) {
+                if (variants.get(i) == result) {
+                    index = i;
+                }
+            }
+
+            this.negotiations.put(key, index);
+        }
+
+        return result;
     }
 
     /**
@@ -100,6 +252,21 @@ public class ConnegService extends Service {
         return strict;
     }
 
+    /**
+     * Sets the maximum number of negotiation results cached. A value of 0
+     * disables the cache.
+     * 
+     * @param maxCachedNegotiations
+     *            The maximum number of negotiation results cached.
+     */
+    public void setMaxCachedNegotiations(int maxCachedNegotiations) {
+        this.negotiations.setMaxEntries(maxCachedNegotiations);
+
+        if (maxCachedNegotiations <= 0) {
+            this.negotiations.clear();
+        }
+    }
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -112,4 +279,10 @@ public class ConnegService extends Service {
         this.strict = strict;
     }
 
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+        this.negotiations.clear();
+    }
+
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.Digest;
+import org.restlet.engine.application.DigestCache;
+import org.restlet.engine.application.ETagFilter;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.routing.Filter;
+
+/**
+ * Application service automatically adding strong entity tags to the
+ * successful responses of GET and HEAD requests, then evaluating the request
+ * conditions against them. This lets revalidating clients receive a "304 Not
+ * Modified" response instead of the whole entity, even when the resource
+ * doesn't compute tags itself. Tags set by the resources are kept, except the
+ * weak tag derived from the modification time and the length of a plain file
+ * by the file client connector.<br>
+ * <br>
+ * Response entities of known size below a maximum size are buffered once to
+ * compute their digest, then served from the buffer. Entities of unknown size
+ * are buffered the same way when they aren't transient and fit in the maximum
+ * size. The digests of {@link FileRepresentation} entities are computed while
+ * the files are first written and cached per file path and modification time.
+ * The cache can be saved to a file when the service stops and reloaded when it
+ * starts, see {@link #setCacheFile(File)}.<br>
+ * <br>
+ * This service is disabled by default.
+ * 
+ * @author Jerome Louvel
+ */
+public class ETagService extends Service {
+
+    /** The default maximum size of a buffered entity, 64 KB. */
+    public static final long DEFAULT_MAX_BUFFERED_SIZE = 64 * 1024;
+
+    /** The default maximum number of cached file digests. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** The digest algorithm. */
+    private volatile String algorithm;
+
+    /** The file where the file digests are saved. */
+    private volatile File cacheFile;
+
+    /** The cache of file digests. */
+    private final DigestCache digestCache;
+
+    /** The maximum size of a buffered entity. */
+    private volatile long maxBufferedSize;
+
+    /**
+     * Constructor.
+     */
+    public ETagService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public ETagService(boolean enabled) {
+        super(enabled);
+        this.algorithm = Digest.ALGORITHM_MD5;
+        this.cacheFile = null;
+        this.digestCache = new DigestCache(DEFAULT_MAX_ENTRIES);
+        this.maxBufferedSize = DEFAULT_MAX_BUFFERED_SIZE;
+    }
+
+    @Override
+    public Filter createInboundFilter(Context context) {
+        return new ETagFilter(context, this);
+    }
+
+    /**
+     * Returns the digest algorithm. {@link Digest#ALGORITHM_MD5} by default.
+     * 
+     * @return The digest algorithm.
+     */
+    public String getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * Returns the file where the file digests are saved when the service
+     * stops.
+     * 
+     * @return The file where the file digests are saved, or null if they are
+     *         only kept in memory.
+     */
+    public File getCacheFile() {
+        return this.cacheFile;
+    }
+
+    /**
+     * Returns the cache of file digests.
+     * 
+     * @return The cache of file digests.
+     */
+    public DigestCache getDigestCache() {
+        return this.digestCache;
+    }
+
+    /**
+     * Returns the maximum size of a buffered entity, in bytes. Larger entities
+     * are sent without tag, except files.
+     * 
+     * @return The maximum size of a buffered entity.
+     */
+    public long getMaxBufferedSize() {
+        return this.maxBufferedSize;
+    }
+
+    /**
+     * Sets the digest algorithm.
+     * 
+     * @param algorithm
+     *            The digest algorithm.
+     */
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Sets the file where the file digests are saved when the service stops,
+     * and reloaded from when it starts.
+     * 
+     * @param cacheFile
+     *            The file where the file digests are saved, or null to only
+     *            keep them in memory.
+     */
+    public void setCacheFile(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Sets the maximum size of a buffered entity, in bytes. Zero disables the
+     * tagging of entities other than files.
+     * 
+     * @param maxBufferedSize
+     *            The maximum size of a buffered entity.
+     */
+    public void setMaxBufferedSize(long maxBufferedSize) {
+        this.maxBufferedSize = maxBufferedSize;
+    }
+
+    /**
+     * Starts the service and reloads the file digests saved in the cache file,
+     * if any.
+     */
+    @Override
+    public synchronized void start() throws Exception {
+        super.start();
+        File file = getCacheFile();
+
+        if (isStarted() && (file != null) && file.isFile()) {
+            try {
+                getDigestCache().load(file);
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to load the digest cache from " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Saves the file digests to the cache file, if any, and stops the service.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        File file = getCacheFile();
+
+        if (isStarted() && (file != null)) {
+            try {
+                getDigestCache().store(file);
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to save the digest cache to " + file, e);
+            }
+        }
+
+        super.stop();
+    }
+
+}
@@ -27,17 +27,26 @@ package org.restlet.service;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
 
 import org.restlet.Context;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.engine.application.Encoder;
+import org.restlet.engine.util.BoundedCache;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
 /**
  * Application service automatically encoding or compressing request entities.
+ * The encoded content of files is cached, keyed by file path, modification
+ * time and encoding, so that static files are only compressed once. The
+ * compression level and the minimum size for encoding to occur can be set per
+ * media type, the most specific media type including the one of an entity
+ * being used.
  * 
  * @author Jerome Louvel
  */
@@ -46,9 +55,21 @@ public class EncoderService extends Service {
     /** Indicates if the encoding should always occur, regardless of the size. */
     public static final int ANY_SIZE = -1;
 
+    /** The default maximum size of a file whose encoded content is cached. */
+    public static final long DEFAULT_MAX_CACHED_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * The default maximum size of an entity encoded in memory so that its
+     * encoded size is known.
+     */
+    public static final long DEFAULT_MAX_BUFFERED_SIZE = 8192;
+
     /** Indicates if the default minimum size for encoding to occur. */
     public static final int DEFAULT_MINIMUM_SIZE = 1000;
 
+    /** The maximum number of cached encoded files. */
+    private static final int MAX_CACHED_FILES = 64;
+
     /**
      * Returns the list of default encoded media types. This can be overridden
      * by subclasses. By default, all media types are encoded (except those
@@ -83,11 +104,32 @@ public class EncoderService extends Service {
      */
     private final List<MediaType> acceptedMediaTypes;
 
+    /** The compression level. */
+    private volatile int compressionLevel;
+
+    /** The compression levels per media type. */
+    private final Map<MediaType, Integer> compressionLevels;
+
+    /** The cached encoded content of files. */
+    private final BoundedCache<String, byte[]> encodedFiles;
+
     /**
      * The media types that should be ignored.
      */
     private final List<MediaType> ignoredMediaTypes;
 
+    /**
+     * The maximum size of an entity encoded in memory so that its encoded size
+     * is known.
+     */
+    private volatile long maxBufferedSize;
+
+    /** The maximum size of a file whose encoded content is cached. */
+    private volatile long maxCachedFileSize;
+
+    /** The minimal sizes necessary for encoding per media type. */
+    private final Map<MediaType, Long> minimumSizes;
+
     /**
      * The minimal size necessary for encoding.
      */
@@ -113,6 +155,12 @@ public class EncoderService extends Service {
                 getDefaultAcceptedMediaTypes());
         this.ignoredMediaTypes = new CopyOnWriteArrayList<MediaType>(
                 getDefaultIgnoredMediaTypes());
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        this.compressionLevels = new ConcurrentHashMap<MediaType, Integer>();
+        this.encodedFiles = new BoundedCache<String, byte[]>(MAX_CACHED_FILES);
+        this.maxBufferedSize = DEFAULT_MAX_BUFFERED_SIZE;
+        this.maxCachedFileSize = DEFAULT_MAX_CACHED_FILE_SIZE;
+        this.minimumSizes = new ConcurrentHashMap<MediaType, Long>();
     }
 
     /**
@@ -140,9 +188,10 @@ public class EncoderService extends Service {
 
         if (result) {
             // Test the size of the representation
-            result = (getMinimumSize() == EncoderService.ANY_SIZE)
+            long minimumSize = getMinimumSize(representation.getMediaType());
+            result = (minimumSize == EncoderService.ANY_SIZE)
                     || (representation.getSize() == Representation.UNKNOWN_SIZE)
-                    || (representation.getSize() >= getMinimumSize());
+                    || (representation.getSize() >= minimumSize);
         }
 
         if (result) {
@@ -193,6 +242,38 @@ public class EncoderService extends Service {
         return this.acceptedMediaTypes;
     }
 
+    /**
+     * Returns the default compression level, from 0 to 9 or
+     * {@link Deflater#DEFAULT_COMPRESSION}.
+     * 
+     * @return The default compression level.
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * Returns the compression level of a media type. The level set for the
+     * most specific media type including it is returned, or the default one.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @return The compression level.
+     */
+    public int getCompressionLevel(MediaType mediaType) {
+        Integer result = getSetting(this.compressionLevels, mediaType);
+        return (result == null) ? getCompressionLevel() : result;
+    }
+
+    /**
+     * Returns the cached encoded content of files.
+     * 
+     * @return The cached encoded content of files.
+     */
+    public BoundedCache<String, byte[]> getEncodedFiles() {
+        return this.encodedFiles;
+    }
+
     /**
      * Returns the media types that should be ignored.
      * 
@@ -202,6 +283,27 @@ public class EncoderService extends Service {
         return this.ignoredMediaTypes;
     }
 
+    /**
+     * Returns the maximum size of an entity encoded in memory so that its
+     * encoded size is known and sent instead of using chunks. Larger or
+     * transient entities are encoded while being written.
+     * 
+     * @return The maximum size of an entity encoded in memory.
+     */
+    public long getMaxBufferedSize() {
+        return this.maxBufferedSize;
+    }
+
+    /**
+     * Returns the maximum size of a file whose encoded content is cached. Zero
+     * disables the cache.
+     * 
+     * @return The maximum size of a file whose encoded content is cached.
+     */
+    public long getMaxCachedFileSize() {
+        return this.maxCachedFileSize;
+    }
+
     /**
      * Returns the minimum size a representation must have before compression is
      * done.
@@ -213,6 +315,98 @@ public class EncoderService extends Service {
         return this.mininumSize;
     }
 
+    /**
+     * Returns the minimum size a representation of a media type must have
+     * before compression is done. The size set for the most specific media
+     * type including it is returned, or the default one.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @return The minimum size a representation must have before compression
+     *         is done.
+     */
+    public long getMinimumSize(MediaType mediaType) {
+        Long result = getSetting(this.minimumSizes, mediaType);
+        return (result == null) ? getMinimumSize() : result;
+    }
+
+    /**
+     * Returns the setting of the most specific media type including a given
+     * one.
+     * 
+     * @param settings
+     *            The settings per media type.
+     * @param mediaType
+     *            The media type.
+     * @return The setting or null.
+     */
+    private <V> V getSetting(Map<MediaType, V> settings, MediaType mediaType) {
+        V result = null;
+
+        if ((mediaType != null) && !settings.isEmpty()) {
+            MediaType best = null;
+
+            for (Map.Entry<MediaType, V> entry : settings.entrySet()) {
+                MediaType candidate = entry.getKey();
+
+                if (candidate.includes(mediaType, true)
+                        && ((best == null) || best.includes(candidate, true))) {
+                    best = candidate;
+                    result = entry.getValue();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the default compression level.
+     * 
+     * @param compressionLevel
+     *            The default compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Sets the compression level of a media type and of the media types it
+     * includes.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @param compressionLevel
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setCompressionLevel(MediaType mediaType, int compressionLevel) {
+        this.compressionLevels.put(mediaType, compressionLevel);
+    }
+
+    /**
+     * Sets the maximum size of an entity encoded in memory so that its encoded
+     * size is known. Zero always encodes while writing.
+     * 
+     * @param maxBufferedSize
+     *            The maximum size of an entity encoded in memory.
+     */
+    public void setMaxBufferedSize(long maxBufferedSize) {
+        this.maxBufferedSize = maxBufferedSize;
+    }
+
+    /**
+     * Sets the maximum size of a file whose encoded content is cached. Zero
+     * disables the cache.
+     * 
+     * @param maxCachedFileSize
+     *            The maximum size of a file whose encoded content is cached.
+     */
+    public void setMaxCachedFileSize(long maxCachedFileSize) {
+        this.maxCachedFileSize = maxCachedFileSize;
+    }
+
     /**
      * Sets the minimum size a representation must have before compression is
      * done.
@@ -225,4 +419,18 @@ public class EncoderService extends Service {
         this.mininumSize = mininumSize;
     }
 
+    /**
+     * Sets the minimum size a representation of a media type, or of the media
+     * types it includes, must have before compression is done.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @param minimumSize
+     *            The minimum size a representation must have before
+     *            compression is done.
+     */
+    public void setMinimumSize(MediaType mediaType, long minimumSize) {
+        this.minimumSizes.put(mediaType, minimumSize);
+    }
+
 }
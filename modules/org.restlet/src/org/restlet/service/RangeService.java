@@ -26,6 +26,7 @@ package org.restlet.service;
 
 import org.restlet.Context;
 import org.restlet.engine.application.RangeFilter;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.routing.Filter;
 
 /**
@@ -33,12 +34,19 @@ import org.restlet.routing.Filter;
  * allows resources to not care of requested ranges and return full
  * representations that will then be transparently wrapped in partial
  * representations by this service, allowing the client to benefit from partial
- * downloads.
+ * downloads.<br>
+ * <br>
+ * Ranges of file and seekable channel representations are read at their
+ * position. Ranges of files can also be read through memory mappings, see
+ * {@link #setMappingSize(long)}.
  * 
  * @author Jerome Louvel
  */
 public class RangeService extends Service {
 
+    /** The maximum size of the memory mappings used to read file ranges. */
+    private volatile long mappingSize;
+
     /**
      * Constructor.
      */
@@ -61,4 +69,32 @@ public class RangeService extends Service {
         return new RangeFilter(context);
     }
 
+    /**
+     * Returns the maximum size of the memory mappings used to read ranges of
+     * {@link FileRepresentation} entities. Zero, the default, disables memory
+     * mapping in favor of positional reads.
+     * 
+     * @return The maximum size of the memory mappings.
+     */
+    public long getMappingSize() {
+        return this.mappingSize;
+    }
+
+    /**
+     * Sets the maximum size of the memory mappings used to read ranges of
+     * {@link FileRepresentation} entities. Served files must not be truncated
+     * while being read.<br>
+     * <br>
+     * Mapping only saves the read system calls: the content of each mapping is
+     * still copied into the buffers of the connector. Each mapping is released
+     * as soon as it has been read.
+     * 
+     * @param mappingSize
+     *            The maximum size of the memory mappings or zero to disable
+     *            memory mapping.
+     */
+    public void setMappingSize(long mappingSize) {
+        this.mappingSize = mappingSize;
+    }
+
 }
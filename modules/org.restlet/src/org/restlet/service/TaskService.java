@@ -45,6 +45,7 @@ import org.restlet.Context;
 import org.restlet.Response;
 import org.restlet.engine.Engine;
 import org.restlet.engine.util.ContextualRunnable;
+import org.restlet.engine.util.VirtualThreadExecutorService;
 import org.restlet.routing.VirtualHost;
 
 /**
@@ -61,7 +62,12 @@ import org.restlet.routing.VirtualHost;
  * Resources that are part of your context. In general this context corresponds
  * to a parent Application's context. If you want to have your own service
  * instance, you can use the {@link TaskService#wrap(ScheduledExecutorService)}
- * method to ensure that thread local variables are correctly set.
+ * method to ensure that thread local variables are correctly set.<br>
+ * <br>
+ * When running on a JVM supporting virtual threads, the service can run each
+ * task on a new virtual thread instead of a pooled thread, see
+ * {@link #setVirtualThreads(boolean)}. This is useful when tasks block on I/O.
+ * Delayed and periodic tasks are still run by the pooled threads.
  * 
  * @author Jerome Louvel
  * @author Doug Lea (docs of ExecutorService in public domain)
@@ -250,6 +256,12 @@ public class TaskService extends Service implements ScheduledExecutorService {
      */
     private volatile boolean shutdownAllowed;
 
+    /**
+     * Indicates if tasks are run on virtual threads when supported by the JVM.
+     * False by default.
+     */
+    private volatile boolean virtualThreads;
+
     /** The wrapped JDK executor service. */
     private volatile ScheduledExecutorService wrapped;
 
@@ -296,6 +308,7 @@ public class TaskService extends Service implements ScheduledExecutorService {
         super(enabled);
         this.corePoolSize = corePoolSize;
         this.shutdownAllowed = false;
+        this.virtualThreads = false;
     }
 
     /**
@@ -328,16 +341,34 @@ public class TaskService extends Service implements ScheduledExecutorService {
 
     /**
      * Creates a new JDK executor service that will be wrapped. By default it
-     * calls {@link Executors#newCachedThreadPool(ThreadFactory)}, passing the
-     * result of {@link #createThreadFactory()} as a parameter.
+     * calls {@link Executors#newScheduledThreadPool(int, ThreadFactory)},
+     * passing the result of {@link #createThreadFactory()} as a parameter. If
+     * {@link #isVirtualThreads()} returns true and the JVM supports virtual
+     * threads, the tasks submitted for immediate execution are run on new
+     * virtual threads instead.
      * 
      * @param corePoolSize
      *            The core pool size defining the maximum number of threads.
      * @return A new JDK executor service.
      */
     protected ScheduledExecutorService createExecutorService(int corePoolSize) {
-        return Executors.newScheduledThreadPool(corePoolSize,
-                createThreadFactory());
+        ScheduledExecutorService result = Executors.newScheduledThreadPool(
+                corePoolSize, createThreadFactory());
+
+        if (isVirtualThreads()) {
+            ExecutorService executor = VirtualThreadExecutorService
+                    .createVirtualThreadExecutor("restlet-virtual-");
+
+            if (executor == null) {
+                Context.getCurrentLogger().warning(
+                        "Virtual threads aren't supported by this JVM, "
+                                + "using pooled threads instead");
+            } else {
+                result = new VirtualThreadExecutorService(executor, result);
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -517,6 +548,16 @@ public class TaskService extends Service implements ScheduledExecutorService {
         return (getWrapped() == null) || getWrapped().isTerminated();
     }
 
+    /**
+     * Indicates if tasks are run on virtual threads when supported by the JVM.
+     * False by default.
+     * 
+     * @return True if tasks are run on virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
     /**
      * Creates and executes a ScheduledFuture that becomes enabled after the
      * given delay.
@@ -659,6 +700,17 @@ public class TaskService extends Service implements ScheduledExecutorService {
         this.shutdownAllowed = allowShutdown;
     }
 
+    /**
+     * Indicates if tasks should be run on virtual threads when supported by
+     * the JVM. Only taken into account when the service is started.
+     * 
+     * @param virtualThreads
+     *            True if tasks should be run on virtual threads.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     /**
      * Sets the wrapped JDK executor service.
      * 
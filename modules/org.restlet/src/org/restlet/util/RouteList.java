@@ -24,6 +24,7 @@
 
 package org.restlet.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -32,6 +33,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.engine.util.RouteTrie;
 import org.restlet.routing.Route;
 
 /**
@@ -41,7 +43,10 @@ import org.restlet.routing.Route;
  * {@link List}, in particular all the helper methods in {@link Collections}.<br>
  * <br>
  * Note that structural changes to this list are thread-safe, using an
- * underlying {@link CopyOnWriteArrayList}.
+ * underlying {@link CopyOnWriteArrayList}. They also discard the compiled
+ * index of routes used by the indexed lookup methods, which is lazily
+ * recompiled on the next lookup. This includes the changes made via the views
+ * returned by {@link #subList(int, int)}.
  * 
  * @author Jerome Louvel
  * @see java.util.Collections
@@ -51,12 +56,19 @@ public final class RouteList extends WrapperList<Route> {
     /** The index of the last route used in the round robin mode. */
     private volatile int lastIndex;
 
+    /** The list of which this list is a view, or null. */
+    private final RouteList parent;
+
+    /** The compiled segment trie, lazily created. */
+    private volatile RouteTrie trie;
+
     /**
      * Constructor.
      */
     public RouteList() {
         super(new CopyOnWriteArrayList<Route>());
         this.lastIndex = -1;
+        this.parent = null;
     }
 
     /**
@@ -68,6 +80,54 @@ public final class RouteList extends WrapperList<Route> {
     public RouteList(List<Route> delegate) {
         super(new CopyOnWriteArrayList<Route>(delegate));
         this.lastIndex = -1;
+        this.parent = null;
+    }
+
+    /**
+     * Constructor of a view of another list.
+     * 
+     * @param parent
+     *            The list of which this list is a view.
+     * @param view
+     *            The view of the parent's delegate list.
+     */
+    private RouteList(RouteList parent, List<Route> view) {
+        super(view);
+        this.lastIndex = -1;
+        this.parent = parent;
+    }
+
+    @Override
+    public boolean add(Route route) {
+        boolean result = super.add(route);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public void add(int index, Route route) {
+        super.add(index, route);
+        invalidateTrie();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Route> routes) {
+        boolean result = super.addAll(routes);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Route> routes) {
+        boolean result = super.addAll(index, routes);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        invalidateTrie();
     }
 
     /**
@@ -82,11 +142,29 @@ public final class RouteList extends WrapperList<Route> {
      * @return The best route match or null.
      */
     public Route getBest(Request request, Response response, float requiredScore) {
+        return getBest(this, request, response, requiredScore);
+    }
+
+    /**
+     * Returns the best route match among some candidates.
+     * 
+     * @param candidates
+     *            The candidate routes.
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The best route match or null.
+     */
+    private Route getBest(List<Route> candidates, Request request,
+            Response response, float requiredScore) {
         Route result = null;
         float bestScore = 0F;
         float score;
 
-        for (Route current : this) {
+        for (Route current : candidates) {
             score = current.score(request, response);
 
             if ((score > bestScore) && (score >= requiredScore)) {
@@ -98,6 +176,39 @@ public final class RouteList extends WrapperList<Route> {
         return result;
     }
 
+    /**
+     * Returns the best route match for a given call, only scoring the routes
+     * selected by the compiled index of routes. The result is the same as
+     * {@link #getBest(Request, Response, float)}.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The best route match or null.
+     */
+    public Route getBestIndexed(Request request, Response response,
+            float requiredScore) {
+        return getBest(getCandidates(request), request, response,
+                requiredScore);
+    }
+
+    /**
+     * Returns the routes that could match a given call, according to the
+     * compiled index of routes.
+     * 
+     * @param request
+     *            The request to route.
+     * @return The candidate routes.
+     */
+    private List<Route> getCandidates(Request request) {
+        String path = (request.getResourceRef() == null) ? null : request
+                .getResourceRef().getRemainingPart(false, true);
+        return getTrie().getCandidates(path);
+    }
+
     /**
      * Returns the first route match for a given call.
      * 
@@ -111,7 +222,25 @@ public final class RouteList extends WrapperList<Route> {
      */
     public Route getFirst(Request request, Response response,
             float requiredScore) {
-        for (Route current : this) {
+        return getFirst(this, request, response, requiredScore);
+    }
+
+    /**
+     * Returns the first route match among some candidates.
+     * 
+     * @param candidates
+     *            The candidate routes.
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The first route match or null.
+     */
+    private Route getFirst(List<Route> candidates, Request request,
+            Response response, float requiredScore) {
+        for (Route current : candidates) {
             if (current.score(request, response) >= requiredScore) {
                 return current;
             }
@@ -121,6 +250,25 @@ public final class RouteList extends WrapperList<Route> {
         return null;
     }
 
+    /**
+     * Returns the first route match for a given call, only scoring the routes
+     * selected by the compiled index of routes. The result is the same as
+     * {@link #getFirst(Request, Response, float)}.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The first route match or null.
+     */
+    public Route getFirstIndexed(Request request, Response response,
+            float requiredScore) {
+        return getFirst(getCandidates(request), request, response,
+                requiredScore);
+    }
+
     /**
      * Returns the last route match for a given call.
      * 
@@ -220,6 +368,58 @@ public final class RouteList extends WrapperList<Route> {
         return null;
     }
 
+    /**
+     * Returns the compiled segment trie, compiling it if needed.
+     * 
+     * @return The compiled segment trie.
+     */
+    private RouteTrie getTrie() {
+        // Lazy initialization with double-check.
+        RouteTrie t = this.trie;
+        if (t == null) {
+            synchronized (this) {
+                t = this.trie;
+                if (t == null) {
+                    this.trie = t = new RouteTrie(this);
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Discards the compiled segment trie after a structural change, as well
+     * as the one of the parent list if this list is a view.
+     */
+    private synchronized void invalidateTrie() {
+        this.trie = null;
+
+        if (this.parent != null) {
+            this.parent.invalidateTrie();
+        }
+    }
+
+    @Override
+    public Route remove(int index) {
+        Route result = super.remove(index);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object route) {
+        boolean result = super.remove(route);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> routes) {
+        boolean result = super.removeAll(routes);
+        invalidateTrie();
+        return result;
+    }
+
     /**
      * Removes all routes routing to a given target.
      * 
@@ -234,9 +434,24 @@ public final class RouteList extends WrapperList<Route> {
         }
     }
 
+    @Override
+    public boolean retainAll(Collection<?> routes) {
+        boolean result = super.retainAll(routes);
+        invalidateTrie();
+        return result;
+    }
+
+    @Override
+    public Route set(int index, Route route) {
+        Route result = super.set(index, route);
+        invalidateTrie();
+        return result;
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
-     * fromIndex, inclusive, and toIndex, exclusive.
+     * fromIndex, inclusive, and toIndex, exclusive. Structural changes made
+     * via the view are written through to this list.
      * 
      * @param fromIndex
      *            The start position.
@@ -246,6 +461,6 @@ public final class RouteList extends WrapperList<Route> {
      */
     @Override
     public RouteList subList(int fromIndex, int toIndex) {
-        return new RouteList(getDelegate().subList(fromIndex, toIndex));
+        return new RouteList(this, getDelegate().subList(fromIndex, toIndex));
     }
 }
@@ -25,6 +25,9 @@
 package org.restlet.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -80,6 +83,39 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
     /** The entry class. */
     private final Class<T> entryClass;
 
+    /**
+     * Immutable snapshot of the entries indexed by lower-case name.
+     * 
+     * @param <T>
+     *            The contained type
+     */
+    private static final class Index<T> {
+        /** The entries indexed by lower-case name. */
+        private final Map<String, List<T>> entries;
+
+        /** The number of entries covered by the index. */
+        private final int size;
+
+        /**
+         * Constructor.
+         * 
+         * @param entries
+         *            The entries indexed by lower-case name.
+         * @param size
+         *            The number of entries covered by the index.
+         */
+        private Index(Map<String, List<T>> entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+    }
+
+    /** The published index of the entries, built lazily. */
+    private volatile Index<T> index;
+
+    /** Indicates if the lookups by name use an index. */
+    private volatile boolean indexed;
+
     /**
      * Constructor.
      */
@@ -110,6 +146,12 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         this.entryClass = entryClass;
     }
 
+    @Override
+    public void add(int index, T element) {
+        super.add(index, element);
+        invalidateIndex();
+    }
+
     /**
      * Creates then adds a parameter at the end of the list.
      * 
@@ -123,6 +165,46 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return add(createEntry(name, value));
     }
 
+    @Override
+    public boolean addAll(Collection<? extends T> elements) {
+        boolean result = super.addAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> elements) {
+        boolean result = super.addAll(index, elements);
+        invalidateIndex();
+        return result;
+    }
+
+    /**
+     * Adds an entry to the given index.
+     * 
+     * @param index
+     *            The index to update.
+     * @param element
+     *            The entry to add.
+     */
+    private void addToIndex(Map<String, List<T>> index, T element) {
+        String key = getIndexKey(element.getName());
+        List<T> entries = index.get(key);
+
+        if (entries == null) {
+            entries = new ArrayList<T>(1);
+            index.put(key, entries);
+        }
+
+        entries.add(element);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        invalidateIndex();
+    }
+
     /**
      * Copies the parameters whose name is a key in the given map.<br>
      * If a matching parameter is found, its value is put in the map.<br>
@@ -245,6 +327,24 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return result;
     }
 
+    /**
+     * Returns the entries that may have the given name. When indexed, these
+     * are only the entries whose name is equal ignoring the case, otherwise
+     * all the entries.
+     * 
+     * @param name
+     *            The name to look up.
+     * @return The entries that may have the given name.
+     */
+    private Iterable<T> getCandidates(String name) {
+        if (!this.indexed) {
+            return this;
+        }
+
+        List<T> result = getIndex().entries.get(getIndexKey(name));
+        return (result == null) ? Collections.<T> emptyList() : result;
+    }
+
     /**
      * Returns the first parameter found with the given name.
      * 
@@ -266,7 +366,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
      * @return The first parameter found with the given name.
      */
     public T getFirst(String name, boolean ignoreCase) {
-        for (T param : this) {
+        for (T param : getCandidates(name)) {
             if (equals(param.getName(), name, ignoreCase)) {
                 return param;
             }
@@ -339,6 +439,46 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return getFirstValue(name, false, defaultValue);
     }
 
+    /**
+     * Returns the index of the entries by lower-case name, rebuilding it if
+     * entries were added or removed since it was built. Lookups don't lock the
+     * series, a published index is never modified but replaced.
+     * 
+     * @return The index of the entries by lower-case name.
+     */
+    private Index<T> getIndex() {
+        Index<T> result = this.index;
+        int size = size();
+
+        if ((result == null) || (result.size != size)) {
+            Map<String, List<T>> entries = new HashMap<String, List<T>>();
+
+            for (T param : this) {
+                addToIndex(entries, param);
+            }
+
+            result = new Index<T>(entries, size);
+            this.index = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the index key of an entry name.
+     * 
+     * @param name
+     *            The entry name.
+     * @return The index key.
+     */
+    private String getIndexKey(String name) {
+        // [ifndef gwt] instruction
+        return (name == null) ? null : name
+                .toLowerCase(java.util.Locale.ENGLISH);
+        // [ifdef gwt] instruction uncomment
+        // return (name == null) ? null : name.toLowerCase();
+    }
+
     /**
      * Returns the set of parameter names (case sensitive).
      * 
@@ -384,7 +524,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         String result = null;
         StringBuilder sb = null;
 
-        for (final T param : this) {
+        for (final T param : getCandidates(name)) {
             if ((ignoreCase && param.getName().equalsIgnoreCase(name))
                     || param.getName().equals(name)) {
                 if (sb == null) {
@@ -500,6 +640,49 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return result;
     }
 
+    /**
+     * Drops the index, if any, so that it is rebuilt on the next lookup.
+     */
+    private void invalidateIndex() {
+        if (this.indexed) {
+            this.index = null;
+        }
+    }
+
+    /**
+     * Indicates if the lookups by name use an index. The index maps the
+     * lower-case names to the matching entries, in their list order, and is
+     * rebuilt after entries are added or removed via this series. Changing the
+     * name of an entry already added requires to reset the index by calling
+     * {@link #setIndexed(boolean)}. Defaults to false.
+     * 
+     * @return True if the lookups by name use an index.
+     */
+    public boolean isIndexed() {
+        return this.indexed;
+    }
+
+    @Override
+    public T remove(int index) {
+        T result = super.remove(index);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        boolean result = super.remove(element);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        boolean result = super.removeAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
     /**
      * Removes all the parameters with a given name.
      * 
@@ -533,6 +716,10 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
             }
         }
 
+        if (changed) {
+            invalidateIndex();
+        }
+
         return changed;
     }
 
@@ -570,9 +757,27 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
             }
         }
 
+        if (changed) {
+            invalidateIndex();
+        }
+
         return changed;
     }
 
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        boolean result = super.retainAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public T set(int index, T element) {
+        T result = super.set(index, element);
+        invalidateIndex();
+        return result;
+    }
+
     /**
      * Replaces the value of the first parameter with the given name and removes
      * all other parameters with the same name. The name matching is case
@@ -612,6 +817,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
                 if (found) {
                     // Remove other entries with the same name
                     iter.remove();
+                    invalidateIndex();
                 } else {
                     // Change the value of the first matching entry
                     found = true;
@@ -628,6 +834,20 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return result;
     }
 
+    /**
+     * Indicates if the lookups by name should use an index, turning them from
+     * linear scans into hash lookups. This is worth it for large series, such
+     * as posted Web forms with many fields.
+     * 
+     * @param indexed
+     *            True if the lookups by name should use an index.
+     * @see #isIndexed()
+     */
+    public void setIndexed(boolean indexed) {
+        this.index = null;
+        this.indexed = indexed;
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.
@@ -675,7 +895,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         // [ifdef gwt] instruction uncomment
         // Series<T> result = createSeries(null);
 
-        for (T param : this) {
+        for (T param : getCandidates(name)) {
             if (equals(param.getName(), name, ignoreCase)) {
                 result.add(param);
             }